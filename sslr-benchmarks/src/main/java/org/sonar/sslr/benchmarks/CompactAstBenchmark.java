@@ -0,0 +1,122 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.benchmarks;
+
+import com.google.common.base.Strings;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.Grammar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+import org.sonar.sslr.parser.LexerlessGrammar;
+import org.sonar.sslr.parser.ParserAdapter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compares memory retained by regular and compacted ASTs, see {@link AstNode#compact()}.
+ * <p>
+ * Throughput of parsing, including compaction, is measured by JMH.
+ * Retained memory is measured by {@link #retainedBytesPerNode(boolean)}, which is also run by the tests of this module,
+ * because allocation rates reported by JMH with {@code -prof gc} include garbage produced by the parser.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+public class CompactAstBenchmark {
+
+  private enum MyGrammar implements GrammarRuleKey {
+    COMPILATION_UNIT, STATEMENT, EXPRESSION, TERM, IDENTIFIER, NUMBER, SPACING;
+
+    public static LexerlessGrammar create() {
+      LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+      b.setRootRule(COMPILATION_UNIT);
+      b.rule(COMPILATION_UNIT).is(SPACING, b.zeroOrMore(STATEMENT), b.endOfInput());
+      b.rule(STATEMENT).is(IDENTIFIER, "=", SPACING, EXPRESSION, ";", SPACING);
+      b.rule(EXPRESSION).is(TERM, b.zeroOrMore(b.firstOf("+", "-"), SPACING, TERM));
+      b.rule(TERM).is(b.firstOf(IDENTIFIER, NUMBER, b.sequence("(", SPACING, EXPRESSION, ")", SPACING)));
+      b.rule(IDENTIFIER).is(b.regexp("[a-z]++"), SPACING);
+      b.rule(NUMBER).is(b.regexp("[0-9]++"), SPACING);
+      b.rule(SPACING).is(b.skippedTrivia(b.regexp("\\s*+"))).skip();
+      return b.build();
+    }
+  }
+
+  @Param({"false", "true"})
+  public boolean compact;
+
+  private ParserAdapter<LexerlessGrammar> parser;
+  private String input;
+
+  @Setup
+  public void setup() {
+    int n = Integer.getInteger("n", 1000);
+    parser = new ParserAdapter<>(StandardCharsets.UTF_8, MyGrammar.create());
+    input = Strings.repeat("a = b + (c - 42) + d;\n", n);
+  }
+
+  @Benchmark
+  public AstNode parse() {
+    AstNode tree = parser.parse(input);
+    if (compact) {
+      tree.compact();
+    }
+    return tree;
+  }
+
+  /**
+   * Keeps several trees alive and measures the heap after garbage collection, which is approximate but sufficient
+   * to compare both modes, e.g. {@code retainedBytesPerNode(false) / retainedBytesPerNode(true)}.
+   */
+  public long retainedBytesPerNode(boolean compact) {
+    this.compact = compact;
+    int copies = 10;
+    AstNode[] trees = new AstNode[copies];
+    long before = usedMemory();
+    for (int i = 0; i < copies; i++) {
+      trees[i] = parse();
+    }
+    long after = usedMemory();
+    return (after - before) / (copies * (long) countNodes(trees[0]));
+  }
+
+  static int countNodes(AstNode node) {
+    int result = 1;
+    for (AstNode child : node.getChildren()) {
+      result += countNodes(child);
+    }
+    return result;
+  }
+
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+}
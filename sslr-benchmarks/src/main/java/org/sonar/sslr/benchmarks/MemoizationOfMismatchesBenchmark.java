@@ -40,6 +40,10 @@ public class MemoizationOfMismatchesBenchmark {
   private ParseRunner notRequired;
   private char[] input;
 
+  private ParseRunner sharedFailingRule;
+  private ParseRunner sharedFailingExpression;
+  private char[] sharedFailingInput;
+
   @Setup
   public void setup() {
     int k = Integer.getInteger("k", 5);
@@ -68,6 +72,29 @@ public class MemoizationOfMismatchesBenchmark {
       b.rule(rules[i]).is(spacing, "k" + i);
     }
     notRequired = new ParseRunner(b.build().rule(root));
+
+    // k alternatives start with the same rule, which fails only after having consumed a long prefix of input
+    String prefix = Strings.repeat("p", 100);
+    sharedFailingInput = Strings.repeat(prefix + " ", n).toCharArray();
+    GrammarRuleKey failing = newRuleKey();
+
+    b = LexerlessGrammarBuilder.create();
+    Object[] alternatives = new Object[k + 1];
+    for (int i = 0; i < k; i++) {
+      alternatives[i] = b.sequence(failing, "k" + i);
+    }
+    alternatives[k] = prefix + " ";
+    b.rule(root).is(b.zeroOrMore(b.firstOf(alternatives[0], alternatives[1], Arrays.copyOfRange(alternatives, 2, k + 1))), b.endOfInput());
+    b.rule(failing).is(b.oneOrMore("p"), ";");
+    sharedFailingRule = new ParseRunner(b.build().rule(root));
+
+    // same language without the rule, so that its mismatches can not be memoized
+    b = LexerlessGrammarBuilder.create();
+    for (int i = 0; i < k; i++) {
+      alternatives[i] = b.sequence(b.oneOrMore("p"), ";", "k" + i);
+    }
+    b.rule(root).is(b.zeroOrMore(b.firstOf(alternatives[0], alternatives[1], Arrays.copyOfRange(alternatives, 2, k + 1))), b.endOfInput());
+    sharedFailingExpression = new ParseRunner(b.build().rule(root));
   }
 
   @Benchmark
@@ -80,6 +107,16 @@ public class MemoizationOfMismatchesBenchmark {
     return notRequired.parse(input).isMatched();
   }
 
+  @Benchmark
+  public boolean sharedFailingRule() {
+    return sharedFailingRule.parse(sharedFailingInput).isMatched();
+  }
+
+  @Benchmark
+  public boolean sharedFailingExpression() {
+    return sharedFailingExpression.parse(sharedFailingInput).isMatched();
+  }
+
   private static GrammarRuleKey newRuleKey() {
     return new GrammarRuleKey() {
     };
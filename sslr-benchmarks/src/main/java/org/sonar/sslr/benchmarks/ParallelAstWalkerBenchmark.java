@@ -0,0 +1,147 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.benchmarks;
+
+import com.google.common.base.Strings;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.IndependentAstVisitor;
+import com.sonar.sslr.impl.ast.AstWalker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+import org.sonar.sslr.parser.LexerlessGrammar;
+import org.sonar.sslr.parser.ParserAdapter;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compares sequential and parallel walks of a large AST by many visitors, see {@link AstWalker#walkAndVisitInParallel(AstNode, int)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+public class ParallelAstWalkerBenchmark {
+
+  private enum MyGrammar implements GrammarRuleKey {
+    COMPILATION_UNIT, STATEMENT, EXPRESSION, TERM, IDENTIFIER, NUMBER, SPACING;
+
+    public static LexerlessGrammar create() {
+      LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+      b.setRootRule(COMPILATION_UNIT);
+      b.rule(COMPILATION_UNIT).is(SPACING, b.zeroOrMore(STATEMENT), b.endOfInput());
+      b.rule(STATEMENT).is(IDENTIFIER, "=", SPACING, EXPRESSION, ";", SPACING);
+      b.rule(EXPRESSION).is(TERM, b.zeroOrMore(b.firstOf("+", "-"), SPACING, TERM));
+      b.rule(TERM).is(b.firstOf(IDENTIFIER, NUMBER, b.sequence("(", SPACING, EXPRESSION, ")", SPACING)));
+      b.rule(IDENTIFIER).is(b.regexp("[a-z]++"), SPACING);
+      b.rule(NUMBER).is(b.regexp("[0-9]++"), SPACING);
+      b.rule(SPACING).is(b.skippedTrivia(b.regexp("\\s*+"))).skip();
+      return b.build();
+    }
+  }
+
+  /**
+   * Counts nodes of a given type and sums lengths of their values.
+   */
+  static class CountingVisitor implements IndependentAstVisitor {
+
+    private final AstNodeType type;
+    private int nodes;
+    private long length;
+    long result;
+
+    CountingVisitor(AstNodeType type) {
+      this.type = type;
+    }
+
+    @Override
+    public List<AstNodeType> getAstNodeTypesToVisit() {
+      return Collections.singletonList(type);
+    }
+
+    @Override
+    public void visitFile(@Nullable AstNode ast) {
+      nodes = 0;
+      length = 0;
+    }
+
+    @Override
+    public void visitNode(AstNode ast) {
+      nodes++;
+      length += ast.getTokenValue().length();
+    }
+
+    @Override
+    public void leaveNode(AstNode ast) {
+      // nothing to do
+    }
+
+    @Override
+    public void leaveFile(@Nullable AstNode ast) {
+      result = nodes * 31L + length;
+    }
+
+  }
+
+  @Param({"false", "true"})
+  public boolean parallel;
+
+  private AstNode tree;
+  private AstWalker walker;
+  List<CountingVisitor> visitors;
+
+  @Setup
+  public void setup() {
+    int n = Integer.getInteger("n", 10000);
+    int visitorsCount = Integer.getInteger("visitors", 160);
+    ParserAdapter<LexerlessGrammar> parser = new ParserAdapter<>(StandardCharsets.UTF_8, MyGrammar.create());
+    tree = parser.parse(Strings.repeat("a = b + (c - 42) + d;\n", n));
+    visitors = new ArrayList<>();
+    MyGrammar[] types = MyGrammar.values();
+    for (int i = 0; i < visitorsCount; i++) {
+      visitors.add(new CountingVisitor(types[i % (types.length - 1)]));
+    }
+    walker = new AstWalker(visitors);
+  }
+
+  @Benchmark
+  public long walk() {
+    if (parallel) {
+      walker.walkAndVisitInParallel(tree, Runtime.getRuntime().availableProcessors());
+    } else {
+      walker.walkAndVisit(tree);
+    }
+    long result = 0;
+    for (CountingVisitor visitor : visitors) {
+      result = result * 31 + visitor.result;
+    }
+    return result;
+  }
+
+}
@@ -32,6 +32,8 @@ public class MemoizationOfMismatchesBenchmarkTest {
 
     assertThat(benchmark.required()).isTrue();
     assertThat(benchmark.notRequired()).isTrue();
+    assertThat(benchmark.sharedFailingRule()).isTrue();
+    assertThat(benchmark.sharedFailingExpression()).isTrue();
   }
 
 
@@ -0,0 +1,40 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.benchmarks;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ParallelAstWalkerBenchmarkTest {
+
+  @Test
+  public void test() {
+    ParallelAstWalkerBenchmark benchmark = new ParallelAstWalkerBenchmark();
+    benchmark.setup();
+
+    benchmark.parallel = false;
+    long expected = benchmark.walk();
+    benchmark.parallel = true;
+    assertThat(benchmark.walk()).isEqualTo(expected);
+    assertThat(benchmark.visitors.get(0).result).isNotEqualTo(0L);
+  }
+
+}
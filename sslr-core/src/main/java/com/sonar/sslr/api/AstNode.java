@@ -25,8 +25,11 @@ import org.sonar.sslr.internal.ast.select.AstSelectFactory;
 import org.sonar.sslr.internal.grammar.MutableParsingRule;
 
 import javax.annotation.Nullable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 
 /**
@@ -41,6 +44,8 @@ public class AstNode {
   protected AstNodeType type;
   private final String name;
   private final Token token;
+  @Nullable
+  private List<Token> tokenRange;
   private List<AstNode> children = Collections.emptyList();
   private int childIndex = -1;
   private AstNode parent;
@@ -57,6 +62,18 @@ public class AstNode {
     this.name = name;
   }
 
+  /**
+   * Creates a leaf node which covers several consecutive tokens, for instance all tokens between brackets matched by a bridge.
+   * Type, name and token of this node are those of the first token, whereas all tokens are reachable through {@link #getTokens()}.
+   *
+   * @param tokens  non-empty list of tokens, which is not copied
+   * @since 1.23
+   */
+  public AstNode(List<Token> tokens) {
+    this(tokens.get(0));
+    this.tokenRange = tokens;
+  }
+
   /**
    * Get the parent of this node in the tree.
    */
@@ -66,8 +83,9 @@ public class AstNode {
 
   public void addChild(AstNode child) {
     if (child != null) {
-      if (children.isEmpty()) {
-        children = new ArrayList<>();
+      if (!(children instanceof ArrayList)) {
+        // empty or compacted
+        children = new ArrayList<>(children);
       }
       if (child.hasToBeSkippedFromAst()) {
         if (child.hasChildren()) {
@@ -87,6 +105,34 @@ public class AstNode {
     child.parent = this;
   }
 
+  /**
+   * Reduces the memory footprint of this tree: the list of children of this node and of each of its descendants is replaced
+   * by a list of exact size, which for a single child does not even need an array.
+   * Meant to be called once the tree is complete, for instance right after parsing of a big file.
+   * Lists of children become fixed-size, but children can still be added with {@link #addChild(AstNode)}.
+   * Parent, index among siblings and indices in input are kept: they are plain fields, which would not be smaller if computed lazily,
+   * whereas computing index among siblings on demand would make navigation to siblings linear in the number of children,
+   * and indices in input can not be recomputed from the tree.
+   *
+   * @since 1.23
+   */
+  public void compact() {
+    Deque<AstNode> stack = new ArrayDeque<>();
+    stack.push(this);
+    while (!stack.isEmpty()) {
+      AstNode node = stack.pop();
+      int size = node.children.size();
+      if (size == 1 && node.children instanceof ArrayList) {
+        node.children = Collections.singletonList(node.children.get(0));
+      } else if (size > 1 && node.children instanceof ArrayList) {
+        node.children = Arrays.asList(node.children.toArray(new AstNode[size]));
+      }
+      for (AstNode child : node.children) {
+        stack.push(child);
+      }
+    }
+  }
+
   /**
    * @return true if this AstNode has some children.
    */
@@ -259,6 +305,14 @@ public class AstNode {
     return token != null;
   }
 
+  /**
+   * @return true if this is a leaf node which covers several tokens, see {@link #AstNode(List)}
+   * @since 1.23
+   */
+  public boolean isTokenRange() {
+    return tokenRange != null;
+  }
+
   public String getName() {
     return name;
   }
@@ -373,18 +427,27 @@ public class AstNode {
    * @since 1.17
    */
   public AstNode getFirstDescendant(AstNodeType... nodeTypes) {
-    for (AstNode child : children) {
-      if (child.is(nodeTypes)) {
-        return child;
-      }
-      AstNode node = child.getFirstDescendant(nodeTypes);
-      if (node != null) {
+    Deque<AstNode> stack = new ArrayDeque<>();
+    pushChildren(this, stack);
+    while (!stack.isEmpty()) {
+      AstNode node = stack.pop();
+      if (node.is(nodeTypes)) {
         return node;
       }
+      pushChildren(node, stack);
     }
     return null;
   }
 
+  /**
+   * Pushes children in reverse order, so that they are popped in order.
+   */
+  private static void pushChildren(AstNode node, Deque<AstNode> stack) {
+    for (int i = node.children.size() - 1; i >= 0; i--) {
+      stack.push(node.children.get(i));
+    }
+  }
+
   /**
    * Returns the first child of this node.
    *
@@ -434,9 +497,9 @@ public class AstNode {
    */
   @Deprecated
   public List<AstNode> findChildren(AstNodeType... nodeTypes) {
-    List<AstNode> result = new ArrayList<>();
-    getDescendants(result, nodeTypes);
-    return result;
+    Deque<AstNode> stack = new ArrayDeque<>();
+    stack.push(this);
+    return getDescendants(stack, nodeTypes);
   }
 
   /**
@@ -457,26 +520,26 @@ public class AstNode {
    * @since 1.17
    */
   public List<AstNode> getDescendants(AstNodeType... nodeTypes) {
-    List<AstNode> result = new ArrayList<>();
-    if (hasChildren()) {
-      for (AstNode child : children) {
-        child.getDescendants(result, nodeTypes);
-      }
-    }
-    return result;
+    Deque<AstNode> stack = new ArrayDeque<>();
+    pushChildren(this, stack);
+    return getDescendants(stack, nodeTypes);
   }
 
-  private void getDescendants(List<AstNode> result, AstNodeType... nodeTypes) {
-    for (AstNodeType nodeType : nodeTypes) {
-      if (is(nodeType)) {
-        result.add(this);
-      }
-    }
-    if (hasChildren()) {
-      for (AstNode child : children) {
-        child.getDescendants(result, nodeTypes);
+  /**
+   * Depth-first traversal with an explicit stack rather than recursion, so that the depth of the tree is not limited by the size of the thread stack.
+   */
+  private static List<AstNode> getDescendants(Deque<AstNode> stack, AstNodeType... nodeTypes) {
+    List<AstNode> result = new ArrayList<>();
+    while (!stack.isEmpty()) {
+      AstNode node = stack.pop();
+      for (AstNodeType nodeType : nodeTypes) {
+        if (node.is(nodeType)) {
+          result.add(node);
+        }
       }
+      pushChildren(node, stack);
     }
+    return result;
   }
 
   /**
@@ -623,20 +686,21 @@ public class AstNode {
    */
   public List<Token> getTokens() {
     List<Token> tokens = new ArrayList<>();
-    getTokens(tokens);
-    return tokens;
-  }
-
-  private void getTokens(List<Token> tokens) {
-    if (!hasChildren()) {
-      if (token != null) {
-        tokens.add(token);
-      }
-    } else {
-      for (int i = 0; i < children.size(); i++) {
-        children.get(i).getTokens(tokens);
+    Deque<AstNode> stack = new ArrayDeque<>();
+    stack.push(this);
+    while (!stack.isEmpty()) {
+      AstNode node = stack.pop();
+      if (!node.hasChildren()) {
+        if (node.tokenRange != null) {
+          tokens.addAll(node.tokenRange);
+        } else if (node.token != null) {
+          tokens.add(node.token);
+        }
+      } else {
+        pushChildren(node, stack);
       }
     }
+    return tokens;
   }
 
   @Override
@@ -665,6 +729,9 @@ public class AstNode {
         }
       }
     }
+    if (currentNode.tokenRange != null) {
+      return currentNode.tokenRange.get(currentNode.tokenRange.size() - 1);
+    }
     return currentNode.getToken();
   }
 
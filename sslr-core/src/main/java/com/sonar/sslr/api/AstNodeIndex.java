@@ -0,0 +1,243 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.api;
+
+import javax.annotation.CheckForNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of a tree, which answers descendant and ancestor queries without walking the tree.
+ * <p>
+ * Nodes are numbered in document order (pre-order), and each node knows the number of its last descendant,
+ * so that descendants of a node are exactly the nodes numbered within an interval.
+ * For each node type, numbers of the nodes of this type are kept sorted, so that descendants of a given type
+ * are found by two binary searches. As in {@link AstNode#is(AstNodeType...)}, types are compared by identity.
+ * </p>
+ * <p>
+ * The index is meant to be built once the tree is complete, typically right after parsing, and then queried many times.
+ * It does not follow modifications of the tree, and must be rebuilt if the tree is modified.
+ * </p>
+ *
+ * @since 1.23
+ */
+public final class AstNodeIndex {
+
+  private static final int[] NO_NODES = new int[0];
+
+  private final AstNode[] nodes;
+  private final int[] lastDescendants;
+  private final Map<AstNode, Integer> numbers;
+  private final Map<AstNodeType, int[]> nodesByType;
+
+  private AstNodeIndex(AstNode[] nodes, int[] lastDescendants, Map<AstNode, Integer> numbers, Map<AstNodeType, int[]> nodesByType) {
+    this.nodes = nodes;
+    this.lastDescendants = lastDescendants;
+    this.numbers = numbers;
+    this.nodesByType = nodesByType;
+  }
+
+  public static AstNodeIndex of(AstNode root) {
+    List<AstNode> nodes = new ArrayList<>();
+    List<Integer> lastDescendants = new ArrayList<>();
+    Map<AstNode, Integer> numbers = new IdentityHashMap<>();
+    Map<AstNodeType, List<Integer>> nodesByType = new IdentityHashMap<>();
+
+    // the stack contains nodes to enter, and entered nodes (encoded as -1 - number) to leave once their descendants are numbered
+    Deque<Object> stack = new ArrayDeque<>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      Object top = stack.pop();
+      if (top instanceof Integer) {
+        lastDescendants.set(-1 - (Integer) top, nodes.size() - 1);
+        continue;
+      }
+      AstNode node = (AstNode) top;
+      int number = nodes.size();
+      nodes.add(node);
+      lastDescendants.add(number);
+      numbers.put(node, number);
+      List<Integer> ofType = nodesByType.get(node.getType());
+      if (ofType == null) {
+        ofType = new ArrayList<>();
+        nodesByType.put(node.getType(), ofType);
+      }
+      ofType.add(number);
+
+      stack.push(-1 - number);
+      List<AstNode> children = node.getChildren();
+      for (int i = children.size() - 1; i >= 0; i--) {
+        stack.push(children.get(i));
+      }
+    }
+
+    int[] last = new int[lastDescendants.size()];
+    for (int i = 0; i < last.length; i++) {
+      last[i] = lastDescendants.get(i);
+    }
+    Map<AstNodeType, int[]> byType = new IdentityHashMap<>();
+    for (Map.Entry<AstNodeType, List<Integer>> entry : nodesByType.entrySet()) {
+      List<Integer> list = entry.getValue();
+      int[] array = new int[list.size()];
+      for (int i = 0; i < array.length; i++) {
+        array[i] = list.get(i);
+      }
+      byType.put(entry.getKey(), array);
+    }
+    return new AstNodeIndex(nodes.toArray(new AstNode[nodes.size()]), last, numbers, byType);
+  }
+
+  /**
+   * Same as {@link AstNode#getDescendants(AstNodeType...)}, including order of the result.
+   */
+  public List<AstNode> getDescendants(AstNode node, AstNodeType... nodeTypes) {
+    int number = number(node);
+    int from = number + 1;
+    int to = lastDescendants[number] + 1;
+    if (nodeTypes.length == 1) {
+      int[] ofType = ofType(nodeTypes[0]);
+      int start = lowerBound(ofType, from);
+      int end = lowerBound(ofType, to);
+      List<AstNode> result = new ArrayList<>(end - start);
+      for (int i = start; i < end; i++) {
+        result.add(nodes[ofType[i]]);
+      }
+      return result;
+    }
+    int count = 0;
+    int[][] ranges = new int[nodeTypes.length][];
+    for (int t = 0; t < nodeTypes.length; t++) {
+      int[] ofType = ofType(nodeTypes[t]);
+      int start = lowerBound(ofType, from);
+      int end = lowerBound(ofType, to);
+      ranges[t] = Arrays.copyOfRange(ofType, start, end);
+      count += end - start;
+    }
+    if (count == 0) {
+      return new ArrayList<>();
+    }
+    int[] merged = new int[count];
+    int n = 0;
+    for (int[] range : ranges) {
+      System.arraycopy(range, 0, merged, n, range.length);
+      n += range.length;
+    }
+    Arrays.sort(merged);
+    List<AstNode> result = new ArrayList<>(count);
+    for (int i : merged) {
+      result.add(nodes[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Same as {@link AstNode#getFirstDescendant(AstNodeType...)}.
+   */
+  @CheckForNull
+  public AstNode getFirstDescendant(AstNode node, AstNodeType... nodeTypes) {
+    int number = number(node);
+    int to = lastDescendants[number];
+    int first = Integer.MAX_VALUE;
+    for (AstNodeType nodeType : nodeTypes) {
+      int[] ofType = ofType(nodeType);
+      int i = lowerBound(ofType, number + 1);
+      if (i < ofType.length && ofType[i] <= to && ofType[i] < first) {
+        first = ofType[i];
+      }
+    }
+    return first == Integer.MAX_VALUE ? null : nodes[first];
+  }
+
+  /**
+   * Same as {@link AstNode#hasDescendant(AstNodeType...)}.
+   */
+  public boolean hasDescendant(AstNode node, AstNodeType... nodeTypes) {
+    return getFirstDescendant(node, nodeTypes) != null;
+  }
+
+  /**
+   * @return true if the first node is a proper ancestor of the second one
+   */
+  public boolean isAncestor(AstNode ancestor, AstNode node) {
+    int ancestorNumber = number(ancestor);
+    int number = number(node);
+    return ancestorNumber < number && number <= lastDescendants[ancestorNumber];
+  }
+
+  /**
+   * @return number of nodes of the specified type in the indexed tree
+   */
+  public int count(AstNodeType nodeType) {
+    return ofType(nodeType).length;
+  }
+
+  /**
+   * @return nodes of the specified type in document order
+   */
+  public List<AstNode> getNodes(AstNodeType nodeType) {
+    int[] ofType = ofType(nodeType);
+    if (ofType.length == 0) {
+      return Collections.emptyList();
+    }
+    List<AstNode> result = new ArrayList<>(ofType.length);
+    for (int i : ofType) {
+      result.add(nodes[i]);
+    }
+    return result;
+  }
+
+  private int number(AstNode node) {
+    Integer number = numbers.get(node);
+    if (number == null) {
+      throw new IllegalArgumentException("The node is not part of the indexed tree: " + node);
+    }
+    return number;
+  }
+
+  private int[] ofType(AstNodeType nodeType) {
+    int[] result = nodesByType.get(nodeType);
+    return result == null ? NO_NODES : result;
+  }
+
+  /**
+   * @return index of the first element greater than or equal to the key, or length of the array if there is none
+   */
+  private static int lowerBound(int[] array, int key) {
+    int low = 0;
+    int high = array.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (array[mid] < key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+}
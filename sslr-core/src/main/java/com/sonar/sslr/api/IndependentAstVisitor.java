@@ -0,0 +1,35 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.api;
+
+/**
+ * Marker interface for visitors which can be driven concurrently with other visitors by
+ * {@link com.sonar.sslr.impl.ast.AstWalker#walkAndVisitInParallel(AstNode, int)}.
+ * <p>
+ * Between {@link #visitFile(AstNode)} and {@link #leaveFile(AstNode)}, such a visitor must neither modify the tree nor share
+ * mutable state with other visitors: it only collects information in its own fields. Calls to {@link #visitFile(AstNode)} and
+ * {@link #leaveFile(AstNode)} are still made sequentially, in the same order as for a sequential walk, so that is the place
+ * to publish collected information, e.g. to report issues.
+ * </p>
+ *
+ * @since 1.23
+ */
+public interface IndependentAstVisitor extends AstVisitor {
+}
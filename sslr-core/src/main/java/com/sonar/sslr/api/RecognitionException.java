@@ -20,6 +20,15 @@
 package com.sonar.sslr.api;
 
 import com.sonar.sslr.impl.LexerException;
+import org.sonar.sslr.parser.ParseError;
+import org.sonar.sslr.parser.ParseErrorFormatter;
+
+import javax.annotation.CheckForNull;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Objects;
+import java.util.function.Supplier;
 
 /**
  * <p>This class is not intended to be instantiated or subclassed by clients.</p>
@@ -28,9 +37,18 @@ public class RecognitionException extends RuntimeException {
 
   private final int line;
 
+  /**
+   * Builds the message only when requested, because parse errors are frequently caught and ignored, or logged only at debug level.
+   * Released once the message is built.
+   */
+  private transient Supplier<String> messageSupplier;
+  private String builtMessage;
+  private final transient ParseError parseError;
+
   public RecognitionException(LexerException e) {
     super("Lexer error: " + e.getMessage(), e);
     this.line = 0;
+    this.parseError = null;
   }
 
   /**
@@ -39,6 +57,7 @@ public class RecognitionException extends RuntimeException {
   public RecognitionException(int line, String message) {
     super(message);
     this.line = line;
+    this.parseError = null;
   }
 
   /**
@@ -47,6 +66,49 @@ public class RecognitionException extends RuntimeException {
   public RecognitionException(int line, String message, Throwable cause) {
     super(message, cause);
     this.line = line;
+    this.parseError = null;
+  }
+
+  /**
+   * @param message  builds the message, which is done only when the message is requested, or when this exception is serialized
+   * @since 1.23
+   */
+  public RecognitionException(int line, Supplier<String> message) {
+    super();
+    this.line = line;
+    this.messageSupplier = Objects.requireNonNull(message, "message cannot be null");
+    this.parseError = null;
+  }
+
+  /**
+   * Message is formatted by {@link ParseErrorFormatter} only when requested.
+   * The given parse error, and so the parsed input, is retained as long as this exception.
+   *
+   * @since 1.23
+   */
+  public RecognitionException(ParseError parseError) {
+    super();
+    this.line = parseError.getInputBuffer().getPosition(parseError.getErrorIndex()).getLine();
+    this.messageSupplier = new ParseErrorMessage(parseError);
+    this.parseError = parseError;
+  }
+
+  @Override
+  public synchronized String getMessage() {
+    if (messageSupplier != null) {
+      builtMessage = messageSupplier.get();
+      messageSupplier = null;
+    }
+    return builtMessage == null ? super.getMessage() : builtMessage;
+  }
+
+  /**
+   * @return parse error, from which this exception has been created, or null, in particular after deserialization
+   * @since 1.23
+   */
+  @CheckForNull
+  public ParseError getParseError() {
+    return parseError;
   }
 
   /**
@@ -58,4 +120,25 @@ public class RecognitionException extends RuntimeException {
     return line;
   }
 
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    // message is built, because its supplier is not serialized
+    getMessage();
+    out.defaultWriteObject();
+  }
+
+  private static final class ParseErrorMessage implements Supplier<String> {
+
+    private final ParseError parseError;
+
+    ParseErrorMessage(ParseError parseError) {
+      this.parseError = parseError;
+    }
+
+    @Override
+    public String get() {
+      return new ParseErrorFormatter().format(parseError);
+    }
+
+  }
+
 }
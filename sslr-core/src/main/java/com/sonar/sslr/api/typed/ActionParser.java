@@ -20,23 +20,16 @@
 package com.sonar.sslr.api.typed;
 
 import com.sonar.sslr.api.RecognitionException;
-import com.sonar.sslr.impl.typed.GrammarBuilderInterceptor;
-import com.sonar.sslr.impl.typed.ReflectionUtils;
 import com.sonar.sslr.impl.typed.SyntaxTreeCreator;
-import net.sf.cglib.proxy.Enhancer;
-import net.sf.cglib.proxy.MethodInterceptor;
-import net.sf.cglib.proxy.MethodProxy;
 import org.sonar.sslr.grammar.GrammarRuleKey;
 import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
-import org.sonar.sslr.internal.matchers.InputBuffer;
-import org.sonar.sslr.parser.ParseError;
-import org.sonar.sslr.parser.ParseErrorFormatter;
+import org.sonar.sslr.internal.matchers.LineIndex;
 import org.sonar.sslr.parser.ParseRunner;
 import org.sonar.sslr.parser.ParsingResult;
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Method;
+import java.net.URI;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -53,87 +46,60 @@ public class ActionParser<N> {
   private final ParseRunner parseRunner;
 
   public ActionParser(Charset charset, LexerlessGrammarBuilder b, Class grammarClass, Object treeFactory, NodeBuilder nodeBuilder, GrammarRuleKey rootRule) {
-    this.charset = charset;
-
-    GrammarBuilderInterceptor grammarBuilderInterceptor = new GrammarBuilderInterceptor(b);
-    Enhancer grammarEnhancer = new Enhancer();
-    grammarEnhancer.setSuperclass(grammarClass);
-    grammarEnhancer.setCallback(grammarBuilderInterceptor);
-
-    ActionMethodInterceptor actionMethodInterceptor = new ActionMethodInterceptor(grammarBuilderInterceptor);
-    Enhancer actionEnhancer = new Enhancer();
-    actionEnhancer.setSuperclass(treeFactory.getClass());
-    actionEnhancer.setCallback(actionMethodInterceptor);
-
-    Object grammar = grammarEnhancer.create(
-      new Class[] {GrammarBuilder.class, treeFactory.getClass()},
-      new Object[] {grammarBuilderInterceptor, actionEnhancer.create()});
-
-    for (Method method : grammarClass.getMethods()) {
-      if (method.getDeclaringClass().equals(Object.class)) {
-        continue;
-      }
+    this(charset, createModel(b, grammarClass, treeFactory, rootRule), treeFactory, nodeBuilder, rootRule);
+  }
 
-      ReflectionUtils.invokeMethod(method, grammar);
+  /**
+   * Creates a parser from a model which has been created beforehand, and which can be shared by several parsers.
+   *
+   * @param treeFactory
+   *          tree factory, which must be an instance of {@link TypedGrammarModel#treeFactoryClass()}
+   * @since 1.23
+   */
+  public ActionParser(Charset charset, TypedGrammarModel model, Object treeFactory, NodeBuilder nodeBuilder, GrammarRuleKey rootRule) {
+    if (!model.treeFactoryClass().isInstance(treeFactory)) {
+      throw new IllegalArgumentException("The tree factory must be an instance of " + model.treeFactoryClass().getName());
     }
+    this.charset = charset;
+    this.syntaxTreeCreator = new SyntaxTreeCreator<>(treeFactory, model, nodeBuilder);
+    this.rootRule = rootRule;
+    this.parseRunner = new ParseRunner(model.rule(rootRule));
+  }
 
-    this.syntaxTreeCreator = new SyntaxTreeCreator<>(treeFactory, grammarBuilderInterceptor, nodeBuilder);
-
+  private static TypedGrammarModel createModel(LexerlessGrammarBuilder b, Class grammarClass, Object treeFactory, GrammarRuleKey rootRule) {
     b.setRootRule(rootRule);
-    this.rootRule = rootRule;
-    this.parseRunner = new ParseRunner(b.build().getRootRule());
+    return TypedGrammarModel.create(b, grammarClass, treeFactory.getClass());
   }
 
   public N parse(File file) {
     try {
       char[] chars = new String(Files.readAllBytes(Paths.get(file.getPath())), charset).toCharArray();
-      return parse(new Input(chars, file.toURI()));
+      return parse(chars, file.toURI());
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
   public N parse(String source) {
-    return parse(new Input(source.toCharArray()));
+    return parse(source.toCharArray(), Input.FAKE_URI);
   }
 
-  private N parse(Input input) {
-    ParsingResult result = parseRunner.parse(input.input());
+  private N parse(char[] chars, URI uri) {
+    ParsingResult result = parseRunner.parse(chars);
 
     if (!result.isMatched()) {
-      ParseError parseError = result.getParseError();
-      InputBuffer inputBuffer = parseError.getInputBuffer();
-      int line = inputBuffer.getPosition(parseError.getErrorIndex()).getLine();
-      String message = new ParseErrorFormatter().format(parseError);
-      throw new RecognitionException(line, message);
+      // message is formatted only when requested
+      throw new RecognitionException(result.getParseError());
     }
 
-    return syntaxTreeCreator.create(result.getParseTreeRoot(), input);
+    // lines are shared with the result of parse
+    LineIndex lineIndex = LineIndex.of(result.getInputBuffer(), chars);
+    Input input = new Input(chars, uri, lineIndex);
+    return syntaxTreeCreator.create(result.getParseTreeRoot(), input, lineIndex);
   }
 
   public GrammarRuleKey rootRule() {
     return rootRule;
   }
 
-  private static class ActionMethodInterceptor implements MethodInterceptor {
-
-    private final GrammarBuilderInterceptor grammarBuilderInterceptor;
-
-    public ActionMethodInterceptor(GrammarBuilderInterceptor grammarBuilderInterceptor) {
-      this.grammarBuilderInterceptor = grammarBuilderInterceptor;
-    }
-
-    @Override
-    public Object intercept(Object obj, Method method, Object[] args, MethodProxy proxy) throws Throwable {
-      if (method.getDeclaringClass().equals(Object.class)) {
-        return proxy.invokeSuper(obj, args);
-      }
-
-      grammarBuilderInterceptor.addAction(method, args.length);
-
-      return null;
-    }
-
-  }
-
 }
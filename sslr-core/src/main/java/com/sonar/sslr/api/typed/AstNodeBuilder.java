@@ -58,11 +58,10 @@ public class AstNodeBuilder implements NodeBuilder {
 
   @Override
   public AstNode createTerminal(Input input, int startIndex, int endIndex, List<Trivia> trivias, TokenType type) {
-    int[] lineAndColumn = input.lineAndColumnAt(startIndex);
     Token token = Token.builder()
       .setType(type == null ? UNDEFINED_TOKEN_TYPE : type)
-      .setLine(lineAndColumn[0])
-      .setColumn(lineAndColumn[1] - 1)
+      .setLine(input.lineAt(startIndex))
+      .setColumn(input.columnAt(startIndex) - 1)
       .setValueAndOriginalValue(input.substring(startIndex, endIndex))
       .setURI(input.uri())
       .setGeneratedCode(false)
@@ -19,41 +19,37 @@
  */
 package com.sonar.sslr.api.typed;
 
+import org.sonar.sslr.internal.matchers.LineIndex;
+
 import java.io.File;
 import java.net.URI;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 
 /**
  * @since 1.21
  */
 public class Input {
 
-  private static final URI FAKE_URI = new File("tests://unittests").toURI();
+  static final URI FAKE_URI = new File("tests://unittests").toURI();
 
   private final char[] inputChars;
   private final URI uri;
-  private final int[] newLineIndexes;
+  private final LineIndex lineIndex;
 
   public Input(char[] input) {
     this(input, FAKE_URI);
   }
 
   public Input(char[] input, URI uri) {
+    this(input, uri, new LineIndex(input));
+  }
+
+  /**
+   * @param lineIndex  lines of the given input, which are computed only when requested and can be shared with the result of parse
+   */
+  Input(char[] input, URI uri, LineIndex lineIndex) {
     this.inputChars = input;
     this.uri = uri;
-
-    List<Integer> newLineIndexesBuilder = new ArrayList<>();
-    for (int i = 0; i < input.length; i++) {
-      if (isNewLine(input, i)) {
-        newLineIndexesBuilder.add(i + 1);
-      }
-    }
-    this.newLineIndexes = new int[newLineIndexesBuilder.size()];
-    for (int i = 0; i < newLineIndexes.length; i++) {
-      this.newLineIndexes[i] = newLineIndexesBuilder.get(i);
-    }
+    this.lineIndex = lineIndex;
   }
 
   public char[] input() {
@@ -73,27 +69,30 @@ public class Input {
   }
 
   public int[] lineAndColumnAt(int index) {
+    int line = lineIndex.getLine(index);
     int[] result = new int[2];
-    result[0] = lineAt(index);
-    result[1] = index - lineStartIndex(result[0]) + 1;
+    result[0] = line;
+    result[1] = index - lineIndex.getLineStart(line) + 1;
     return result;
   }
 
-  private int lineAt(int index) {
-    int i = Arrays.binarySearch(newLineIndexes, index);
-    return i >= 0 ? (i + 2) : -i;
-  }
-
-  private int lineStartIndex(int line) {
-    return line == 1 ? 0 : newLineIndexes[line - 2];
+  /**
+   * Same as first element of {@link #lineAndColumnAt(int)}, but without allocation.
+   *
+   * @return line of the given index, starting from 1
+   * @since 1.23
+   */
+  public int lineAt(int index) {
+    return lineIndex.getLine(index);
   }
 
   /**
-   * New lines are: \n, \r\n (in which case true is returned for the \n) and \r alone.
+   * @return column of the given index, starting from 1
+   * @see #lineAt(int)
+   * @since 1.23
    */
-  private static boolean isNewLine(char[] input, int i) {
-    return input[i] == '\n' ||
-        (input[i] == '\r' && (i + 1 == input.length || input[i + 1] != '\n'));
+  public int columnAt(int index) {
+    return index - lineIndex.getLineStart(lineIndex.getLine(index)) + 1;
   }
 
 }
@@ -0,0 +1,180 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.api.typed;
+
+import com.sonar.sslr.api.Rule;
+import com.sonar.sslr.impl.typed.GrammarBuilderInterceptor;
+import com.sonar.sslr.impl.typed.ReflectionUtils;
+import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.MethodInterceptor;
+import net.sf.cglib.proxy.MethodProxy;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+import org.sonar.sslr.parser.LexerlessGrammar;
+
+import javax.annotation.CheckForNull;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Result of the interception of a typed grammar: the built grammar, and how its rules map to the actions of the tree factory.
+ * <p>
+ * Creating a model generates proxy classes of the grammar and of the tree factory, and replays all methods of the grammar.
+ * A model is immutable once created, so it can be created once and shared by any number of {@link ActionParser},
+ * including across threads, instead of repeating this work for each parser.
+ * </p>
+ *
+ * @see ActionParser#ActionParser(java.nio.charset.Charset, TypedGrammarModel, Object, NodeBuilder, GrammarRuleKey)
+ * @since 1.23
+ */
+public final class TypedGrammarModel {
+
+  private final Class<?> treeFactoryClass;
+  private final LexerlessGrammar grammar;
+
+  private final Set<GrammarRuleKey> mappedRuleKeys;
+  private final Map<GrammarRuleKey, Method> actions;
+  private final Set<GrammarRuleKey> optionals;
+  private final Set<GrammarRuleKey> oneOrMores;
+  private final Set<GrammarRuleKey> zeroOrMores;
+
+  private TypedGrammarModel(Class<?> treeFactoryClass, LexerlessGrammar grammar, GrammarBuilderInterceptor<?> interceptor) {
+    this.treeFactoryClass = treeFactoryClass;
+    this.grammar = grammar;
+    this.mappedRuleKeys = Collections.unmodifiableSet(new HashSet<>(interceptor.mappedRuleKeys()));
+    this.actions = Collections.unmodifiableMap(new HashMap<>(interceptor.actions()));
+    this.optionals = Collections.unmodifiableSet(new HashSet<>(interceptor.optionalRuleKeys()));
+    this.oneOrMores = Collections.unmodifiableSet(new HashSet<>(interceptor.oneOrMoreRuleKeys()));
+    this.zeroOrMores = Collections.unmodifiableSet(new HashSet<>(interceptor.zeroOrMoreRuleKeys()));
+  }
+
+  /**
+   * Intercepts all methods of the given grammar class and builds the grammar.
+   *
+   * @param b
+   *          builder of the lexical rules, which must not be used anymore afterwards
+   * @param grammarClass
+   *          class of the grammar, with a constructor taking a {@link GrammarBuilder} and the tree factory
+   * @param treeFactoryClass
+   *          class of the tree factory, which must have a no-argument constructor
+   */
+  public static TypedGrammarModel create(LexerlessGrammarBuilder b, Class grammarClass, Class<?> treeFactoryClass) {
+    GrammarBuilderInterceptor<?> grammarBuilderInterceptor = new GrammarBuilderInterceptor(b);
+    Enhancer grammarEnhancer = new Enhancer();
+    grammarEnhancer.setSuperclass(grammarClass);
+    grammarEnhancer.setCallback(grammarBuilderInterceptor);
+
+    ActionMethodInterceptor actionMethodInterceptor = new ActionMethodInterceptor(grammarBuilderInterceptor);
+    Enhancer actionEnhancer = new Enhancer();
+    actionEnhancer.setSuperclass(treeFactoryClass);
+    actionEnhancer.setCallback(actionMethodInterceptor);
+
+    Object grammar = grammarEnhancer.create(
+      new Class[] {GrammarBuilder.class, treeFactoryClass},
+      new Object[] {grammarBuilderInterceptor, actionEnhancer.create()});
+
+    for (Method method : grammarClass.getMethods()) {
+      if (method.getDeclaringClass().equals(Object.class)) {
+        continue;
+      }
+
+      ReflectionUtils.invokeMethod(method, grammar);
+    }
+
+    return create(b.build(), grammarBuilderInterceptor, treeFactoryClass);
+  }
+
+  /**
+   * Creates a model from an interceptor, which has already replayed all methods of the grammar.
+   *
+   * @param grammar
+   *          grammar built from the builder of the interceptor
+   */
+  public static TypedGrammarModel create(LexerlessGrammar grammar, GrammarBuilderInterceptor<?> grammarBuilderInterceptor, Class<?> treeFactoryClass) {
+    return new TypedGrammarModel(treeFactoryClass, grammar, grammarBuilderInterceptor);
+  }
+
+  public Class<?> treeFactoryClass() {
+    return treeFactoryClass;
+  }
+
+  public LexerlessGrammar grammar() {
+    return grammar;
+  }
+
+  public Rule rule(GrammarRuleKey ruleKey) {
+    return grammar.rule(ruleKey);
+  }
+
+  /**
+   * @return rule keys of actions, with the corresponding methods of the tree factory
+   */
+  public Map<GrammarRuleKey, Method> actions() {
+    return actions;
+  }
+
+  @CheckForNull
+  public Method actionForRuleKey(Object ruleKey) {
+    return actions.get(ruleKey);
+  }
+
+  public boolean hasMethodForRuleKey(Object ruleKey) {
+    return mappedRuleKeys.contains(ruleKey);
+  }
+
+  public boolean isOptionalRule(Object ruleKey) {
+    return optionals.contains(ruleKey);
+  }
+
+  public boolean isOneOrMoreRule(Object ruleKey) {
+    return oneOrMores.contains(ruleKey);
+  }
+
+  public boolean isZeroOrMoreRule(Object ruleKey) {
+    return zeroOrMores.contains(ruleKey);
+  }
+
+  private static class ActionMethodInterceptor implements MethodInterceptor {
+
+    private final GrammarBuilderInterceptor grammarBuilderInterceptor;
+
+    public ActionMethodInterceptor(GrammarBuilderInterceptor grammarBuilderInterceptor) {
+      this.grammarBuilderInterceptor = grammarBuilderInterceptor;
+    }
+
+    @Override
+    public Object intercept(Object obj, Method method, Object[] args, MethodProxy proxy) throws Throwable {
+      if (method.getDeclaringClass().equals(Object.class)) {
+        return proxy.invokeSuper(obj, args);
+      }
+
+      grammarBuilderInterceptor.addAction(method, args.length);
+
+      return null;
+    }
+
+  }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl;
+
+import javax.annotation.CheckForNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Stores serialized token streams as files in a local directory, so that they survive across analyses.
+ * Reading an entry touches its file, so that least recently used entries are evicted first when the maximal number of files is exceeded.
+ * I/O errors are not propagated: they simply result in cache misses.
+ *
+ * @since 1.23
+ */
+public class FileTokenCache implements TokenCache {
+
+  private static final String SUFFIX = ".tokens";
+
+  private final File directory;
+  private final int maxEntries;
+  private int approximateEntries;
+
+  public FileTokenCache(File directory, int maxEntries) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("maxEntries must be strictly positive: " + maxEntries);
+    }
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IllegalArgumentException("Unable to create directory: " + directory.getAbsolutePath());
+    }
+    this.directory = directory;
+    this.maxEntries = maxEntries;
+    this.approximateEntries = listEntries().length;
+  }
+
+  @CheckForNull
+  @Override
+  public byte[] get(String key) {
+    File file = file(key);
+    try {
+      byte[] tokens = Files.readAllBytes(file.toPath());
+      file.setLastModified(System.currentTimeMillis());
+      return tokens;
+    } catch (IOException e) {
+      // includes NoSuchFileException
+      return null;
+    }
+  }
+
+  @Override
+  public void put(String key, byte[] tokens) {
+    Path tmp;
+    try {
+      tmp = Files.createTempFile(directory.toPath(), key, ".tmp");
+    } catch (IOException e) {
+      return;
+    }
+    try {
+      Files.write(tmp, tokens);
+      move(tmp, file(key).toPath());
+    } catch (IOException e) {
+      return;
+    } finally {
+      deleteQuietly(tmp);
+    }
+    evictIfNeeded();
+  }
+
+  /**
+   * Falls back to a move, which is not atomic, when the file system does not support atomic moves:
+   * a concurrent reader might then see a partially written entry, which fails deserialization and is a cache miss.
+   */
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Temporary file remains after a failure to write or to move it, and would never be evicted, as it is not an entry.
+   */
+  private static void deleteQuietly(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      // ignored, as other I/O errors
+    }
+  }
+
+  private synchronized void evictIfNeeded() {
+    approximateEntries++;
+    if (approximateEntries <= maxEntries) {
+      return;
+    }
+    File[] files = listEntries();
+    // evict down to 90% of the capacity, so that listing happens only from time to time
+    int toKeep = Math.max(1, maxEntries - maxEntries / 10);
+    if (files.length > toKeep) {
+      Arrays.sort(files, new LastModifiedComparator());
+      for (int i = 0; i < files.length - toKeep; i++) {
+        files[i].delete();
+      }
+    }
+    approximateEntries = Math.min(files.length, toKeep);
+  }
+
+  private File[] listEntries() {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return new File[0];
+    }
+    int n = 0;
+    for (File file : files) {
+      if (file.getName().endsWith(SUFFIX)) {
+        files[n] = file;
+        n++;
+      }
+    }
+    return Arrays.copyOf(files, n);
+  }
+
+  private File file(String key) {
+    return new File(directory, key + SUFFIX);
+  }
+
+  private static class LastModifiedComparator implements Comparator<File> {
+    @Override
+    public int compare(File a, File b) {
+      return Long.compare(a.lastModified(), b.lastModified());
+    }
+  }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl;
+
+import javax.annotation.CheckForNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps serialized token streams in memory, and evicts the least recently used ones when either the maximal number of entries
+ * or the maximal total size is exceeded.
+ *
+ * @since 1.23
+ */
+public class InMemoryTokenCache implements TokenCache {
+
+  private final int maxEntries;
+  private final long maxBytes;
+  private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long bytes = 0;
+
+  public InMemoryTokenCache(int maxEntries) {
+    this(maxEntries, Long.MAX_VALUE);
+  }
+
+  public InMemoryTokenCache(int maxEntries, long maxBytes) {
+    if (maxEntries <= 0 || maxBytes <= 0) {
+      throw new IllegalArgumentException("maxEntries and maxBytes must be strictly positive");
+    }
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+  }
+
+  @CheckForNull
+  @Override
+  public synchronized byte[] get(String key) {
+    return entries.get(key);
+  }
+
+  @Override
+  public synchronized void put(String key, byte[] tokens) {
+    byte[] previous = entries.put(key, tokens);
+    if (previous != null) {
+      bytes -= previous.length;
+    }
+    bytes += tokens.length;
+    while (entries.size() > maxEntries || bytes > maxBytes) {
+      Map.Entry<String, byte[]> eldest = entries.entrySet().iterator().next();
+      bytes -= eldest.getValue().length;
+      entries.remove(eldest.getKey());
+    }
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+}
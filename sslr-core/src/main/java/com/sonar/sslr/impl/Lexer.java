@@ -27,8 +27,10 @@ import org.sonar.sslr.channel.Channel;
 import org.sonar.sslr.channel.ChannelDispatcher;
 import org.sonar.sslr.channel.CodeReader;
 import org.sonar.sslr.channel.CodeReaderConfiguration;
+import org.sonar.sslr.channel.CodeReaderFilter;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
@@ -43,6 +45,13 @@ import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
 
 import static com.sonar.sslr.api.GenericTokenType.EOF;
 
@@ -52,6 +61,12 @@ public class Lexer {
   private final CodeReaderConfiguration configuration;
   private final ChannelDispatcher<Lexer> channelDispatcher;
   private final Preprocessor[] preprocessors;
+  private final SafeSplitPointFinder splitPointFinder;
+  private final int chunkSize;
+  private final Supplier<Lexer> chunkLexers;
+  private final Executor executor;
+  private final TokenCache tokenCache;
+  private final String tokenCacheFingerprint;
 
   private URI uri;
   private final List<Trivia> trivia = new LinkedList<>();
@@ -62,6 +77,12 @@ public class Lexer {
     this.preprocessors = builder.preprocessors.toArray(new Preprocessor[builder.preprocessors.size()]);
     this.configuration = builder.configuration;
     this.channelDispatcher = builder.getChannelDispatcher();
+    this.splitPointFinder = builder.splitPointFinder;
+    this.chunkSize = builder.chunkSize;
+    this.chunkLexers = builder.chunkLexers;
+    this.executor = builder.executor;
+    this.tokenCache = builder.tokenCache;
+    this.tokenCacheFingerprint = builder.tokenCacheFingerprint;
 
     try {
       this.uri = new URI("tests://unittest");
@@ -117,27 +138,268 @@ public class Lexer {
     tokens = new ArrayList<>();
 
     initPreprocessors();
-    CodeReader code = new CodeReader(reader, configuration);
+    if (splitPointFinder == null && tokenCache == null) {
+      CodeReader code = new CodeReader(reader, configuration);
+      try {
+        tokenize(code);
+
+        preprocess();
+
+        return getTokens();
+      } catch (Exception e) {
+        throw new LexerException("Unable to lex source code at line : " + code.getLinePosition() + " and column : "
+          + code.getColumnPosition() + " in file : " + uri, e);
+      }
+    }
+
+    String code;
     try {
-      channelDispatcher.consume(code, this);
+      code = read(reader);
+    } catch (IOException e) {
+      throw new LexerException("Unable to read source code in file : " + uri, e);
+    }
 
-      addToken(Token.builder()
-        .setType(EOF)
-        .setValueAndOriginalValue("EOF")
-        .setURI(uri)
-        .setLine(code.getLinePosition())
-        .setColumn(code.getColumnPosition())
-        .build());
+    String cacheKey = null;
+    List<Token> cachedTokens = null;
+    if (tokenCache != null) {
+      cacheKey = TokenStreamCodec.key(tokenCacheFingerprint, code);
+      byte[] cached = tokenCache.get(cacheKey);
+      cachedTokens = cached == null ? null : TokenStreamCodec.decode(cached, uri);
+    }
 
+    if (cachedTokens != null) {
+      tokens.addAll(cachedTokens);
+    } else {
+      if (splitPointFinder != null && configuration.getCodeReaderFilters().length == 0) {
+        lexInParallel(code);
+      } else {
+        tokenizeOrFail(new CodeReader(code, configuration));
+      }
+      if (cacheKey != null) {
+        byte[] encoded = TokenStreamCodec.encode(tokens);
+        if (encoded != null) {
+          tokenCache.put(cacheKey, encoded);
+        }
+      }
+    }
+
+    try {
       preprocess();
+    } catch (Exception e) {
+      throw new LexerException("Unable to preprocess source code in file : " + uri, e);
+    }
+    return getTokens();
+  }
 
-      return getTokens();
+  private void tokenizeOrFail(CodeReader code) {
+    try {
+      tokenize(code);
     } catch (Exception e) {
       throw new LexerException("Unable to lex source code at line : " + code.getLinePosition() + " and column : "
         + code.getColumnPosition() + " in file : " + uri, e);
     }
   }
 
+  private void tokenize(CodeReader code) {
+    channelDispatcher.consume(code, this);
+
+    addToken(Token.builder()
+      .setType(EOF)
+      .setValueAndOriginalValue("EOF")
+      .setURI(uri)
+      .setLine(code.getLinePosition())
+      .setColumn(code.getColumnPosition())
+      .build());
+  }
+
+  private void lexInParallel(String code) {
+    List<Integer> chunkStarts = new ArrayList<>();
+    chunkStarts.add(0);
+    int start = 0;
+    while (code.length() - start > chunkSize) {
+      int split = splitPointFinder.nextSafeSplitPoint(code, start, start + chunkSize);
+      if (split <= start || split >= code.length()) {
+        break;
+      }
+      if (code.charAt(split - 1) == '\r' && code.charAt(split) == '\n') {
+        // never separate CR from LF
+        split++;
+      }
+      chunkStarts.add(split);
+      start = split;
+    }
+
+    List<Future<List<Token>>> tasks = new ArrayList<>(chunkStarts.size());
+    FutureTask<List<Token>> firstTask = null;
+    for (int i = 0; i < chunkStarts.size(); i++) {
+      int chunkEnd = i + 1 < chunkStarts.size() ? chunkStarts.get(i + 1) : code.length();
+      ChunkLexing lexing = new ChunkLexing(chunkLexers, uri, configuration, code.substring(chunkStarts.get(i), chunkEnd));
+      if (i == 0) {
+        firstTask = new FutureTask<>(lexing);
+        tasks.add(firstTask);
+      } else if (executor == null) {
+        // when called from a task of a fork-join pool, joining helps to execute the forked tasks instead of blocking the worker
+        tasks.add(ForkJoinTask.adapt(lexing).fork());
+      } else {
+        FutureTask<List<Token>> task = new FutureTask<>(lexing);
+        executor.execute(task);
+        tasks.add(task);
+      }
+    }
+    // the first chunk is lexed in the calling thread
+    firstTask.run();
+
+    try {
+      stitch(code, chunkStarts, tasks);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new LexerException("Interrupted while lexing file : " + uri, e);
+    } finally {
+      for (Future<List<Token>> task : tasks) {
+        task.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Concatenates tokens of all chunks, with line and column relative to the whole code.
+   * Trivia attached to the EOF token of a chunk are moved to the first token of the next chunk.
+   */
+  private void stitch(String code, List<Integer> chunkStarts, List<Future<List<Token>>> tasks) throws InterruptedException {
+    int tabWidth = configuration.getTabWidth();
+    int line = 1;
+    int column = 0;
+    int offset = 0;
+    for (int i = 0; i < tasks.size(); i++) {
+      int chunkStart = chunkStarts.get(i);
+      for (; offset < chunkStart; offset++) {
+        char character = code.charAt(offset);
+        if (character == '\n' || character == '\r' && code.charAt(offset + 1) != '\n') {
+          line++;
+          column = 0;
+        } else if (character == '\t') {
+          column += tabWidth;
+        } else {
+          column++;
+        }
+      }
+
+      List<Token> chunkTokens;
+      try {
+        chunkTokens = tasks.get(i).get();
+      } catch (ExecutionException e) {
+        throw chunkFailure(e.getCause(), line, column);
+      }
+      boolean lastChunk = i == tasks.size() - 1;
+      for (int j = 0; j < chunkTokens.size(); j++) {
+        Token token = relocate(chunkTokens.get(j), line, column);
+        addTrivia(token.getTrivia());
+        if (lastChunk || j < chunkTokens.size() - 1) {
+          addToken(token);
+        }
+      }
+    }
+  }
+
+  private LexerException chunkFailure(Throwable failure, int firstLine, int firstColumn) {
+    if (!(failure instanceof ChunkLexingException)) {
+      return new LexerException("Unable to lex source code in file : " + uri, failure);
+    }
+    ChunkLexingException chunkFailure = (ChunkLexingException) failure;
+    int line = chunkFailure.line + firstLine - 1;
+    int column = chunkFailure.line == 1 ? chunkFailure.column + firstColumn : chunkFailure.column;
+    return new LexerException("Unable to lex source code at line : " + line + " and column : " + column + " in file : " + uri, chunkFailure.getCause());
+  }
+
+  private static Token relocate(Token token, int firstLine, int firstColumn) {
+    if (firstLine == 1 && firstColumn == 0) {
+      return token;
+    }
+    Token.Builder builder = Token.builder(token).setLine(token.getLine() + firstLine - 1);
+    if (token.getLine() == 1) {
+      builder.setColumn(token.getColumn() + firstColumn);
+    }
+    if (token.hasTrivia()) {
+      List<Trivia> relocatedTrivia = new ArrayList<>(token.getTrivia().size());
+      for (Trivia t : token.getTrivia()) {
+        relocatedTrivia.add(relocate(t, firstLine, firstColumn));
+      }
+      builder.setTrivia(relocatedTrivia);
+    }
+    return builder.build();
+  }
+
+  private static Trivia relocate(Trivia trivia, int firstLine, int firstColumn) {
+    if (trivia.hasPreprocessingDirective()) {
+      return trivia;
+    }
+    Token[] relocatedTokens = new Token[trivia.getTokens().size()];
+    for (int i = 0; i < relocatedTokens.length; i++) {
+      relocatedTokens[i] = relocate(trivia.getTokens().get(i), firstLine, firstColumn);
+    }
+    if (trivia.isComment()) {
+      return Trivia.createComment(relocatedTokens[0]);
+    } else if (trivia.isSkippedText()) {
+      return Trivia.createSkippedText(relocatedTokens);
+    } else {
+      return Trivia.createPreprocessingToken(relocatedTokens[0]);
+    }
+  }
+
+  private static String read(Reader reader) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    char[] buffer = new char[4 * 1024];
+    int n;
+    while ((n = reader.read(buffer)) != -1) {
+      sb.append(buffer, 0, n);
+    }
+    return sb.toString();
+  }
+
+  private static final class ChunkLexing implements Callable<List<Token>> {
+
+    private final Supplier<Lexer> lexers;
+    private final URI uri;
+    private final CodeReaderConfiguration configuration;
+    private final String chunk;
+
+    ChunkLexing(Supplier<Lexer> lexers, URI uri, CodeReaderConfiguration configuration, String chunk) {
+      this.lexers = lexers;
+      this.uri = uri;
+      this.configuration = configuration;
+      this.chunk = chunk;
+    }
+
+    @Override
+    public List<Token> call() {
+      Lexer lexer = lexers.get();
+      lexer.uri = uri;
+      lexer.tokens = new ArrayList<>();
+      CodeReader code = new CodeReader(chunk, configuration);
+      try {
+        lexer.tokenize(code);
+      } catch (Exception e) {
+        throw new ChunkLexingException(code.getLinePosition(), code.getColumnPosition(), e);
+      }
+      return lexer.tokens;
+    }
+  }
+
+  /**
+   * Failure to lex a chunk, with position relative to the chunk.
+   */
+  private static final class ChunkLexingException extends RuntimeException {
+
+    private final int line;
+    private final int column;
+
+    ChunkLexingException(int line, int column, Exception cause) {
+      super(cause);
+      this.line = line;
+      this.column = column;
+    }
+  }
+
   private void preprocess() {
     for (Preprocessor preprocessor : preprocessors) {
       preprocess(preprocessor);
@@ -231,6 +493,12 @@ public class Lexer {
     private final CodeReaderConfiguration configuration = new CodeReaderConfiguration();
     private final List<Channel<Lexer>> channels = new ArrayList<>();
     private boolean failIfNoChannelToConsumeOneCharacter = false;
+    private SafeSplitPointFinder splitPointFinder;
+    private int chunkSize;
+    private Supplier<Lexer> chunkLexers;
+    private Executor executor;
+    private TokenCache tokenCache;
+    private String tokenCacheFingerprint;
 
     private Builder() {
     }
@@ -253,6 +521,99 @@ public class Lexer {
       return this;
     }
 
+    /**
+     * Reads the source code in blocks of the given size instead of loading it entirely into memory.
+     *
+     * @see CodeReaderConfiguration#setStreamingBlockSize(int)
+     * @since 1.23
+     */
+    public Builder withStreamingBlockSize(int streamingBlockSize) {
+      configuration.setStreamingBlockSize(streamingBlockSize);
+      return this;
+    }
+
+    /**
+     * Enables parallel lexing in the common fork-join pool. Chunks are lexed by forked tasks, which are joined rather than awaited,
+     * so that lexing can itself be executed by a task of the common pool, e.g. within a parallel stream, without starving it.
+     *
+     * @see #withParallelLexing(SafeSplitPointFinder, int, Supplier, Executor)
+     * @since 1.23
+     */
+    public Builder withParallelLexing(SafeSplitPointFinder splitPointFinder, int chunkSize, Supplier<Lexer> chunkLexers) {
+      setParallelLexing(splitPointFinder, chunkSize, chunkLexers);
+      this.executor = null;
+      return this;
+    }
+
+    /**
+     * Enables parallel lexing: source code longer than the given chunk size is cut at safe split points, and chunks are lexed concurrently.
+     * Resulting tokens are stitched back together, with line and column relative to the whole source code, and trivia at the end of a chunk
+     * attached to the first token of the next chunk. Preprocessors are executed on the stitched tokens.
+     * <p>
+     * Channels are usually not thread-safe, so each chunk is lexed by a new lexer obtained from the given supplier, which is expected to
+     * create lexers with the same channels as this one. Their preprocessors and parallel lexing settings are ignored.
+     * Code reader settings of this lexer, such as streaming, are not used for the whole source code, which is read at once.
+     * Source code is lexed sequentially when code reader filters are configured, because split points are found in the unfiltered code.
+     * </p>
+     *
+     * @param splitPointFinder
+     *          tells where source code can be cut
+     * @param chunkSize
+     *          minimal size of chunks
+     * @param chunkLexers
+     *          creates the lexers used for chunks
+     * @param executor
+     *          executes lexing of chunks, except the first one, which is lexed in the calling thread
+     * @since 1.23
+     */
+    public Builder withParallelLexing(SafeSplitPointFinder splitPointFinder, int chunkSize, Supplier<Lexer> chunkLexers, Executor executor) {
+      Objects.requireNonNull(executor, "executor cannot be null");
+      setParallelLexing(splitPointFinder, chunkSize, chunkLexers);
+      this.executor = executor;
+      return this;
+    }
+
+    private void setParallelLexing(SafeSplitPointFinder splitPointFinder, int chunkSize, Supplier<Lexer> chunkLexers) {
+      Objects.requireNonNull(splitPointFinder, "splitPointFinder cannot be null");
+      Objects.requireNonNull(chunkLexers, "chunkLexers cannot be null");
+      if (chunkSize <= 0) {
+        throw new IllegalArgumentException("chunkSize must be strictly positive: " + chunkSize);
+      }
+      this.splitPointFinder = splitPointFinder;
+      this.chunkSize = chunkSize;
+      this.chunkLexers = chunkLexers;
+    }
+
+    /**
+     * Filters the character flow before channels, see {@link CodeReaderConfiguration#addCodeReaderFilters(CodeReaderFilter)}.
+     *
+     * @since 1.23
+     */
+    public Builder withCodeReaderFilter(CodeReaderFilter<?> codeReaderFilter) {
+      configuration.addCodeReaderFilters(codeReaderFilter);
+      return this;
+    }
+
+    /**
+     * Caches the tokens produced by channels, so that source code which has already been lexed with the same configuration
+     * is not lexed again. Preprocessors are still executed on cached tokens.
+     * Only tokens of enum types are cached, and tokens with preprocessing directives are not cached.
+     *
+     * @param tokenCache
+     *          where to store tokens
+     * @param fingerprint
+     *          identifies the configuration of this lexer, so that a change of channels invalidates cached tokens, for instance the version
+     *          of the language plugin
+     * @since 1.23
+     */
+    public Builder withTokenCache(TokenCache tokenCache, String fingerprint) {
+      Objects.requireNonNull(tokenCache, "tokenCache cannot be null");
+      Objects.requireNonNull(fingerprint, "fingerprint cannot be null");
+      this.tokenCache = tokenCache;
+      this.tokenCacheFingerprint = fingerprint;
+      return this;
+    }
+
     public Builder withChannel(Channel<Lexer> channel) {
       channels.add(channel);
       return this;
@@ -45,6 +45,7 @@ public class Parser<G extends Grammar> {
   private RuleDefinition rootRule;
   private final Lexer lexer;
   private final G grammar;
+  private final boolean tokenRangeNodes;
 
   /**
    * @since 1.16
@@ -52,12 +53,14 @@ public class Parser<G extends Grammar> {
   protected Parser(G grammar) {
     this.grammar = grammar;
     lexer = null;
+    tokenRangeNodes = false;
   }
 
   private Parser(Builder<G> builder) {
     this.lexer = builder.lexer;
     this.grammar = builder.grammar;
     this.rootRule = (RuleDefinition) this.grammar.getRootRule();
+    this.tokenRangeNodes = builder.tokenRangeNodes;
   }
 
   public AstNode parse(File file) {
@@ -81,7 +84,7 @@ public class Parser<G extends Grammar> {
   public AstNode parse(List<Token> tokens) {
     // TODO can be compiled only once
     CompiledGrammar g = MutableGrammarCompiler.compile((CompilableGrammarRule) rootRule);
-    return LexerfulAstCreator.create(Machine.parse(tokens, g), tokens);
+    return LexerfulAstCreator.create(Machine.parse(tokens, g), tokens, tokenRangeNodes);
   }
 
   public G getGrammar() {
@@ -109,6 +112,7 @@ public class Parser<G extends Grammar> {
     private Parser<G> baseParser;
     private Lexer lexer;
     private final G grammar;
+    private boolean tokenRangeNodes;
 
     private Builder(G grammar) {
       this.grammar = grammar;
@@ -118,6 +122,7 @@ public class Parser<G extends Grammar> {
       this.baseParser = parser;
       this.lexer = parser.lexer;
       this.grammar = parser.grammar;
+      this.tokenRangeNodes = parser.tokenRangeNodes;
     }
 
     public Parser<G> build() {
@@ -132,6 +137,22 @@ public class Parser<G extends Grammar> {
       return this;
     }
 
+    /**
+     * Tokens consumed at once by {@link org.sonar.sslr.grammar.LexerfulGrammarBuilder#bridge(com.sonar.sslr.api.TokenType, com.sonar.sslr.api.TokenType) bridge},
+     * {@link org.sonar.sslr.grammar.LexerfulGrammarBuilder#till(Object) till} or
+     * {@link org.sonar.sslr.grammar.LexerfulGrammarBuilder#exclusiveTill(Object) exclusiveTill}
+     * lead to creation of a single AST node rather than one per token, see {@link AstNode#AstNode(List)}.
+     * This saves time and memory when such tokens are skipped, for instance body of functions, and still allows to access them via {@link AstNode#getTokens()}.
+     * {@link com.sonar.sslr.impl.ast.AstWalker} calls {@link com.sonar.sslr.api.AstAndTokenVisitor#visitToken(Token)} for each of these tokens,
+     * whereas code which goes through the tree node by node, e.g. via {@link AstNode#getToken()} or {@link AstNode#getNextSibling()}, only sees the first one.
+     *
+     * @since 1.23
+     */
+    public Builder<G> withTokenRangeNodes() {
+      this.tokenRangeNodes = true;
+      return this;
+    }
+
   }
 
 }
@@ -0,0 +1,48 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl;
+
+/**
+ * Tells where source code can be cut into chunks, which are then lexed independently of each other.
+ * A split point is safe if lexing the code after it from scratch produces the same tokens as lexing the whole code,
+ * for instance the start of a line which is neither within a comment nor within a string literal.
+ *
+ * @see Lexer.Builder#withParallelLexing(SafeSplitPointFinder, int, java.util.function.Supplier)
+ * @since 1.23
+ */
+public interface SafeSplitPointFinder {
+
+  /**
+   * Implementations are expected to be cheap compared to lexing, typically a scan which only keeps track of
+   * whether it is within a comment or a string literal.
+   * The scan should start from the given previous split point, where it is known to be neither within a comment nor within a string literal,
+   * so that the whole source code is scanned only once.
+   *
+   * @param code
+   *          the whole source code
+   * @param previousSplitPoint
+   *          the previous safe split point, or 0 for the first call
+   * @param fromOffset
+   *          the offset from which to search, greater than previousSplitPoint
+   * @return the first safe split point greater than or equal to fromOffset, or -1 if there is none
+   */
+  int nextSafeSplitPoint(CharSequence code, int previousSplitPoint, int fromOffset);
+
+}
@@ -0,0 +1,47 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Stores token streams produced by a {@link Lexer}, so that unchanged source code does not need to be lexed again.
+ * <p>
+ * Keys are computed by the lexer from the content of the source code and from the fingerprint of the lexer configuration,
+ * and consist only of hexadecimal digits. Values are token streams serialized in a compact binary form.
+ * Implementations must be thread-safe if lexers are used concurrently.
+ * </p>
+ *
+ * @see Lexer.Builder#withTokenCache(TokenCache, String)
+ * @see InMemoryTokenCache
+ * @see FileTokenCache
+ * @since 1.23
+ */
+public interface TokenCache {
+
+  /**
+   * @return the serialized token stream previously stored with the given key, or null if there is none
+   */
+  @CheckForNull
+  byte[] get(String key);
+
+  void put(String key, byte[] tokens);
+
+}
@@ -0,0 +1,377 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl;
+
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import com.sonar.sslr.api.Trivia;
+
+import javax.annotation.CheckForNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of token streams, used by {@link TokenCache}.
+ * <p>
+ * Token types are written once as the name of their enum class and constant, and then referenced by index.
+ * Lines and columns are delta-encoded as variable-length integers. URIs are not written: they are restored from the lexer.
+ * Token streams which contain token types other than enum constants, or preprocessing directives, can not be encoded.
+ * </p>
+ */
+final class TokenStreamCodec {
+
+  private static final int VERSION = 1;
+
+  private static final int ORIGINAL_VALUE = 1;
+  private static final int GENERATED_CODE = 2;
+  private static final int COPY_BOOK = 4;
+  private static final int TRIVIA = 8;
+
+  private static final int COMMENT = 0;
+  private static final int SKIPPED_TEXT = 1;
+  private static final int PREPROCESSOR = 2;
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private TokenStreamCodec() {
+  }
+
+  static String key(String fingerprint, CharSequence code) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    digest.update(fingerprint.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    byte[] block = new byte[8 * 1024];
+    int n = 0;
+    for (int i = 0; i < code.length(); i++) {
+      char c = code.charAt(i);
+      block[n] = (byte) (c >> 8);
+      block[n + 1] = (byte) c;
+      n += 2;
+      if (n == block.length) {
+        digest.update(block, 0, n);
+        n = 0;
+      }
+    }
+    digest.update(block, 0, n);
+    byte[] hash = digest.digest();
+    char[] hex = new char[hash.length * 2];
+    for (int i = 0; i < hash.length; i++) {
+      hex[2 * i] = HEX[(hash[i] >> 4) & 0xF];
+      hex[2 * i + 1] = HEX[hash[i] & 0xF];
+    }
+    return new String(hex);
+  }
+
+  /**
+   * @return encoded tokens, or null if they can not be encoded
+   */
+  @CheckForNull
+  static byte[] encode(List<Token> tokens) {
+    Encoder encoder = new Encoder();
+    try {
+      if (!encoder.prepare(tokens)) {
+        return null;
+      }
+      return encoder.encode(tokens);
+    } catch (IOException e) {
+      // can't happen with ByteArrayOutputStream
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return decoded tokens, or null if they can not be decoded, for instance because a token type no longer exists
+   */
+  @CheckForNull
+  static List<Token> decode(byte[] bytes, URI uri) {
+    try {
+      return new Decoder(new DataInputStream(new ByteArrayInputStream(bytes)), uri).decode();
+    } catch (IOException | ReflectiveOperationException | IllegalArgumentException | ClassCastException e) {
+      return null;
+    }
+  }
+
+  private static final class Encoder {
+
+    private final Map<TokenType, Integer> types = new HashMap<>();
+    private final List<TokenType> typesInOrder = new ArrayList<>();
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private int line = 0;
+    private int column = 0;
+
+    boolean prepare(List<Token> tokens) {
+      for (Token token : tokens) {
+        if (!prepare(token)) {
+          return false;
+        }
+        for (Trivia trivia : token.getTrivia()) {
+          if (trivia.hasPreprocessingDirective()) {
+            return false;
+          }
+          for (Token triviaToken : trivia.getTokens()) {
+            if (!prepare(triviaToken) || triviaToken.hasTrivia()) {
+              return false;
+            }
+          }
+        }
+      }
+      return true;
+    }
+
+    private boolean prepare(Token token) {
+      TokenType type = token.getType();
+      if (!(type instanceof Enum)) {
+        return false;
+      }
+      if (!types.containsKey(type)) {
+        types.put(type, typesInOrder.size());
+        typesInOrder.add(type);
+      }
+      return true;
+    }
+
+    byte[] encode(List<Token> tokens) throws IOException {
+      out.writeInt(VERSION);
+      writeVarInt(typesInOrder.size());
+      for (TokenType type : typesInOrder) {
+        Enum<?> constant = (Enum<?>) type;
+        writeString(constant.getDeclaringClass().getName());
+        writeString(constant.name());
+      }
+      writeVarInt(tokens.size());
+      for (Token token : tokens) {
+        writeToken(token);
+        if (token.hasTrivia()) {
+          writeVarInt(token.getTrivia().size());
+          for (Trivia trivia : token.getTrivia()) {
+            writeTrivia(trivia);
+          }
+        }
+      }
+      out.flush();
+      return bytes.toByteArray();
+    }
+
+    private void writeTrivia(Trivia trivia) throws IOException {
+      int kind;
+      if (trivia.isComment()) {
+        kind = COMMENT;
+      } else if (trivia.isSkippedText()) {
+        kind = SKIPPED_TEXT;
+      } else {
+        kind = PREPROCESSOR;
+      }
+      out.writeByte(kind);
+      writeVarInt(trivia.getTokens().size());
+      for (Token token : trivia.getTokens()) {
+        writeToken(token);
+      }
+    }
+
+    private void writeToken(Token token) throws IOException {
+      int flags = 0;
+      boolean sameValue = token.getValue().equals(token.getOriginalValue());
+      if (!sameValue) {
+        flags |= ORIGINAL_VALUE;
+      }
+      if (token.isGeneratedCode()) {
+        flags |= GENERATED_CODE;
+      }
+      if (token.isCopyBook()) {
+        flags |= COPY_BOOK;
+      }
+      if (token.hasTrivia()) {
+        flags |= TRIVIA;
+      }
+      out.writeByte(flags);
+      writeVarInt(types.get(token.getType()));
+      writeVarInt(zigZag(token.getLine() - line));
+      writeVarInt(zigZag(token.getColumn() - column));
+      line = token.getLine();
+      column = token.getColumn();
+      writeString(token.getValue());
+      if (!sameValue) {
+        writeString(token.getOriginalValue());
+      }
+      if (token.isCopyBook()) {
+        writeString(token.getCopyBookOriginalFileName());
+        writeVarInt(zigZag(token.getCopyBookOriginalLine()));
+      }
+    }
+
+    private void writeString(String s) throws IOException {
+      byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(utf8.length);
+      out.write(utf8);
+    }
+
+    private void writeVarInt(int value) throws IOException {
+      int v = value;
+      while ((v & ~0x7F) != 0) {
+        out.writeByte((v & 0x7F) | 0x80);
+        v >>>= 7;
+      }
+      out.writeByte(v);
+    }
+
+    private static int zigZag(int value) {
+      return (value << 1) ^ (value >> 31);
+    }
+
+  }
+
+  private static final class Decoder {
+
+    private final DataInputStream in;
+    private final URI uri;
+    private final Token.Builder builder = Token.builder();
+    private TokenType[] types;
+    private int line = 0;
+    private int column = 0;
+
+    Decoder(DataInputStream in, URI uri) {
+      this.in = in;
+      this.uri = uri;
+    }
+
+    List<Token> decode() throws IOException, ReflectiveOperationException {
+      if (in.readInt() != VERSION) {
+        return null;
+      }
+      types = new TokenType[readVarInt()];
+      ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+      for (int i = 0; i < types.length; i++) {
+        String className = readString();
+        String name = readString();
+        types[i] = (TokenType) valueOf(loadClass(className, classLoader), name);
+      }
+      int count = readVarInt();
+      List<Token> tokens = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        int flags = in.readUnsignedByte();
+        Token token = readToken(flags);
+        if ((flags & TRIVIA) != 0) {
+          int triviaCount = readVarInt();
+          List<Trivia> trivia = new ArrayList<>(triviaCount);
+          for (int j = 0; j < triviaCount; j++) {
+            trivia.add(readTrivia());
+          }
+          token = Token.builder(token).setTrivia(trivia).build();
+        }
+        tokens.add(token);
+      }
+      return tokens;
+    }
+
+    private Trivia readTrivia() throws IOException {
+      int kind = in.readUnsignedByte();
+      Token[] tokens = new Token[readVarInt()];
+      for (int i = 0; i < tokens.length; i++) {
+        tokens[i] = readToken(in.readUnsignedByte());
+      }
+      if (kind == COMMENT) {
+        return Trivia.createComment(tokens[0]);
+      } else if (kind == SKIPPED_TEXT) {
+        return Trivia.createSkippedText(tokens);
+      } else {
+        return Trivia.createPreprocessingToken(tokens[0]);
+      }
+    }
+
+    private Token readToken(int flags) throws IOException {
+      TokenType type = types[readVarInt()];
+      line += unZigZag(readVarInt());
+      column += unZigZag(readVarInt());
+      String value = readString();
+      String originalValue = (flags & ORIGINAL_VALUE) != 0 ? readString() : value;
+      builder
+        .setType(type)
+        .setValueAndOriginalValue(value, originalValue)
+        .setURI(uri)
+        .setLine(line)
+        .setColumn(column)
+        .setGeneratedCode((flags & GENERATED_CODE) != 0);
+      if ((flags & COPY_BOOK) != 0) {
+        builder.setCopyBook(readString(), unZigZag(readVarInt()));
+      } else {
+        builder.notCopyBook();
+      }
+      return builder.build();
+    }
+
+    private String readString() throws IOException {
+      byte[] utf8 = new byte[readVarInt()];
+      in.readFully(utf8);
+      return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private int readVarInt() throws IOException {
+      int value = 0;
+      int shift = 0;
+      int b;
+      do {
+        b = in.readUnsignedByte();
+        value |= (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+
+    private static int unZigZag(int value) {
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static Class<?> loadClass(String className, ClassLoader classLoader) throws ClassNotFoundException {
+      if (classLoader != null) {
+        try {
+          return Class.forName(className, false, classLoader);
+        } catch (ClassNotFoundException e) {
+          // fall back to the class loader of SSLR
+        }
+      }
+      return Class.forName(className, false, TokenStreamCodec.class.getClassLoader());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Enum<?> valueOf(Class<?> enumClass, String name) {
+      return Enum.valueOf((Class) enumClass.asSubclass(Enum.class), name);
+    }
+
+  }
+
+}
@@ -23,20 +23,42 @@ import com.sonar.sslr.api.AstAndTokenVisitor;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.api.AstVisitor;
+import com.sonar.sslr.api.Grammar;
+import com.sonar.sslr.api.IndependentAstVisitor;
+import com.sonar.sslr.api.Rule;
 import com.sonar.sslr.api.Token;
+import org.sonar.sslr.internal.vm.CompilableGrammarRule;
+import org.sonar.sslr.internal.vm.GrammarReachability;
 
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 public final class AstWalker {
 
+  private static final AstVisitor[] NO_VISITORS = new AstVisitor[0];
+
   private final Map<AstNodeType, AstVisitor[]> visitorsByNodeType = new IdentityHashMap<>();
   private final List<AstVisitor> visitors = new ArrayList<>();
   private AstAndTokenVisitor[] astAndTokenVisitors = new AstAndTokenVisitor[0];
   private Token lastVisitedToken = null;
+  private GrammarReachability reachability = null;
+  private Set<AstNodeType> prunedTypes = null;
+  private List<AstWalker> groupWalkers = null;
+  private int groupWalkersGroups = 0;
 
   public AstWalker(AstVisitor... visitors) {
     this(Arrays.asList(visitors));
@@ -50,6 +72,8 @@ public final class AstWalker {
 
   public void addVisitor(AstVisitor visitor) {
     visitors.add(visitor);
+    prunedTypes = null;
+    groupWalkers = null;
     for (AstNodeType type : visitor.getAstNodeTypesToVisit()) {
       List<AstVisitor> visitorsByType = getAstVisitors(type);
       visitorsByType.add(visitor);
@@ -62,16 +86,242 @@ public final class AstWalker {
     }
   }
 
+  /**
+   * Allows to not descend into nodes of rules below which no node of a visited type can appear, according to the given grammar,
+   * e.g. to not walk statements when all visitors only visit expressions.
+   * Pruning is disabled when an {@link AstAndTokenVisitor} is registered, because such visitors must be called for every token.
+   * <p>
+   * Walked trees are expected to have been produced by a parser of the given grammar: nodes of rules which are not reachable
+   * from its root rule are never pruned, but nodes added to the tree after parsing might not be visited.
+   * </p>
+   *
+   * @param grammar
+   *          the grammar which has produced walked trees, or {@code null} to disable pruning
+   * @since 1.23
+   */
+  public void setGrammar(@Nullable Grammar grammar) {
+    if (grammar == null) {
+      reachability = null;
+    } else {
+      Rule rootRule = grammar.getRootRule();
+      if (!(rootRule instanceof CompilableGrammarRule)) {
+        throw new IllegalArgumentException("The grammar must have a root rule defined with a grammar builder");
+      }
+      reachability = GrammarReachability.of((CompilableGrammarRule) rootRule);
+    }
+    prunedTypes = null;
+    groupWalkers = null;
+  }
+
   public void walkAndVisit(AstNode ast) {
     for (AstVisitor visitor : visitors) {
       visitor.visitFile(ast);
     }
+    updatePrunedTypes();
     visit(ast);
     for (int i = visitors.size() - 1; i >= 0; i--) {
       visitors.get(i).leaveFile(ast);
     }
   }
 
+  /**
+   * Walks the tree in the common fork-join pool. Walks of groups are forked tasks, which are joined rather than awaited,
+   * so that this method can itself be executed by a task of the common pool without starving it.
+   *
+   * @see #walkAndVisitInParallel(AstNode, int, Executor)
+   * @since 1.23
+   */
+  public void walkAndVisitInParallel(AstNode ast, int groups) {
+    walkAndVisitInParallelWith(ast, groups, null);
+  }
+
+  /**
+   * Same as {@link #walkAndVisit(AstNode)}, except that visitors implementing {@link IndependentAstVisitor} are partitioned into
+   * the given number of groups, and each group walks the tree concurrently with the others.
+   * Other visitors walk the tree together in the calling thread.
+   * <p>
+   * Calls to {@link AstVisitor#visitFile(AstNode)} and {@link AstVisitor#leaveFile(AstNode)} are made sequentially in the calling thread,
+   * in the same order as by {@link #walkAndVisit(AstNode)}, respectively before and after all the groups have walked the tree,
+   * so that results collected by visitors are published in a deterministic order.
+   * Within a group, visitors are called in the order in which they have been added.
+   * When a walk fails, this method still waits for the other walks to complete, and then rethrows the failure of the walk in
+   * the calling thread, or else of the first group which has failed.
+   * </p>
+   *
+   * @param groups
+   *          maximal number of groups of independent visitors
+   * @param executor
+   *          executes the walks of groups of independent visitors
+   * @since 1.23
+   */
+  public void walkAndVisitInParallel(AstNode ast, int groups, Executor executor) {
+    Objects.requireNonNull(executor, "executor cannot be null");
+    walkAndVisitInParallelWith(ast, groups, executor);
+  }
+
+  private void walkAndVisitInParallelWith(AstNode ast, int groups, @Nullable Executor executor) {
+    if (groups <= 0) {
+      throw new IllegalArgumentException("groups must be strictly positive: " + groups);
+    }
+    List<AstWalker> walkers = getGroupWalkers(groups);
+    if (walkers.size() == 1) {
+      walkAndVisit(ast);
+      return;
+    }
+
+    for (AstVisitor visitor : visitors) {
+      visitor.visitFile(ast);
+    }
+    walkInParallel(ast, walkers, executor);
+    for (int i = visitors.size() - 1; i >= 0; i--) {
+      visitors.get(i).leaveFile(ast);
+    }
+  }
+
+  /**
+   * @return walker of visitors which are not independent, followed by walkers of groups of independent visitors
+   */
+  private List<AstWalker> getGroupWalkers(int groups) {
+    if (groupWalkers != null && groupWalkersGroups == groups) {
+      return groupWalkers;
+    }
+    List<AstVisitor> dependentVisitors = new ArrayList<>();
+    List<List<AstVisitor>> independentGroups = new ArrayList<>();
+    int independentVisitors = 0;
+    for (AstVisitor visitor : visitors) {
+      if (visitor instanceof IndependentAstVisitor) {
+        // round-robin, so that each group gets a similar number of visitors
+        int group = independentVisitors % groups;
+        if (group == independentGroups.size()) {
+          independentGroups.add(new ArrayList<>());
+        }
+        independentGroups.get(group).add(visitor);
+        independentVisitors++;
+      } else {
+        dependentVisitors.add(visitor);
+      }
+    }
+    List<AstWalker> result = new ArrayList<>();
+    result.add(createGroupWalker(dependentVisitors));
+    for (List<AstVisitor> group : independentGroups) {
+      result.add(createGroupWalker(group));
+    }
+    groupWalkers = result;
+    groupWalkersGroups = groups;
+    return result;
+  }
+
+  private AstWalker createGroupWalker(List<AstVisitor> group) {
+    AstWalker walker = new AstWalker(group);
+    walker.reachability = reachability;
+    return walker;
+  }
+
+  /**
+   * @param executor
+   *          executes the walks of groups, or {@code null} to fork them in the common fork-join pool
+   */
+  private static void walkInParallel(AstNode ast, List<AstWalker> walkers, @Nullable Executor executor) {
+    List<GroupWalk> walks = new ArrayList<>(walkers.size() - 1);
+    List<Future<?>> tasks = new ArrayList<>(walkers.size() - 1);
+    for (AstWalker walker : walkers.subList(1, walkers.size())) {
+      GroupWalk walk = new GroupWalk(walker, ast);
+      walks.add(walk);
+      if (executor == null) {
+        tasks.add(ForkJoinTask.adapt(walk).fork());
+      } else {
+        FutureTask<Void> task = new FutureTask<>(walk, null);
+        executor.execute(task);
+        tasks.add(task);
+      }
+    }
+
+    Throwable failure = null;
+    try {
+      // visitors which are not independent are called in the calling thread
+      walkers.get(0).walk(ast);
+    } catch (Throwable e) {
+      failure = e;
+    }
+    // visitors must not be called anymore once this method returns, even in case of failure
+    awaitAll(tasks);
+    for (GroupWalk walk : walks) {
+      if (failure == null) {
+        failure = walk.failure;
+      }
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure != null) {
+      throw new IllegalStateException("Unable to walk the tree", failure);
+    }
+  }
+
+  private static void awaitAll(List<Future<?>> tasks) {
+    boolean interrupted = false;
+    for (Future<?> task : tasks) {
+      boolean done = false;
+      while (!done) {
+        try {
+          task.get();
+          done = true;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          // failures are recorded by GroupWalk
+          done = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void walk(AstNode ast) {
+    lastVisitedToken = null;
+    updatePrunedTypes();
+    visit(ast);
+  }
+
+  private void updatePrunedTypes() {
+    if (prunedTypes != null) {
+      return;
+    }
+    Set<AstNodeType> result = Collections.newSetFromMap(new IdentityHashMap<>());
+    if (reachability != null && astAndTokenVisitors.length == 0) {
+      Set<AstNodeType> visitedTypes = Collections.newSetFromMap(new IdentityHashMap<>());
+      visitedTypes.addAll(visitorsByNodeType.keySet());
+      result.addAll(reachability.rulesWhichCannotContain(visitedTypes));
+    }
+    prunedTypes = result;
+  }
+
+  private static final class GroupWalk implements Runnable {
+
+    private final AstWalker walker;
+    private final AstNode ast;
+    private volatile Throwable failure;
+
+    GroupWalk(AstWalker walker, AstNode ast) {
+      this.walker = walker;
+      this.ast = ast;
+    }
+
+    @Override
+    public void run() {
+      try {
+        walker.walk(ast);
+      } catch (Throwable e) {
+        // recorded rather than thrown, so that it is rethrown as is, whatever the executor
+        failure = e;
+      }
+    }
+
+  }
+
   /**
    * @deprecated in 1.18, use {@link #walkAndVisit(AstNode)} instead
    */
@@ -80,12 +330,46 @@ public final class AstWalker {
     walkAndVisit(ast);
   }
 
+  /**
+   * Depth-first traversal with an explicit stack rather than recursion, so that the depth of the tree is not limited by the size of the thread stack.
+   */
   private void visit(AstNode ast) {
+    Deque<Frame> stack = new ArrayDeque<>();
+    stack.push(enter(ast));
+    while (!stack.isEmpty()) {
+      Frame frame = stack.peek();
+      if (frame.nextChild < frame.children.size()) {
+        AstNode child = frame.children.get(frame.nextChild);
+        frame.nextChild++;
+        stack.push(enter(child));
+      } else {
+        stack.pop();
+        leaveNode(frame.node, frame.nodeVisitors);
+      }
+    }
+  }
+
+  private Frame enter(AstNode ast) {
     AstVisitor[] nodeVisitors = getNodeVisitors(ast);
     visitNode(ast, nodeVisitors);
     visitToken(ast);
-    visitChildren(ast);
-    leaveNode(ast, nodeVisitors);
+    List<AstNode> children = prunedTypes.contains(ast.getType()) ? Collections.<AstNode>emptyList() : ast.getChildren();
+    return new Frame(ast, nodeVisitors, children);
+  }
+
+  private static final class Frame {
+
+    private final AstNode node;
+    private final AstVisitor[] nodeVisitors;
+    private final List<AstNode> children;
+    private int nextChild = 0;
+
+    Frame(AstNode node, AstVisitor[] nodeVisitors, List<AstNode> children) {
+      this.node = node;
+      this.nodeVisitors = nodeVisitors;
+      this.children = children;
+    }
+
   }
 
   private static void leaveNode(AstNode ast, AstVisitor[] nodeVisitors) {
@@ -94,17 +378,24 @@ public final class AstWalker {
     }
   }
 
-  private void visitChildren(AstNode ast) {
-    for (AstNode child : ast.getChildren()) {
-      visit(child);
+  /**
+   * Every token covered by a token range node is visited, see {@link AstNode#AstNode(List)}.
+   */
+  private void visitToken(AstNode ast) {
+    if (ast.isTokenRange() && astAndTokenVisitors.length > 0) {
+      for (Token token : ast.getTokens()) {
+        visitToken(token);
+      }
+    } else if (ast.getToken() != null) {
+      visitToken(ast.getToken());
     }
   }
 
-  private void visitToken(AstNode ast) {
-    if (ast.getToken() != null && lastVisitedToken != ast.getToken()) {
-      lastVisitedToken = ast.getToken();
+  private void visitToken(Token token) {
+    if (lastVisitedToken != token) {
+      lastVisitedToken = token;
       for (AstAndTokenVisitor astAndTokenVisitor : astAndTokenVisitors) {
-        astAndTokenVisitor.visitToken(lastVisitedToken);
+        astAndTokenVisitor.visitToken(token);
       }
     }
   }
@@ -117,10 +408,7 @@ public final class AstWalker {
 
   private AstVisitor[] getNodeVisitors(AstNode ast) {
     AstVisitor[] nodeVisitors = visitorsByNodeType.get(ast.getType());
-    if (nodeVisitors == null) {
-      nodeVisitors = new AstVisitor[0];
-    }
-    return nodeVisitors;
+    return nodeVisitors == null ? NO_VISITORS : nodeVisitors;
   }
 
   private void putAstVisitors(AstNodeType type, List<AstVisitor> visitors) {
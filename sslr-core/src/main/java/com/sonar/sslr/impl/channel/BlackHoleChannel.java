@@ -24,7 +24,6 @@ import org.sonar.sslr.channel.CodeReader;
 
 import com.sonar.sslr.impl.Lexer;
 
-import java.io.IOException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -49,27 +48,7 @@ public class BlackHoleChannel extends Channel<Lexer> {
 
   @Override
   public boolean consume(CodeReader code, Lexer lexer) {
-    return code.popTo(matcher, EmptyAppendable.INSTANCE) != -1;
-  }
-
-  private static class EmptyAppendable implements Appendable {
-
-    private static final Appendable INSTANCE = new EmptyAppendable();
-
-    @Override
-    public Appendable append(CharSequence csq) throws IOException {
-      return this;
-    }
-
-    @Override
-    public Appendable append(char c) throws IOException {
-      return this;
-    }
-
-    @Override
-    public Appendable append(CharSequence csq, int start, int end) throws IOException {
-      return this;
-    }
+    return code.popSlice(matcher) != null;
   }
 
 }
@@ -20,6 +20,7 @@
 package com.sonar.sslr.impl.channel;
 
 import org.sonar.sslr.channel.Channel;
+import org.sonar.sslr.channel.CodeBuffer;
 import org.sonar.sslr.channel.CodeReader;
 
 import com.sonar.sslr.api.Token;
@@ -39,7 +40,6 @@ import static com.sonar.sslr.api.GenericTokenType.COMMENT;
  */
 public class CommentRegexpChannel extends Channel<Lexer> {
 
-  private final StringBuilder tmpBuilder = new StringBuilder();
   private final Matcher matcher;
   private final String regexp;
   private final Token.Builder tokenBuilder = Token.builder();
@@ -52,8 +52,9 @@ public class CommentRegexpChannel extends Channel<Lexer> {
   @Override
   public boolean consume(CodeReader code, Lexer lexer) {
     try {
-      if (code.popTo(matcher, tmpBuilder) > 0) {
-        String value = tmpBuilder.toString();
+      CodeBuffer.Slice slice = code.popSlice(matcher);
+      if (slice != null && slice.length() > 0) {
+        String value = slice.toString();
 
         Token token = tokenBuilder
             .setType(COMMENT)
@@ -64,8 +65,6 @@ public class CommentRegexpChannel extends Channel<Lexer> {
             .build();
 
         lexer.addTrivia(Trivia.createComment(token));
-
-        tmpBuilder.delete(0, tmpBuilder.length());
         return true;
       }
       return false;
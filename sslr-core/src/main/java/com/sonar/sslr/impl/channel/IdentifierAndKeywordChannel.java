@@ -20,6 +20,7 @@
 package com.sonar.sslr.impl.channel;
 
 import org.sonar.sslr.channel.Channel;
+import org.sonar.sslr.channel.CodeBuffer;
 import org.sonar.sslr.channel.CodeReader;
 
 import com.sonar.sslr.api.Token;
@@ -36,7 +37,6 @@ import static com.sonar.sslr.api.GenericTokenType.IDENTIFIER;
 public class IdentifierAndKeywordChannel extends Channel<Lexer> {
 
   private final Map<String, TokenType> keywordsMap = new HashMap<>();
-  private final StringBuilder tmpBuilder = new StringBuilder();
   private final Matcher matcher;
   private final boolean caseSensitive;
   private final Token.Builder tokenBuilder = Token.builder();
@@ -57,8 +57,9 @@ public class IdentifierAndKeywordChannel extends Channel<Lexer> {
 
   @Override
   public boolean consume(CodeReader code, Lexer lexer) {
-    if (code.popTo(matcher, tmpBuilder) > 0) {
-      String word = tmpBuilder.toString();
+    CodeBuffer.Slice slice = code.popSlice(matcher);
+    if (slice != null && slice.length() > 0) {
+      String word = slice.toString();
       String wordOriginal = word;
       if (!caseSensitive) {
         word = word.toUpperCase();
@@ -74,8 +75,6 @@ public class IdentifierAndKeywordChannel extends Channel<Lexer> {
           .build();
 
       lexer.addToken(token);
-
-      tmpBuilder.delete(0, tmpBuilder.length());
       return true;
     }
     return false;
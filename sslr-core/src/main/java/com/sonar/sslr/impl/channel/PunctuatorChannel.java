@@ -77,9 +77,7 @@ public class PunctuatorChannel extends Channel<Lexer> {
         lexer.addToken(token);
 
         /* Advance the CodeReader stream by the length of the punctuator */
-        for (int j = 0; j < sortedPunctuatorsChars[i].length; j++) {
-          code.pop();
-        }
+        code.skip(sortedPunctuatorsChars[i].length);
 
         return true;
       }
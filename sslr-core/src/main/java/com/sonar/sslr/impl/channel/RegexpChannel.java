@@ -20,6 +20,7 @@
 package com.sonar.sslr.impl.channel;
 
 import org.sonar.sslr.channel.Channel;
+import org.sonar.sslr.channel.CodeBuffer;
 import org.sonar.sslr.channel.CodeReader;
 
 import com.sonar.sslr.api.Token;
@@ -37,7 +38,6 @@ import java.util.regex.Pattern;
  */
 public class RegexpChannel extends Channel<Lexer> {
 
-  private final StringBuilder tmpBuilder = new StringBuilder();
   private final TokenType type;
   private final Matcher matcher;
   private final String regexp;
@@ -55,8 +55,9 @@ public class RegexpChannel extends Channel<Lexer> {
   @Override
   public boolean consume(CodeReader code, Lexer lexer) {
     try {
-      if (code.popTo(matcher, tmpBuilder) > 0) {
-        String value = tmpBuilder.toString();
+      CodeBuffer.Slice slice = code.popSlice(matcher);
+      if (slice != null && slice.length() > 0) {
+        String value = slice.toString();
 
         Token token = tokenBuilder
             .setType(type)
@@ -67,8 +68,6 @@ public class RegexpChannel extends Channel<Lexer> {
             .build();
 
         lexer.addToken(token);
-
-        tmpBuilder.delete(0, tmpBuilder.length());
         return true;
       }
       return false;
@@ -0,0 +1,163 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.typed;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * Direct invoker of an action method of the tree factory, created once when the {@link com.sonar.sslr.api.typed.ActionParser} is built.
+ * <p>
+ * The method is bound to the tree factory and adapted to a signature taking and returning {@link Object},
+ * so that actions with up to {@value #MAX_SPECIALIZED_ARITY} parameters are invoked without allocating an array of arguments.
+ * Unlike {@link ReflectionUtils#invokeMethod(Method, Object, Object...)}, unchecked exceptions thrown by the action are propagated as is.
+ * </p>
+ *
+ * @since 1.23
+ */
+public final class ActionInvoker {
+
+  static final int MAX_SPECIALIZED_ARITY = 4;
+
+  private final Method method;
+  private final int arity;
+  private final MethodHandle handle;
+
+  private ActionInvoker(Method method, MethodHandle handle) {
+    this.method = method;
+    this.arity = method.getParameterTypes().length;
+    this.handle = handle;
+  }
+
+  public static ActionInvoker create(Method method, Object treeFactory) {
+    MethodHandle handle;
+    try {
+      method.setAccessible(true);
+      handle = MethodHandles.lookup().unreflect(method).asFixedArity().bindTo(treeFactory);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Unable to access action method " + method, e);
+    }
+    int arity = method.getParameterTypes().length;
+    if (arity <= MAX_SPECIALIZED_ARITY) {
+      handle = handle.asType(MethodType.genericMethodType(arity));
+    } else {
+      handle = handle.asSpreader(Object[].class, arity).asType(MethodType.methodType(Object.class, Object[].class));
+    }
+    return new ActionInvoker(method, handle);
+  }
+
+  public Method method() {
+    return method;
+  }
+
+  public int arity() {
+    return arity;
+  }
+
+  public Object invoke() {
+    checkArity(0);
+    try {
+      return handle.invokeExact();
+    } catch (Throwable e) {
+      throw propagate(e);
+    }
+  }
+
+  public Object invoke(Object arg1) {
+    checkArity(1);
+    try {
+      return handle.invokeExact(arg1);
+    } catch (Throwable e) {
+      throw propagate(e);
+    }
+  }
+
+  public Object invoke(Object arg1, Object arg2) {
+    checkArity(2);
+    try {
+      return handle.invokeExact(arg1, arg2);
+    } catch (Throwable e) {
+      throw propagate(e);
+    }
+  }
+
+  public Object invoke(Object arg1, Object arg2, Object arg3) {
+    checkArity(3);
+    try {
+      return handle.invokeExact(arg1, arg2, arg3);
+    } catch (Throwable e) {
+      throw propagate(e);
+    }
+  }
+
+  public Object invoke(Object arg1, Object arg2, Object arg3, Object arg4) {
+    checkArity(4);
+    try {
+      return handle.invokeExact(arg1, arg2, arg3, arg4);
+    } catch (Throwable e) {
+      throw propagate(e);
+    }
+  }
+
+  /**
+   * Generic path, used for actions with more than {@value #MAX_SPECIALIZED_ARITY} parameters.
+   * The given array is used as is, it must not be modified until the action returns.
+   */
+  public Object invokeWithArguments(Object[] args) {
+    checkArity(args.length);
+    switch (arity) {
+      case 0:
+        return invoke();
+      case 1:
+        return invoke(args[0]);
+      case 2:
+        return invoke(args[0], args[1]);
+      case 3:
+        return invoke(args[0], args[1], args[2]);
+      case 4:
+        return invoke(args[0], args[1], args[2], args[3]);
+      default:
+        try {
+          return handle.invokeExact(args);
+        } catch (Throwable e) {
+          throw propagate(e);
+        }
+    }
+  }
+
+  private void checkArity(int actual) {
+    if (actual != arity) {
+      throw new IllegalArgumentException("Action " + method + " expects " + arity + " arguments, but got " + actual);
+    }
+  }
+
+  private static RuntimeException propagate(Throwable e) {
+    if (e instanceof RuntimeException) {
+      return (RuntimeException) e;
+    }
+    if (e instanceof Error) {
+      throw (Error) e;
+    }
+    return new RuntimeException(e);
+  }
+
+}
@@ -38,6 +38,7 @@ import javax.annotation.Nullable;
 
 import java.lang.reflect.Method;
 import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.List;
 import java.util.Set;
@@ -62,6 +63,10 @@ public class GrammarBuilderInterceptor<T> implements MethodInterceptor, GrammarB
     this.b = b;
   }
 
+  LexerlessGrammarBuilder grammarBuilder() {
+    return b;
+  }
+
   @Override
   public Object intercept(Object obj, Method method, Object[] args, MethodProxy proxy) throws Throwable {
     if (method.getDeclaringClass().equals(Object.class)) {
@@ -189,6 +194,42 @@ public class GrammarBuilderInterceptor<T> implements MethodInterceptor, GrammarB
     return actions.get(ruleKey);
   }
 
+  /**
+   * @return rule keys of actions, with the corresponding methods of the tree factory
+   * @since 1.23
+   */
+  public Map<GrammarRuleKey, Method> actions() {
+    return Collections.unmodifiableMap(actions);
+  }
+
+  /**
+   * @since 1.23
+   */
+  public Set<GrammarRuleKey> mappedRuleKeys() {
+    return Collections.unmodifiableSet(mappedRuleKeys);
+  }
+
+  /**
+   * @since 1.23
+   */
+  public Set<GrammarRuleKey> optionalRuleKeys() {
+    return Collections.unmodifiableSet(optionals);
+  }
+
+  /**
+   * @since 1.23
+   */
+  public Set<GrammarRuleKey> oneOrMoreRuleKeys() {
+    return Collections.unmodifiableSet(oneOrMores);
+  }
+
+  /**
+   * @since 1.23
+   */
+  public Set<GrammarRuleKey> zeroOrMoreRuleKeys() {
+    return Collections.unmodifiableSet(zeroOrMores);
+  }
+
   @Nullable
   public GrammarRuleKey ruleKeyForMethod(Method method) {
     return methodToRuleKey.get(method);
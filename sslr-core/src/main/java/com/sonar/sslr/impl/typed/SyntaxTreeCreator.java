@@ -27,92 +27,192 @@ import com.sonar.sslr.api.Trivia.TriviaKind;
 import com.sonar.sslr.api.typed.Input;
 import com.sonar.sslr.api.typed.NodeBuilder;
 import com.sonar.sslr.api.typed.Optional;
+import com.sonar.sslr.api.typed.TypedGrammarModel;
 import org.sonar.sslr.grammar.GrammarRuleKey;
 import org.sonar.sslr.internal.grammar.MutableParsingRule;
+import org.sonar.sslr.internal.matchers.LineCursor;
+import org.sonar.sslr.internal.matchers.LineIndex;
 import org.sonar.sslr.internal.matchers.ParseNode;
 import org.sonar.sslr.internal.vm.TokenExpression;
 import org.sonar.sslr.internal.vm.TriviaExpression;
 
 import java.lang.reflect.Method;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class SyntaxTreeCreator<T> {
 
-  private final Object treeFactory;
-  private final GrammarBuilderInterceptor mapping;
+  private final TypedGrammarModel mapping;
+  private final Map<Object, ActionInvoker> actions = new HashMap<>();
   private final NodeBuilder nodeBuilder;
 
   private final Token.Builder tokenBuilder = Token.builder();
   private final List<Trivia> trivias = new ArrayList<>();
 
   private Input input;
+  private LineCursor lineCursor;
 
+  /**
+   * Same as {@link #SyntaxTreeCreator(Object, TypedGrammarModel, NodeBuilder)}, with a model created from the given interceptor,
+   * which must have replayed all methods of the grammar.
+   */
   public SyntaxTreeCreator(Object treeFactory, GrammarBuilderInterceptor mapping, NodeBuilder nodeBuilder) {
-    this.treeFactory = treeFactory;
+    this(treeFactory, TypedGrammarModel.create(mapping.grammarBuilder().build(), mapping, treeFactory.getClass()), nodeBuilder);
+  }
+
+  /**
+   * @since 1.23
+   */
+  public SyntaxTreeCreator(Object treeFactory, TypedGrammarModel mapping, NodeBuilder nodeBuilder) {
     this.mapping = mapping;
+    for (Map.Entry<GrammarRuleKey, Method> action : this.mapping.actions().entrySet()) {
+      actions.put(action.getKey(), ActionInvoker.create(action.getValue(), treeFactory));
+    }
     this.nodeBuilder = nodeBuilder;
   }
 
   public T create(ParseNode node, Input input) {
+    return create(node, input, new LineIndex(input.input()));
+  }
+
+  /**
+   * @param lineIndex  lines of the given input, for instance shared with the result of parse
+   * @since 1.23
+   */
+  public T create(ParseNode node, Input input, LineIndex lineIndex) {
     this.input = input;
+    // nodes are visited in increasing order of indices, so that lines are resolved by moving cursor forward
+    this.lineCursor = new LineCursor(lineIndex);
     this.trivias.clear();
     return (T) visit(node);
   }
 
-  private Object visit(ParseNode node) {
-    if (node.getMatcher() instanceof MutableParsingRule) {
-      return visitNonTerminal(node);
-    } else {
-      return visitTerminal(node);
+  /**
+   * Depth-first traversal with an explicit stack rather than recursion, so that the depth of the tree is not limited by the size of the thread stack.
+   * Converted children are pushed on a stack of values, from which they are popped once their parent is converted.
+   */
+  private Object visit(ParseNode root) {
+    if (!(root.getMatcher() instanceof MutableParsingRule)) {
+      return visitTerminal(root);
+    }
+    Deque<Frame> stack = new ArrayDeque<>();
+    List<Object> values = new ArrayList<>();
+    stack.push(enterNonTerminal(root, 0));
+    while (true) {
+      Frame frame = stack.peek();
+      List<ParseNode> children = frame.node.getChildren();
+      if (frame.nextChild < children.size()) {
+        ParseNode child = children.get(frame.nextChild);
+        frame.nextChild++;
+        if (child.getMatcher() instanceof MutableParsingRule) {
+          stack.push(enterNonTerminal(child, values.size()));
+        } else {
+          values.add(visitTerminal(child));
+        }
+      } else {
+        stack.pop();
+        List<Object> convertedChildren = values.subList(frame.firstValue, values.size());
+        Object result = leaveNonTerminal(frame.node, convertedChildren);
+        if (stack.isEmpty()) {
+          return result;
+        }
+        convertedChildren.clear();
+        values.add(result);
+      }
     }
   }
 
-  private Object visitNonTerminal(ParseNode node) {
+  private Frame enterNonTerminal(ParseNode node, int firstValue) {
+    GrammarRuleKey ruleKey = ((MutableParsingRule) node.getMatcher()).getRuleKey();
+    // TODO Drop useless intermediate nodes
+    if (mapping.hasMethodForRuleKey(ruleKey) && node.getChildren().size() != 1) {
+      throw new IllegalStateException();
+    }
+    if (mapping.isOptionalRule(ruleKey) && node.getChildren().size() > 1) {
+      throw new IllegalStateException();
+    }
+    return new Frame(node, firstValue);
+  }
+
+  /**
+   * @param convertedChildren
+   *          values of children, from left to right
+   */
+  private Object leaveNonTerminal(ParseNode node, List<Object> convertedChildren) {
     MutableParsingRule rule = (MutableParsingRule) node.getMatcher();
     GrammarRuleKey ruleKey = rule.getRuleKey();
-    Method method = mapping.actionForRuleKey(ruleKey);
+    ActionInvoker action = actions.get(ruleKey);
 
     Object result;
 
     if (mapping.hasMethodForRuleKey(ruleKey)) {
 
-      // TODO Drop useless intermediate nodes
-      if (node.getChildren().size() != 1) {
-        throw new IllegalStateException();
-      }
-      result = visit(node.getChildren().get(0));
+      result = convertedChildren.get(0);
 
     } else if (mapping.isOptionalRule(ruleKey)) {
 
-      if (node.getChildren().size() > 1) {
-        throw new IllegalStateException();
-      }
-      if (node.getChildren().isEmpty()) {
+      if (convertedChildren.isEmpty()) {
         result = Optional.absent();
       } else {
-        result = Optional.of(visit(node.getChildren().get(0)));
+        result = Optional.of(convertedChildren.get(0));
       }
 
+    } else if (action != null) {
+
+      result = invokeAction(action, convertedChildren);
+
     } else {
-      List<Object> convertedChildren = new ArrayList<>();
-      for (ParseNode child : node.getChildren()) {
-        convertedChildren.add(visit(child));
-      }
+      List<Object> copy = new ArrayList<>(convertedChildren);
       if (mapping.isOneOrMoreRule(ruleKey)) {
-        result = convertedChildren;
+        result = copy;
       } else if (mapping.isZeroOrMoreRule(ruleKey)) {
-        result = convertedChildren.isEmpty() ? Optional.absent() : Optional.of(convertedChildren);
-      } else if (method == null) {
-        result = nodeBuilder.createNonTerminal(ruleKey, rule, convertedChildren, node.getStartIndex(), node.getEndIndex());
+        result = copy.isEmpty() ? Optional.absent() : Optional.of(copy);
       } else {
-        result = ReflectionUtils.invokeMethod(method, treeFactory, convertedChildren.toArray(new Object[0]));
+        result = nodeBuilder.createNonTerminal(ruleKey, rule, copy, node.getStartIndex(), node.getEndIndex());
       }
     }
     return result;
   }
 
+  /**
+   * Converted children are passed directly as arguments of the action, without intermediate array
+   * up to {@link ActionInvoker#MAX_SPECIALIZED_ARITY} children.
+   */
+  private static Object invokeAction(ActionInvoker action, List<Object> arguments) {
+    switch (arguments.size()) {
+      case 0:
+        return action.invoke();
+      case 1:
+        return action.invoke(arguments.get(0));
+      case 2:
+        return action.invoke(arguments.get(0), arguments.get(1));
+      case 3:
+        return action.invoke(arguments.get(0), arguments.get(1), arguments.get(2));
+      case 4:
+        return action.invoke(arguments.get(0), arguments.get(1), arguments.get(2), arguments.get(3));
+      default:
+        return action.invokeWithArguments(arguments.toArray());
+    }
+  }
+
+  private static final class Frame {
+
+    private final ParseNode node;
+    private final int firstValue;
+    private int nextChild = 0;
+
+    Frame(ParseNode node, int firstValue) {
+      this.node = node;
+      this.firstValue = firstValue;
+    }
+
+  }
+
   private Object visitTerminal(ParseNode node) {
     TokenType type = null;
     if (node.getMatcher() instanceof TriviaExpression) {
@@ -140,9 +240,8 @@ public class SyntaxTreeCreator<T> {
 
   private void addComment(ParseNode node) {
     tokenBuilder.setGeneratedCode(false);
-    int[] lineAndColumn = input.lineAndColumnAt(node.getStartIndex());
-    tokenBuilder.setLine(lineAndColumn[0]);
-    tokenBuilder.setColumn(lineAndColumn[1] - 1);
+    tokenBuilder.setLine(lineCursor.lineAt(node.getStartIndex()));
+    tokenBuilder.setColumn(lineCursor.columnAt(node.getStartIndex()) - 1);
     tokenBuilder.setURI(input.uri());
     String value = input.substring(node.getStartIndex(), node.getEndIndex());
     tokenBuilder.setValueAndOriginalValue(value);
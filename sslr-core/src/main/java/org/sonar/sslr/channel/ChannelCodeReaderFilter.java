@@ -98,4 +98,37 @@ public final class ChannelCodeReaderFilter<O> extends CodeReaderFilter<O> {
     return currentOffset - initialOffset;
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Characters consumed by the channels are removed, and the remaining ones are shifted down within the buffer. Channels only look at
+   * characters after the read position, so that this never overwrites characters which are still to be read.
+   * </p>
+   */
+  @Override
+  public int filter(char[] buffer, int length, OffsetMapping mapping) {
+    CodeReader code = new CodeReader(buffer, length, getConfiguration());
+    int writeOffset = 0;
+    int shift = 0;
+    while (code.peek() != -1) {
+      boolean consumed = false;
+      for (Channel<O> channel : channels) {
+        if (channel.consume(code, getOutput())) {
+          consumed = true;
+          break;
+        }
+      }
+      if (!consumed) {
+        int readOffset = code.position();
+        if (readOffset - writeOffset != shift) {
+          shift = readOffset - writeOffset;
+          mapping.map(writeOffset, readOffset);
+        }
+        buffer[writeOffset] = (char) code.pop();
+        writeOffset++;
+      }
+    }
+    return writeOffset;
+  }
+
 }
@@ -19,10 +19,12 @@
  */
 package org.sonar.sslr.channel;
 
+import java.io.CharArrayReader;
 import java.io.FilterReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.Arrays;
 
 /**
  * The CodeBuffer class provides all the basic features required to manipulate a source code character stream. Those features are :
@@ -32,6 +34,7 @@ import java.io.StringReader;
  * <li>Read without consuming next source code character : peek()</li>
  * <li>Read without consuming character at the specified index after the cursor</li>
  * <li>Position of the pending cursor : line and column</li>
+ * <li>Consume several characters at once without copying them : popSlice()</li>
  * </ul>
  */
 public class CodeBuffer implements CharSequence {
@@ -40,10 +43,24 @@ public class CodeBuffer implements CharSequence {
   private Cursor cursor;
   private char[] buffer;
   private int bufferPosition = 0;
+  private int bufferLength;
+  private int bufferOffset = 0;
+  private int blockSize;
+  private Reader streamReader;
   private static final char LF = '\n';
   private static final char CR = '\r';
   private int tabWidth;
 
+  /* Only used when fused filters removed some characters, see readFused */
+  private OffsetMapping offsetMapping;
+  private int[] originalLineStarts;
+  private int[] originalTabs;
+  private boolean cursorDirty = false;
+  /* Overrides of line and column, relative to the position in the original input; the column override only holds on its line */
+  private int lineShift = 0;
+  private int columnShift = 0;
+  private int columnShiftLine = 0;
+
   private boolean recordingMode = false;
   private StringBuilder recordedCharacters = new StringBuilder();
 
@@ -53,25 +70,35 @@ public class CodeBuffer implements CharSequence {
 
   /**
    * Note that this constructor will read everything from reader and will close it.
+   * In streaming mode (see {@link CodeReaderConfiguration#setStreamingBlockSize(int)}) the reader is instead read block by block,
+   * and closed as soon as the end of the stream is reached. Streaming mode takes precedence over fused filters
+   * (see {@link CodeReaderConfiguration#setFusedCodeReaderFilters(boolean)}).
    */
   protected CodeBuffer(Reader initialCodeReader, CodeReaderConfiguration configuration) {
+    lastChar = -1;
+    cursor = new Cursor();
+    tabWidth = configuration.getTabWidth();
+    blockSize = configuration.getStreamingBlockSize();
+
+    if (blockSize > 0) {
+      streamReader = filter(initialCodeReader, configuration);
+      buffer = new char[2 * blockSize];
+      bufferLength = 0;
+      fill(1);
+      return;
+    }
 
     /* Make sure the reader passed-in gets closed when done. */
     try (Reader reader = initialCodeReader) {
-      lastChar = -1;
-      cursor = new Cursor();
-      tabWidth = configuration.getTabWidth();
-
-      Reader filteredReader = reader;
-
-      /* Setup the filters on the reader */
-      for (CodeReaderFilter<?> codeReaderFilter : configuration.getCodeReaderFilters()) {
-        filteredReader = new Filter(filteredReader, codeReaderFilter, configuration);
+      if (configuration.isFusedCodeReaderFilters()) {
+        readFused(reader, configuration);
+        return;
       }
 
       /* Make sure to close the filtered reader when done (cascading through the lot) */
-      try (Reader usedReader = filteredReader) {
+      try (Reader usedReader = filter(reader, configuration)) {
         buffer = read(usedReader);
+        bufferLength = buffer.length;
       }
 
     } catch (IOException e) {
@@ -79,6 +106,134 @@ public class CodeBuffer implements CharSequence {
     }
   }
 
+  private static Reader filter(Reader reader, CodeReaderConfiguration configuration) {
+    Reader filteredReader = reader;
+
+    /* Setup the filters on the reader */
+    for (CodeReaderFilter<?> codeReaderFilter : configuration.getCodeReaderFilters()) {
+      filteredReader = new Filter(filteredReader, codeReaderFilter, configuration);
+    }
+    return filteredReader;
+  }
+
+  /**
+   * Creates a buffer over the given characters, which are neither copied nor filtered.
+   */
+  CodeBuffer(char[] code, int length, CodeReaderConfiguration configuration) {
+    cursor = new Cursor();
+    tabWidth = configuration.getTabWidth();
+    buffer = code;
+    bufferLength = length;
+  }
+
+  /**
+   * Reads the input once, and then lets each filter transform the same array in place. Filters which do not support this
+   * (see {@link CodeReaderFilter#filter(char[], int, OffsetMapping)}) are applied through a Reader as usual, and as their changes
+   * are not recorded, line and column are then those of the filtered input.
+   */
+  private void readFused(Reader reader, CodeReaderConfiguration configuration) throws IOException {
+    char[] chars = new char[4 * 1024];
+    int length = 0;
+    int n;
+    while ((n = reader.read(chars, length, chars.length - length)) != -1) {
+      length += n;
+      if (length == chars.length) {
+        chars = Arrays.copyOf(chars, chars.length * 2);
+      }
+    }
+
+    CodeReaderFilter<?>[] codeReaderFilters = configuration.getCodeReaderFilters();
+    if (codeReaderFilters.length > 0) {
+      computeOriginalLines(chars, length);
+    }
+
+    OffsetMapping mapping = new OffsetMapping();
+    boolean mapped = true;
+    for (CodeReaderFilter<?> codeReaderFilter : codeReaderFilters) {
+      codeReaderFilter.setConfiguration(configuration.cloneWithoutCodeReaderFilters());
+      OffsetMapping filterMapping = new OffsetMapping();
+      int filteredLength = codeReaderFilter.filter(chars, length, filterMapping);
+      if (filteredLength == -1) {
+        try (Reader filteredReader = new Filter(new CharArrayReader(chars, 0, length), codeReaderFilter, configuration)) {
+          chars = read(filteredReader);
+          length = chars.length;
+        }
+        mapped = false;
+      } else {
+        length = filteredLength;
+        mapping = mapping.andThen(filterMapping);
+      }
+    }
+
+    buffer = chars;
+    bufferLength = length;
+    if (!mapped || mapping.isIdentity()) {
+      originalLineStarts = null;
+      originalTabs = null;
+    } else {
+      offsetMapping = mapping;
+      cursorDirty = true;
+    }
+  }
+
+  private void computeOriginalLines(char[] chars, int length) {
+    int[] lineStarts = new int[64];
+    int lines = 1;
+    int[] tabs = new int[tabWidth == 1 ? 0 : 16];
+    int tabCount = 0;
+    for (int i = 0; i < length; i++) {
+      char character = chars[i];
+      if (character == LF || character == CR && (i + 1 >= length || chars[i + 1] != LF)) {
+        if (lines == lineStarts.length) {
+          lineStarts = Arrays.copyOf(lineStarts, lines * 2);
+        }
+        lineStarts[lines] = i + 1;
+        lines++;
+      } else if (character == '\t' && tabWidth != 1) {
+        if (tabCount == tabs.length) {
+          tabs = Arrays.copyOf(tabs, tabCount * 2);
+        }
+        tabs[tabCount] = i;
+        tabCount++;
+      }
+    }
+    originalLineStarts = Arrays.copyOf(lineStarts, lines);
+    originalTabs = Arrays.copyOf(tabs, tabCount);
+  }
+
+  /**
+   * When fused filters removed some characters, the cursor is computed lazily from the offset in the original input.
+   */
+  private void syncCursor() {
+    if (!cursorDirty) {
+      return;
+    }
+    cursorDirty = false;
+    int original = offsetMapping.toOriginal(bufferPosition);
+    int line = Arrays.binarySearch(originalLineStarts, original);
+    if (line < 0) {
+      line = -line - 2;
+    }
+    int lineStart = originalLineStarts[line];
+    int column = original - lineStart;
+    if (originalTabs.length > 0) {
+      int tabsBefore = insertionPoint(Arrays.binarySearch(originalTabs, original));
+      int tabsBeforeLine = insertionPoint(Arrays.binarySearch(originalTabs, lineStart));
+      column += (tabsBefore - tabsBeforeLine) * (tabWidth - 1);
+    }
+    cursor.line = line + 1 + lineShift;
+    if (columnShift != 0 && columnShiftLine == line) {
+      column += columnShift;
+    } else {
+      columnShift = 0;
+    }
+    cursor.column = column;
+  }
+
+  private static int insertionPoint(int binarySearchResult) {
+    return binarySearchResult < 0 ? -binarySearchResult - 1 : binarySearchResult;
+  }
+
   private char[] read(Reader reader) throws IOException {
     StringBuilder sb = new StringBuilder();
     char[] str = new char[4 * 1024];
@@ -89,18 +244,69 @@ public class CodeBuffer implements CharSequence {
     return sb.toString().toCharArray();
   }
 
+  /**
+   * Makes sure that at least the given number of characters is available after the cursor, unless the end of the stream is reached.
+   * Always true when not in streaming mode.
+   */
+  private boolean fill(int required) {
+    while (bufferLength - bufferPosition < required) {
+      if (streamReader == null) {
+        return false;
+      }
+      readBlock();
+    }
+    return true;
+  }
+
+  /**
+   * Reads one more block in streaming mode, dropping the characters already consumed.
+   *
+   * @return true if some characters have been read, false if the end of the stream is reached
+   */
+  final boolean readBlock() {
+    if (streamReader == null) {
+      return false;
+    }
+    int remaining = bufferLength - bufferPosition;
+    if (buffer.length - bufferLength < blockSize) {
+      // A new array is allocated, rather than shifting characters, so that slices returned previously remain valid
+      char[] newBuffer = new char[Math.max(buffer.length, remaining + blockSize)];
+      System.arraycopy(buffer, bufferPosition, newBuffer, 0, remaining);
+      buffer = newBuffer;
+      bufferOffset += bufferPosition;
+      bufferLength = remaining;
+      bufferPosition = 0;
+    }
+    try {
+      int n = streamReader.read(buffer, bufferLength, blockSize);
+      if (n > 0) {
+        bufferLength += n;
+        return true;
+      }
+      streamReader.close();
+      streamReader = null;
+      return false;
+    } catch (IOException e) {
+      throw new ChannelException(e.getMessage(), e);
+    }
+  }
+
   /**
    * Read and consume the next character
    *
    * @return the next character or -1 if the end of the stream is reached
    */
   public final int pop() {
-    if (bufferPosition >= buffer.length) {
+    if (bufferPosition >= bufferLength && !fill(1)) {
       return -1;
     }
     int character = buffer[bufferPosition];
     bufferPosition++;
-    updateCursorPosition(character);
+    if (offsetMapping == null) {
+      updateCursorPosition(character);
+    } else {
+      cursorDirty = true;
+    }
     if (recordingMode) {
       recordedCharacters.append((char) character);
     }
@@ -108,6 +314,66 @@ public class CodeBuffer implements CharSequence {
     return character;
   }
 
+  /**
+   * Consumes the next characters at once. The cursor is moved in a single pass over the consumed characters,
+   * so that the result is the same as calling {@link #pop()} <code>length</code> times.
+   *
+   * @param length
+   *          the number of characters to consume, which must not exceed the number of remaining characters
+   */
+  public final void skip(int length) {
+    // one more character is required to handle CR LF at the end of the consumed characters
+    fill(length + 1);
+    if (length < 0 || length > bufferLength - bufferPosition) {
+      throw new IndexOutOfBoundsException("length: " + length);
+    }
+    if (length == 0) {
+      return;
+    }
+    int start = bufferPosition;
+    int end = start + length;
+    if (recordingMode) {
+      recordedCharacters.append(buffer, start, length);
+    }
+    lastChar = buffer[end - 1];
+    bufferPosition = end;
+    if (offsetMapping == null) {
+      updateCursorPosition(start, end);
+    } else {
+      cursorDirty = true;
+    }
+  }
+
+  private void updateCursorPosition(int start, int end) {
+    int line = cursor.line;
+    int column = cursor.column;
+    for (int i = start; i < end; i++) {
+      char character = buffer[i];
+      if (character == LF || character == CR && (i + 1 >= bufferLength || buffer[i + 1] != LF)) {
+        line++;
+        column = 0;
+      } else if (character == '\t') {
+        column += tabWidth;
+      } else {
+        column++;
+      }
+    }
+    cursor.line = line;
+    cursor.column = column;
+  }
+
+  /**
+   * Consumes the next characters at once, see {@link #skip(int)}.
+   *
+   * @param length
+   *          the number of characters to consume, which must not exceed the number of remaining characters
+   * @return a view on the consumed characters, which does not copy them
+   */
+  public final Slice popSlice(int length) {
+    skip(length);
+    return new Slice(buffer, bufferPosition - length, length, bufferOffset + bufferPosition - length);
+  }
+
   private void updateCursorPosition(int character) {
     // see Java Language Specification : http://java.sun.com/docs/books/jls/third_edition/html/lexical.html#3.4
     if (character == LF || character == CR && peek() != LF) {
@@ -142,10 +408,12 @@ public class CodeBuffer implements CharSequence {
    * @return the current line of the cursor
    */
   public final int getLinePosition() {
+    syncCursor();
     return cursor.line;
   }
 
   public final Cursor getCursor() {
+    syncCursor();
     return cursor;
   }
 
@@ -153,6 +421,7 @@ public class CodeBuffer implements CharSequence {
    * @return the current column of the cursor
    */
   public final int getColumnPosition() {
+    syncCursor();
     return cursor.column;
   }
 
@@ -160,6 +429,11 @@ public class CodeBuffer implements CharSequence {
    * Overrides the current column position
    */
   public final CodeBuffer setColumnPosition(int cp) {
+    syncCursor();
+    if (offsetMapping != null) {
+      columnShift += cp - cursor.column;
+      columnShiftLine = cursor.line - 1 - lineShift;
+    }
     this.cursor.column = cp;
     return this;
   }
@@ -168,6 +442,10 @@ public class CodeBuffer implements CharSequence {
    * Overrides the current line position
    */
   public final void setLinePosition(int lp) {
+    syncCursor();
+    if (offsetMapping != null) {
+      lineShift += lp - cursor.line;
+    }
     this.cursor.line = lp;
   }
 
@@ -196,18 +474,33 @@ public class CodeBuffer implements CharSequence {
   }
 
   protected final int intAt(int index) {
-    if (bufferPosition + index >= buffer.length) {
+    if (bufferPosition + index >= bufferLength && !fill(index + 1)) {
       return -1;
     }
     return buffer[bufferPosition + index];
   }
 
   /**
-   * Returns the relative length of the string (i.e. excluding the popped chars)
+   * Returns the relative length of the string (i.e. excluding the popped chars).
+   * In streaming mode only the characters already read ahead are taken into account, see {@link #isStreaming()}.
    */
   @Override
   public final int length() {
-    return buffer.length - bufferPosition;
+    return bufferLength - bufferPosition;
+  }
+
+  /**
+   * @return the absolute offset of the cursor in the (filtered) input
+   */
+  final int position() {
+    return bufferOffset + bufferPosition;
+  }
+
+  /**
+   * @return true if this buffer reads its input block by block, and the end of the stream is not yet reached
+   */
+  public final boolean isStreaming() {
+    return streamReader != null;
   }
 
   @Override
@@ -219,8 +512,8 @@ public class CodeBuffer implements CharSequence {
   public final String toString() {
     StringBuilder result = new StringBuilder();
     result.append("CodeReader(");
-    result.append("line:").append(cursor.line);
-    result.append("|column:").append(cursor.column);
+    result.append("line:").append(getLinePosition());
+    result.append("|column:").append(getColumnPosition());
     result.append("|cursor value:'").append((char) peek()).append("'");
     result.append(")");
     return result.toString();
@@ -256,6 +549,65 @@ public class CodeBuffer implements CharSequence {
     }
   }
 
+  /**
+   * Read-only view on a range of consumed characters, as returned by {@link CodeBuffer#popSlice(int)}.
+   */
+  public static final class Slice implements CharSequence {
+
+    private final char[] chars;
+    private final int start;
+    private final int length;
+    private final int offset;
+
+    Slice(char[] chars, int start, int length, int offset) {
+      this.chars = chars;
+      this.start = start;
+      this.length = length;
+      this.offset = offset;
+    }
+
+    /**
+     * @return the absolute offset of the first character of this slice in the input
+     */
+    public int getOffset() {
+      return offset;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (index < 0 || index >= length) {
+        throw new IndexOutOfBoundsException("index: " + index);
+      }
+      return chars[start + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      if (start < 0 || end > length || start > end) {
+        throw new IndexOutOfBoundsException("start: " + start + ", end: " + end);
+      }
+      return new Slice(chars, this.start + start, end - start, offset + start);
+    }
+
+    /**
+     * Appends the characters of this slice to the given builder without going through {@link #charAt(int)}.
+     */
+    public void appendTo(StringBuilder sb) {
+      sb.append(chars, start, length);
+    }
+
+    @Override
+    public String toString() {
+      return new String(chars, start, length);
+    }
+
+  }
+
   /**
    * Bridge class between CodeBuffer and CodeReaderFilter
    */
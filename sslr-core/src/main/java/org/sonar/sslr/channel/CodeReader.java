@@ -19,6 +19,9 @@
  */
 package org.sonar.sslr.channel;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 import java.io.Reader;
 import java.util.regex.Matcher;
@@ -70,6 +73,13 @@ public class CodeReader extends CodeBuffer {
     super(code, configuration);
   }
 
+  /**
+   * Creates a code reader over the given characters, which are neither copied nor filtered.
+   */
+  CodeReader(char[] code, int length, CodeReaderConfiguration configuration) {
+    super(code, length, configuration);
+  }
+
   /**
    * Read and consume the next character
    *
@@ -151,21 +161,55 @@ public class CodeReader extends CodeBuffer {
    * @return number of consumed characters or -1 if one of the two Matchers doesn't match
    */
   public final int popTo(Matcher matcher, Matcher afterMatcher, Appendable appendable) {
+    Slice slice = popSlice(matcher, afterMatcher);
+    if (slice == null) {
+      return -1;
+    }
     try {
-      matcher.reset(this);
-      if (matcher.lookingAt()) {
-        if (afterMatcher != null) {
-          afterMatcher.reset(this);
-          afterMatcher.region(matcher.end(), length());
-          if (!afterMatcher.lookingAt()) {
-            return -1;
-          }
+      if (appendable instanceof StringBuilder) {
+        slice.appendTo((StringBuilder) appendable);
+      } else {
+        appendable.append(slice);
+      }
+    } catch (IOException e) {
+      throw new ChannelException(e.getMessage(), e);
+    }
+    return slice.length();
+  }
+
+  /**
+   * Read and consume the next characters according to a given regular expression, without copying them.
+   *
+   * @param matcher
+   *          the regular expression matcher
+   * @return view on the consumed characters or null if the next input sequence doesn't match this matcher's pattern
+   * @see #popSlice(Matcher, Matcher)
+   */
+  @CheckForNull
+  public final Slice popSlice(Matcher matcher) {
+    return popSlice(matcher, null);
+  }
+
+  /**
+   * Read and consume the next characters according to a given regular expression, without copying them. Moreover the character sequence
+   * immediately following the desired characters must also match a given regular expression.
+   * The cursor is updated in a single pass over the consumed characters.
+   *
+   * @param matcher
+   *          the Matcher used to try consuming next characters
+   * @param afterMatcher
+   *          the Matcher used to check character sequence immediately following the consumed characters
+   * @return view on the consumed characters or null if one of the two Matchers doesn't match
+   */
+  @CheckForNull
+  public final Slice popSlice(Matcher matcher, @Nullable Matcher afterMatcher) {
+    try {
+      if (lookingAt(matcher, 0)) {
+        if (afterMatcher != null && !lookingAt(afterMatcher, matcher.end())) {
+          return null;
         }
         previousCursor = getCursor().clone();
-        for (int i = 0; i < matcher.end(); i++) {
-          appendable.append((char) pop());
-        }
-        return matcher.end();
+        return popSlice(matcher.end());
       }
     } catch (StackOverflowError e) {
       throw new ChannelException("Unable to apply regular expression '" + matcher.pattern().pattern()
@@ -173,11 +217,23 @@ public class CodeReader extends CodeBuffer {
         + ", because it led to a stack overflow error."
         + " This error may be due to an inefficient use of alternations - see http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=5050507", e);
     } catch (IndexOutOfBoundsException e) {
-      return -1;
-    } catch (IOException e) {
-      throw new ChannelException(e.getMessage(), e);
+      return null;
     }
-    return -1;
+    return null;
+  }
+
+  /**
+   * In streaming mode the matcher only sees the characters read ahead so far, so the match is retried with more characters
+   * as long as the end of the lookahead window was hit.
+   */
+  private boolean lookingAt(Matcher matcher, int start) {
+    boolean found;
+    do {
+      matcher.reset(this);
+      matcher.region(start, length());
+      found = matcher.lookingAt();
+    } while (matcher.hitEnd() && readBlock());
+    return found;
   }
 
   public final Cursor getPreviousCursor() {
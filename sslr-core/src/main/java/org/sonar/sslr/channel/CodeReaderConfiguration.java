@@ -32,6 +32,10 @@ public class CodeReaderConfiguration {
 
   private int tabWidth = DEFAULT_TAB_WIDTH;
 
+  private int streamingBlockSize = 0;
+
+  private boolean fusedCodeReaderFilters = false;
+
   private List<CodeReaderFilter<?>> codeReaderFilters = new ArrayList<>();
 
   /**
@@ -49,6 +53,51 @@ public class CodeReaderConfiguration {
     this.tabWidth = tabWidth;
   }
 
+  /**
+   * @return the size of the blocks in which the input is read, or 0 if the input is read at once
+   * @since 1.23
+   */
+  public int getStreamingBlockSize() {
+    return streamingBlockSize;
+  }
+
+  /**
+   * Enables streaming mode: instead of reading the whole input into memory, the code reader reads it ahead in blocks of the given size,
+   * and drops the blocks which have been consumed. The lookahead window grows as needed, so that {@link CodeReader#peek(int)} and
+   * regular expressions can still look beyond a single block.
+   *
+   * @param streamingBlockSize
+   *          the size of the blocks, or 0 (default) to read the whole input at once
+   * @since 1.23
+   */
+  public void setStreamingBlockSize(int streamingBlockSize) {
+    if (streamingBlockSize < 0) {
+      throw new IllegalArgumentException("streamingBlockSize must be positive or zero: " + streamingBlockSize);
+    }
+    this.streamingBlockSize = streamingBlockSize;
+  }
+
+  /**
+   * @return true if code reader filters transform the input in place
+   * @since 1.23
+   */
+  public boolean isFusedCodeReaderFilters() {
+    return fusedCodeReaderFilters;
+  }
+
+  /**
+   * Enables fused filtering: instead of stacking each code reader filter as a separate Reader, the input is read once and each filter
+   * transforms it in place (see {@link CodeReaderFilter#filter(char[], int, OffsetMapping)}). Filters record which characters they removed,
+   * so that line and column of the cursor are those of the original input, rather than those of the filtered input.
+   * This does not hold as soon as one of the filters does not support in-place filtering, in which case line and column are those
+   * of the filtered input as without fused filtering. Ignored in streaming mode.
+   *
+   * @since 1.23
+   */
+  public void setFusedCodeReaderFilters(boolean fusedCodeReaderFilters) {
+    this.fusedCodeReaderFilters = fusedCodeReaderFilters;
+  }
+
   /**
    * @return the codeReaderFilters
    */
@@ -78,6 +127,8 @@ public class CodeReaderConfiguration {
   public CodeReaderConfiguration cloneWithoutCodeReaderFilters() {
     CodeReaderConfiguration clone = new CodeReaderConfiguration();
     clone.setTabWidth(tabWidth);
+    clone.setStreamingBlockSize(streamingBlockSize);
+    clone.setFusedCodeReaderFilters(fusedCodeReaderFilters);
     return clone;
   }
 
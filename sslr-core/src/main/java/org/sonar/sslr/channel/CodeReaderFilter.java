@@ -123,4 +123,29 @@ public abstract class CodeReaderFilter<O> {
    */
   public abstract int read(char[] filteredBuffer, int offset, int length) throws IOException;
 
+  /**
+   * Filters the given characters in place, which is used instead of {@link #read(char[], int, int)} when the filters are fused, see
+   * {@link CodeReaderConfiguration#setFusedCodeReaderFilters(boolean)}. This is only possible for filters which never produce more
+   * characters than they consume.
+   * <p>
+   * Each time characters are removed, the offset of the next kept character must be recorded in the given mapping, so that line and column
+   * of tokens can be computed according to the original input.
+   * </p>
+   * <p>
+   * Default implementation returns -1 without touching the buffer, in which case this filter is applied through {@link #read(char[], int, int)}.
+   * </p>
+   *
+   * @param buffer
+   *          the characters to filter, and the place where to write the filtered characters starting from index 0
+   * @param length
+   *          the number of characters to filter
+   * @param mapping
+   *          the mapping from offsets in the filtered characters to offsets in the given characters
+   * @return the number of filtered characters, or -1 if this filter does not support in-place filtering
+   * @since 1.23
+   */
+  public int filter(char[] buffer, int length, OffsetMapping mapping) {
+    return -1;
+  }
+
 }
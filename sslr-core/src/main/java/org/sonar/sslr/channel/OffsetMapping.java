@@ -0,0 +1,135 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.channel;
+
+import java.util.Arrays;
+
+/**
+ * Maps offsets in a filtered character stream back to offsets in the stream before filtering.
+ * <p>
+ * The mapping is made of segments: starting from a given filtered offset, characters are taken contiguously from a given original offset.
+ * Filters which remove characters record a new segment each time they resume copying after a removal, see
+ * {@link CodeReaderFilter#filter(char[], int, OffsetMapping)}.
+ * </p>
+ *
+ * @since 1.23
+ */
+public final class OffsetMapping {
+
+  private int[] filteredOffsets = new int[16];
+  private int[] originalOffsets = new int[16];
+  private int size = 0;
+
+  /**
+   * Records that, starting from the given filtered offset, characters come from the given original offset.
+   * Calls must be made in increasing order of both offsets.
+   */
+  public void map(int filteredOffset, int originalOffset) {
+    if (size > 0) {
+      int last = size - 1;
+      if (filteredOffset < filteredOffsets[last] || originalOffset - filteredOffset < originalOffsets[last] - filteredOffsets[last]) {
+        throw new IllegalArgumentException("Offsets must be recorded in increasing order");
+      }
+      if (originalOffset - filteredOffset == originalOffsets[last] - filteredOffsets[last]) {
+        // same shift as the previous segment
+        return;
+      }
+      if (filteredOffset == filteredOffsets[last]) {
+        originalOffsets[last] = originalOffset;
+        return;
+      }
+    } else if (filteredOffset == originalOffset) {
+      return;
+    }
+    if (size == filteredOffsets.length) {
+      filteredOffsets = Arrays.copyOf(filteredOffsets, size * 2);
+      originalOffsets = Arrays.copyOf(originalOffsets, size * 2);
+    }
+    filteredOffsets[size] = filteredOffset;
+    originalOffsets[size] = originalOffset;
+    size++;
+  }
+
+  /**
+   * @return true if no character has been removed, i.e. all offsets are mapped to themselves
+   */
+  public boolean isIdentity() {
+    return size == 0;
+  }
+
+  public int toOriginal(int filteredOffset) {
+    int i = Arrays.binarySearch(filteredOffsets, 0, size, filteredOffset);
+    if (i < 0) {
+      i = -i - 2;
+    }
+    if (i < 0) {
+      return filteredOffset;
+    }
+    return originalOffsets[i] + filteredOffset - filteredOffsets[i];
+  }
+
+  /**
+   * Composes this mapping with the mapping produced by a subsequent filter.
+   *
+   * @param next
+   *          mapping from the output of the subsequent filter to its input, which is the filtered stream of this mapping
+   * @return mapping from the output of the subsequent filter to the original stream
+   */
+  public OffsetMapping andThen(OffsetMapping next) {
+    if (next.isIdentity()) {
+      return this;
+    }
+    if (isIdentity()) {
+      return next;
+    }
+    OffsetMapping result = new OffsetMapping();
+    int j = 0;
+    for (int i = 0; i < next.size; i++) {
+      int start = next.filteredOffsets[i];
+      int end = i + 1 < next.size ? next.filteredOffsets[i + 1] : Integer.MAX_VALUE;
+      int shift = next.originalOffsets[i] - start;
+      if (i == 0 && start > 0) {
+        // implicit identity segment before the first recorded one
+        j = mapSegment(result, 0, start, 0, j);
+      }
+      j = mapSegment(result, start, end, shift, j);
+    }
+    return result;
+  }
+
+  /**
+   * Maps the segment [start, end) of the final stream, which comes from [start + shift, end + shift) of the intermediate stream,
+   * splitting it at each segment boundary of this mapping.
+   */
+  private int mapSegment(OffsetMapping result, int start, int end, int shift, int fromIndex) {
+    int j = fromIndex;
+    result.map(start, toOriginal(start + shift));
+    while (j < size && filteredOffsets[j] <= start + shift) {
+      j++;
+    }
+    while (j < size && (long) filteredOffsets[j] - shift < end) {
+      int boundary = filteredOffsets[j] - shift;
+      result.map(boundary, originalOffsets[j]);
+      j++;
+    }
+    return j;
+  }
+
+}
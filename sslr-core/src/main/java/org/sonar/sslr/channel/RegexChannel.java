@@ -27,7 +27,6 @@ import java.util.regex.Pattern;
  */
 public abstract class RegexChannel<O> extends Channel<O> {
 
-  private final StringBuilder tmpBuilder = new StringBuilder();
   private final Matcher matcher;
 
   /**
@@ -42,9 +41,9 @@ public abstract class RegexChannel<O> extends Channel<O> {
 
   @Override
   public final boolean consume(CodeReader code, O output) {
-    if (code.popTo(matcher, tmpBuilder) > 0) {
-      consume(tmpBuilder, output);
-      tmpBuilder.delete(0, tmpBuilder.length());
+    CharSequence token = code.popSlice(matcher);
+    if (token != null && token.length() > 0) {
+      consume(token, output);
       return true;
     }
     return false;
@@ -20,6 +20,7 @@
 package org.sonar.sslr.grammar;
 
 import org.sonar.sslr.internal.vm.CompilableGrammarRule;
+import org.sonar.sslr.internal.vm.CutExpression;
 import org.sonar.sslr.internal.vm.FirstOfExpression;
 import org.sonar.sslr.internal.vm.NextExpression;
 import org.sonar.sslr.internal.vm.NextNotExpression;
@@ -253,6 +254,26 @@ abstract class GrammarBuilder {
     return NothingExpression.INSTANCE;
   }
 
+  /**
+   * Creates parsing expression - "cut".
+   * This expression always succeeds without consuming any input, and commits to the alternative in which it appears:
+   * if the rest of this alternative fails, then the innermost enclosing {@link #firstOf(Object, Object) firstOf},
+   * {@link #optional(Object) optional}, {@link #zeroOrMore(Object) zeroOrMore} or {@link #oneOrMore(Object) oneOrMore}
+   * of the same rule fails instead of trying its next alternative.
+   * For example expression {@code firstOf(sequence("class", cut(), identifier), identifier)} does not try the second alternative
+   * once keyword "class" has been matched.
+   * <p>
+   * Once no alternative is pending anymore, parser releases memoized results for the input before the cut,
+   * which bounds memory consumption on huge inputs made of many top-level elements, e.g. {@code zeroOrMore(declaration, cut())}.
+   * <p>
+   * Be aware that this expression must not be used directly within {@link #next(Object) next} or {@link #nextNot(Object) nextNot}.
+   *
+   * @since 1.23
+   */
+  public final Object cut() {
+    return CutExpression.INSTANCE;
+  }
+
   protected abstract ParsingExpression convertToExpression(Object e);
 
   final ParsingExpression[] convertToExpressions(Object e1, Object[] rest) {
@@ -30,7 +30,9 @@ import org.sonar.sslr.internal.vm.SequenceExpression;
 import org.sonar.sslr.internal.vm.ZeroOrMoreExpression;
 import org.sonar.sslr.internal.vm.lexerful.AdjacentExpression;
 import org.sonar.sslr.internal.vm.lexerful.AnyTokenExpression;
+import org.sonar.sslr.internal.vm.lexerful.SingleTokenExpression;
 import org.sonar.sslr.internal.vm.lexerful.TillNewLineExpression;
+import org.sonar.sslr.internal.vm.lexerful.TillTokenExpression;
 import org.sonar.sslr.internal.vm.lexerful.TokenTypeClassExpression;
 import org.sonar.sslr.internal.vm.lexerful.TokenTypeExpression;
 import org.sonar.sslr.internal.vm.lexerful.TokenTypesExpression;
@@ -172,6 +174,8 @@ public class LexerfulGrammarBuilder extends GrammarBuilder {
    *   ).skip()
    * </pre>
    * Do not overuse this expression.
+   * <p>
+   * Consumed tokens can be represented by a single AST node, see {@link com.sonar.sslr.impl.Parser.Builder#withTokenRangeNodes()}.
    */
   public Object bridge(TokenType from, TokenType to) {
     return new TokensBridgeExpression(from, to);
@@ -207,14 +211,18 @@ public class LexerfulGrammarBuilder extends GrammarBuilder {
   /**
    * Creates parsing expression - "till".
    * Equivalent of expression {@code sequence(zeroOrMore(nextNot(e), anyToken()), e)}.
+   * When {@code e} matches a single token, such as a token type or value, tokens are scanned directly and a single node is created for them.
    * Do not overuse this method.
    *
    * @param e  sub-expression
    * @throws IllegalArgumentException if given argument is not a parsing expression
    */
   public Object till(Object e) {
-    // TODO repeated expression
     ParsingExpression expression = convertToExpression(e);
+    if (expression instanceof SingleTokenExpression) {
+      return new TillTokenExpression(true, (SingleTokenExpression) expression);
+    }
+    // TODO repeated expression
     return new SequenceExpression(
         new ZeroOrMoreExpression(
             new SequenceExpression(
@@ -226,21 +234,27 @@ public class LexerfulGrammarBuilder extends GrammarBuilder {
   /**
    * Creates parsing expression - "exclusive till".
    * Equivalent of expression {@code zeroOrMore(nextNot(e), anyToken())}.
+   * When {@code e} matches a single token, such as a token type or value, tokens are scanned directly and a single node is created for them.
    * Do not overuse this method.
    *
    * @param e  sub-expression
    * @throws IllegalArgumentException if any of given arguments is not a parsing expression
    */
   public Object exclusiveTill(Object e) {
+    ParsingExpression expression = convertToExpression(e);
+    if (expression instanceof SingleTokenExpression) {
+      return new TillTokenExpression(false, (SingleTokenExpression) expression);
+    }
     return new ZeroOrMoreExpression(
         new SequenceExpression(
-            new NextNotExpression(convertToExpression(e)),
+            new NextNotExpression(expression),
             AnyTokenExpression.INSTANCE));
   }
 
   /**
    * Creates parsing expression - "exclusive till".
    * Equivalent of expression {@code zeroOrMore(nextNot(firstOf(e, rest)), anyToken())}.
+   * When all sub-expressions match a single token, tokens are scanned directly and a single node is created for them.
    * Do not overuse this method.
    *
    * @param e1  first sub-expression
@@ -248,7 +262,15 @@ public class LexerfulGrammarBuilder extends GrammarBuilder {
    * @throws IllegalArgumentException if any of given arguments is not a parsing expression
    */
   public Object exclusiveTill(Object e1, Object... rest) {
-    return exclusiveTill(new FirstOfExpression(convertToExpressions(e1, rest)));
+    ParsingExpression[] expressions = convertToExpressions(e1, rest);
+    SingleTokenExpression[] terminators = new SingleTokenExpression[expressions.length];
+    for (int i = 0; i < expressions.length; i++) {
+      if (!(expressions[i] instanceof SingleTokenExpression)) {
+        return exclusiveTill(new FirstOfExpression(expressions));
+      }
+      terminators[i] = (SingleTokenExpression) expressions[i];
+    }
+    return new TillTokenExpression(false, terminators);
   }
 
   @Override
@@ -26,11 +26,15 @@ import org.sonar.sslr.internal.grammar.MutableParsingRule;
 import org.sonar.sslr.internal.vm.EndOfInputExpression;
 import org.sonar.sslr.internal.vm.ParsingExpression;
 import org.sonar.sslr.internal.vm.PatternExpression;
+import org.sonar.sslr.internal.vm.SpacingExpression;
 import org.sonar.sslr.internal.vm.StringExpression;
+import org.sonar.sslr.internal.vm.TillStringExpression;
 import org.sonar.sslr.internal.vm.TokenExpression;
 import org.sonar.sslr.internal.vm.TriviaExpression;
 import org.sonar.sslr.parser.LexerlessGrammar;
 
+import javax.annotation.Nullable;
+
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -115,6 +119,76 @@ public class LexerlessGrammarBuilder extends GrammarBuilder {
     return EndOfInputExpression.INSTANCE;
   }
 
+  /**
+   * Creates parsing expression - "till".
+   * Equivalent of expression {@code sequence(zeroOrMore(nextNot(terminator), regexp("(?s).")), terminator)},
+   * but consumes input with a single scan and creates a single node, for instance <code>sequence("/*", till("*&#47;"))</code> for a block comment.
+   * This expression fails, if terminator is not found.
+   *
+   * @param terminator  non-empty string
+   * @throws IllegalArgumentException if terminator is empty
+   * @since 1.23
+   */
+  public Object till(String terminator) {
+    return new TillStringExpression(terminator, true);
+  }
+
+  /**
+   * Creates parsing expression - "exclusive till".
+   * Equivalent of expression {@code zeroOrMore(nextNot(terminator), regexp("(?s)."))},
+   * but consumes input with a single scan and creates a single node.
+   * This expression always succeeds.
+   *
+   * @param terminator  non-empty string
+   * @throws IllegalArgumentException if terminator is empty
+   * @since 1.23
+   */
+  public Object exclusiveTill(String terminator) {
+    return new TillStringExpression(terminator, false);
+  }
+
+  /**
+   * Creates parsing expression - "spacing", which consumes whitespace characters, as defined by {@link Character#isWhitespace(char)}.
+   * This expression always succeeds.
+   *
+   * @see #spacing(String, String, String)
+   * @since 1.23
+   */
+  public Object spacing() {
+    return new SpacingExpression(null, null, null);
+  }
+
+  /**
+   * Creates parsing expression - "spacing", which consumes whitespace characters, as defined by {@link Character#isWhitespace(char)}, and comments.
+   * Equivalent of expression
+   * <pre>
+   * sequence(
+   *   skippedTrivia(regexp("\\s*+")),
+   *   zeroOrMore(
+   *     commentTrivia(firstOf(
+   *       regexp(lineCommentStart + "[^\\n\\r]*+"),
+   *       sequence(blockCommentStart, till(blockCommentEnd)))),
+   *     skippedTrivia(regexp("\\s*+"))))
+   * </pre>
+   * but is executed directly by the parser instead of being a rule, which is called before almost every terminal:
+   * input is scanned without regular expressions, nodes are created only for comments,
+   * and result is reused when this expression is executed again at the same position after backtracking.
+   * So usually this expression is used directly rather than as a definition of rule, for instance:
+   * <pre>
+   * Object spacing = b.spacing("//", "/*", "*&#47;");
+   * b.rule(IF_STATEMENT).is("if", spacing, "(", spacing, EXPRESSION, ")", spacing, STATEMENT);
+   * </pre>
+   *
+   * @param lineCommentStart  start of comment, which ends at the end of line, or null if there is no such comments
+   * @param blockCommentStart  start of comment, which ends with blockCommentEnd, or null if there is no such comments
+   * @param blockCommentEnd  end of comment, which starts with blockCommentStart, or null if there is no such comments
+   * @throws IllegalArgumentException if any of given strings is empty, or if only one of blockCommentStart and blockCommentEnd is null
+   * @since 1.23
+   */
+  public Object spacing(@Nullable String lineCommentStart, @Nullable String blockCommentStart, @Nullable String blockCommentEnd) {
+    return new SpacingExpression(lineCommentStart, blockCommentStart, blockCommentEnd);
+  }
+
   /**
    * Creates parsing expression - "token".
    *
@@ -116,6 +116,13 @@ public class MutableParsingRule implements CompilableGrammarRule, Matcher, Rule,
     astNodeSkippingPolicy = SkipFromAstIfOnlyOneChild.INSTANCE;
   }
 
+  /**
+   * @since 1.23
+   */
+  public AstNodeSkippingPolicy getAstNodeSkippingPolicy() {
+    return astNodeSkippingPolicy;
+  }
+
   @Override
   public boolean hasToBeSkippedFromAst(AstNode node) {
     return astNodeSkippingPolicy.hasToBeSkippedFromAst(node);
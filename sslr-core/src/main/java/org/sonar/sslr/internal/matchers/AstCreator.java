@@ -32,8 +32,10 @@ import org.sonar.sslr.parser.ParsingResult;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 
 public final class AstCreator {
@@ -50,6 +52,7 @@ public final class AstCreator {
   }
 
   private final LocatedText input;
+  private final LineCursor lineCursor;
   private final Token.Builder tokenBuilder = Token.builder();
   private final List<Trivia> trivias = new ArrayList<>();
 
@@ -62,13 +65,35 @@ public final class AstCreator {
 
   private AstCreator(LocatedText input) {
     this.input = input;
+    this.lineCursor = input.newLineCursor();
   }
 
-  private AstNode visit(ParseNode node) {
-    if (node.getMatcher() instanceof MutableParsingRule) {
-      return visitNonTerminal(node);
-    } else {
-      return visitTerminal(node);
+  /**
+   * Depth-first traversal with an explicit stack rather than recursion, so that the depth of the tree is not limited by the size of the thread stack.
+   * Created AST nodes are pushed on a stack of children, from which they are popped once their parent is created.
+   */
+  private AstNode visit(ParseNode root) {
+    if (!(root.getMatcher() instanceof MutableParsingRule)) {
+      return visitTerminal(root);
+    }
+    Deque<ParseNodeFrame> stack = new ArrayDeque<>();
+    List<AstNode> astNodes = new ArrayList<>();
+    stack.push(new ParseNodeFrame(root, 0));
+    while (true) {
+      ParseNodeFrame frame = stack.peek();
+      ParseNode child = frame.nextChild();
+      if (child == null) {
+        stack.pop();
+        AstNode astNode = visitNonTerminal(frame.node, astNodes.subList(frame.firstAstNode, astNodes.size()));
+        if (stack.isEmpty()) {
+          return astNode;
+        }
+        ParseNodeFrame.addChild(astNodes, astNode);
+      } else if (child.getMatcher() instanceof MutableParsingRule) {
+        stack.push(new ParseNodeFrame(child, astNodes.size()));
+      } else {
+        ParseNodeFrame.addChild(astNodes, visitTerminal(child));
+      }
     }
   }
 
@@ -108,39 +133,24 @@ public final class AstCreator {
   }
 
   private void updateTokenPositionAndValue(ParseNode node) {
-    TextLocation location = input.getLocation(node.getStartIndex());
-    if (location == null) {
-      tokenBuilder.setGeneratedCode(true);
-      // Godin: line, column and uri has no value for generated code, but we should bypass checks in TokenBuilder
-      tokenBuilder.setLine(1);
-      tokenBuilder.setColumn(0);
-      tokenBuilder.setURI(FAKE_URI);
-    } else {
-      tokenBuilder.setGeneratedCode(false);
-      tokenBuilder.setLine(location.getLine());
-      tokenBuilder.setColumn(location.getColumn() - 1);
-      tokenBuilder.setURI(location.getFileURI() == null ? FAKE_URI : location.getFileURI());
-      tokenBuilder.notCopyBook();
-    }
+    // nodes are visited in increasing order of indices, so that lines are resolved by moving cursor forward
+    int index = node.getStartIndex();
+    tokenBuilder.setGeneratedCode(false);
+    tokenBuilder.setLine(input.getLine(index, lineCursor));
+    tokenBuilder.setColumn(input.getColumn(index, lineCursor) - 1);
+    tokenBuilder.setURI(input.getFileURI() == null ? FAKE_URI : input.getFileURI());
+    tokenBuilder.notCopyBook();
 
     String value = getValue(node);
     tokenBuilder.setValueAndOriginalValue(value);
   }
 
-  private AstNode visitNonTerminal(ParseNode node) {
+  /**
+   * @param astNodes
+   *          AST nodes of children, which are removed from the list
+   */
+  private static AstNode visitNonTerminal(ParseNode node, List<AstNode> astNodes) {
     MutableParsingRule ruleMatcher = (MutableParsingRule) node.getMatcher();
-    List<AstNode> astNodes = new ArrayList<>();
-    for (ParseNode child : node.getChildren()) {
-      AstNode astNode = visit(child);
-      if (astNode != null) {
-        if (astNode.hasToBeSkippedFromAst()) {
-          astNodes.addAll(astNode.getChildren());
-        } else {
-          astNodes.add(astNode);
-        }
-      }
-    }
-
     Token token = null;
     for (AstNode child : astNodes) {
       if (child.getToken() != null) {
@@ -153,6 +163,7 @@ public final class AstCreator {
     for (AstNode child : astNodes) {
       astNode.addChild(child);
     }
+    astNodes.clear();
     astNode.setFromIndex(node.getStartIndex());
     astNode.setToIndex(node.getEndIndex());
     return astNode;
@@ -19,36 +19,57 @@
  */
 package org.sonar.sslr.internal.matchers;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import javax.annotation.Nullable;
+
+import java.io.File;
 
 public class ImmutableInputBuffer implements InputBuffer {
 
   private final char[] buffer;
 
+  private final LineIndex lineIndex;
+
   /**
-   * Indices of lines in buffer.
+   * Line and column of the first character of buffer, when buffer is a part of a larger text.
    */
-  private final int[] lines;
+  private final int startLine;
+  private final int startColumn;
 
   public ImmutableInputBuffer(char[] buffer) {
+    this(buffer, 1, 1);
+  }
+
+  /**
+   * Creates buffer for a part of a larger text, which starts at given line and column,
+   * so that positions and line numbers are relative to the whole text.
+   * Lines before the start line are reported as empty.
+   *
+   * @since 1.23
+   */
+  public ImmutableInputBuffer(char[] buffer, int startLine, int startColumn) {
     this.buffer = buffer;
+    this.lineIndex = new LineIndex(buffer);
+    this.startLine = startLine;
+    this.startColumn = startColumn;
+  }
 
-    List<Integer> newlines = new ArrayList<>();
-    int i = 0;
-    newlines.add(0);
-    while (i < buffer.length) {
-      if (isEndOfLine(buffer, i)) {
-        newlines.add(i + 1);
-      }
-      i++;
-    }
-    newlines.add(i);
-    this.lines = new int[newlines.size()];
-    for (i = 0; i < newlines.size(); i++) {
-      this.lines[i] = newlines.get(i);
-    }
+  /**
+   * Lines are computed only when requested, and can be reused by other representations of the same text,
+   * for instance {@link LocatedText#LocatedText(java.io.File, char[], LineIndex)}.
+   *
+   * @since 1.23
+   */
+  public LineIndex getLineIndex() {
+    return lineIndex;
+  }
+
+  /**
+   * Creates text over the same characters and lines, with the same positions relative to the larger text.
+   *
+   * @since 1.23
+   */
+  public LocatedText toLocatedText(@Nullable File file) {
+    return new LocatedText(file, buffer, lineIndex, startLine, startColumn);
   }
 
   @Override
@@ -61,38 +82,30 @@ public class ImmutableInputBuffer implements InputBuffer {
     return buffer[i];
   }
 
-  /**
-   * A line is considered to be terminated by any one of
-   * a line feed ({@code '\n'}), a carriage return ({@code '\r'}),
-   * or a carriage return followed immediately by a line feed ({@code "\r\n"}).
-   */
-  private static boolean isEndOfLine(char[] buffer, int i) {
-    return buffer[i] == TextUtils.LF ||
-        (buffer[i] == TextUtils.CR && (((i + 1 < buffer.length) && buffer[i + 1] != TextUtils.LF) || i + 1 == buffer.length));
-  }
-
   @Override
   public String extractLine(int lineNumber) {
-    int start = lines[lineNumber - 1];
-    int end = lines[lineNumber];
+    int localLineNumber = lineNumber - startLine + 1;
+    if (localLineNumber < 1) {
+      return "";
+    }
+    int start = lineIndex.getLineStart(localLineNumber);
+    int end = lineIndex.getLineEnd(localLineNumber);
     return new String(buffer, start, end - start);
   }
 
   @Override
   public int getLineCount() {
-    return lines.length - 1;
-  }
-
-  private int getLineNumber(int index) {
-    int i = Arrays.binarySearch(lines, index);
-    return Math.min(i >= 0 ? (i + 1) : -(i + 1), getLineCount());
+    return startLine - 1 + lineIndex.getLineCount();
   }
 
   @Override
   public Position getPosition(int index) {
-    int line = getLineNumber(index);
-    int column = index - lines[line - 1] + 1;
-    return new Position(line, column);
+    int line = lineIndex.getLine(index);
+    int column = index - lineIndex.getLineStart(line) + 1;
+    if (line == 1) {
+      column += startColumn - 1;
+    }
+    return new Position(startLine - 1 + line, column);
   }
 
 }
@@ -22,47 +22,79 @@ package org.sonar.sslr.internal.matchers;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.Token;
 import com.sonar.sslr.impl.matcher.RuleDefinition;
+import org.sonar.sslr.internal.vm.lexerful.TillTokenExpression;
 import org.sonar.sslr.internal.vm.lexerful.TokenTypeExpression;
+import org.sonar.sslr.internal.vm.lexerful.TokensBridgeExpression;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 
 public class LexerfulAstCreator {
 
   public static AstNode create(ParseNode node, List<Token> tokens) {
-    AstNode astNode = new LexerfulAstCreator(tokens).visit(node);
+    return create(node, tokens, false);
+  }
+
+  /**
+   * @param tokenRangeNodes
+   *          whether a terminal, which covers several tokens, should lead to creation of a single AST node rather than one per token
+   */
+  public static AstNode create(ParseNode node, List<Token> tokens, boolean tokenRangeNodes) {
+    AstNode astNode = new LexerfulAstCreator(tokens, tokenRangeNodes).visit(node);
     // Unwrap AstNodeType for root node:
     astNode.hasToBeSkippedFromAst();
     return astNode;
   }
 
   private final List<Token> tokens;
+  private final boolean tokenRangeNodes;
 
-  private LexerfulAstCreator(List<Token> tokens) {
+  private LexerfulAstCreator(List<Token> tokens, boolean tokenRangeNodes) {
     this.tokens = tokens;
+    this.tokenRangeNodes = tokenRangeNodes;
   }
 
-  private AstNode visit(ParseNode node) {
-    if (node.getMatcher() instanceof RuleDefinition) {
-      return visitNonTerminal(node);
-    } else {
-      return visitTerminal(node);
+  /**
+   * Depth-first traversal with an explicit stack rather than recursion, see {@link AstCreator}.
+   */
+  private AstNode visit(ParseNode root) {
+    if (!(root.getMatcher() instanceof RuleDefinition)) {
+      return visitTerminal(root);
     }
-  }
-
-  private AstNode visitNonTerminal(ParseNode node) {
+    Deque<ParseNodeFrame> stack = new ArrayDeque<>();
     List<AstNode> astNodes = new ArrayList<>();
-    for (ParseNode child : node.getChildren()) {
-      AstNode astNode = visit(child);
-      if (astNode == null) {
-        // skip
-      } else if (astNode.hasToBeSkippedFromAst()) {
-        astNodes.addAll(astNode.getChildren());
+    stack.push(new ParseNodeFrame(root, 0));
+    while (true) {
+      ParseNodeFrame frame = stack.peek();
+      ParseNode child = frame.nextChild();
+      if (child == null) {
+        stack.pop();
+        AstNode astNode = visitNonTerminal(frame.node, astNodes.subList(frame.firstAstNode, astNodes.size()));
+        if (stack.isEmpty()) {
+          return astNode;
+        }
+        ParseNodeFrame.addChild(astNodes, astNode);
+      } else if (child.getMatcher() instanceof RuleDefinition) {
+        stack.push(new ParseNodeFrame(child, astNodes.size()));
+      } else if (child.getEndIndex() - child.getStartIndex() > 1) {
+        if (tokenRangeNodes) {
+          ParseNodeFrame.addChild(astNodes, visitTokenRange(child));
+        } else {
+          visitTerminals(child, astNodes);
+        }
       } else {
-        astNodes.add(astNode);
+        ParseNodeFrame.addChild(astNodes, visitTerminal(child));
       }
     }
+  }
 
+  /**
+   * @param astNodes
+   *          AST nodes of children, which are removed from the list
+   */
+  private AstNode visitNonTerminal(ParseNode node, List<AstNode> astNodes) {
     RuleDefinition ruleMatcher = (RuleDefinition) node.getMatcher();
 
     Token token = node.getStartIndex() < tokens.size() ? tokens.get(node.getStartIndex()) : null;
@@ -70,12 +102,35 @@ public class LexerfulAstCreator {
     for (AstNode child : astNodes) {
       astNode.addChild(child);
     }
+    astNodes.clear();
     astNode.setFromIndex(node.getStartIndex());
     astNode.setToIndex(node.getEndIndex());
 
     return astNode;
   }
 
+  /**
+   * Creates an AST node for each token of a terminal, which covers several tokens, see {@link TillTokenExpression} and {@link TokensBridgeExpression}.
+   */
+  private void visitTerminals(ParseNode node, List<AstNode> astNodes) {
+    for (int i = node.getStartIndex(); i < node.getEndIndex(); i++) {
+      AstNode astNode = new AstNode(tokens.get(i));
+      astNode.setFromIndex(i);
+      astNode.setToIndex(i + 1);
+      ParseNodeFrame.addChild(astNodes, astNode);
+    }
+  }
+
+  /**
+   * Creates a single AST node for a terminal, which covers several tokens, tokens are not copied.
+   */
+  private AstNode visitTokenRange(ParseNode node) {
+    AstNode astNode = new AstNode(tokens.subList(node.getStartIndex(), node.getEndIndex()));
+    astNode.setFromIndex(node.getStartIndex());
+    astNode.setToIndex(node.getEndIndex());
+    return astNode;
+  }
+
   private AstNode visitTerminal(ParseNode node) {
     Token token = tokens.get(node.getStartIndex());
     // For compatibility with SSLR < 1.19, TokenType should be checked only for TokenTypeExpression:
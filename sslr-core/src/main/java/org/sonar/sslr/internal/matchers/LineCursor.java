@@ -0,0 +1,82 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.matchers;
+
+import java.util.Arrays;
+
+/**
+ * Resolves lines and columns of indices in a text, which are usually requested in increasing order,
+ * for instance when tokens are created from a parse tree:
+ * instead of a binary search for each index, the cursor moves forward from the line of the previous index,
+ * so that resolution of all indices of a text takes time proportional to its number of lines.
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ *
+ * @since 1.23
+ */
+public final class LineCursor {
+
+  private final LineIndex lineIndex;
+
+  /**
+   * Indices of starts of lines, except the first one, obtained from {@link #lineIndex} on first use.
+   */
+  private int[] lines;
+
+  private int line = 1;
+  private int lineStart = 0;
+
+  public LineCursor(LineIndex lineIndex) {
+    this.lineIndex = lineIndex;
+  }
+
+  /**
+   * @return line of the given index, starting from 1
+   */
+  public int lineAt(int index) {
+    moveTo(index);
+    return line;
+  }
+
+  /**
+   * @return column of the given index, starting from 1
+   */
+  public int columnAt(int index) {
+    moveTo(index);
+    return index - lineStart + 1;
+  }
+
+  private void moveTo(int index) {
+    if (lines == null) {
+      lines = lineIndex.getLineStarts();
+    }
+    if (index < lineStart) {
+      int i = Arrays.binarySearch(lines, 0, line - 1, index);
+      line = i >= 0 ? (i + 2) : -i;
+    } else {
+      while (line <= lines.length && lines[line - 1] <= index) {
+        line++;
+      }
+    }
+    lineStart = line == 1 ? 0 : lines[line - 2];
+  }
+
+}
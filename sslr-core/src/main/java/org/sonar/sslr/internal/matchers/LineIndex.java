@@ -0,0 +1,132 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.matchers;
+
+import java.util.Arrays;
+
+/**
+ * Starts of lines of a text, computed once on first use, so that a single instance can be shared by all representations of a text,
+ * see {@link ImmutableInputBuffer}, {@link LocatedText} and {@link com.sonar.sslr.api.typed.Input}.
+ * <p>
+ * A line is considered to be terminated by any one of
+ * a line feed ({@code '\n'}), a carriage return ({@code '\r'}),
+ * or a carriage return followed immediately by a line feed ({@code "\r\n"}).
+ * </p>
+ *
+ * @since 1.23
+ */
+public final class LineIndex {
+
+  private static final int[] EMPTY_INT_ARRAY = new int[0];
+
+  private final char[] chars;
+
+  /**
+   * Indices of starts of lines, except the first one, i.e. indices after line terminators.
+   */
+  private volatile int[] lineStarts;
+
+  public LineIndex(char[] chars) {
+    this.chars = chars;
+  }
+
+  /**
+   * @param chars  content of the given buffer
+   * @return lines of the given buffer, if it provides them, otherwise new lines of the given content
+   */
+  public static LineIndex of(InputBuffer inputBuffer, char[] chars) {
+    if (inputBuffer instanceof ImmutableInputBuffer) {
+      return ((ImmutableInputBuffer) inputBuffer).getLineIndex();
+    }
+    return new LineIndex(chars);
+  }
+
+  public int length() {
+    return chars.length;
+  }
+
+  /**
+   * @return indices of starts of lines, except the first one, which must not be modified
+   */
+  public int[] getLineStarts() {
+    int[] result = lineStarts;
+    if (result == null) {
+      result = computeLineStarts(chars);
+      lineStarts = result;
+    }
+    return result;
+  }
+
+  /**
+   * @return number of lines, which is always equal to number of line terminators plus 1
+   */
+  public int getLineCount() {
+    return getLineStarts().length + 1;
+  }
+
+  /**
+   * @param line  number of line, starting from 1
+   */
+  public int getLineStart(int line) {
+    return line == 1 ? 0 : getLineStarts()[line - 2];
+  }
+
+  /**
+   * @param line  number of line, starting from 1
+   * @return index after the end of line including its terminator
+   */
+  public int getLineEnd(int line) {
+    return line == getLineCount() ? chars.length : getLineStarts()[line - 1];
+  }
+
+  /**
+   * @return number of line, starting from 1, which contains the given index
+   * @see LineCursor
+   */
+  public int getLine(int index) {
+    int i = Arrays.binarySearch(getLineStarts(), index);
+    return i >= 0 ? (i + 2) : -i;
+  }
+
+  private static int[] computeLineStarts(char[] chars) {
+    // upper bound: "\r\n" is counted twice, but such simple loop is cheap
+    int count = 0;
+    for (char c : chars) {
+      if (c == '\n' || c == '\r') {
+        count++;
+      }
+    }
+    if (count == 0) {
+      return EMPTY_INT_ARRAY;
+    }
+    int[] result = new int[count];
+    int size = 0;
+    int last = chars.length - 1;
+    for (int i = 0; i <= last; i++) {
+      char c = chars[i];
+      if (c == '\n' || (c == '\r' && (i == last || chars[i + 1] != '\n'))) {
+        result[size] = i + 1;
+        size++;
+      }
+    }
+    return size == count ? result : Arrays.copyOf(result, size);
+  }
+
+}
@@ -23,29 +23,46 @@ import javax.annotation.Nullable;
 
 import java.io.File;
 import java.net.URI;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 
 public class LocatedText implements CharSequence {
 
-  private static final int[] EMPTY_INT_ARRAY = new int[0];
-
   private final File file;
   private final URI uri;
   private final char[] chars;
 
+  private final LineIndex lineIndex;
+
   /**
-   * Indices of lines.
-   * Number of elements equal to number of line terminators.
+   * Line and column of the first character, when text is a part of a larger text.
    */
-  private final int[] lines;
+  private final int startLine;
+  private final int startColumn;
 
   public LocatedText(@Nullable File file, char[] chars) {
+    this(file, chars, new LineIndex(chars));
+  }
+
+  /**
+   * @param lineIndex  lines of the given text, for instance {@link ImmutableInputBuffer#getLineIndex()} of its parse
+   * @since 1.23
+   */
+  public LocatedText(@Nullable File file, char[] chars, LineIndex lineIndex) {
+    this(file, chars, lineIndex, 1, 1);
+  }
+
+  /**
+   * Creates text for a part of a larger text, which starts at given line and column,
+   * so that locations are relative to the whole text.
+   *
+   * @since 1.23
+   */
+  public LocatedText(@Nullable File file, char[] chars, LineIndex lineIndex, int startLine, int startColumn) {
     this.file = file;
     this.uri = file == null ? null : file.toURI();
     this.chars = chars;
-    this.lines = computeLines(chars);
+    this.lineIndex = lineIndex;
+    this.startLine = startLine;
+    this.startColumn = startColumn;
   }
 
   @Override
@@ -75,50 +92,57 @@ public class LocatedText implements CharSequence {
   }
 
   TextLocation getLocation(int index) {
-    if (index < 0 || index > length()) {
-      throw new IndexOutOfBoundsException();
-    }
-    int line = getLineNumber(index);
-    int column = index - getLineStart(line) + 1;
-    return new TextLocation(file, uri, line, column);
+    return new TextLocation(file, uri, getLine(index), getColumn(index));
   }
 
-  private int getLineNumber(int index) {
-    int i = Arrays.binarySearch(lines, index);
-    return i >= 0 ? (i + 2) : -i;
+  @Nullable
+  URI getFileURI() {
+    return uri;
   }
 
-  private int getLineStart(int line) {
-    return line == 1 ? 0 : lines[line - 2];
+  int getLine(int index) {
+    checkIndex(index);
+    return toLine(lineIndex.getLine(index));
   }
 
-  private static int[] computeLines(char[] chars) {
-    List<Integer> newlines = new ArrayList<>();
-    int i = 0;
-    while (i < chars.length) {
-      if (isEndOfLine(chars, i)) {
-        newlines.add(i + 1);
-      }
-      i++;
-    }
-    if (newlines.isEmpty()) {
-      return EMPTY_INT_ARRAY;
-    }
-    int[] lines = new int[newlines.size()];
-    for (i = 0; i < newlines.size(); i++) {
-      lines[i] = newlines.get(i);
-    }
-    return lines;
+  int getColumn(int index) {
+    checkIndex(index);
+    int line = lineIndex.getLine(index);
+    return toColumn(line, index - lineIndex.getLineStart(line) + 1);
   }
 
   /**
-   * A line is considered to be terminated by any one of
-   * a line feed ({@code '\n'}), a carriage return ({@code '\r'}),
-   * or a carriage return followed immediately by a line feed ({@code "\r\n"}).
+   * @return cursor over lines of this text, to be used by a single thread with {@link #getLine(int, LineCursor)} and {@link #getColumn(int, LineCursor)}
    */
-  private static boolean isEndOfLine(char[] buffer, int i) {
-    return buffer[i] == '\n' ||
-      buffer[i] == '\r' && (i + 1 < buffer.length && buffer[i + 1] != '\n' || i + 1 == buffer.length);
+  LineCursor newLineCursor() {
+    return new LineCursor(lineIndex);
+  }
+
+  /**
+   * Same as {@link #getLine(int)}, but faster when requested in increasing order of indices, see {@link LineCursor}.
+   */
+  int getLine(int index, LineCursor cursor) {
+    checkIndex(index);
+    return toLine(cursor.lineAt(index));
+  }
+
+  int getColumn(int index, LineCursor cursor) {
+    checkIndex(index);
+    return toColumn(cursor.lineAt(index), cursor.columnAt(index));
+  }
+
+  private int toLine(int localLine) {
+    return startLine - 1 + localLine;
+  }
+
+  private int toColumn(int localLine, int localColumn) {
+    return localLine == 1 ? (localColumn + startColumn - 1) : localColumn;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index > length()) {
+      throw new IndexOutOfBoundsException();
+    }
   }
 
 }
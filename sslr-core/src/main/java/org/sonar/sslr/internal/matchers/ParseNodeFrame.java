@@ -0,0 +1,71 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.matchers;
+
+import com.sonar.sslr.api.AstNode;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Non-terminal parse node whose children are being converted into AST nodes by {@link AstCreator} or {@link LexerfulAstCreator}.
+ */
+final class ParseNodeFrame {
+
+  final ParseNode node;
+
+  /**
+   * Index in the stack of AST nodes of the first AST node of a child.
+   */
+  final int firstAstNode;
+
+  private int nextChild = 0;
+
+  ParseNodeFrame(ParseNode node, int firstAstNode) {
+    this.node = node;
+    this.firstAstNode = firstAstNode;
+  }
+
+  @CheckForNull
+  ParseNode nextChild() {
+    List<ParseNode> children = node.getChildren();
+    if (nextChild == children.size()) {
+      return null;
+    }
+    ParseNode child = children.get(nextChild);
+    nextChild++;
+    return child;
+  }
+
+  /**
+   * Adds the AST node of a child, or its children if it has to be skipped from the AST.
+   */
+  static void addChild(List<AstNode> astNodes, @Nullable AstNode astNode) {
+    if (astNode == null) {
+      // skip
+    } else if (astNode.hasToBeSkippedFromAst()) {
+      astNodes.addAll(astNode.getChildren());
+    } else {
+      astNodes.add(astNode);
+    }
+  }
+
+}
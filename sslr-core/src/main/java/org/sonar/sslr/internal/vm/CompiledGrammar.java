@@ -42,6 +42,10 @@ public class CompiledGrammar {
     return instructions;
   }
 
+  Map<GrammarRuleKey, CompilableGrammarRule> getRules() {
+    return rules;
+  }
+
   public Matcher getMatcher(GrammarRuleKey ruleKey) {
     return rules.get(ruleKey);
   }
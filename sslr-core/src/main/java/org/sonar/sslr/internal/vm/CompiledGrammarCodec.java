@@ -0,0 +1,637 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import com.sonar.sslr.api.AstNodeSkippingPolicy;
+import com.sonar.sslr.api.TokenType;
+import com.sonar.sslr.api.Trivia.TriviaKind;
+import com.sonar.sslr.impl.ast.AlwaysSkipFromAst;
+import com.sonar.sslr.impl.ast.NeverSkipFromAst;
+import com.sonar.sslr.impl.ast.SkipFromAstIfOnlyOneChild;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.internal.grammar.MutableParsingRule;
+import org.sonar.sslr.internal.matchers.Matcher;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of {@link CompiledGrammar}, which allows to skip building and compiling a lexerless grammar.
+ * <p>
+ * The program is written instruction by instruction, with literals and sources of regular expressions.
+ * Rules, tokens and trivias referenced by instructions are written once and then referenced by index,
+ * so that matchers are shared exactly as in the original program, which is required for memoization.
+ * Rule keys and token types are written as the name of their enum class and constant, and re-bound on read.
+ * Expressions of rules, tokens and trivias are not written, they are restored from the instructions of their bodies,
+ * so that rules can be compiled again, for instance as part of another grammar.
+ * Each snapshot starts with a format version and a fingerprint chosen by the writer,
+ * so that a snapshot produced by another version of the grammar is not used.
+ * </p>
+ * <p>
+ * Grammars which contain custom native expressions, rule keys or token types other than enum constants,
+ * or custom AST node skipping policies can not be written.
+ * </p>
+ *
+ * @since 1.23
+ */
+public final class CompiledGrammarCodec {
+
+  private static final int MAGIC = 0x53534C52;
+  private static final int VERSION = 1;
+
+  private static final int JUMP = 0;
+  private static final int CALL = 1;
+  private static final int CHOICE = 2;
+  private static final int PREDICATE_CHOICE = 3;
+  private static final int COMMIT = 4;
+  private static final int COMMIT_VERIFY = 5;
+  private static final int BACK_COMMIT = 6;
+  private static final int RET = 7;
+  private static final int BACKTRACK = 8;
+  private static final int END = 9;
+  private static final int FAIL_TWICE = 10;
+  private static final int IGNORE_ERRORS = 11;
+  private static final int STRING = 12;
+  private static final int PATTERN = 13;
+  private static final int END_OF_INPUT = 14;
+  private static final int NOTHING = 15;
+  private static final int SAME_AS = 16;
+  private static final int CUT = 17;
+  private static final int TILL = 18;
+  private static final int SPACING = 19;
+
+  private static final int RULE = 0;
+  private static final int NAMED_RULE = 1;
+  private static final int TOKEN = 2;
+  private static final int TRIVIA = 3;
+
+  private static final int NEVER_SKIP = 0;
+  private static final int ALWAYS_SKIP = 1;
+  private static final int SKIP_IF_ONE_CHILD = 2;
+
+  private CompiledGrammarCodec() {
+  }
+
+  /**
+   * @throws IllegalArgumentException if the grammar can not be written
+   */
+  public static void write(CompiledGrammar grammar, String fingerprint, OutputStream out) throws IOException {
+    new Encoder(new DataOutputStream(out)).encode(grammar, fingerprint);
+  }
+
+  /**
+   * @return compiled grammar, or null if the snapshot has been written by another version of SSLR,
+   * with another fingerprint, or refers to enum constants which no longer exist
+   * @throws IOException if the snapshot can not be read or is corrupted
+   */
+  @CheckForNull
+  public static CompiledGrammar read(InputStream in, String fingerprint, ClassLoader classLoader) throws IOException {
+    try {
+      return new Decoder(new DataInputStream(in), classLoader).decode(fingerprint);
+    } catch (ClassNotFoundException | IllegalArgumentException | ClassCastException e) {
+      return null;
+    }
+  }
+
+  private static final class Encoder {
+
+    private final DataOutputStream out;
+    private final Map<Object, Integer> symbols = new HashMap<>();
+    private final List<Enum<?>> symbolsInOrder = new ArrayList<>();
+    private final Map<Matcher, Integer> matchers = new IdentityHashMap<>();
+    private final List<Matcher> matchersInOrder = new ArrayList<>();
+
+    Encoder(DataOutputStream out) {
+      this.out = out;
+    }
+
+    void encode(CompiledGrammar grammar, String fingerprint) throws IOException {
+      Map<GrammarRuleKey, CompilableGrammarRule> rules = grammar.getRules();
+      Instruction[] instructions = grammar.getInstructions();
+      for (Instruction instruction : instructions) {
+        if (instruction instanceof Instruction.CallInstruction) {
+          prepare(((Instruction.CallInstruction) instruction).getMatcher());
+        }
+      }
+      for (Matcher rule : rules.values()) {
+        prepare(rule);
+      }
+      prepare(grammar.getMatcher(grammar.getRootRuleKey()));
+
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      writeString(fingerprint);
+
+      writeVarInt(symbolsInOrder.size());
+      for (Enum<?> constant : symbolsInOrder) {
+        writeString(constant.getDeclaringClass().getName());
+        writeString(constant.name());
+      }
+
+      writeVarInt(matchersInOrder.size());
+      for (Matcher matcher : matchersInOrder) {
+        writeMatcher(matcher);
+      }
+
+      writeVarInt(rules.size());
+      for (Matcher rule : rules.values()) {
+        writeVarInt(matchers.get(rule));
+      }
+      writeVarInt(matchers.get(grammar.getMatcher(grammar.getRootRuleKey())));
+      writeVarInt(grammar.getRootRuleOffset());
+
+      writeVarInt(instructions.length);
+      Map<Instruction, Integer> natives = new IdentityHashMap<>();
+      for (int i = 0; i < instructions.length; i++) {
+        Integer first = natives.get(instructions[i]);
+        if (first != null) {
+          out.writeByte(SAME_AS);
+          writeVarInt(first);
+        } else {
+          if (instructions[i] instanceof NativeExpression) {
+            natives.put(instructions[i], i);
+          }
+          writeInstruction(instructions[i]);
+        }
+      }
+      out.flush();
+    }
+
+    private void prepare(Matcher matcher) {
+      if (matchers.containsKey(matcher)) {
+        return;
+      }
+      if (matcher instanceof MutableParsingRule) {
+        MutableParsingRule rule = (MutableParsingRule) matcher;
+        if (rule.getRuleKey() != rule) {
+          prepareSymbol(rule.getRuleKey());
+        }
+      } else if (matcher instanceof TokenExpression) {
+        prepareSymbol(((TokenExpression) matcher).getTokenType());
+      } else if (!(matcher instanceof TriviaExpression)) {
+        throw new IllegalArgumentException("Unsupported matcher: " + matcher);
+      }
+      matchers.put(matcher, matchersInOrder.size());
+      matchersInOrder.add(matcher);
+    }
+
+    private void prepareSymbol(Object symbol) {
+      if (!(symbol instanceof Enum)) {
+        throw new IllegalArgumentException("Only enum constants can be re-bound, but got: " + symbol);
+      }
+      if (!symbols.containsKey(symbol)) {
+        symbols.put(symbol, symbolsInOrder.size());
+        symbolsInOrder.add((Enum<?>) symbol);
+      }
+    }
+
+    private void writeMatcher(Matcher matcher) throws IOException {
+      if (matcher instanceof MutableParsingRule) {
+        MutableParsingRule rule = (MutableParsingRule) matcher;
+        if (rule.getRuleKey() == rule) {
+          out.writeByte(NAMED_RULE);
+          writeString(rule.getName());
+        } else {
+          out.writeByte(RULE);
+          writeVarInt(symbols.get(rule.getRuleKey()));
+        }
+        out.writeByte(skippingPolicy(rule));
+        writeString(rule.getExpression().toString());
+      } else if (matcher instanceof TokenExpression) {
+        TokenExpression token = (TokenExpression) matcher;
+        out.writeByte(TOKEN);
+        writeVarInt(symbols.get(token.getTokenType()));
+        writeString(token.getSubExpression().toString());
+      } else {
+        TriviaExpression trivia = (TriviaExpression) matcher;
+        out.writeByte(TRIVIA);
+        out.writeByte(trivia.getTriviaKind().ordinal());
+        writeString(trivia.getSubExpression().toString());
+      }
+    }
+
+    private static int skippingPolicy(MutableParsingRule rule) {
+      AstNodeSkippingPolicy policy = rule.getAstNodeSkippingPolicy();
+      if (policy instanceof NeverSkipFromAst) {
+        return NEVER_SKIP;
+      } else if (policy instanceof AlwaysSkipFromAst) {
+        return ALWAYS_SKIP;
+      } else if (policy instanceof SkipFromAstIfOnlyOneChild) {
+        return SKIP_IF_ONE_CHILD;
+      }
+      throw new IllegalArgumentException("Unsupported AST node skipping policy of rule " + rule + ": " + policy);
+    }
+
+    private void writeInstruction(Instruction instruction) throws IOException {
+      if (instruction instanceof Instruction.JumpInstruction) {
+        writeOffset(JUMP, ((Instruction.JumpInstruction) instruction).getOffset());
+      } else if (instruction instanceof Instruction.CallInstruction) {
+        Instruction.CallInstruction call = (Instruction.CallInstruction) instruction;
+        writeOffset(CALL, call.getOffset());
+        writeVarInt(matchers.get(call.getMatcher()));
+      } else if (instruction instanceof Instruction.ChoiceInstruction) {
+        writeOffset(CHOICE, ((Instruction.ChoiceInstruction) instruction).getOffset());
+      } else if (instruction instanceof Instruction.PredicateChoiceInstruction) {
+        writeOffset(PREDICATE_CHOICE, ((Instruction.PredicateChoiceInstruction) instruction).getOffset());
+      } else if (instruction instanceof Instruction.CommitInstruction) {
+        writeOffset(COMMIT, ((Instruction.CommitInstruction) instruction).getOffset());
+      } else if (instruction instanceof Instruction.CommitVerifyInstruction) {
+        writeOffset(COMMIT_VERIFY, ((Instruction.CommitVerifyInstruction) instruction).getOffset());
+      } else if (instruction instanceof Instruction.BackCommitInstruction) {
+        writeOffset(BACK_COMMIT, ((Instruction.BackCommitInstruction) instruction).getOffset());
+      } else if (instruction instanceof Instruction.RetInstruction) {
+        out.writeByte(RET);
+      } else if (instruction instanceof Instruction.BacktrackInstruction) {
+        out.writeByte(BACKTRACK);
+      } else if (instruction instanceof Instruction.EndInstruction) {
+        out.writeByte(END);
+      } else if (instruction instanceof Instruction.FailTwiceInstruction) {
+        out.writeByte(FAIL_TWICE);
+      } else if (instruction instanceof Instruction.IgnoreErrorsInstruction) {
+        out.writeByte(IGNORE_ERRORS);
+      } else if (instruction instanceof StringExpression) {
+        out.writeByte(STRING);
+        writeString(((StringExpression) instruction).getString());
+      } else if (instruction instanceof PatternExpression) {
+        out.writeByte(PATTERN);
+        writeString(((PatternExpression) instruction).getRegex());
+      } else if (instruction == EndOfInputExpression.INSTANCE) {
+        out.writeByte(END_OF_INPUT);
+      } else if (instruction == NothingExpression.INSTANCE) {
+        out.writeByte(NOTHING);
+      } else if (instruction == CutExpression.INSTANCE) {
+        out.writeByte(CUT);
+      } else if (instruction instanceof TillStringExpression) {
+        TillStringExpression till = (TillStringExpression) instruction;
+        out.writeByte(TILL);
+        out.writeBoolean(till.isInclusive());
+        writeString(till.getTerminator());
+      } else if (instruction instanceof SpacingExpression) {
+        SpacingExpression spacing = (SpacingExpression) instruction;
+        out.writeByte(SPACING);
+        writeNullableString(spacing.getLineCommentStart());
+        writeNullableString(spacing.getBlockCommentStart());
+        writeNullableString(spacing.getBlockCommentEnd());
+      } else {
+        throw new IllegalArgumentException("Unsupported instruction: " + instruction);
+      }
+    }
+
+    private void writeOffset(int opcode, int offset) throws IOException {
+      out.writeByte(opcode);
+      writeVarInt((offset << 1) ^ (offset >> 31));
+    }
+
+    private void writeString(String s) throws IOException {
+      byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(utf8.length);
+      out.write(utf8);
+    }
+
+    private void writeNullableString(@Nullable String s) throws IOException {
+      out.writeBoolean(s != null);
+      if (s != null) {
+        writeString(s);
+      }
+    }
+
+    private void writeVarInt(int value) throws IOException {
+      int v = value;
+      while ((v & ~0x7F) != 0) {
+        out.writeByte((v & 0x7F) | 0x80);
+        v >>>= 7;
+      }
+      out.writeByte(v);
+    }
+
+  }
+
+  private static final class Decoder {
+
+    private final DataInputStream in;
+    private final ClassLoader classLoader;
+    private Object[] symbols;
+    private Matcher[] matchers;
+
+    Decoder(DataInputStream in, ClassLoader classLoader) {
+      this.in = in;
+      this.classLoader = classLoader;
+    }
+
+    @CheckForNull
+    CompiledGrammar decode(String fingerprint) throws IOException, ClassNotFoundException {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a compiled grammar");
+      }
+      if (in.readInt() != VERSION || !fingerprint.equals(readString())) {
+        return null;
+      }
+
+      symbols = new Object[readVarInt()];
+      for (int i = 0; i < symbols.length; i++) {
+        String className = readString();
+        String name = readString();
+        symbols[i] = valueOf(Class.forName(className, false, classLoader), name);
+      }
+
+      matchers = new Matcher[readVarInt()];
+      for (int i = 0; i < matchers.length; i++) {
+        matchers[i] = readMatcher();
+      }
+
+      Map<GrammarRuleKey, CompilableGrammarRule> rules = new HashMap<>();
+      int rulesCount = readVarInt();
+      for (int i = 0; i < rulesCount; i++) {
+        CompilableGrammarRule rule = (CompilableGrammarRule) matcher(readVarInt());
+        rules.put(rule.getRuleKey(), rule);
+      }
+      CompilableGrammarRule rootRule = (CompilableGrammarRule) matcher(readVarInt());
+      int rootRuleOffset = readVarInt();
+
+      Instruction[] instructions = new Instruction[readVarInt()];
+      for (int i = 0; i < instructions.length; i++) {
+        int opcode = in.readUnsignedByte();
+        if (opcode == SAME_AS) {
+          int first = readVarInt();
+          if (first >= i) {
+            throw new IOException("Corrupted compiled grammar");
+          }
+          instructions[i] = instructions[first];
+        } else {
+          instructions[i] = readInstruction(opcode);
+        }
+      }
+      if (rootRuleOffset >= instructions.length) {
+        throw new IOException("Corrupted compiled grammar");
+      }
+      bindBodies(instructions, rootRule, rootRuleOffset);
+      return new CompiledGrammar(instructions, rules, rootRule.getRuleKey(), rootRuleOffset);
+    }
+
+    /**
+     * Restores expressions of matchers from instructions.
+     * Bodies of rules are laid out one after another, each followed by a return,
+     * whereas each use of a token or trivia is inlined as a call to the next instructions, a jump after them,
+     * an instruction to ignore errors, the sub-expression and a return.
+     */
+    private void bindBodies(Instruction[] instructions, Matcher rootRule, int rootRuleOffset) throws IOException {
+      Map<Matcher, Integer> ruleOffsets = new IdentityHashMap<>();
+      ruleOffsets.put(rootRule, rootRuleOffset);
+      for (int i = 0; i < instructions.length; i++) {
+        if (instructions[i] instanceof Instruction.CallInstruction) {
+          Instruction.CallInstruction call = (Instruction.CallInstruction) instructions[i];
+          Matcher matcher = call.getMatcher();
+          if (matcher instanceof MutableParsingRule) {
+            ruleOffsets.put(matcher, i + call.getOffset());
+          } else {
+            bindInlinedBody(instructions, i, matcher);
+          }
+        }
+      }
+      int[] starts = new int[ruleOffsets.size()];
+      int n = 0;
+      for (int offset : ruleOffsets.values()) {
+        starts[n++] = offset;
+      }
+      Arrays.sort(starts);
+      for (Map.Entry<Matcher, Integer> entry : ruleOffsets.entrySet()) {
+        int start = entry.getValue();
+        int next = Arrays.binarySearch(starts, start) + 1;
+        int end = (next < starts.length ? starts[next] : instructions.length) - 1;
+        if (start < 0 || end < start || !(instructions[end] instanceof Instruction.RetInstruction)) {
+          throw new IOException("Corrupted compiled grammar");
+        }
+        body(((MutableParsingRule) entry.getKey()).getExpression()).bind(Arrays.copyOfRange(instructions, start, end));
+      }
+      for (Matcher matcher : matchers) {
+        boolean bound = matcher instanceof MutableParsingRule ? ruleOffsets.containsKey(matcher) : body(subExpression(matcher)).isBound();
+        if (!bound) {
+          throw new IOException("Corrupted compiled grammar");
+        }
+      }
+    }
+
+    private static void bindInlinedBody(Instruction[] instructions, int call, Matcher matcher) throws IOException {
+      CompiledExpression body = body(subExpression(matcher));
+      if (body.isBound()) {
+        return;
+      }
+      if (call + 1 >= instructions.length || !(instructions[call + 1] instanceof Instruction.JumpInstruction)) {
+        throw new IOException("Corrupted compiled grammar");
+      }
+      int end = call + 1 + ((Instruction.JumpInstruction) instructions[call + 1]).getOffset();
+      if (end <= call + 3 || end > instructions.length || !(instructions[end - 1] instanceof Instruction.RetInstruction)) {
+        throw new IOException("Corrupted compiled grammar");
+      }
+      body.bind(Arrays.copyOfRange(instructions, call + 3, end - 1));
+    }
+
+    private static ParsingExpression subExpression(Matcher matcher) {
+      return matcher instanceof TokenExpression ? ((TokenExpression) matcher).getSubExpression() : ((TriviaExpression) matcher).getSubExpression();
+    }
+
+    private static CompiledExpression body(ParsingExpression expression) {
+      return (CompiledExpression) expression;
+    }
+
+    private Matcher readMatcher() throws IOException {
+      int kind = in.readUnsignedByte();
+      switch (kind) {
+        case RULE:
+        case NAMED_RULE:
+          MutableParsingRule rule = kind == RULE ? new MutableParsingRule((GrammarRuleKey) symbol(readVarInt())) : new MutableParsingRule(readString());
+          int skippingPolicy = in.readUnsignedByte();
+          if (skippingPolicy == ALWAYS_SKIP) {
+            rule.skip();
+          } else if (skippingPolicy == SKIP_IF_ONE_CHILD) {
+            rule.skipIfOneChild();
+          } else if (skippingPolicy != NEVER_SKIP) {
+            throw new IOException("Corrupted compiled grammar");
+          }
+          rule.setExpression(new CompiledExpression(readString()));
+          return rule;
+        case TOKEN:
+          TokenType tokenType = (TokenType) symbol(readVarInt());
+          return new TokenExpression(tokenType, new CompiledExpression(readString()));
+        case TRIVIA:
+          TriviaKind[] kinds = TriviaKind.values();
+          int ordinal = in.readUnsignedByte();
+          if (ordinal >= kinds.length) {
+            throw new IOException("Corrupted compiled grammar");
+          }
+          return new TriviaExpression(kinds[ordinal], new CompiledExpression(readString()));
+        default:
+          throw new IOException("Corrupted compiled grammar");
+      }
+    }
+
+    private Instruction readInstruction(int opcode) throws IOException {
+      switch (opcode) {
+        case JUMP:
+          return Instruction.jump(readOffset());
+        case CALL:
+          int offset = readOffset();
+          return Instruction.call(offset, matcher(readVarInt()));
+        case CHOICE:
+          return Instruction.choice(readOffset());
+        case PREDICATE_CHOICE:
+          return Instruction.predicateChoice(readOffset());
+        case COMMIT:
+          return Instruction.commit(readOffset());
+        case COMMIT_VERIFY:
+          return Instruction.commitVerify(readOffset());
+        case BACK_COMMIT:
+          return Instruction.backCommit(readOffset());
+        case RET:
+          return Instruction.ret();
+        case BACKTRACK:
+          return Instruction.backtrack();
+        case END:
+          return Instruction.end();
+        case FAIL_TWICE:
+          return Instruction.failTwice();
+        case IGNORE_ERRORS:
+          return Instruction.ignoreErrors();
+        case STRING:
+          return new StringExpression(readString());
+        case PATTERN:
+          return new PatternExpression(readString());
+        case END_OF_INPUT:
+          return EndOfInputExpression.INSTANCE;
+        case NOTHING:
+          return NothingExpression.INSTANCE;
+        case CUT:
+          return CutExpression.INSTANCE;
+        case TILL:
+          boolean inclusive = in.readBoolean();
+          return new TillStringExpression(readString(), inclusive);
+        case SPACING:
+          return new SpacingExpression(readNullableString(), readNullableString(), readNullableString());
+        default:
+          throw new IOException("Corrupted compiled grammar");
+      }
+    }
+
+    private Object symbol(int index) throws IOException {
+      if (index >= symbols.length) {
+        throw new IOException("Corrupted compiled grammar");
+      }
+      return symbols[index];
+    }
+
+    private Matcher matcher(int index) throws IOException {
+      if (index >= matchers.length) {
+        throw new IOException("Corrupted compiled grammar");
+      }
+      return matchers[index];
+    }
+
+    private int readOffset() throws IOException {
+      int value = readVarInt();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    private String readString() throws IOException {
+      byte[] utf8 = new byte[readVarInt()];
+      in.readFully(utf8);
+      return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    @CheckForNull
+    private String readNullableString() throws IOException {
+      return in.readBoolean() ? readString() : null;
+    }
+
+    private int readVarInt() throws IOException {
+      int value = 0;
+      int shift = 0;
+      int b;
+      do {
+        b = in.readUnsignedByte();
+        value |= (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Enum<?> valueOf(Class<?> enumClass, String name) {
+      return Enum.valueOf((Class) enumClass.asSubclass(Enum.class), name);
+    }
+
+  }
+
+  /**
+   * Stands for the expression of a rule or the sub-expression of a token or trivia, with the instructions of its body,
+   * which are emitted again on compilation.
+   */
+  private static final class CompiledExpression implements ParsingExpression {
+
+    private final String description;
+    private Instruction[] instructions;
+
+    CompiledExpression(String description) {
+      this.description = description;
+    }
+
+    void bind(Instruction[] instructions) {
+      this.instructions = instructions;
+    }
+
+    boolean isBound() {
+      return instructions != null;
+    }
+
+    /**
+     * Calls of rules are compiled as references, which are linked by the compiler, and which are single instructions,
+     * so that relative offsets of other instructions remain valid.
+     */
+    @Override
+    public Instruction[] compile(CompilationHandler compiler) {
+      Instruction[] result = new Instruction[instructions.length];
+      for (int i = 0; i < instructions.length; i++) {
+        Instruction instruction = instructions[i];
+        Matcher matcher = instruction instanceof Instruction.CallInstruction ? ((Instruction.CallInstruction) instruction).getMatcher() : null;
+        result[i] = matcher instanceof MutableParsingRule ? compiler.compile((MutableParsingRule) matcher)[0] : instruction;
+      }
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return description;
+    }
+
+  }
+
+}
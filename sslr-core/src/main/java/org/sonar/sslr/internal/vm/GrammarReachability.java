@@ -0,0 +1,179 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.TokenType;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.internal.vm.lexerful.AnyTokenExpression;
+import org.sonar.sslr.internal.vm.lexerful.TillNewLineExpression;
+import org.sonar.sslr.internal.vm.lexerful.TillTokenExpression;
+import org.sonar.sslr.internal.vm.lexerful.TokenTypeClassExpression;
+import org.sonar.sslr.internal.vm.lexerful.TokenTypeExpression;
+import org.sonar.sslr.internal.vm.lexerful.TokenTypesExpression;
+import org.sonar.sslr.internal.vm.lexerful.TokenValueExpression;
+import org.sonar.sslr.internal.vm.lexerful.TokensBridgeExpression;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tells which AST node types can appear below the nodes of a rule, in trees produced by a parser of the grammar.
+ * <p>
+ * Node types are the keys of rules and the types of tokens. Types of tokens are known for tokens matched by
+ * {@link TokenExpression}, {@link TokenTypeExpression} and {@link TokenTypesExpression}. Tokens matched by other lexerful
+ * expressions, e.g. {@link TokenValueExpression}, {@link AnyTokenExpression} or {@link TillTokenExpression}, can be of any type which is not a rule key.
+ * </p>
+ *
+ * @since 1.23
+ */
+public final class GrammarReachability {
+
+  private final Map<GrammarRuleKey, Set<GrammarRuleKey>> referencedRules = new HashMap<>();
+  private final Map<GrammarRuleKey, Set<TokenType>> tokenTypes = new HashMap<>();
+  private final Set<GrammarRuleKey> rulesWithAnyTokens = new HashSet<>();
+
+  private GrammarReachability() {
+  }
+
+  /**
+   * Analyzes the given rule and all the rules which it references, directly or indirectly.
+   */
+  public static GrammarReachability of(CompilableGrammarRule rootRule) {
+    GrammarReachability result = new GrammarReachability();
+    Deque<CompilableGrammarRule> queue = new ArrayDeque<>();
+    queue.add(rootRule);
+    result.referencedRules.put(rootRule.getRuleKey(), new HashSet<>());
+    while (!queue.isEmpty()) {
+      CompilableGrammarRule rule = queue.poll();
+      if (rule.getExpression() != null) {
+        new Analyzer(result, rule.getRuleKey(), queue).compile(rule.getExpression());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return keys of the analyzed rules whose nodes cannot have descendants of any of the given types
+   */
+  public Set<GrammarRuleKey> rulesWhichCannotContain(Set<? extends AstNodeType> types) {
+    Set<GrammarRuleKey> result = new HashSet<>();
+    for (GrammarRuleKey ruleKey : referencedRules.keySet()) {
+      if (!mayContain(ruleKey, types)) {
+        result.add(ruleKey);
+      }
+    }
+    return result;
+  }
+
+  private boolean mayContain(GrammarRuleKey ruleKey, Set<? extends AstNodeType> types) {
+    boolean anyNonRuleType = false;
+    for (AstNodeType type : types) {
+      if (!referencedRules.containsKey(type)) {
+        anyNonRuleType = true;
+      }
+    }
+    Set<GrammarRuleKey> visited = new HashSet<>();
+    Deque<GrammarRuleKey> stack = new ArrayDeque<>();
+    stack.push(ruleKey);
+    while (!stack.isEmpty()) {
+      GrammarRuleKey current = stack.pop();
+      if (anyNonRuleType && rulesWithAnyTokens.contains(current)) {
+        return true;
+      }
+      for (TokenType tokenType : tokenTypes.getOrDefault(current, Collections.<TokenType>emptySet())) {
+        if (types.contains(tokenType)) {
+          return true;
+        }
+      }
+      for (GrammarRuleKey referenced : referencedRules.get(current)) {
+        if (types.contains(referenced)) {
+          return true;
+        }
+        if (visited.add(referenced)) {
+          stack.push(referenced);
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Goes through the sub-expressions of a rule, without descending into referenced rules.
+   */
+  private static final class Analyzer extends CompilationHandler {
+
+    private final GrammarReachability result;
+    private final GrammarRuleKey ruleKey;
+    private final Deque<CompilableGrammarRule> queue;
+
+    Analyzer(GrammarReachability result, GrammarRuleKey ruleKey, Deque<CompilableGrammarRule> queue) {
+      this.result = result;
+      this.ruleKey = ruleKey;
+      this.queue = queue;
+    }
+
+    @Override
+    public Instruction[] compile(ParsingExpression expression) {
+      if (expression instanceof CompilableGrammarRule) {
+        CompilableGrammarRule rule = (CompilableGrammarRule) expression;
+        result.referencedRules.get(ruleKey).add(rule.getRuleKey());
+        if (!result.referencedRules.containsKey(rule.getRuleKey())) {
+          result.referencedRules.put(rule.getRuleKey(), new HashSet<>());
+          queue.add(rule);
+        }
+        return new Instruction[0];
+      }
+      if (expression instanceof TokenExpression) {
+        addTokenType(((TokenExpression) expression).getTokenType());
+      } else if (expression instanceof TokenTypeExpression) {
+        addTokenType(((TokenTypeExpression) expression).getType());
+      } else if (expression instanceof TokenTypesExpression) {
+        for (TokenType type : ((TokenTypesExpression) expression).getTypes()) {
+          addTokenType(type);
+        }
+      } else if (expression instanceof TokenValueExpression
+        || expression instanceof AnyTokenExpression
+        || expression instanceof TokenTypeClassExpression
+        || expression instanceof TokensBridgeExpression
+        || expression instanceof TillNewLineExpression
+        || expression instanceof TillTokenExpression) {
+        result.rulesWithAnyTokens.add(ruleKey);
+      }
+      return expression.compile(this);
+    }
+
+    private void addTokenType(TokenType type) {
+      Set<TokenType> types = result.tokenTypes.get(ruleKey);
+      if (types == null) {
+        types = new HashSet<>();
+        result.tokenTypes.put(ruleKey, types);
+      }
+      types.add(type);
+    }
+
+  }
+
+}
@@ -0,0 +1,34 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+/**
+ * Thrown by {@link Machine} when an expression needs text, which has not been read yet from a streamed input,
+ * so that parse of the current item can be retried once more text is available.
+ */
+final class IncompleteInputException extends RuntimeException {
+
+  static final IncompleteInputException INSTANCE = new IncompleteInputException();
+
+  private IncompleteInputException() {
+    super(null, null, false, false);
+  }
+
+}
@@ -99,6 +99,10 @@ public abstract class Instruction {
       this.offset = offset;
     }
 
+    int getOffset() {
+      return offset;
+    }
+
     @Override
     public void execute(Machine machine) {
       machine.jump(offset);
@@ -129,6 +133,14 @@ public abstract class Instruction {
       this.matcher = matcher;
     }
 
+    int getOffset() {
+      return offset;
+    }
+
+    Matcher getMatcher() {
+      return matcher;
+    }
+
     @Override
     public void execute(Machine machine) {
       machine.pushReturn(1, matcher, offset);
@@ -162,6 +174,10 @@ public abstract class Instruction {
       this.offset = offset;
     }
 
+    int getOffset() {
+      return offset;
+    }
+
     @Override
     public void execute(Machine machine) {
       machine.pushBacktrack(offset);
@@ -208,6 +224,10 @@ public abstract class Instruction {
       this.offset = offset;
     }
 
+    int getOffset() {
+      return offset;
+    }
+
     @Override
     public void execute(Machine machine) {
       machine.pushBacktrack(offset);
@@ -238,12 +258,14 @@ public abstract class Instruction {
       this.offset = offset;
     }
 
+    int getOffset() {
+      return offset;
+    }
+
     @Override
     public void execute(Machine machine) {
-      // add all nodes to parent
-      machine.peek().parent().subNodes().addAll(machine.peek().subNodes());
-
-      machine.pop();
+      // nodes become nodes of parent
+      machine.commit();
       machine.jump(offset);
     }
 
@@ -270,16 +292,18 @@ public abstract class Instruction {
       this.offset = offset;
     }
 
+    int getOffset() {
+      return offset;
+    }
+
     @Override
     public void execute(Machine machine) {
       if (machine.getIndex() == machine.peek().index()) {
         // TODO better message, e.g. dump stack
         throw new GrammarException("The inner part of ZeroOrMore and OneOrMore must not allow empty matches");
       }
-      // add all nodes to parent
-      machine.peek().parent().subNodes().addAll(machine.peek().subNodes());
-
-      machine.pop();
+      // nodes become nodes of parent
+      machine.commit();
       machine.jump(offset);
     }
 
@@ -364,6 +388,10 @@ public abstract class Instruction {
       this.offset = offset;
     }
 
+    int getOffset() {
+      return offset;
+    }
+
     @Override
     public void execute(Machine machine) {
       MachineStack stack = machine.peek();
@@ -30,21 +30,36 @@ import org.sonar.sslr.internal.vm.lexerful.LexerfulParseErrorFormatter;
 import org.sonar.sslr.parser.ParseError;
 import org.sonar.sslr.parser.ParsingResult;
 
+import javax.annotation.CheckForNull;
+
+import java.io.IOException;
+import java.io.Reader;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class Machine implements CharSequence {
 
   private final char[] input;
   private final Token[] tokens;
   private final int inputLength;
+  /**
+   * Whether more text may follow the input, in which case reading beyond it throws {@link IncompleteInputException}.
+   */
+  private boolean inputIncomplete = false;
 
-  private MachineStack stack;
+  private final MachineStack stack;
   private int index;
   private int address;
   private boolean matched = true;
 
   private final ParseNode[] memos;
+  private final MismatchMemos mismatches;
+  /**
+   * Memos before this index have been released by {@link #cut()}.
+   */
+  private int releasedIndex = 0;
 
   // Number of instructions in grammar for Java is about 2000.
   private final int[] calls;
@@ -53,6 +68,13 @@ public class Machine implements CharSequence {
 
   private boolean ignoreErrors = false;
 
+  /**
+   * Last result of {@link SpacingExpression}, which is usually executed several times at the same index because of backtracking.
+   */
+  private SpacingExpression spacingExpression;
+  private int spacingIndex;
+  private SpacingExpression.Spacing spacing;
+
   public static ParseNode parse(List<Token> tokens, CompiledGrammar grammar) {
     Token[] inputTokens = tokens.toArray(new Token[tokens.size()]);
 
@@ -67,10 +89,15 @@ public class Machine implements CharSequence {
         // Godin: weird situation - I expect that list of tokens contains at least EOF, but this is not the case in C Parser
         throw new RecognitionException(1, "No tokens");
       } else {
-        int errorIndex = errorLocatingHandler.getErrorIndex();
-        String errorMsg = new LexerfulParseErrorFormatter().format(tokens, errorIndex);
+        final int errorIndex = errorLocatingHandler.getErrorIndex();
         int errorLine = errorIndex < tokens.size() ? tokens.get(errorIndex).getLine() : tokens.get(tokens.size() - 1).getLine();
-        throw new RecognitionException(errorLine, errorMsg);
+        // message is formatted only when requested
+        throw new RecognitionException(errorLine, new Supplier<String>() {
+          @Override
+          public String get() {
+            return new LexerfulParseErrorFormatter().format(tokens, errorIndex);
+          }
+        });
       }
     }
   }
@@ -96,11 +123,89 @@ public class Machine implements CharSequence {
     }
   }
 
+  /**
+   * Parses input, which is read incrementally, with a root rule of the form {@code zeroOrMore(item)}
+   * optionally followed by {@code endOfInput()}, where {@code item} is a rule.
+   * Each matched item is passed to the consumer, after which the text before its end, memos and stack are released,
+   * so that memory is bounded by the size of the largest item rather than by the size of input.
+   * <p>
+   * An item is parsed on the text read so far. When an expression needs text beyond it, more text is read
+   * and parse of the item is restarted, so expressions must access input only via {@link #length()} and {@link #charAt(int)},
+   * and {@link #length()} of an incomplete input is greater than the number of available characters.
+   * </p>
+   *
+   * @return error which has stopped the parse, or null if the root rule has matched
+   * @throws IllegalArgumentException if the root rule does not have the form described above
+   */
+  @CheckForNull
+  public static ParseError parse(Reader reader, CompiledGrammar grammar, Consumer<ParsingResult> consumer) throws IOException {
+    Instruction[] instructions = grammar.getInstructions();
+    int rootOffset = grammar.getRootRuleOffset();
+    if (!isZeroOrMoreOfRule(instructions, rootOffset)) {
+      throw new IllegalArgumentException("Root rule must be of the form zeroOrMore(item) or sequence(zeroOrMore(item), endOfInput()),"
+        + " where item is a rule: " + grammar.getRootRuleKey());
+    }
+    Instruction.CallInstruction call = (Instruction.CallInstruction) instructions[rootOffset + 1];
+    Matcher itemMatcher = call.getMatcher();
+    int itemOffset = rootOffset + 1 + call.getOffset();
+    boolean endOfInputRequired = instructions[rootOffset + 3] == EndOfInputExpression.INSTANCE;
+
+    StreamingInput input = new StreamingInput(reader);
+    Machine machine = null;
+    ErrorLocatingHandler errorLocatingHandler = null;
+    int from = 0;
+    while (true) {
+      if (machine == null) {
+        input.consumeAndRead(from);
+        from = 0;
+        errorLocatingHandler = new ErrorLocatingHandler();
+        machine = new Machine(input.text(), null, instructions, errorLocatingHandler);
+        machine.inputIncomplete = !input.isEndOfInput();
+      }
+      machine.index = from;
+      machine.address = 0;
+      machine.stack.clear();
+      try {
+        machine.execute(itemMatcher, itemOffset, instructions);
+      } catch (IncompleteInputException e) {
+        machine = null;
+        continue;
+      }
+
+      if (machine.matched) {
+        ParseNode item = machine.stack.subNodes().get(0);
+        if (item.getEndIndex() == from) {
+          throw new GrammarException("The inner part of ZeroOrMore and OneOrMore must not allow empty matches");
+        }
+        consumer.accept(new ParsingResult(input.inputBuffer(), true, item, null));
+        from = item.getEndIndex();
+        machine.release(from);
+      } else if (from == input.text().length && !input.isEndOfInput()) {
+        machine = null;
+      } else if (from == input.text().length || !endOfInputRequired) {
+        return null;
+      } else {
+        return new ParseError(input.inputBuffer(), Math.max(errorLocatingHandler.getErrorIndex(), from));
+      }
+    }
+  }
+
+  private static boolean isZeroOrMoreOfRule(Instruction[] instructions, int offset) {
+    return offset + 3 < instructions.length
+      && instructions[offset].equals(Instruction.choice(3))
+      && instructions[offset + 1] instanceof Instruction.CallInstruction
+      && instructions[offset + 2].equals(Instruction.commitVerify(-2))
+      && (instructions[offset + 3] instanceof Instruction.RetInstruction
+        || (instructions[offset + 3] == EndOfInputExpression.INSTANCE && offset + 4 < instructions.length
+          && instructions[offset + 4] instanceof Instruction.RetInstruction));
+  }
+
   private void execute(Matcher matcher, int offset, Instruction[] instructions) {
     // Place first rule on top of stack
     push(-1);
     stack.setMatcher(matcher);
     jump(offset);
+    stack.setCalledAddress(address);
 
     execute(instructions);
   }
@@ -138,9 +243,8 @@ public class Machine implements CharSequence {
 
     this.handler = handler;
     this.memos = new ParseNode[inputLength + 1];
+    this.mismatches = new MismatchMemos(instructions.length);
     this.stack = new MachineStack();
-    stack = stack.getOrCreateChild();
-    stack.setIndex(-1);
     calls = new int[instructions.length];
     Arrays.fill(calls, -1);
   }
@@ -176,24 +280,29 @@ public class Machine implements CharSequence {
   }
 
   private void push(int address) {
-    stack = stack.getOrCreateChild();
-    stack.subNodes().clear();
+    stack.push();
     stack.setAddress(address);
     stack.setIndex(index);
     stack.setIgnoreErrors(ignoreErrors);
+    stack.setCut(false);
   }
 
+  /**
+   * Removes the return address from top of the stack, keeping the nodes created by the called rule.
+   */
   public void popReturn() {
     calls[stack.calledAddress()] = stack.leftRecursion();
-    stack = stack.parent();
+    stack.commit();
   }
 
   public void pushReturn(int returnOffset, Matcher matcher, int callOffset) {
     ParseNode memo = memos[index];
     if (memo != null && memo.getMatcher() == matcher) {
-      stack.subNodes().add(memo);
+      stack.addSubNode(memo);
       index = memo.getEndIndex();
       address += returnOffset;
+    } else if (shouldMemoize(matcher) && mismatches.contains(index, address + callOffset, ignoreErrors)) {
+      backtrack();
     } else {
       push(address + returnOffset);
       stack.setMatcher(matcher);
@@ -214,8 +323,18 @@ public class Machine implements CharSequence {
     stack.setMatcher(null);
   }
 
+  /**
+   * Removes the frame from top of the stack together with the nodes created since it was pushed.
+   */
   public void pop() {
-    stack = stack.parent();
+    stack.pop();
+  }
+
+  /**
+   * Removes the pending alternative from top of the stack, keeping the nodes created since it was pushed.
+   */
+  public void commit() {
+    stack.commit();
   }
 
   public MachineStack peek() {
@@ -227,8 +346,12 @@ public class Machine implements CharSequence {
   }
 
   public void backtrack() {
-    // pop any return addresses from the top of the stack
-    while (stack.isReturn()) {
+    // pop any return addresses and alternatives discarded by cut from the top of the stack
+    while (stack.isReturn() || stack.isCut()) {
+      if (stack.isCut()) {
+        pop();
+        continue;
+      }
 
       // TODO we must have this inside of loop, otherwise report won't be generated in case of input "foo" and rule "nextNot(foo)"
       ignoreErrors = stack.isIgnoreErrors();
@@ -236,6 +359,9 @@ public class Machine implements CharSequence {
         handler.onBacktrack(this);
       }
 
+      if (shouldMemoize(stack.matcher())) {
+        mismatches.add(stack.index(), stack.calledAddress(), ignoreErrors);
+      }
       popReturn();
     }
 
@@ -248,21 +374,54 @@ public class Machine implements CharSequence {
       index = stack.index();
       address = stack.address();
       ignoreErrors = stack.isIgnoreErrors();
-      stack = stack.parent();
+      stack.pop();
+    }
+  }
+
+  /**
+   * Discards the pending alternative on top of the stack, which was pushed by the innermost choice enclosing the cut
+   * within the current rule, so that a subsequent failure is propagated to the enclosing expressions instead of trying this alternative.
+   * Does nothing on the stack when the cut is not enclosed by a choice within the current rule.
+   * <p>
+   * When there is no more pending alternative at all, the machine can not go back before the current index,
+   * so memos of the input before it are released.
+   * </p>
+   */
+  public void cut() {
+    if (!stack.isReturn() && !stack.isEmpty()) {
+      stack.setCut(true);
+    }
+    if (!stack.hasPendingAlternative()) {
+      release(index);
+    }
+  }
+
+  /**
+   * Releases memos of the input before the given index.
+   */
+  private void release(int toIndex) {
+    if (releasedIndex < toIndex) {
+      Arrays.fill(memos, releasedIndex, toIndex, null);
+      mismatches.removeBefore(toIndex);
+      releasedIndex = toIndex;
     }
   }
 
   public void createNode() {
     ParseNode node = new ParseNode(stack.index(), index, stack.subNodes(), stack.matcher());
-    stack.parent().subNodes().add(node);
-    if (stack.matcher() instanceof MemoParsingExpression && ((MemoParsingExpression) stack.matcher()).shouldMemoize()) {
+    stack.replaceSubNodes(node);
+    if (shouldMemoize(stack.matcher())) {
       memos[stack.index()] = node;
     }
   }
 
+  private static boolean shouldMemoize(Matcher matcher) {
+    return matcher instanceof MemoParsingExpression && ((MemoParsingExpression) matcher).shouldMemoize();
+  }
+
   public void createLeafNode(Matcher matcher, int offset) {
     ParseNode node = new ParseNode(index, index + offset, matcher);
-    stack.subNodes().add(node);
+    stack.addSubNode(node);
     index += offset;
   }
 
@@ -278,16 +437,60 @@ public class Machine implements CharSequence {
     index += offset;
   }
 
+  /**
+   * @throws IncompleteInputException if input is incomplete and there is no more available characters
+   */
   @Override
   public int length() {
+    if (inputIncomplete) {
+      if (index == inputLength) {
+        throw IncompleteInputException.INSTANCE;
+      }
+      return Integer.MAX_VALUE - index;
+    }
     return inputLength - index;
   }
 
+  /**
+   * @throws IncompleteInputException if input is incomplete and the character has not been read yet
+   */
   @Override
   public char charAt(int offset) {
+    if (inputIncomplete && index + offset >= inputLength) {
+      throw IncompleteInputException.INSTANCE;
+    }
     return input[index + offset];
   }
 
+  /**
+   * Scans the remaining input for the given non-empty string directly in the underlying array of characters.
+   *
+   * @return offset from the current index of the first occurrence of the given string, or -1 if there is none
+   * @throws IncompleteInputException if input is incomplete and there is no occurrence in the available characters
+   */
+  public int indexOf(String string) {
+    char first = string.charAt(0);
+    int last = inputLength - string.length();
+    for (int i = index; i <= last; i++) {
+      if (input[i] == first && regionMatches(i + 1, string)) {
+        return i - index;
+      }
+    }
+    if (inputIncomplete) {
+      throw IncompleteInputException.INSTANCE;
+    }
+    return -1;
+  }
+
+  private boolean regionMatches(int from, String string) {
+    for (int j = 1; j < string.length(); j++) {
+      if (input[from + j - 1] != string.charAt(j)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Not supported.
    *
@@ -298,6 +501,20 @@ public class Machine implements CharSequence {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * @return result of the given expression previously recorded at the current index, or null
+   */
+  @CheckForNull
+  SpacingExpression.Spacing getSpacing(SpacingExpression expression) {
+    return spacingExpression == expression && spacingIndex == index ? spacing : null;
+  }
+
+  void setSpacing(SpacingExpression expression, SpacingExpression.Spacing spacing) {
+    this.spacingExpression = expression;
+    this.spacingIndex = index;
+    this.spacing = spacing;
+  }
+
   public Token tokenAt(int offset) {
     return tokens[index + offset];
   }
@@ -23,107 +23,242 @@ import org.sonar.sslr.internal.matchers.Matcher;
 import org.sonar.sslr.internal.matchers.ParseNode;
 
 import javax.annotation.Nullable;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+/**
+ * Stack of {@link Machine}, which holds return addresses and pending alternatives.
+ * <p>
+ * Frames are stored in parallel arrays, and nodes of all frames are stored in a single array,
+ * in which nodes of a frame start at the position recorded for this frame and end at the start of nodes of the next frame.
+ * So nodes of a frame become nodes of its parent simply by removal of the frame, without copying.
+ * Accessors and mutators apply to the frame on top of the stack.
+ * </p>
+ * <p>
+ * The bottom frame denotes an empty stack and holds the nodes created at the top level.
+ * </p>
+ */
 public class MachineStack {
 
-  private final MachineStack parent;
-  private MachineStack child;
+  private static final int INITIAL_CAPACITY = 64;
+
+  private static final byte IGNORE_ERRORS = 1;
+  private static final byte CUT = 2;
 
-  private final List<ParseNode> subNodes;
-  private int address;
-  private int index;
-  private boolean ignoreErrors;
-  private Matcher matcher;
+  private int top = 0;
 
-  private int leftRecursion;
-  private int calledAddress;
+  private int[] addresses = new int[INITIAL_CAPACITY];
+  private int[] indices = new int[INITIAL_CAPACITY];
+  private Matcher[] matchers = new Matcher[INITIAL_CAPACITY];
+  private byte[] flags = new byte[INITIAL_CAPACITY];
+  private int[] leftRecursions = new int[INITIAL_CAPACITY];
+  private int[] calledAddresses = new int[INITIAL_CAPACITY];
+  /**
+   * Position in {@link #nodes} of the first node of each frame.
+   */
+  private int[] nodesStarts = new int[INITIAL_CAPACITY];
+
+  private ParseNode[] nodes = new ParseNode[INITIAL_CAPACITY];
+  private int nodesSize = 0;
+
+  /**
+   * Number of frames, which denote pending alternatives not discarded by {@link Machine#cut()},
+   * maintained by mutators, so that {@link #hasPendingAlternative()} does not scan the stack.
+   */
+  private int pendingAlternatives = 0;
 
   public MachineStack() {
-    this.parent = null;
-    this.subNodes = Collections.emptyList();
-    this.index = -1;
+    indices[0] = -1;
   }
 
-  private MachineStack(MachineStack parent) {
-    this.parent = parent;
-    this.subNodes = new ArrayList<>();
+  /**
+   * Pushes a new frame without nodes, all other properties of which must be set by caller.
+   */
+  public void push() {
+    top++;
+    if (top == addresses.length) {
+      int capacity = top * 2;
+      addresses = Arrays.copyOf(addresses, capacity);
+      indices = Arrays.copyOf(indices, capacity);
+      matchers = Arrays.copyOf(matchers, capacity);
+      flags = Arrays.copyOf(flags, capacity);
+      leftRecursions = Arrays.copyOf(leftRecursions, capacity);
+      calledAddresses = Arrays.copyOf(calledAddresses, capacity);
+      nodesStarts = Arrays.copyOf(nodesStarts, capacity);
+    }
+    nodesStarts[top] = nodesSize;
+    updatePendingAlternatives(false);
+  }
+
+  /**
+   * Removes the frame on top of the stack together with its nodes.
+   */
+  public void pop() {
+    truncateNodes(nodesStarts[top]);
+    commit();
   }
 
-  public MachineStack parent() {
-    return parent;
+  /**
+   * Removes the frame on top of the stack, so that its nodes become nodes of the parent frame.
+   */
+  public void commit() {
+    if (isPendingAlternative()) {
+      pendingAlternatives--;
+    }
+    matchers[top] = null;
+    top--;
   }
 
-  public MachineStack getOrCreateChild() {
-    if (child == null) {
-      child = new MachineStack(this);
+  /**
+   * Removes all frames and nodes.
+   */
+  public void clear() {
+    while (top > 0) {
+      pop();
     }
-    return child;
+    truncateNodes(0);
+  }
+
+  /**
+   * @return number of frames above the bottom frame, which denotes an empty stack
+   */
+  public int size() {
+    return top;
   }
 
   public boolean isReturn() {
-    return matcher != null;
+    return matchers[top] != null;
   }
 
   /**
-   * @return true, if this object denotes an empty stack
+   * @return true, if the frame on top denotes an empty stack
    */
   public boolean isEmpty() {
-    return index == -1;
+    return indices[top] == -1;
   }
 
   public int address() {
-    return address;
+    return addresses[top];
   }
 
   public void setAddress(int address) {
-    this.address = address;
+    addresses[top] = address;
   }
 
   public int index() {
-    return index;
+    return indices[top];
   }
 
   public void setIndex(int index) {
-    this.index = index;
+    indices[top] = index;
   }
 
   public boolean isIgnoreErrors() {
-    return ignoreErrors;
+    return (flags[top] & IGNORE_ERRORS) != 0;
   }
 
   public void setIgnoreErrors(boolean ignoreErrors) {
-    this.ignoreErrors = ignoreErrors;
+    setFlag(IGNORE_ERRORS, ignoreErrors);
+  }
+
+  /**
+   * @return true, if the frame on top denotes a pending alternative which has been discarded by {@link Machine#cut()}
+   */
+  public boolean isCut() {
+    return (flags[top] & CUT) != 0;
+  }
+
+  public void setCut(boolean cut) {
+    setFlag(CUT, cut);
+  }
+
+  /**
+   * @return true, if some frame denotes a pending alternative, which has not been discarded by {@link Machine#cut()}
+   */
+  public boolean hasPendingAlternative() {
+    return pendingAlternatives > 0;
+  }
+
+  private boolean isPendingAlternative() {
+    return top > 0 && matchers[top] == null && (flags[top] & CUT) == 0;
+  }
+
+  /**
+   * Must be called after each change of the frame on top, which might change whether it denotes a pending alternative.
+   */
+  private void updatePendingAlternatives(boolean wasPendingAlternative) {
+    boolean pendingAlternative = isPendingAlternative();
+    if (pendingAlternative != wasPendingAlternative) {
+      pendingAlternatives += pendingAlternative ? 1 : -1;
+    }
+  }
+
+  private void setFlag(byte flag, boolean value) {
+    boolean wasPendingAlternative = isPendingAlternative();
+    if (value) {
+      flags[top] |= flag;
+    } else {
+      flags[top] &= ~flag;
+    }
+    updatePendingAlternatives(wasPendingAlternative);
   }
 
   public Matcher matcher() {
-    return matcher;
+    return matchers[top];
   }
 
   public void setMatcher(@Nullable Matcher matcher) {
-    this.matcher = matcher;
+    boolean wasPendingAlternative = isPendingAlternative();
+    matchers[top] = matcher;
+    updatePendingAlternatives(wasPendingAlternative);
   }
 
   public int leftRecursion() {
-    return leftRecursion;
+    return leftRecursions[top];
   }
 
   public void setLeftRecursion(int leftRecursion) {
-    this.leftRecursion = leftRecursion;
+    leftRecursions[top] = leftRecursion;
   }
 
   public int calledAddress() {
-    return calledAddress;
+    return calledAddresses[top];
   }
 
   public void setCalledAddress(int calledAddress) {
-    this.calledAddress = calledAddress;
+    calledAddresses[top] = calledAddress;
   }
 
+  /**
+   * @return unmodifiable view of the nodes of the frame on top, which is valid until next modification of the stack
+   */
   public List<ParseNode> subNodes() {
-    return subNodes;
+    return Collections.unmodifiableList(Arrays.asList(nodes).subList(nodesStarts[top], nodesSize));
+  }
+
+  public void addSubNode(ParseNode node) {
+    if (nodesSize == nodes.length) {
+      nodes = Arrays.copyOf(nodes, nodesSize * 2);
+    }
+    nodes[nodesSize] = node;
+    nodesSize++;
+  }
+
+  /**
+   * Replaces the nodes of the frame on top by the given node, which becomes the last node of the parent frame.
+   */
+  public void replaceSubNodes(ParseNode node) {
+    truncateNodes(nodesStarts[top]);
+    addSubNode(node);
+    nodesStarts[top] = nodesSize;
+  }
+
+  private void truncateNodes(int size) {
+    if (size < nodesSize) {
+      Arrays.fill(nodes, size, nodesSize, null);
+      nodesSize = size;
+    }
   }
 
 }
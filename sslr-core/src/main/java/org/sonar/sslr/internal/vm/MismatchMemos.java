@@ -0,0 +1,155 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+/**
+ * Set of pairs (index in input, rule) for which a memoized rule is known to not match.
+ * Rules are identified by the address of their first instruction.
+ * <p>
+ * Mismatches are sparse compared to the length of input multiplied by the number of rules,
+ * so pairs are stored in an open-addressing hash set of longs rather than in a bitmap.
+ * </p>
+ * <p>
+ * A mismatch recorded while errors were ignored was not reported to the {@link MachineHandler},
+ * so it can be reused only when errors are ignored.
+ * </p>
+ */
+final class MismatchMemos {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final long numberOfAddresses;
+
+  /**
+   * Zero denotes a free slot.
+   */
+  private long[] keys = new long[INITIAL_CAPACITY];
+  private int size = 0;
+
+  /**
+   * Smallest key, maintained on addition, so that {@link #removeBefore(int)} does nothing when there is nothing to remove,
+   * which is the case of most cuts.
+   */
+  private long minKey = Long.MAX_VALUE;
+
+  MismatchMemos(int numberOfAddresses) {
+    this.numberOfAddresses = numberOfAddresses;
+  }
+
+  boolean contains(int index, int address, boolean ignoreErrors) {
+    return contains(key(index, address, false)) || (ignoreErrors && contains(key(index, address, true)));
+  }
+
+  void add(int index, int address, boolean ignoreErrors) {
+    long key = key(index, address, ignoreErrors);
+    int slot = slot(key);
+    while (keys[slot] != 0) {
+      if (keys[slot] == key) {
+        return;
+      }
+      slot = (slot + 1) & (keys.length - 1);
+    }
+    keys[slot] = key;
+    size++;
+    minKey = Math.min(minKey, key);
+    if (size * 2 > keys.length) {
+      rehash(keys.length * 2);
+    }
+  }
+
+  /**
+   * Removes mismatches at indexes before the given one.
+   * The table is shrunk to fit the remaining mismatches, so that the cost of removal is proportional
+   * to the number of mismatches added since the previous removal rather than to the largest size ever reached.
+   */
+  void removeBefore(int index) {
+    long firstKey = key(index, 0, false);
+    if (minKey >= firstKey) {
+      return;
+    }
+    long[] oldKeys = keys;
+    int remaining = 0;
+    for (long key : oldKeys) {
+      if (key >= firstKey) {
+        remaining++;
+      }
+    }
+    keys = new long[capacityFor(remaining)];
+    size = remaining;
+    minKey = Long.MAX_VALUE;
+    for (long key : oldKeys) {
+      if (key >= firstKey) {
+        keys[freeSlot(key)] = key;
+        minKey = Math.min(minKey, key);
+      }
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  private boolean contains(long key) {
+    int slot = slot(key);
+    while (keys[slot] != 0) {
+      if (keys[slot] == key) {
+        return true;
+      }
+      slot = (slot + 1) & (keys.length - 1);
+    }
+    return false;
+  }
+
+  private long key(int index, int address, boolean ignoreErrors) {
+    return ((index * numberOfAddresses + address) << 1) + (ignoreErrors ? 2 : 1);
+  }
+
+  private int slot(long key) {
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash >>> 32) & (keys.length - 1);
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    keys = new long[capacity];
+    for (long key : oldKeys) {
+      if (key != 0) {
+        keys[freeSlot(key)] = key;
+      }
+    }
+  }
+
+  private static int capacityFor(int size) {
+    int capacity = INITIAL_CAPACITY;
+    while (size * 2 > capacity) {
+      capacity *= 2;
+    }
+    return capacity;
+  }
+
+  private int freeSlot(long key) {
+    int slot = slot(key);
+    while (keys[slot] != 0) {
+      slot = (slot + 1) & (keys.length - 1);
+    }
+    return slot;
+  }
+
+}
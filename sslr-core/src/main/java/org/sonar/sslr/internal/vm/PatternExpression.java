@@ -35,6 +35,10 @@ public class PatternExpression extends NativeExpression implements org.sonar.ssl
     matcher = Pattern.compile(regex).matcher("");
   }
 
+  public String getRegex() {
+    return matcher.pattern().pattern();
+  }
+
   /**
    * @throws GrammarException if execution of regular expression has led to StackOverflowError
    */
@@ -0,0 +1,179 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import com.sonar.sslr.api.Trivia.TriviaKind;
+import org.sonar.sslr.internal.matchers.Matcher;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Consumes whitespace characters, as defined by {@link Character#isWhitespace(char)}, and comments: equivalent of
+ * <pre>
+ * regexp("\\s*+"),
+ * zeroOrMore(commentTrivia(firstOf(
+ *   regexp(lineCommentStart + "[^\\n\\r]*+"),
+ *   sequence(blockCommentStart, till(blockCommentEnd)))), regexp("\\s*+"))
+ * </pre>
+ * but scans input directly, creates nodes only for comments,
+ * and reuses result of a previous execution at the same index, see {@link Machine#getSpacing(SpacingExpression)}.
+ */
+public class SpacingExpression extends NativeExpression implements Matcher {
+
+  private static final int[] NO_COMMENTS = new int[0];
+
+  private final String lineCommentStart;
+  private final String blockCommentStart;
+  private final String blockCommentEnd;
+  private final TriviaExpression comment = new TriviaExpression(TriviaKind.COMMENT, this);
+
+  public SpacingExpression(@Nullable String lineCommentStart, @Nullable String blockCommentStart, @Nullable String blockCommentEnd) {
+    if ("".equals(lineCommentStart) || "".equals(blockCommentStart) || "".equals(blockCommentEnd)) {
+      throw new IllegalArgumentException("Comment delimiters must not be empty");
+    }
+    if ((blockCommentStart == null) != (blockCommentEnd == null)) {
+      throw new IllegalArgumentException("Both start and end of block comments must be specified");
+    }
+    this.lineCommentStart = lineCommentStart;
+    this.blockCommentStart = blockCommentStart;
+    this.blockCommentEnd = blockCommentEnd;
+  }
+
+  @CheckForNull
+  public String getLineCommentStart() {
+    return lineCommentStart;
+  }
+
+  @CheckForNull
+  public String getBlockCommentStart() {
+    return blockCommentStart;
+  }
+
+  @CheckForNull
+  public String getBlockCommentEnd() {
+    return blockCommentEnd;
+  }
+
+  @Override
+  public void execute(Machine machine) {
+    Spacing spacing = machine.getSpacing(this);
+    if (spacing == null) {
+      spacing = scan(machine);
+      machine.setSpacing(this, spacing);
+    }
+    int offset = 0;
+    for (int i = 0; i < spacing.comments.length; i += 2) {
+      machine.advanceIndex(spacing.comments[i] - offset);
+      machine.createLeafNode(comment, spacing.comments[i + 1] - spacing.comments[i]);
+      offset = spacing.comments[i + 1];
+    }
+    machine.advanceIndex(spacing.length - offset);
+    machine.jump(1);
+  }
+
+  private Spacing scan(Machine machine) {
+    int length = machine.length();
+    int[] comments = NO_COMMENTS;
+    int commentsSize = 0;
+    int offset = 0;
+    while (true) {
+      while (offset < length && Character.isWhitespace(machine.charAt(offset))) {
+        offset++;
+      }
+      int end = -1;
+      if (lineCommentStart != null && startsWith(machine, offset, length, lineCommentStart)) {
+        end = offset + lineCommentStart.length();
+        while (end < length && machine.charAt(end) != '\n' && machine.charAt(end) != '\r') {
+          end++;
+        }
+      } else if (blockCommentStart != null && startsWith(machine, offset, length, blockCommentStart)) {
+        end = blockCommentEnd(machine, offset + blockCommentStart.length(), length);
+      }
+      if (end == -1) {
+        return new Spacing(offset, commentsSize == comments.length ? comments : Arrays.copyOf(comments, commentsSize));
+      }
+      if (commentsSize == comments.length) {
+        comments = Arrays.copyOf(comments, Math.max(4, commentsSize * 2));
+      }
+      comments[commentsSize++] = offset;
+      comments[commentsSize++] = end;
+      offset = end;
+    }
+  }
+
+  /**
+   * @return offset after the end of block comment, or -1 if it is not terminated, in which case this is not a comment
+   */
+  private int blockCommentEnd(Machine machine, int from, int length) {
+    for (int offset = from; offset < length; offset++) {
+      if (startsWith(machine, offset, length, blockCommentEnd)) {
+        return offset + blockCommentEnd.length();
+      }
+    }
+    return -1;
+  }
+
+  private static boolean startsWith(Machine machine, int offset, int length, String string) {
+    if (offset + string.length() > length) {
+      return false;
+    }
+    for (int i = 0; i < string.length(); i++) {
+      if (machine.charAt(offset + i) != string.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("Spacing");
+    if (lineCommentStart != null || blockCommentStart != null) {
+      sb.append('[');
+      if (lineCommentStart != null) {
+        sb.append(lineCommentStart);
+      }
+      if (blockCommentStart != null) {
+        sb.append(lineCommentStart != null ? ", " : "").append(blockCommentStart).append(' ').append(blockCommentEnd);
+      }
+      sb.append(']');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Result of execution at a given index: length of consumed input and offsets of comments as pairs of start and end.
+   */
+  static final class Spacing {
+
+    final int length;
+    final int[] comments;
+
+    Spacing(int length, int[] comments) {
+      this.length = length;
+      this.comments = comments;
+    }
+
+  }
+
+}
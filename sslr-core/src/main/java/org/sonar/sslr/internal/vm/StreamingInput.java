@@ -0,0 +1,99 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import org.sonar.sslr.internal.matchers.ImmutableInputBuffer;
+import org.sonar.sslr.internal.matchers.InputBuffer.Position;
+import org.sonar.sslr.internal.matchers.TextUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Window on a text read incrementally: holds the text, which has not been consumed yet,
+ * followed by the text read ahead.
+ */
+final class StreamingInput {
+
+  private static final int CHUNK_SIZE = 8192;
+
+  private final Reader reader;
+  private char[] text = new char[0];
+  private ImmutableInputBuffer inputBuffer = new ImmutableInputBuffer(text);
+  private boolean endOfInput = false;
+
+  StreamingInput(Reader reader) {
+    this.reader = reader;
+  }
+
+  char[] text() {
+    return text;
+  }
+
+  /**
+   * @return buffer of the current window, which reports positions relative to the whole input
+   */
+  ImmutableInputBuffer inputBuffer() {
+    return inputBuffer;
+  }
+
+  boolean isEndOfInput() {
+    return endOfInput;
+  }
+
+  /**
+   * Drops the text before the given index and reads more text, at least as much as remains in the window,
+   * so that an item, which is larger than the window, is retried a logarithmic number of times.
+   * The window never ends with a carriage return unless input is over, so that line terminators are not split across windows.
+   */
+  void consumeAndRead(int from) throws IOException {
+    int remaining = text.length - from;
+    char[] newText = new char[remaining + Math.max(CHUNK_SIZE, remaining) + 1];
+    System.arraycopy(text, from, newText, 0, remaining);
+    int length = remaining;
+    int limit = newText.length - 1;
+    while (length < limit) {
+      int n = reader.read(newText, length, limit - length);
+      if (n == -1) {
+        endOfInput = true;
+        break;
+      }
+      length += n;
+    }
+    // consecutive carriage returns are possible, e.g. "\r\r\n", so reading of a single character might be not enough
+    while (!endOfInput && newText[length - 1] == TextUtils.CR) {
+      int c = reader.read();
+      if (c == -1) {
+        endOfInput = true;
+      } else {
+        if (length == newText.length) {
+          newText = Arrays.copyOf(newText, 2 * length);
+        }
+        newText[length] = (char) c;
+        length++;
+      }
+    }
+    Position start = inputBuffer.getPosition(from);
+    text = length == newText.length ? newText : Arrays.copyOf(newText, length);
+    inputBuffer = new ImmutableInputBuffer(text, start.getLine(), start.getColumn());
+  }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import org.sonar.sslr.internal.matchers.Matcher;
+
+/**
+ * Consumes input until a given string: equivalent of {@code zeroOrMore(nextNot(terminator), anyChar)},
+ * optionally followed by the terminator, but scans input directly and creates a single node for the consumed input.
+ */
+public class TillStringExpression extends NativeExpression implements Matcher {
+
+  private final String terminator;
+  private final boolean inclusive;
+
+  /**
+   * @param inclusive whether the terminator must be present and consumed, otherwise input is consumed before the terminator or till the end
+   */
+  public TillStringExpression(String terminator, boolean inclusive) {
+    if (terminator.isEmpty()) {
+      throw new IllegalArgumentException("Terminator must not be empty");
+    }
+    this.terminator = terminator;
+    this.inclusive = inclusive;
+  }
+
+  public String getTerminator() {
+    return terminator;
+  }
+
+  public boolean isInclusive() {
+    return inclusive;
+  }
+
+  @Override
+  public void execute(Machine machine) {
+    int offset = machine.indexOf(terminator);
+    if (offset == -1) {
+      if (inclusive) {
+        // as the equivalent expression, report error at the end of input
+        machine.advanceIndex(machine.length());
+        machine.backtrack();
+        return;
+      }
+      offset = machine.length();
+    } else if (inclusive) {
+      offset += terminator.length();
+    }
+    if (offset > 0) {
+      machine.createLeafNode(this, offset);
+    }
+    machine.jump(1);
+  }
+
+  @Override
+  public String toString() {
+    return (inclusive ? "Till " : "ExclusiveTill ") + terminator;
+  }
+
+}
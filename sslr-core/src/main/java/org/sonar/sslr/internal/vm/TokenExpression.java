@@ -36,6 +36,13 @@ public class TokenExpression implements Matcher, ParsingExpression {
     return tokenType;
   }
 
+  /**
+   * @since 1.23
+   */
+  public ParsingExpression getSubExpression() {
+    return subExpression;
+  }
+
   /**
    * Compiles this expression into a sequence of instructions:
    * <pre>
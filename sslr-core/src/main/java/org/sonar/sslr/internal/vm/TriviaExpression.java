@@ -36,6 +36,13 @@ public class TriviaExpression implements Matcher, ParsingExpression {
     return triviaKind;
   }
 
+  /**
+   * @since 1.23
+   */
+  public ParsingExpression getSubExpression() {
+    return subExpression;
+  }
+
   /**
    * Compiles this expression into a sequence of instructions:
    * <pre>
@@ -30,6 +30,8 @@ public class LexerfulParseErrorFormatter {
    */
   private static final int SNIPPET_SIZE = 30;
 
+  private static final int LINE_NUMBER_WIDTH = 5;
+
   public String format(List<Token> tokens, int errorIndex) {
     StringBuilder sb = new StringBuilder();
     Pos errorPos = errorIndex < tokens.size()
@@ -80,12 +82,13 @@ public class LexerfulParseErrorFormatter {
 
     int line = tokens.get(0).getLine();
     int column = tokens.get(0).getColumn();
-    sb.append(formatLineNumber(line, errorLine));
+    appendLineNumber(sb, line, errorLine);
     for (Token token : tokens) {
       while (line < token.getLine()) {
         line++;
         column = 0;
-        sb.append('\n').append(formatLineNumber(line, errorLine));
+        sb.append('\n');
+        appendLineNumber(sb, line, errorLine);
       }
       while (column < token.getColumn()) {
         sb.append(' ');
@@ -96,17 +99,28 @@ public class LexerfulParseErrorFormatter {
       column += tokenLines[0].length();
       for (int j = 1; j < tokenLines.length; j++) {
         line++;
-        sb.append('\n').append(formatLineNumber(line, errorLine)).append(tokenLines[j]);
+        sb.append('\n');
+        appendLineNumber(sb, line, errorLine);
+        sb.append(tokenLines[j]);
         column = tokenLines[j].length();
       }
     }
     sb.append('\n');
   }
 
-  private static String formatLineNumber(int line, int errorLine) {
-    return line == errorLine
-        ? String.format("%1$5s  ", "-->")
-        : String.format("%1$5d: ", line);
+  /**
+   * Equivalent of {@code String.format("%1$5d: ", line)}, with an arrow in place of number of line with error.
+   */
+  private static void appendLineNumber(StringBuilder sb, int line, int errorLine) {
+    if (line == errorLine) {
+      sb.append("  -->  ");
+      return;
+    }
+    String number = Integer.toString(line);
+    for (int i = number.length(); i < LINE_NUMBER_WIDTH; i++) {
+      sb.append(' ');
+    }
+    sb.append(number).append(": ");
   }
 
 }
@@ -0,0 +1,90 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm.lexerful;
+
+import com.sonar.sslr.api.Token;
+import org.sonar.sslr.internal.matchers.Matcher;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.internal.vm.NativeExpression;
+
+import javax.annotation.CheckForNull;
+
+import java.util.Arrays;
+
+/**
+ * Consumes tokens until a token matched by one of given expressions: equivalent of {@code zeroOrMore(nextNot(firstOf(terminators)), anyToken())},
+ * optionally followed by the terminator, but scans tokens directly and creates a single node for the consumed tokens.
+ */
+public class TillTokenExpression extends NativeExpression implements Matcher {
+
+  private final SingleTokenExpression[] terminators;
+  private final boolean inclusive;
+
+  /**
+   * @param inclusive whether the terminator must be present and consumed, otherwise tokens are consumed before the terminator or till the end
+   */
+  public TillTokenExpression(boolean inclusive, SingleTokenExpression... terminators) {
+    this.terminators = terminators;
+    this.inclusive = inclusive;
+  }
+
+  @Override
+  public void execute(Machine machine) {
+    int length = machine.length();
+    int offset = 0;
+    SingleTokenExpression terminator = null;
+    while (offset < length) {
+      terminator = terminatorOf(machine.tokenAt(offset));
+      if (terminator != null) {
+        break;
+      }
+      offset++;
+    }
+    if (terminator == null && inclusive) {
+      // as the equivalent expression, report error at the end of input
+      machine.advanceIndex(offset);
+      machine.backtrack();
+      return;
+    }
+    if (offset > 0) {
+      machine.createLeafNode(this, offset);
+    }
+    if (inclusive) {
+      machine.createLeafNode(terminator, 1);
+    }
+    machine.jump(1);
+  }
+
+  @CheckForNull
+  private SingleTokenExpression terminatorOf(Token token) {
+    for (SingleTokenExpression terminator : terminators) {
+      if (terminator.matches(token)) {
+        return terminator;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return (inclusive ? "Till" : "ExclusiveTill") + Arrays.toString(terminators);
+  }
+
+}
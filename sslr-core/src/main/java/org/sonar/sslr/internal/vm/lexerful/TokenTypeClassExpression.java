@@ -19,11 +19,11 @@
  */
 package org.sonar.sslr.internal.vm.lexerful;
 
-import org.sonar.sslr.internal.matchers.Matcher;
+import com.sonar.sslr.api.Token;
 import org.sonar.sslr.internal.vm.Machine;
 import org.sonar.sslr.internal.vm.NativeExpression;
 
-public class TokenTypeClassExpression extends NativeExpression implements Matcher {
+public class TokenTypeClassExpression extends NativeExpression implements SingleTokenExpression {
 
   private final Class typeClass;
 
@@ -31,6 +31,11 @@ public class TokenTypeClassExpression extends NativeExpression implements Matche
     this.typeClass = typeClass;
   }
 
+  @Override
+  public boolean matches(Token token) {
+    return typeClass == token.getType().getClass();
+  }
+
   @Override
   public void execute(Machine machine) {
     if (machine.length() == 0 || typeClass != machine.tokenAt(0).getType().getClass()) {
@@ -19,12 +19,12 @@
  */
 package org.sonar.sslr.internal.vm.lexerful;
 
+import com.sonar.sslr.api.Token;
 import com.sonar.sslr.api.TokenType;
-import org.sonar.sslr.internal.matchers.Matcher;
 import org.sonar.sslr.internal.vm.Machine;
 import org.sonar.sslr.internal.vm.NativeExpression;
 
-public class TokenTypeExpression extends NativeExpression implements Matcher {
+public class TokenTypeExpression extends NativeExpression implements SingleTokenExpression {
 
   private final TokenType type;
 
@@ -32,6 +32,15 @@ public class TokenTypeExpression extends NativeExpression implements Matcher {
     this.type = type;
   }
 
+  public TokenType getType() {
+    return type;
+  }
+
+  @Override
+  public boolean matches(Token token) {
+    return type == token.getType();
+  }
+
   @Override
   public void execute(Machine machine) {
     if (machine.length() == 0 || type != machine.tokenAt(0).getType()) {
@@ -19,16 +19,17 @@
  */
 package org.sonar.sslr.internal.vm.lexerful;
 
+import com.sonar.sslr.api.Token;
 import com.sonar.sslr.api.TokenType;
-import org.sonar.sslr.internal.matchers.Matcher;
 import org.sonar.sslr.internal.vm.Machine;
 import org.sonar.sslr.internal.vm.NativeExpression;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
-public class TokenTypesExpression extends NativeExpression implements Matcher {
+public class TokenTypesExpression extends NativeExpression implements SingleTokenExpression {
 
   private final Set<TokenType> types;
 
@@ -37,6 +38,15 @@ public class TokenTypesExpression extends NativeExpression implements Matcher {
     this.types.addAll(Arrays.asList(types));
   }
 
+  public Set<TokenType> getTypes() {
+    return Collections.unmodifiableSet(types);
+  }
+
+  @Override
+  public boolean matches(Token token) {
+    return types.contains(token.getType());
+  }
+
   @Override
   public void execute(Machine machine) {
     if (machine.length() == 0 || !types.contains(machine.tokenAt(0).getType())) {
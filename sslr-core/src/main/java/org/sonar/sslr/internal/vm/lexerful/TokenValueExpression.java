@@ -20,11 +20,10 @@
 package org.sonar.sslr.internal.vm.lexerful;
 
 import com.sonar.sslr.api.Token;
-import org.sonar.sslr.internal.matchers.Matcher;
 import org.sonar.sslr.internal.vm.Machine;
 import org.sonar.sslr.internal.vm.NativeExpression;
 
-public class TokenValueExpression extends NativeExpression implements Matcher {
+public class TokenValueExpression extends NativeExpression implements SingleTokenExpression {
 
   private final String value;
 
@@ -32,6 +31,11 @@ public class TokenValueExpression extends NativeExpression implements Matcher {
     this.value = value;
   }
 
+  @Override
+  public boolean matches(Token token) {
+    return value.hashCode() == token.getValue().hashCode() && value.equals(token.getValue());
+  }
+
   @Override
   public void execute(Machine machine) {
     if (machine.length() == 0) {
@@ -60,9 +60,8 @@ public class TokensBridgeExpression extends NativeExpression implements Matcher
         // nop
       }
     } while (bridgeLevel != 0);
-    for (int i = 0; i <= offset; i++) {
-      machine.createLeafNode(this, 1);
-    }
+    // single node for all consumed tokens
+    machine.createLeafNode(this, offset + 1);
     machine.jump(1);
   }
 
@@ -56,9 +56,8 @@ public class ParseErrorFormatter {
     int startLine = Math.max(position.getLine() - SNIPPET_SIZE, 1);
     int endLine = Math.min(position.getLine() + SNIPPET_SIZE, inputBuffer.getLineCount());
     int padding = Integer.toString(endLine).length();
-    String lineNumberFormat = "%1$" + padding + "d: ";
     for (int line = startLine; line <= endLine; line++) {
-      sb.append(String.format(lineNumberFormat, line));
+      appendLineNumber(sb, line, padding);
       sb.append(TextUtils.trimTrailingLineSeparatorFrom(inputBuffer.extractLine(line)).replace("\t", " ")).append('\n');
       if (line == position.getLine()) {
         for (int i = 1; i < position.getColumn() + padding + 2; i++) {
@@ -69,4 +68,15 @@ public class ParseErrorFormatter {
     }
   }
 
+  /**
+   * Same as {@code String.format("%1$" + padding + "d: ", line)}, but without parsing of format for each line.
+   */
+  private static void appendLineNumber(StringBuilder sb, int line, int padding) {
+    String number = Integer.toString(line);
+    for (int i = number.length(); i < padding; i++) {
+      sb.append(' ');
+    }
+    sb.append(number).append(": ");
+  }
+
 }
@@ -22,10 +22,18 @@ package org.sonar.sslr.parser;
 import com.sonar.sslr.api.Rule;
 import org.sonar.sslr.internal.vm.CompilableGrammarRule;
 import org.sonar.sslr.internal.vm.CompiledGrammar;
+import org.sonar.sslr.internal.vm.CompiledGrammarCodec;
 import org.sonar.sslr.internal.vm.Machine;
 import org.sonar.sslr.internal.vm.MutableGrammarCompiler;
 
+import javax.annotation.CheckForNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * Performs parsing of a given grammar rule on a given input text.
@@ -42,8 +50,63 @@ public class ParseRunner {
     compiledGrammar = MutableGrammarCompiler.compile((CompilableGrammarRule) Objects.requireNonNull(rule, "rule"));
   }
 
+  private ParseRunner(CompiledGrammar compiledGrammar) {
+    this.compiledGrammar = compiledGrammar;
+  }
+
   public ParsingResult parse(char[] input) {
     return Machine.parse(input, compiledGrammar);
   }
 
+  /**
+   * Parses input, which is read incrementally, for instance a log file or a dump made of independent top-level items.
+   * Root rule must be of the form {@code zeroOrMore(item)} or {@code sequence(zeroOrMore(item), endOfInput())}, where {@code item} is a rule.
+   * Parse tree of each matched item is passed to the consumer as soon as it has been parsed, instead of building a tree for the whole input,
+   * so that memory is bounded by the size of the largest item rather than by the size of input.
+   * Input buffer of each item covers only a part of input, but reports lines and columns relative to the whole input,
+   * see {@link ParserAdapter#parse(Reader, Consumer)} to obtain AST of each item with tokens positioned in the whole input.
+   *
+   * <p>Custom native expressions must access input only via {@link CharSequence#length()} and {@link CharSequence#charAt(int)},
+   * as parse of an item is restarted once more text is read, when it needs text which has not been read yet.</p>
+   *
+   * @return error which has stopped the parse, or null if the root rule has matched
+   * @throws IllegalArgumentException if the root rule does not have the form described above
+   * @throws IOException if the input can not be read
+   * @since 1.23
+   */
+  @CheckForNull
+  public ParseError parse(Reader reader, Consumer<ParsingResult> consumer) throws IOException {
+    return Machine.parse(reader, compiledGrammar, consumer);
+  }
+
+  /**
+   * Writes the compiled grammar, so that it can be loaded by {@link #readCompiledGrammar(InputStream, String, ClassLoader)}
+   * instead of building and compiling the grammar again, typically at build time.
+   *
+   * @param fingerprint
+   *          identifies the grammar, for instance version of the language plugin, it must be changed whenever the grammar changes
+   * @throws IllegalArgumentException
+   *           if the grammar contains custom native expressions, rule keys or token types other than enum constants,
+   *           or custom AST node skipping policies
+   * @since 1.23
+   */
+  public void writeCompiledGrammar(OutputStream out, String fingerprint) throws IOException {
+    CompiledGrammarCodec.write(compiledGrammar, fingerprint, out);
+  }
+
+  /**
+   * @param classLoader
+   *          class loader of the enums of rule keys and token types
+   * @return parse runner for the root rule of the compiled grammar, or null if the compiled grammar has been written
+   *         by another version of SSLR, with another fingerprint, or refers to enum constants which no longer exist
+   * @throws IOException
+   *           if the compiled grammar can not be read or is corrupted
+   * @since 1.23
+   */
+  @CheckForNull
+  public static ParseRunner readCompiledGrammar(InputStream in, String fingerprint, ClassLoader classLoader) throws IOException {
+    CompiledGrammar compiledGrammar = CompiledGrammarCodec.read(in, fingerprint, classLoader);
+    return compiledGrammar == null ? null : new ParseRunner(compiledGrammar);
+  }
+
 }
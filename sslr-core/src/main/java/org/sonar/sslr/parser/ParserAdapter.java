@@ -25,16 +25,21 @@ import com.sonar.sslr.api.Token;
 import com.sonar.sslr.impl.Parser;
 import com.sonar.sslr.impl.matcher.RuleDefinition;
 import org.sonar.sslr.internal.matchers.AstCreator;
-import org.sonar.sslr.internal.matchers.InputBuffer;
+import org.sonar.sslr.internal.matchers.ImmutableInputBuffer;
+import org.sonar.sslr.internal.matchers.LineIndex;
 import org.sonar.sslr.internal.matchers.LocatedText;
 
+import javax.annotation.Nullable;
+
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * Adapts {@link ParseRunner} to be used as {@link Parser}.
@@ -60,9 +65,7 @@ public class ParserAdapter<G extends LexerlessGrammar> extends Parser<G> {
    */
   @Override
   public AstNode parse(String source) {
-    // LocatedText is used in order to be able to retrieve TextLocation
-    LocatedText text = new LocatedText(null, source.toCharArray());
-    return parse(text);
+    return parse(null, source.toCharArray());
   }
 
   /**
@@ -71,8 +74,59 @@ public class ParserAdapter<G extends LexerlessGrammar> extends Parser<G> {
    */
   @Override
   public AstNode parse(File file) {
-    LocatedText text = new LocatedText(file, fileToCharArray(file, charset));
-    return parse(text);
+    return parse(file, fileToCharArray(file, charset));
+  }
+
+  /**
+   * Parses input, which is read incrementally, and passes AST of each top-level item to the consumer
+   * as soon as it has been parsed, see {@link ParseRunner#parse(Reader, Consumer)} for the required form of the root rule.
+   * Tokens of each AST have lines and columns relative to the whole input.
+   *
+   * @throws RecognitionException if unable to parse or to read the input
+   * @since 1.23
+   */
+  public void parse(Reader reader, Consumer<AstNode> consumer) {
+    parse(null, reader, consumer);
+  }
+
+  /**
+   * Same as {@link #parse(Reader, Consumer)}, but reads the given file with the charset of this parser,
+   * and tokens of each AST refer to this file.
+   *
+   * @throws RecognitionException if unable to parse or to read the file
+   * @since 1.23
+   */
+  public void parse(File file, Consumer<AstNode> consumer) {
+    try (Reader reader = Files.newBufferedReader(Paths.get(file.getPath()), charset)) {
+      parse(file, reader, consumer);
+    } catch (IOException e) {
+      throw new RecognitionException(0, e.getMessage(), e);
+    }
+  }
+
+  private void parse(@Nullable final File file, Reader reader, final Consumer<AstNode> consumer) {
+    ParseError parseError;
+    try {
+      parseError = parseRunner.parse(reader, new Consumer<ParsingResult>() {
+        private ImmutableInputBuffer inputBuffer;
+        private LocatedText input;
+
+        @Override
+        public void accept(ParsingResult result) {
+          // items read from the same window share the text, which reports positions relative to the whole input
+          if (result.getInputBuffer() != inputBuffer) {
+            inputBuffer = (ImmutableInputBuffer) result.getInputBuffer();
+            input = inputBuffer.toLocatedText(file);
+          }
+          consumer.accept(AstCreator.create(result, input));
+        }
+      });
+    } catch (IOException e) {
+      throw new RecognitionException(0, e.getMessage(), e);
+    }
+    if (parseError != null) {
+      throw new RecognitionException(parseError);
+    }
   }
 
   private static char[] fileToCharArray(File file, Charset charset) {
@@ -83,17 +137,15 @@ public class ParserAdapter<G extends LexerlessGrammar> extends Parser<G> {
     }
   }
 
-  private AstNode parse(LocatedText input) {
-    char[] chars = input.toChars();
+  private AstNode parse(@Nullable File file, char[] chars) {
     ParsingResult result = parseRunner.parse(chars);
     if (result.isMatched()) {
+      // LocatedText is used in order to be able to retrieve TextLocation, lines are shared with the result of parse
+      LocatedText input = new LocatedText(file, chars, LineIndex.of(result.getInputBuffer(), chars));
       return AstCreator.create(result, input);
     } else {
-      ParseError parseError = result.getParseError();
-      InputBuffer inputBuffer = parseError.getInputBuffer();
-      int line = inputBuffer.getPosition(parseError.getErrorIndex()).getLine();
-      String message = new ParseErrorFormatter().format(parseError);
-      throw new RecognitionException(line, message);
+      // message is formatted only when requested
+      throw new RecognitionException(result.getParseError());
     }
   }
 
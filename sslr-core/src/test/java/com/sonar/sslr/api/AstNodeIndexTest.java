@@ -0,0 +1,120 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.api;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class AstNodeIndexTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private enum MyType implements AstNodeType {
+    A, B, C, D
+  }
+
+  /**
+   * <pre>
+   *   A1
+   *   |- A2
+   *   |   \- B1
+   *   |- B2
+   *   |   \- C1
+   *   |- B3
+   *   \- C2
+   * </pre>
+   */
+  private final AstNode a1 = new AstNode(MyType.A, "a1", null);
+  private final AstNode a2 = new AstNode(MyType.A, "a2", null);
+  private final AstNode b1 = new AstNode(MyType.B, "b1", null);
+  private final AstNode b2 = new AstNode(MyType.B, "b2", null);
+  private final AstNode b3 = new AstNode(MyType.B, "b3", null);
+  private final AstNode c1 = new AstNode(MyType.C, "c1", null);
+  private final AstNode c2 = new AstNode(MyType.C, "c2", null);
+
+  private AstNodeIndex index() {
+    a1.addChild(a2);
+    a2.addChild(b1);
+    a1.addChild(b2);
+    b2.addChild(c1);
+    a1.addChild(b3);
+    a1.addChild(c2);
+    return AstNodeIndex.of(a1);
+  }
+
+  @Test
+  public void descendants() {
+    AstNodeIndex index = index();
+
+    assertThat(index.getDescendants(a1, MyType.A)).containsExactly(a2);
+    assertThat(index.getDescendants(a1, MyType.B)).containsExactly(b1, b2, b3);
+    assertThat(index.getDescendants(a1, MyType.C, MyType.B)).containsExactly(b1, b2, c1, b3, c2);
+    assertThat(index.getDescendants(a1, MyType.C, MyType.B)).isEqualTo(a1.getDescendants(MyType.C, MyType.B));
+    assertThat(index.getDescendants(b2, MyType.B, MyType.C)).containsExactly(c1);
+    assertThat(index.getDescendants(a1, MyType.D)).isEmpty();
+    assertThat(index.getDescendants(c1, MyType.C)).isEmpty();
+  }
+
+  @Test
+  public void first_descendant() {
+    AstNodeIndex index = index();
+
+    assertThat(index.getFirstDescendant(a1, MyType.B)).isSameAs(b1);
+    assertThat(index.getFirstDescendant(a1, MyType.C, MyType.B)).isSameAs(b1);
+    assertThat(index.getFirstDescendant(b2, MyType.C)).isSameAs(c1);
+    assertThat(index.getFirstDescendant(a2, MyType.C)).isNull();
+    assertThat(index.hasDescendant(a1, MyType.D, MyType.C)).isTrue();
+    assertThat(index.hasDescendant(b3, MyType.A, MyType.B, MyType.C)).isFalse();
+  }
+
+  @Test
+  public void ancestors() {
+    AstNodeIndex index = index();
+
+    assertThat(index.isAncestor(a1, c1)).isTrue();
+    assertThat(index.isAncestor(b2, c1)).isTrue();
+    assertThat(index.isAncestor(a2, c1)).isFalse();
+    assertThat(index.isAncestor(c1, c1)).isFalse();
+    assertThat(index.isAncestor(c1, b2)).isFalse();
+  }
+
+  @Test
+  public void nodes_by_type() {
+    AstNodeIndex index = index();
+
+    assertThat(index.count(MyType.B)).isEqualTo(3);
+    assertThat(index.count(MyType.D)).isEqualTo(0);
+    assertThat(index.getNodes(MyType.C)).containsExactly(c1, c2);
+  }
+
+  @Test
+  public void node_not_in_tree() {
+    AstNodeIndex index = index();
+
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("The node is not part of the indexed tree");
+    index.getDescendants(new AstNode(MyType.A, "a", null), MyType.A);
+  }
+
+}
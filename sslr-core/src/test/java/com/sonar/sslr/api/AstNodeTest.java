@@ -19,7 +19,11 @@
  */
 package com.sonar.sslr.api;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -27,6 +31,9 @@ import static org.mockito.Mockito.when;
 
 public class AstNodeTest {
 
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
   /**
    * <pre>
    *   A1
@@ -174,6 +181,110 @@ public class AstNodeTest {
     assertThat(lastEmptyNode.getTokens()).isEmpty();
   }
 
+  @Test
+  public void test_token_range() {
+    TokenType type = mock(TokenType.class);
+    Token firstToken = mock(Token.class);
+    when(firstToken.getType()).thenReturn(type);
+    Token lastToken = mock(Token.class);
+    AstNode rootNode = new AstNode(mock(AstNodeType.class), "root", firstToken);
+    AstNode rangeNode = new AstNode(Arrays.asList(firstToken, lastToken));
+    rootNode.addChild(rangeNode);
+
+    assertThat(rangeNode.getType()).isSameAs(type);
+    assertThat(rangeNode.getToken()).isSameAs(firstToken);
+    assertThat(rangeNode.hasChildren()).isFalse();
+    assertThat(rangeNode.getTokens()).containsExactly(firstToken, lastToken);
+    assertThat(rangeNode.isTokenRange()).isTrue();
+    assertThat(rootNode.isTokenRange()).isFalse();
+    assertThat(rangeNode.getLastToken()).isSameAs(lastToken);
+    assertThat(rootNode.getTokens()).containsExactly(firstToken, lastToken);
+    assertThat(rootNode.getLastToken()).isSameAs(lastToken);
+  }
+
+  /**
+   * <pre>
+   *   root
+   *   |- a
+   *   |   \- a1
+   *   |- b
+   *   \- c
+   * </pre>
+   */
+  @Test
+  public void test_compact() {
+    AstNodeType type = mock(AstNodeType.class);
+    AstNode root = new AstNode(type, "root", null);
+    AstNode a = new AstNode(type, "a", null);
+    AstNode a1 = new AstNode(type, "a1", null);
+    AstNode b = new AstNode(type, "b", null);
+    AstNode c = new AstNode(type, "c", null);
+    root.addChild(a);
+    a.addChild(a1);
+    root.addChild(b);
+    root.addChild(c);
+
+    root.compact();
+
+    assertThat(root.getChildren()).containsExactly(a, b, c);
+    assertThat(a.getChildren()).containsExactly(a1);
+    assertThat(b.getChildren()).isEmpty();
+    assertThat(a1.getParent()).isSameAs(a);
+    assertThat(c.getParent()).isSameAs(root);
+    assertThat(a.getNextSibling()).isSameAs(b);
+    assertThat(b.getPreviousSibling()).isSameAs(a);
+    assertThat(c.getNextSibling()).isNull();
+    assertThat(a1.getNextSibling()).isNull();
+    assertThat(a1.getNextAstNode()).isSameAs(b);
+    assertThat(b.getPreviousAstNode()).isSameAs(a);
+    assertThat(root.getFirstChild()).isSameAs(a);
+    assertThat(root.getLastChild()).isSameAs(c);
+
+    AstNode a2 = new AstNode(type, "a2", null);
+    a.addChild(a2);
+    AstNode b1 = new AstNode(type, "b1", null);
+    b.addChild(b1);
+    AstNode d = new AstNode(type, "d", null);
+    root.addChild(d);
+
+    assertThat(root.getChildren()).containsExactly(a, b, c, d);
+    assertThat(a.getChildren()).containsExactly(a1, a2);
+    assertThat(b.getChildren()).containsExactly(b1);
+    assertThat(d.getParent()).isSameAs(root);
+    assertThat(c.getNextSibling()).isSameAs(d);
+    assertThat(d.getPreviousSibling()).isSameAs(c);
+    assertThat(a1.getNextSibling()).isSameAs(a2);
+    assertThat(a2.getPreviousSibling()).isSameAs(a1);
+    assertThat(b1.getParent()).isSameAs(b);
+
+    root.compact();
+    assertThat(root.getChildren()).containsExactly(a, b, c, d);
+    assertThat(a.getChildren()).containsExactly(a1, a2);
+  }
+
+  @Test
+  public void children_of_compacted_node_should_be_fixed_size() {
+    AstNodeType type = mock(AstNodeType.class);
+    AstNode root = new AstNode(type, "root", null);
+    root.addChild(new AstNode(type, "a", null));
+    root.addChild(new AstNode(type, "b", null));
+    root.compact();
+
+    thrown.expect(UnsupportedOperationException.class);
+    root.getChildren().add(new AstNode(type, "c", null));
+  }
+
+  @Test
+  public void single_child_of_compacted_node_should_be_fixed_size() {
+    AstNodeType type = mock(AstNodeType.class);
+    AstNode root = new AstNode(type, "root", null);
+    root.addChild(new AstNode(type, "a", null));
+    root.compact();
+
+    thrown.expect(UnsupportedOperationException.class);
+    root.getChildren().remove(0);
+  }
+
   @Test
   public void test_toString() {
     Token token = mock(Token.class);
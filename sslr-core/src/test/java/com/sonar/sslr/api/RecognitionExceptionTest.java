@@ -0,0 +1,135 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.api;
+
+import org.junit.Test;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerfulGrammarBuilder;
+import org.sonar.sslr.internal.matchers.ImmutableInputBuffer;
+import org.sonar.sslr.internal.vm.CompilableGrammarRule;
+import org.sonar.sslr.internal.vm.CompiledGrammar;
+import org.sonar.sslr.internal.vm.Machine;
+import org.sonar.sslr.internal.vm.MutableGrammarCompiler;
+import org.sonar.sslr.internal.vm.lexerful.LexerfulParseErrorFormatter;
+import org.sonar.sslr.parser.ParseError;
+import org.sonar.sslr.parser.ParseErrorFormatter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RecognitionExceptionTest {
+
+  @Test
+  public void should_format_parse_error_on_demand() {
+    ParseError parseError = new ParseError(new ImmutableInputBuffer("foo\nbar baz\n".toCharArray()), 8);
+    RecognitionException e = new RecognitionException(parseError);
+
+    assertThat(e.getParseError()).isSameAs(parseError);
+    assertThat(e.getLine()).isEqualTo(2);
+    assertThat(e.getMessage()).isEqualTo(new ParseErrorFormatter().format(parseError));
+    assertThat(e.getMessage()).isSameAs(e.getMessage());
+  }
+
+  @Test
+  public void should_build_message_on_demand() {
+    final List<String> calls = new ArrayList<>();
+    RecognitionException e = new RecognitionException(3, new Supplier<String>() {
+      @Override
+      public String get() {
+        calls.add("get");
+        return "message";
+      }
+    });
+    assertThat(e.getLine()).isEqualTo(3);
+    assertThat(e.getParseError()).isNull();
+    assertThat(calls).isEmpty();
+    assertThat(e.getMessage()).isEqualTo("message");
+    assertThat(e.getMessage()).isEqualTo("message");
+    assertThat(calls).hasSize(1);
+  }
+
+  @Test
+  public void should_format_lexerful_error_on_demand() {
+    List<Token> tokens = Arrays.asList(token(1, 0, "foo"), token(3, 2, "bar"));
+    try {
+      Machine.parse(tokens, grammar());
+      throw new AssertionError("expected exception");
+    } catch (RecognitionException e) {
+      assertThat(e.getLine()).isEqualTo(3);
+      assertThat(e.getMessage()).isEqualTo(new LexerfulParseErrorFormatter().format(tokens, 1));
+    }
+  }
+
+  @Test
+  public void should_serialize_formatted_message() throws Exception {
+    ParseError parseError = new ParseError(new ImmutableInputBuffer("foo\nbar baz\n".toCharArray()), 8);
+    RecognitionException e = new RecognitionException(parseError);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(e);
+    }
+    RecognitionException deserialized;
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      deserialized = (RecognitionException) in.readObject();
+    }
+    assertThat(deserialized.getLine()).isEqualTo(2);
+    assertThat(deserialized.getMessage()).isEqualTo(new ParseErrorFormatter().format(parseError));
+    assertThat(deserialized.getParseError()).isNull();
+  }
+
+  @Test
+  public void should_keep_given_message() {
+    RecognitionException e = new RecognitionException(42, "message");
+    assertThat(e.getParseError()).isNull();
+    assertThat(e.getLine()).isEqualTo(42);
+    assertThat(e.getMessage()).isEqualTo("message");
+  }
+
+  private static CompiledGrammar grammar() {
+    LexerfulGrammarBuilder b = LexerfulGrammarBuilder.create();
+    b.rule(MyGrammar.ROOT).is("foo", "foo");
+    return MutableGrammarCompiler.compile((CompilableGrammarRule) b.build().rule(MyGrammar.ROOT));
+  }
+
+  private enum MyGrammar implements GrammarRuleKey {
+    ROOT
+  }
+
+  private static Token token(int line, int column, String value) {
+    return Token.builder()
+      .setType(GenericTokenType.IDENTIFIER)
+      .setValueAndOriginalValue(value)
+      .setURI(URI.create("tests://unittest"))
+      .setLine(line)
+      .setColumn(column)
+      .build();
+  }
+
+}
@@ -19,6 +19,7 @@
  */
 package com.sonar.sslr.api.typed;
 
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AstNodeType;
@@ -147,6 +148,33 @@ public class ActionParserTest {
     assertThat(parse(MyGrammarKeys.NUMERIC2, "42", Numeric.class).toString()).isEqualTo("42");
   }
 
+  @Test
+  public void deeply_nested() throws Exception {
+    // deep enough to overflow the thread stack if the syntax tree was created recursively
+    String input = Strings.repeat("+", 100_000) + "42";
+    assertThat(parse(MyGrammarKeys.NESTED_NUMERIC, input, Numeric.class).toString()).isEqualTo("42");
+  }
+
+  @Test
+  public void shared_model() throws Exception {
+    TypedGrammarModel model = TypedGrammarModel.create(lexicalRules(), MyGrammar.class, MyTreeFactory.class);
+    ActionParser<AstNode> numericParser = new ActionParser<>(StandardCharsets.UTF_8, model, new MyTreeFactory(), new AstNodeBuilder(), MyGrammarKeys.NUMERIC);
+    ActionParser<AstNode> operatorParser = new ActionParser<>(StandardCharsets.UTF_8, model, new MyTreeFactory(), new AstNodeBuilder(), MyGrammarKeys.OPERATOR);
+
+    assertThat(numericParser.parse("42")).isInstanceOf(Numeric.class);
+    assertThat(operatorParser.parse("+")).isInstanceOf(Operator.class);
+    assertThat(numericParser.parse("43").toString()).isEqualTo("43");
+    assertThat(model.rule(MyGrammarKeys.NUMERIC)).isNotNull();
+  }
+
+  @Test
+  public void shared_model_with_another_tree_factory() throws Exception {
+    TypedGrammarModel model = TypedGrammarModel.create(lexicalRules(), MyGrammar.class, MyTreeFactory.class);
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("The tree factory must be an instance of " + MyTreeFactory.class.getName());
+    new ActionParser<>(StandardCharsets.UTF_8, model, new Object(), new AstNodeBuilder(), MyGrammarKeys.NUMERIC);
+  }
+
   @SuppressWarnings("unchecked")
   private <T extends AstNode> T parse(GrammarRuleKey ruleKey, String toParse, Class<T> expectedClass) {
     AstNode astNode = parse(ruleKey, toParse);
@@ -159,6 +187,10 @@ public class ActionParserTest {
   }
 
   private ActionParser<AstNode> parser(GrammarRuleKey ruleKey) {
+    return new ActionParser<>(StandardCharsets.UTF_8, lexicalRules(), MyGrammar.class, new MyTreeFactory(), new AstNodeBuilder(), ruleKey);
+  }
+
+  private static LexerlessGrammarBuilder lexicalRules() {
     LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
     b.rule(MyGrammarKeys.PLUS).is(b.regexp("\\+"));
     b.rule(MyGrammarKeys.MINUS).is(b.regexp("-"));
@@ -168,7 +200,7 @@ public class ActionParserTest {
       b.optional(b.skippedTrivia(b.regexp("\\s+"))),
       b.regexp("[0-9]+"));
     b.rule(MyGrammarKeys.EOF).is(b.token(GenericTokenType.EOF, b.endOfInput())).skip();
-    return new ActionParser<>(StandardCharsets.UTF_8, b, MyGrammar.class, new MyTreeFactory(), new AstNodeBuilder(), ruleKey);
+    return b;
   }
 
   private void assertNotParse(GrammarRuleKey ruleKey, String toParse) {
@@ -184,7 +216,7 @@ public class ActionParserTest {
     NUMERIC, NUMERIC2, NUMERIC_TOKEN,
     PLUS, MINUS, OPERATOR, UNARY_EXP,
     NUMERIC_LIST, POTENTIALLY_EMPTY_NUMERIC_LIST,
-    EOF, NUMERIC_WITH_EOF
+    EOF, NUMERIC_WITH_EOF, NESTED_NUMERIC
   }
 
   public static class MyGrammar {
@@ -244,6 +276,14 @@ public class ActionParserTest {
             b.invokeRule(MyGrammarKeys.EOF)));
     }
 
+    public Numeric NESTED_NUMERIC() {
+      return b.<Numeric>nonterminal(MyGrammarKeys.NESTED_NUMERIC)
+        .is(
+          b.firstOf(
+            f.nestedNumeric(b.token(MyGrammarKeys.PLUS), NESTED_NUMERIC()),
+            NUMERIC()));
+    }
+
   }
 
   public static class MyTree extends AstNode {
@@ -347,6 +387,10 @@ public class ActionParserTest {
       return numeric;
     }
 
+    public Numeric nestedNumeric(AstNode plus, Numeric numeric) {
+      return numeric;
+    }
+
   }
 
 }
@@ -87,6 +87,17 @@ public class InputTest {
       2, 1);
   }
 
+  @Test
+  public void lineAt_and_columnAt() {
+    Input input = new Input("ab\ncd\r\nef".toCharArray());
+    assertThat(input.lineAt(1)).isEqualTo(1);
+    assertThat(input.columnAt(1)).isEqualTo(2);
+    assertThat(input.lineAt(8)).isEqualTo(3);
+    assertThat(input.columnAt(8)).isEqualTo(2);
+    assertThat(input.lineAt(4)).isEqualTo(2);
+    assertThat(input.columnAt(4)).isEqualTo(2);
+  }
+
   private static void assertLineAndColumn(String string, int index, int expectedLine, int expectedColumn) {
     int[] location = new Input(string.toCharArray()).lineAndColumnAt(index);
     assertThat(location[0]).isEqualTo(expectedLine);
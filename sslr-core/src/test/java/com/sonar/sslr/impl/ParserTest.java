@@ -0,0 +1,159 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl;
+
+import com.sonar.sslr.api.AstAndTokenVisitor;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Grammar;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.ast.AstWalker;
+import org.junit.Test;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerfulGrammarBuilder;
+
+import javax.annotation.Nullable;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ParserTest {
+
+  private enum MyGrammar implements GrammarRuleKey {
+    ROOT
+  }
+
+  private final Grammar grammar = grammar();
+  private final List<Token> tokens = tokens("foo", "(", "(", "bar", ")", ")", "baz");
+
+  @Test
+  public void should_create_node_per_token() {
+    AstNode tree = Parser.builder(grammar).build().parse(tokens);
+
+    assertThat(tree.getNumberOfChildren()).isEqualTo(tokens.size());
+    assertThat(tree.getTokens()).isEqualTo(tokens);
+  }
+
+  @Test
+  public void should_create_token_range_nodes() {
+    AstNode tree = Parser.builder(grammar).withTokenRangeNodes().build().parse(tokens);
+
+    assertThat(tree.getNumberOfChildren()).isEqualTo(4);
+    AstNode bridge = tree.getChildren().get(1);
+    assertThat(bridge.getTokenValue()).isEqualTo("(");
+    assertThat(bridge.getFromIndex()).isEqualTo(1);
+    assertThat(bridge.getToIndex()).isEqualTo(6);
+    assertThat(bridge.hasChildren()).isFalse();
+    assertThat(bridge.getTokens()).isEqualTo(tokens.subList(1, 6));
+    assertThat(bridge.getLastToken().getValue()).isEqualTo(")");
+    assertThat(tree.getTokens()).isEqualTo(tokens);
+
+    Parser<Grammar> parser = Parser.builder(Parser.builder(grammar).withTokenRangeNodes().build()).build();
+    assertThat(parser.parse(tokens).getNumberOfChildren()).isEqualTo(4);
+  }
+
+  @Test
+  public void walker_should_visit_every_token_of_token_range_nodes() {
+    AstNode tree = Parser.builder(grammar).withTokenRangeNodes().build().parse(tokens);
+    TokenCollector collector = new TokenCollector();
+    new AstWalker(collector).walkAndVisit(tree);
+    assertThat(collector.tokens).isEqualTo(tokens);
+  }
+
+  private static class TokenCollector implements AstAndTokenVisitor {
+
+    private final List<Token> tokens = new ArrayList<>();
+
+    @Override
+    public void visitToken(Token token) {
+      tokens.add(token);
+    }
+
+    @Override
+    public List<AstNodeType> getAstNodeTypesToVisit() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public void visitFile(@Nullable AstNode ast) {
+      // nothing to do
+    }
+
+    @Override
+    public void leaveFile(@Nullable AstNode ast) {
+      // nothing to do
+    }
+
+    @Override
+    public void visitNode(AstNode ast) {
+      // nothing to do
+    }
+
+    @Override
+    public void leaveNode(AstNode ast) {
+      // nothing to do
+    }
+
+  }
+
+  private static Grammar grammar() {
+    LexerfulGrammarBuilder b = LexerfulGrammarBuilder.create();
+    b.rule(MyGrammar.ROOT).is(
+      "foo",
+      b.bridge(GenericTokenType.LITERAL, GenericTokenType.CONSTANT),
+      "baz",
+      GenericTokenType.EOF);
+    b.setRootRule(MyGrammar.ROOT);
+    return b.build();
+  }
+
+  private static List<Token> tokens(String... values) {
+    List<Token> tokens = new ArrayList<>();
+    for (String value : values) {
+      GenericTokenType type;
+      if ("(".equals(value)) {
+        type = GenericTokenType.LITERAL;
+      } else if (")".equals(value)) {
+        type = GenericTokenType.CONSTANT;
+      } else {
+        type = GenericTokenType.IDENTIFIER;
+      }
+      tokens.add(token(type, value, tokens.size()));
+    }
+    tokens.add(token(GenericTokenType.EOF, "EOF", tokens.size()));
+    return tokens;
+  }
+
+  private static Token token(GenericTokenType type, String value, int column) {
+    return Token.builder()
+      .setType(type)
+      .setValueAndOriginalValue(value)
+      .setURI(URI.create("tests://unittest"))
+      .setLine(1)
+      .setColumn(column)
+      .build();
+  }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl;
+
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.TokenType;
+import com.sonar.sslr.api.Trivia;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class TokenStreamCodecTest {
+
+  private static final URI URI = java.net.URI.create("file:///Foo.java");
+
+  @Test
+  public void should_round_trip() {
+    Token comment = token(GenericTokenType.COMMENT, "/* é€ */", 1, 0);
+    Token identifier = Token.builder(token(GenericTokenType.IDENTIFIER, "FOO", 2, 4))
+      .setValueAndOriginalValue("FOO", "foo")
+      .setTrivia(Collections.singletonList(Trivia.createComment(comment)))
+      .build();
+    Token literal = Token.builder(token(GenericTokenType.LITERAL, "42", 1, 100))
+      .setGeneratedCode(true)
+      .setCopyBook("copy.cpy", 7)
+      .build();
+    Token eof = token(GenericTokenType.EOF, "EOF", 3, 0);
+    List<Token> tokens = Arrays.asList(identifier, literal, eof);
+
+    List<Token> decoded = TokenStreamCodec.decode(TokenStreamCodec.encode(tokens), URI);
+
+    assertThat(decoded).hasSize(3);
+    assertThat(decoded.get(0).getType()).isSameAs(GenericTokenType.IDENTIFIER);
+    assertThat(decoded.get(0).getValue()).isEqualTo("FOO");
+    assertThat(decoded.get(0).getOriginalValue()).isEqualTo("foo");
+    assertThat(decoded.get(0).getLine()).isEqualTo(2);
+    assertThat(decoded.get(0).getColumn()).isEqualTo(4);
+    assertThat(decoded.get(0).getURI()).isEqualTo(URI);
+    assertThat(decoded.get(0).getTrivia()).hasSize(1);
+    Trivia trivia = decoded.get(0).getTrivia().get(0);
+    assertThat(trivia.isComment()).isTrue();
+    assertThat(trivia.getToken().getValue()).isEqualTo("/* é€ */");
+    assertThat(trivia.getToken().getLine()).isEqualTo(1);
+    assertThat(trivia.getToken().getURI()).isEqualTo(URI);
+    assertThat(decoded.get(1).getLine()).isEqualTo(1);
+    assertThat(decoded.get(1).getColumn()).isEqualTo(100);
+    assertThat(decoded.get(1).isGeneratedCode()).isTrue();
+    assertThat(decoded.get(1).isCopyBook()).isTrue();
+    assertThat(decoded.get(1).getCopyBookOriginalFileName()).isEqualTo("copy.cpy");
+    assertThat(decoded.get(1).getCopyBookOriginalLine()).isEqualTo(7);
+    assertThat(decoded.get(2).getType()).isSameAs(GenericTokenType.EOF);
+    assertThat(decoded.get(2).isCopyBook()).isFalse();
+    assertThat(decoded.get(2).hasTrivia()).isFalse();
+  }
+
+  @Test
+  public void should_not_encode_token_types_which_are_not_enums() {
+    Token token = token(mock(TokenType.class), "foo", 1, 0);
+    assertThat(TokenStreamCodec.encode(Collections.singletonList(token))).isNull();
+  }
+
+  @Test
+  public void should_not_decode_corrupted_data() {
+    assertThat(TokenStreamCodec.decode(new byte[] {1, 2, 3}, URI)).isNull();
+    byte[] encoded = TokenStreamCodec.encode(Collections.singletonList(token(GenericTokenType.EOF, "EOF", 1, 0)));
+    assertThat(TokenStreamCodec.decode(Arrays.copyOf(encoded, encoded.length - 1), URI)).isNull();
+  }
+
+  @Test
+  public void key_should_depend_on_fingerprint_and_code() {
+    String key = TokenStreamCodec.key("v1", "foo");
+    assertThat(key).matches("[0-9a-f]{64}");
+    assertThat(TokenStreamCodec.key("v1", new StringBuilder("foo"))).isEqualTo(key);
+    assertThat(TokenStreamCodec.key("v2", "foo")).isNotEqualTo(key);
+    assertThat(TokenStreamCodec.key("v1", "fop")).isNotEqualTo(key);
+  }
+
+  private static Token token(TokenType type, String value, int line, int column) {
+    return Token.builder()
+      .setType(type)
+      .setValueAndOriginalValue(value)
+      .setURI(URI)
+      .setLine(line)
+      .setColumn(column)
+      .build();
+  }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.typed;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ActionInvokerTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private final TreeFactory treeFactory = new TreeFactory();
+
+  @Test
+  public void specialized_arities() throws Exception {
+    assertThat(invoker("zero").invoke()).isEqualTo("0");
+    assertThat(invoker("one", String.class).invoke("a")).isEqualTo("a");
+    assertThat(invoker("two", String.class, Integer.class).invoke("a", 2)).isEqualTo("a2");
+    assertThat(invoker("three", int.class, int.class, int.class).invoke(1, 2, 3)).isEqualTo(6);
+    assertThat(invoker("four", Object.class, Object.class, Object.class, Object.class).invoke(1, 2, 3, 4)).isEqualTo("1234");
+  }
+
+  @Test
+  public void generic_arity() throws Exception {
+    ActionInvoker invoker = invoker("five", Object.class, Object.class, Object.class, Object.class, List.class);
+    assertThat(invoker.arity()).isEqualTo(5);
+    assertThat(invoker.invokeWithArguments(new Object[] {1, 2, 3, 4, Arrays.asList(5)})).isEqualTo("1234[5]");
+    assertThat(invoker("two", String.class, Integer.class).invokeWithArguments(new Object[] {"a", 2})).isEqualTo("a2");
+  }
+
+  @Test
+  public void varargs_method_has_fixed_arity() throws Exception {
+    assertThat(invoker("varargs", String[].class).invoke(new String[] {"a", "b"})).isEqualTo("[a, b]");
+  }
+
+  @Test
+  public void should_propagate_unchecked_exceptions() throws Exception {
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("boom");
+    invoker("boom").invoke();
+  }
+
+  @Test
+  public void should_fail_on_wrong_number_of_arguments() throws Exception {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("expects 0 arguments, but got 1");
+    invoker("zero").invoke("a");
+  }
+
+  private ActionInvoker invoker(String name, Class<?>... parameterTypes) throws Exception {
+    return ActionInvoker.create(TreeFactory.class.getDeclaredMethod(name, parameterTypes), treeFactory);
+  }
+
+  private static class TreeFactory {
+
+    String zero() {
+      return "0";
+    }
+
+    String one(String a) {
+      return a;
+    }
+
+    String two(String a, Integer b) {
+      return a + b;
+    }
+
+    int three(int a, int b, int c) {
+      return a + b + c;
+    }
+
+    String four(Object a, Object b, Object c, Object d) {
+      return "" + a + b + c + d;
+    }
+
+    String five(Object a, Object b, Object c, Object d, List<?> e) {
+      return "" + a + b + c + d + e;
+    }
+
+    String varargs(String... values) {
+      return Arrays.toString(values);
+    }
+
+    String boom() {
+      throw new IllegalStateException("boom");
+    }
+
+  }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.typed;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.typed.AstNodeBuilder;
+import com.sonar.sslr.api.typed.Input;
+import org.junit.Test;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+import org.sonar.sslr.parser.ParseRunner;
+import org.sonar.sslr.parser.ParsingResult;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SyntaxTreeCreatorTest {
+
+  private enum MyGrammarKeys implements GrammarRuleKey {
+    NUMBER
+  }
+
+  @Test
+  public void should_create_tree_with_mapping_of_interceptor() {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    b.rule(MyGrammarKeys.NUMBER).is(b.regexp("[0-9]++"));
+    GrammarBuilderInterceptor<AstNode> interceptor = new GrammarBuilderInterceptor<>(b);
+    SyntaxTreeCreator<AstNode> syntaxTreeCreator = new SyntaxTreeCreator<>(new Object(), interceptor, new AstNodeBuilder());
+
+    char[] input = "42".toCharArray();
+    ParsingResult result = new ParseRunner(b.build().rule(MyGrammarKeys.NUMBER)).parse(input);
+    AstNode node = syntaxTreeCreator.create(result.getParseTreeRoot(), new Input(input));
+
+    assertThat(node.getName()).isEqualTo("NUMBER");
+    assertThat(node.getTokenValue()).isEqualTo("42");
+    assertThat(node.getNumberOfChildren()).isEqualTo(1);
+  }
+
+}
@@ -116,6 +116,181 @@ public class CodeBufferTest {
     assertEquals("", reader.stopRecording().toString());
   }
 
+  @Test
+  public void testSkip() {
+    CodeReaderConfiguration configuration = new CodeReaderConfiguration();
+    configuration.setTabWidth(4);
+    CodeBuffer reader = new CodeBuffer("a\r\nb\rc\td\ne", configuration);
+    reader.startRecording();
+    reader.skip(4);
+    assertThat(reader.getLinePosition(), is(2));
+    assertThat(reader.getColumnPosition(), is(1));
+    assertThat((char) reader.lastChar(), is('b'));
+    reader.skip(4);
+    assertThat(reader.getLinePosition(), is(3));
+    assertThat(reader.getColumnPosition(), is(6));
+    assertEquals("a\r\nb\rc\td", reader.stopRecording().toString());
+    reader.skip(0);
+    assertThat((char) reader.peek(), is('\n'));
+  }
+
+  @Test
+  public void testSkipEquivalentToPop() {
+    String code = "\r\r\n\t x\n\r";
+    for (int length = 0; length <= code.length(); length++) {
+      CodeBuffer expected = new CodeBuffer(code, defaulConfiguration);
+      CodeBuffer actual = new CodeBuffer(code, defaulConfiguration);
+      for (int i = 0; i < length; i++) {
+        expected.pop();
+      }
+      actual.skip(length);
+      assertThat(actual.getLinePosition(), is(expected.getLinePosition()));
+      assertThat(actual.getColumnPosition(), is(expected.getColumnPosition()));
+      assertThat(actual.lastChar(), is(expected.lastChar()));
+      assertThat(actual.peek(), is(expected.peek()));
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testSkipBeyondEnd() {
+    new CodeBuffer("12", defaulConfiguration).skip(3);
+  }
+
+  @Test
+  public void testPopSlice() {
+    CodeBuffer reader = new CodeBuffer("123456", defaulConfiguration);
+    reader.pop();
+    CodeBuffer.Slice slice = reader.popSlice(3);
+    assertThat(slice.getOffset(), is(1));
+    assertThat(slice.length(), is(3));
+    assertThat(slice.charAt(2), is('4'));
+    assertEquals("234", slice.toString());
+    assertEquals("3", slice.subSequence(1, 2).toString());
+    StringBuilder sb = new StringBuilder("_");
+    slice.appendTo(sb);
+    assertEquals("_234", sb.toString());
+    assertThat((char) reader.peek(), is('5'));
+  }
+
+  @Test
+  public void testStreaming() {
+    CodeReaderConfiguration configuration = new CodeReaderConfiguration();
+    configuration.setStreamingBlockSize(2);
+    CodeBuffer reader = new CodeBuffer("12\r\n45678", configuration);
+    assertThat(reader.isStreaming(), is(true));
+    assertThat(reader.length(), is(2));
+    assertThat(reader.charAt(6), is('6'));
+    reader.pop();
+    CodeBuffer.Slice slice = reader.popSlice(3);
+    assertEquals("2\r\n", slice.toString());
+    assertThat(slice.getOffset(), is(1));
+    assertThat(reader.getLinePosition(), is(2));
+    assertThat(reader.getColumnPosition(), is(0));
+    reader.skip(4);
+    assertEquals("2\r\n", slice.toString());
+    assertThat((char) reader.pop(), is('8'));
+    assertThat(reader.pop(), is(-1));
+    assertThat(reader.isStreaming(), is(false));
+  }
+
+  @Test
+  public void testStreamingWithCodeReaderFilter() {
+    CodeReaderConfiguration configuration = new CodeReaderConfiguration();
+    configuration.setStreamingBlockSize(3);
+    configuration.setCodeReaderFilters(new ChannelCodeReaderFilter<Object>(new Channel<Object>() {
+      @Override
+      public boolean consume(CodeReader code, Object output) {
+        if (code.peek() == 'x') {
+          code.pop();
+          return true;
+        }
+        return false;
+      }
+    }));
+    CodeBuffer reader = new CodeBuffer("axbxxcdefxghx", configuration);
+    StringBuilder result = new StringBuilder();
+    while (reader.peek() != -1) {
+      result.append((char) reader.pop());
+    }
+    assertEquals("abcdefgh", result.toString());
+  }
+
+  @Test
+  public void testFusedCodeReaderFilters() {
+    CodeReaderConfiguration configuration = new CodeReaderConfiguration();
+    configuration.setFusedCodeReaderFilters(true);
+    configuration.setTabWidth(4);
+    Channel<Object> lineContinuation = new Channel<Object>() {
+      @Override
+      public boolean consume(CodeReader code, Object output) {
+        if (code.peek() == '\\' && code.charAt(1) == '\n') {
+          code.skip(2);
+          return true;
+        }
+        return false;
+      }
+    };
+    configuration.setCodeReaderFilters(new ChannelCodeReaderFilter<Object>(lineContinuation), new ChannelCodeReaderFilter<Object>(new WindowingChannel()));
+    CodeBuffer code = new CodeBuffer("a\\\nbcd\t\\\nefghij\nklmnop", configuration);
+    StringBuilder result = new StringBuilder();
+    while (code.peek() != -1) {
+      if (code.peek() == 'd') {
+        assertThat(code.getLinePosition(), is(2));
+        assertThat(code.getColumnPosition(), is(2));
+      } else if (code.peek() == '\n') {
+        assertThat(code.getLinePosition(), is(3));
+        assertThat(code.getColumnPosition(), is(6));
+      }
+      result.append((char) code.pop());
+    }
+    assertEquals("cd\t\nmnop", result.toString());
+    assertThat(code.getLinePosition(), is(4));
+    assertThat(code.getColumnPosition(), is(6));
+  }
+
+  @Test
+  public void testFusedAndNotFusedCodeReaderFilters() {
+    CodeReaderConfiguration configuration = new CodeReaderConfiguration();
+    configuration.setFusedCodeReaderFilters(true);
+    configuration.setCodeReaderFilters(new ChannelCodeReaderFilter<Object>(new LineContinuationChannel()), new RemoveCharFilter('x'));
+    CodeBuffer code = new CodeBuffer("a\\\nbxc\nd", configuration);
+    StringBuilder result = new StringBuilder();
+    while (code.peek() != -1) {
+      if (code.peek() == 'c') {
+        // changes of filter which is not fused are not recorded, so position is the one in the filtered input
+        assertThat(code.getLinePosition(), is(1));
+        assertThat(code.getColumnPosition(), is(2));
+      }
+      result.append((char) code.pop());
+    }
+    assertEquals("abc\nd", result.toString());
+    assertThat(code.getLinePosition(), is(2));
+    assertThat(code.getColumnPosition(), is(1));
+  }
+
+  @Test
+  public void testOverridePositionWithFusedCodeReaderFilters() {
+    CodeReaderConfiguration configuration = new CodeReaderConfiguration();
+    configuration.setFusedCodeReaderFilters(true);
+    configuration.setCodeReaderFilters(new ChannelCodeReaderFilter<Object>(new LineContinuationChannel()));
+    CodeBuffer code = new CodeBuffer("a\\\nbc\nde", configuration);
+    code.pop();
+    assertThat(code.getLinePosition(), is(2));
+    assertThat(code.getColumnPosition(), is(0));
+
+    code.setLinePosition(10);
+    code.setColumnPosition(5);
+    code.pop();
+    assertThat(code.getLinePosition(), is(10));
+    assertThat(code.getColumnPosition(), is(6));
+
+    code.pop();
+    code.pop();
+    code.pop();
+    assertThat(code.getLinePosition(), is(11));
+    assertThat(code.getColumnPosition(), is(1));
+  }
+
   @Test
   public void testCharAt() {
     CodeBuffer reader = new CodeBuffer("123456", defaulConfiguration);
@@ -274,6 +449,42 @@ public class CodeBufferTest {
     new CodeBuffer("foo", configuration);
   }
 
+  static class LineContinuationChannel extends Channel<Object> {
+    @Override
+    public boolean consume(CodeReader code, Object output) {
+      if (code.peek() == '\\' && code.charAt(1) == '\n') {
+        code.skip(2);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Not fused filter, which removes all occurrences of a character.
+   */
+  static class RemoveCharFilter extends CodeReaderFilter<Object> {
+
+    private final char removed;
+
+    RemoveCharFilter(char removed) {
+      this.removed = removed;
+    }
+
+    @Override
+    public int read(char[] filteredBuffer, int offset, int length) throws IOException {
+      int count = 0;
+      int c;
+      while (count < length && (c = getReader().read()) != -1) {
+        if (c != removed) {
+          filteredBuffer[offset + count] = (char) c;
+          count++;
+        }
+      }
+      return count == 0 ? -1 : count;
+    }
+  }
+
   class WrongEndOfStreamFilter extends CodeReaderFilter<Object> {
     @Override
     public int read(char[] filteredBuffer, int offset, int length) throws IOException {
@@ -29,6 +29,7 @@ import java.util.regex.Pattern;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 
 public class CodeReaderTest {
@@ -92,6 +93,32 @@ public class CodeReaderTest {
     assertEquals(-1, reader.popTo(Pattern.compile("\\w+").matcher(new String()), token));
   }
 
+  @Test
+  public void testPopSliceWithRegex() {
+    CodeReader reader = new CodeReader(new StringReader("12\n3ABC"));
+    CodeBuffer.Slice slice = reader.popSlice(Pattern.compile("[\\d\\n]+").matcher(""));
+    assertEquals("12\n3", slice.toString());
+    assertThat(reader.getLinePosition(), is(2));
+    assertThat(reader.getColumnPosition(), is(1));
+    assertThat(reader.getPreviousCursor().getLine(), is(1));
+    assertThat(reader.getPreviousCursor().getColumn(), is(0));
+    assertNull(reader.popSlice(Pattern.compile("\\d+").matcher("")));
+    assertEquals("", reader.popSlice(Pattern.compile("\\d*").matcher("")).toString());
+    assertNull(reader.popSlice(Pattern.compile("\\w").matcher(""), Pattern.compile("\\d").matcher("")));
+    assertEquals("ABC", reader.popSlice(Pattern.compile("\\w+").matcher("")).toString());
+  }
+
+  @Test
+  public void testPopSliceWithRegexInStreamingMode() {
+    CodeReaderConfiguration configuration = new CodeReaderConfiguration();
+    configuration.setStreamingBlockSize(2);
+    CodeReader reader = new CodeReader(new StringReader("12345ABC"), configuration);
+    assertEquals("12345", reader.popSlice(Pattern.compile("\\d+").matcher("")).toString());
+    assertNull(reader.popSlice(Pattern.compile("A").matcher(""), Pattern.compile("C").matcher("")));
+    assertEquals("AB", reader.popSlice(Pattern.compile("AB").matcher(""), Pattern.compile("C").matcher("")).toString());
+    assertThat(new String(reader.peek(3)), is("C\0\0"));
+  }
+
   @Test
   public void testStackOverflowError() {
     StringBuilder sb = new StringBuilder();
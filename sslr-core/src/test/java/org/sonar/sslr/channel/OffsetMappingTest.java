@@ -0,0 +1,77 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.channel;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class OffsetMappingTest {
+
+  @Test
+  public void identity() {
+    OffsetMapping mapping = new OffsetMapping();
+    mapping.map(3, 3);
+    assertThat(mapping.isIdentity()).isTrue();
+    assertThat(mapping.toOriginal(0)).isEqualTo(0);
+    assertThat(mapping.toOriginal(42)).isEqualTo(42);
+  }
+
+  @Test
+  public void to_original() {
+    // "a" "bc" "d" from "a__bc_d"
+    OffsetMapping mapping = new OffsetMapping();
+    mapping.map(1, 3);
+    mapping.map(2, 4);
+    mapping.map(3, 6);
+    assertThat(mapping.isIdentity()).isFalse();
+    assertThat(mapping.toOriginal(0)).isEqualTo(0);
+    assertThat(mapping.toOriginal(1)).isEqualTo(3);
+    assertThat(mapping.toOriginal(2)).isEqualTo(4);
+    assertThat(mapping.toOriginal(3)).isEqualTo(6);
+    assertThat(mapping.toOriginal(4)).isEqualTo(7);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void should_fail_when_not_increasing() {
+    OffsetMapping mapping = new OffsetMapping();
+    mapping.map(2, 5);
+    mapping.map(3, 4);
+  }
+
+  @Test
+  public void and_then() {
+    // "abcdefgh" -> "acdfgh" -> "cdg"
+    OffsetMapping first = new OffsetMapping();
+    first.map(1, 2);
+    first.map(3, 5);
+    OffsetMapping second = new OffsetMapping();
+    second.map(0, 1);
+    second.map(2, 4);
+    OffsetMapping mapping = first.andThen(second);
+    assertThat(mapping.toOriginal(0)).isEqualTo(2);
+    assertThat(mapping.toOriginal(1)).isEqualTo(3);
+    assertThat(mapping.toOriginal(2)).isEqualTo(6);
+
+    assertThat(first.andThen(new OffsetMapping())).isSameAs(first);
+    assertThat(new OffsetMapping().andThen(second)).isSameAs(second);
+  }
+
+}
@@ -19,6 +19,7 @@
  */
 package org.sonar.sslr.grammar;
 
+import com.sonar.sslr.api.GenericTokenType;
 import com.sonar.sslr.api.Grammar;
 import com.sonar.sslr.api.TokenType;
 import com.sonar.sslr.impl.matcher.RuleDefinition;
@@ -27,6 +28,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.sslr.internal.grammar.MutableGrammar;
 import org.sonar.sslr.internal.vm.CompilableGrammarRule;
+import org.sonar.sslr.internal.vm.CutExpression;
 import org.sonar.sslr.internal.vm.FirstOfExpression;
 import org.sonar.sslr.internal.vm.NextExpression;
 import org.sonar.sslr.internal.vm.NextNotExpression;
@@ -88,6 +90,8 @@ public class LexerfulGrammarBuilderTest {
 
     assertThat(b.nothing()).as("singleton").isSameAs(NothingExpression.INSTANCE);
 
+    assertThat(b.cut()).as("singleton").isSameAs(CutExpression.INSTANCE);
+
     assertThat(b.isOneOfThem(mock(TokenType.class), mock(TokenType.class))).isInstanceOf(TokenTypesExpression.class);
     assertThat(b.bridge(mock(TokenType.class), mock(TokenType.class))).isInstanceOf(TokensBridgeExpression.class);
 
@@ -100,6 +104,11 @@ public class LexerfulGrammarBuilderTest {
     assertThat(b.exclusiveTill(e1).toString()).isEqualTo("ZeroOrMore[Sequence[NextNot[" + e1 + "], AnyToken]]");
     assertThat(b.exclusiveTill(e1, e2).toString()).isEqualTo("ZeroOrMore[Sequence[NextNot[FirstOf[" + e1 + ", " + e2 + "]], AnyToken]]");
 
+    assertThat(b.till(GenericTokenType.EOF).toString()).isEqualTo("Till[TokenType EOF]");
+    assertThat(b.exclusiveTill("foo").toString()).isEqualTo("ExclusiveTill[TokenValue foo]");
+    assertThat(b.exclusiveTill("foo", GenericTokenType.EOF).toString()).isEqualTo("ExclusiveTill[TokenValue foo, TokenType EOF]");
+    assertThat(b.exclusiveTill("foo", e1).toString()).isEqualTo("ZeroOrMore[Sequence[NextNot[FirstOf[TokenValue foo, " + e1 + "]], AnyToken]]");
+
     assertThat(b.everything()).as("singleton").isSameAs(AnyTokenExpression.INSTANCE);
     assertThat(b.anyToken()).as("singleton").isSameAs(AnyTokenExpression.INSTANCE);
     assertThat(b.tillNewLine()).as("singleton").isSameAs(TillNewLineExpression.INSTANCE);
@@ -27,6 +27,7 @@ import org.junit.rules.ExpectedException;
 import org.sonar.sslr.internal.grammar.MutableGrammar;
 import org.sonar.sslr.internal.grammar.MutableParsingRule;
 import org.sonar.sslr.internal.vm.CompilableGrammarRule;
+import org.sonar.sslr.internal.vm.CutExpression;
 import org.sonar.sslr.internal.vm.EndOfInputExpression;
 import org.sonar.sslr.internal.vm.FirstOfExpression;
 import org.sonar.sslr.internal.vm.NextExpression;
@@ -90,9 +91,16 @@ public class LexerlessGrammarBuilderTest {
 
     assertThat(b.nothing()).as("singleton").isSameAs(NothingExpression.INSTANCE);
 
+    assertThat(b.cut()).as("singleton").isSameAs(CutExpression.INSTANCE);
+
     assertThat(b.regexp("")).isInstanceOf(PatternExpression.class);
 
     assertThat(b.endOfInput()).as("singleton").isSameAs(EndOfInputExpression.INSTANCE);
+
+    assertThat(b.till("*/").toString()).isEqualTo("Till */");
+    assertThat(b.exclusiveTill("*/").toString()).isEqualTo("ExclusiveTill */");
+    assertThat(b.spacing().toString()).isEqualTo("Spacing");
+    assertThat(b.spacing("//", "/*", "*/").toString()).isEqualTo("Spacing[//, /* */]");
   }
 
   @Test
@@ -0,0 +1,145 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.matchers;
+
+import com.google.common.base.Strings;
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.AstVisitor;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.Parser;
+import com.sonar.sslr.impl.ast.AstWalker;
+import org.junit.Test;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerfulGrammarBuilder;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+import org.sonar.sslr.parser.ParserAdapter;
+
+import javax.annotation.Nullable;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Trees are deep enough to overflow the thread stack if they are created or traversed recursively.
+ */
+public class DeeplyNestedTreeTest {
+
+  private static final int DEPTH = 100_000;
+
+  private enum MyGrammar implements GrammarRuleKey {
+    ROOT, EXPRESSION
+  }
+
+  @Test
+  public void lexerless() {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    b.rule(MyGrammar.ROOT).is(MyGrammar.EXPRESSION, b.endOfInput());
+    b.rule(MyGrammar.EXPRESSION).is(b.firstOf(b.sequence("(", MyGrammar.EXPRESSION, ")"), "x"));
+    b.setRootRule(MyGrammar.ROOT);
+    String input = Strings.repeat("(", DEPTH) + "x" + Strings.repeat(")", DEPTH);
+
+    AstNode tree = new ParserAdapter<>(StandardCharsets.UTF_8, b.build()).parse(input);
+
+    assertTree(tree, 2 * DEPTH + 1);
+  }
+
+  @Test
+  public void lexerful() {
+    LexerfulGrammarBuilder b = LexerfulGrammarBuilder.create();
+    b.rule(MyGrammar.ROOT).is(MyGrammar.EXPRESSION, GenericTokenType.EOF);
+    b.rule(MyGrammar.EXPRESSION).is(b.firstOf(b.sequence("(", MyGrammar.EXPRESSION, ")"), GenericTokenType.IDENTIFIER));
+    b.setRootRule(MyGrammar.ROOT);
+    List<Token> tokens = new ArrayList<>();
+    for (int i = 0; i < DEPTH; i++) {
+      tokens.add(token(GenericTokenType.LITERAL, "(", tokens.size()));
+    }
+    tokens.add(token(GenericTokenType.IDENTIFIER, "x", tokens.size()));
+    for (int i = 0; i < DEPTH; i++) {
+      tokens.add(token(GenericTokenType.LITERAL, ")", tokens.size()));
+    }
+    tokens.add(token(GenericTokenType.EOF, "EOF", tokens.size()));
+
+    AstNode tree = Parser.builder(b.build()).build().parse(tokens);
+
+    assertTree(tree, 2 * DEPTH + 2);
+  }
+
+  private static void assertTree(AstNode tree, int tokens) {
+    assertThat(tree.getTokens()).hasSize(tokens);
+    List<AstNode> expressions = tree.getDescendants(MyGrammar.EXPRESSION);
+    assertThat(expressions).hasSize(DEPTH + 1);
+    assertThat(expressions.get(DEPTH).getTokenValue()).isEqualTo("x");
+    assertThat(tree.hasDescendant(MyGrammar.ROOT)).isFalse();
+
+    ExpressionCounter counter = new ExpressionCounter();
+    new AstWalker(counter).walkAndVisit(tree);
+    assertThat(counter.visited).isEqualTo(DEPTH + 1);
+    assertThat(counter.left).isEqualTo(DEPTH + 1);
+  }
+
+  private static Token token(GenericTokenType type, String value, int column) {
+    return Token.builder()
+      .setType(type)
+      .setValueAndOriginalValue(value)
+      .setURI(URI.create("tests://unittest"))
+      .setLine(1)
+      .setColumn(column)
+      .build();
+  }
+
+  private static class ExpressionCounter implements AstVisitor {
+
+    private int visited = 0;
+    private int left = 0;
+
+    @Override
+    public List<AstNodeType> getAstNodeTypesToVisit() {
+      return Collections.<AstNodeType>singletonList(MyGrammar.EXPRESSION);
+    }
+
+    @Override
+    public void visitFile(@Nullable AstNode ast) {
+      // nothing to do
+    }
+
+    @Override
+    public void leaveFile(@Nullable AstNode ast) {
+      // nothing to do
+    }
+
+    @Override
+    public void visitNode(AstNode ast) {
+      visited++;
+    }
+
+    @Override
+    public void leaveNode(AstNode ast) {
+      left++;
+    }
+
+  }
+
+}
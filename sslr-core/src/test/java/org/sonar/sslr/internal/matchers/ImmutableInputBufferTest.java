@@ -122,6 +122,44 @@ public class ImmutableInputBufferTest {
     assertThat(inputBuffer.getPosition(4)).isEqualTo(new Position(3, 1));
   }
 
+  @Test
+  public void test_part_of_text() {
+    InputBuffer inputBuffer = new ImmutableInputBuffer("oo\nbar".toCharArray(), 3, 2);
+
+    assertThat(inputBuffer.getLineCount()).isEqualTo(4);
+
+    assertThat(inputBuffer.extractLine(2)).isEqualTo("");
+    assertThat(inputBuffer.extractLine(3)).isEqualTo("oo\n");
+    assertThat(inputBuffer.extractLine(4)).isEqualTo("bar");
+
+    assertThat(inputBuffer.getPosition(0)).isEqualTo(new Position(3, 2));
+    assertThat(inputBuffer.getPosition(2)).isEqualTo(new Position(3, 4));
+    assertThat(inputBuffer.getPosition(3)).isEqualTo(new Position(4, 1));
+    assertThat(inputBuffer.getPosition(6)).isEqualTo(new Position(4, 4));
+  }
+
+  @Test
+  public void located_text_of_part_of_text() {
+    LocatedText text = new ImmutableInputBuffer("oo\nbar".toCharArray(), 3, 2).toLocatedText(null);
+
+    assertThat(text.toString()).isEqualTo("oo\nbar");
+    assertThat(text.getFileURI()).isNull();
+    assertThat(text.getLine(0)).isEqualTo(3);
+    assertThat(text.getColumn(0)).isEqualTo(2);
+    assertThat(text.getLine(3)).isEqualTo(4);
+    assertThat(text.getColumn(3)).isEqualTo(1);
+    assertThat(text.getLine(1)).isEqualTo(3);
+    assertThat(text.getColumn(1)).isEqualTo(3);
+
+    LineCursor cursor = text.newLineCursor();
+    assertThat(text.getLine(0, cursor)).isEqualTo(3);
+    assertThat(text.getColumn(0, cursor)).isEqualTo(2);
+    assertThat(text.getLine(3, cursor)).isEqualTo(4);
+    assertThat(text.getColumn(3, cursor)).isEqualTo(1);
+    assertThat(text.getLine(1, cursor)).isEqualTo(3);
+    assertThat(text.getColumn(1, cursor)).isEqualTo(3);
+  }
+
   @Test
   public void test_equality_and_hash_code_of_positions() {
     Position position = new Position(0, 0);
@@ -0,0 +1,69 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.matchers;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class LineCursorTest {
+
+  private final LineCursor cursor = new LineCursor(new LineIndex("ab\ncd\n\nef".toCharArray()));
+
+  @Test
+  public void should_move_forward() {
+    assertLocation(0, 1, 1);
+    assertLocation(1, 1, 2);
+    assertLocation(3, 2, 1);
+    assertLocation(5, 2, 3);
+    assertLocation(8, 4, 2);
+    assertLocation(9, 4, 3);
+  }
+
+  @Test
+  public void should_skip_lines() {
+    assertLocation(7, 4, 1);
+    assertLocation(7, 4, 1);
+  }
+
+  @Test
+  public void should_move_backward() {
+    assertLocation(9, 4, 3);
+    assertLocation(6, 3, 1);
+    assertLocation(4, 2, 2);
+    assertLocation(2, 1, 3);
+    assertLocation(8, 4, 2);
+  }
+
+  @Test
+  public void should_support_single_line() {
+    LineCursor cursor = new LineCursor(new LineIndex("abcde".toCharArray()));
+    assertThat(cursor.lineAt(5)).isEqualTo(1);
+    assertThat(cursor.columnAt(5)).isEqualTo(6);
+    assertThat(cursor.lineAt(0)).isEqualTo(1);
+    assertThat(cursor.columnAt(0)).isEqualTo(1);
+  }
+
+  private void assertLocation(int index, int line, int column) {
+    assertThat(cursor.lineAt(index)).isEqualTo(line);
+    assertThat(cursor.columnAt(index)).isEqualTo(column);
+  }
+
+}
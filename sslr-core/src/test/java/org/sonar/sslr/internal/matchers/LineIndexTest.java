@@ -0,0 +1,72 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.matchers;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class LineIndexTest {
+
+  @Test
+  public void should_compute_line_starts() {
+    assertThat(lineStarts("")).isEmpty();
+    assertThat(lineStarts("abc")).isEmpty();
+    assertThat(lineStarts("\n")).containsOnly(1);
+    assertThat(lineStarts("\r")).containsOnly(1);
+    assertThat(lineStarts("\r\n")).containsOnly(2);
+    assertThat(lineStarts("a\rb\r\nc\nd\n\r")).isEqualTo(new int[] {2, 5, 7, 9, 10});
+  }
+
+  @Test
+  public void should_compute_lines_once() {
+    LineIndex lineIndex = new LineIndex("a\nb".toCharArray());
+    assertThat(lineIndex.getLineStarts()).isSameAs(lineIndex.getLineStarts());
+  }
+
+  @Test
+  public void should_locate_lines() {
+    LineIndex lineIndex = new LineIndex("ab\r\ncd\n".toCharArray());
+    assertThat(lineIndex.length()).isEqualTo(7);
+    assertThat(lineIndex.getLineCount()).isEqualTo(3);
+    assertThat(lineIndex.getLineStart(1)).isEqualTo(0);
+    assertThat(lineIndex.getLineEnd(1)).isEqualTo(4);
+    assertThat(lineIndex.getLineStart(2)).isEqualTo(4);
+    assertThat(lineIndex.getLineEnd(2)).isEqualTo(7);
+    assertThat(lineIndex.getLineStart(3)).isEqualTo(7);
+    assertThat(lineIndex.getLineEnd(3)).isEqualTo(7);
+    assertThat(lineIndex.getLine(0)).isEqualTo(1);
+    assertThat(lineIndex.getLine(3)).isEqualTo(1);
+    assertThat(lineIndex.getLine(4)).isEqualTo(2);
+    assertThat(lineIndex.getLine(7)).isEqualTo(3);
+  }
+
+  @Test
+  public void should_reuse_lines_of_buffer() {
+    char[] chars = "a\nb".toCharArray();
+    ImmutableInputBuffer inputBuffer = new ImmutableInputBuffer(chars);
+    assertThat(LineIndex.of(inputBuffer, chars)).isSameAs(inputBuffer.getLineIndex());
+  }
+
+  private static int[] lineStarts(String text) {
+    return new LineIndex(text.toCharArray()).getLineStarts();
+  }
+
+}
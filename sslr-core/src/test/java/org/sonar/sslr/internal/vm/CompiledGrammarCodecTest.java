@@ -0,0 +1,203 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+import org.sonar.sslr.internal.grammar.MutableParsingRule;
+import org.sonar.sslr.internal.matchers.AstCreator;
+import org.sonar.sslr.internal.matchers.LocatedText;
+import org.sonar.sslr.parser.GrammarOperators;
+import org.sonar.sslr.parser.ParseErrorFormatter;
+import org.sonar.sslr.parser.ParseRunner;
+import org.sonar.sslr.parser.ParsingResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class CompiledGrammarCodecTest {
+
+  @org.junit.Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private enum MyGrammar implements GrammarRuleKey {
+    ARRAY, VALUE, NUMBER, NULL, SPACING
+  }
+
+  @Test
+  public void should_produce_same_trees_and_errors() throws Exception {
+    ParseRunner original = new ParseRunner(grammar());
+    ParseRunner loaded = ParseRunner.readCompiledGrammar(new ByteArrayInputStream(write(original, "1.0")), "1.0", getClass().getClassLoader());
+
+    for (String input : new String[] {"[1, null /* comment */, [2]]", "[1, 2x]", "[", "[] "}) {
+      assertThat(parse(loaded, input)).isEqualTo(parse(original, input));
+    }
+  }
+
+  @Test
+  public void should_write_spacing() throws Exception {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    Object spacing = b.spacing("//", "/*", "*/");
+    b.rule(MyGrammar.ARRAY).is("[", spacing, b.zeroOrMore(MyGrammar.NUMBER, spacing), "]", b.spacing());
+    b.rule(MyGrammar.NUMBER).is(b.token(GenericTokenType.LITERAL, b.regexp("[0-9]++")));
+    ParseRunner original = new ParseRunner(b.build().rule(MyGrammar.ARRAY));
+    ParseRunner loaded = ParseRunner.readCompiledGrammar(new ByteArrayInputStream(write(original, "1.0")), "1.0", getClass().getClassLoader());
+
+    for (String input : new String[] {"[1 // comment\n 2 /* comment */]  ", "[1 /* 2]"}) {
+      assertThat(parse(loaded, input)).isEqualTo(parse(original, input));
+    }
+  }
+
+  @Test
+  public void should_rebind_rule_keys_and_token_types() throws Exception {
+    ParseRunner loaded = ParseRunner.readCompiledGrammar(new ByteArrayInputStream(write(new ParseRunner(grammar()), "1.0")), "1.0", getClass().getClassLoader());
+    char[] input = "[42]".toCharArray();
+    AstNode array = AstCreator.create(loaded.parse(input), new LocatedText(null, input));
+
+    assertThat(array.getType()).isSameAs(MyGrammar.ARRAY);
+    AstNode number = array.getFirstDescendant(MyGrammar.NUMBER);
+    assertThat(number.getToken().getType()).isSameAs(GenericTokenType.LITERAL);
+  }
+
+  @Test
+  public void should_restore_expressions_of_rules() throws Exception {
+    CompiledGrammar original = MutableGrammarCompiler.compile((CompilableGrammarRule) grammar());
+    CompiledGrammar loaded = read(original);
+
+    for (GrammarRuleKey ruleKey : MyGrammar.values()) {
+      ParsingExpression expression = ((MutableParsingRule) loaded.getMatcher(ruleKey)).getExpression();
+      assertThat(expression.toString()).isEqualTo(((MutableParsingRule) original.getMatcher(ruleKey)).getExpression().toString());
+    }
+  }
+
+  @Test
+  public void should_compile_loaded_rules_again() throws Exception {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    b.rule(MyGrammar.ARRAY).is("[", b.zeroOrMore(b.firstOf(MyGrammar.VALUE, MyGrammar.ARRAY)), "]");
+    b.rule(MyGrammar.VALUE).is(b.token(GenericTokenType.LITERAL, b.firstOf(MyGrammar.NUMBER, MyGrammar.NULL)), b.optional(","));
+    b.rule(MyGrammar.NUMBER).is(b.regexp("[0-9]++"));
+    b.rule(MyGrammar.NULL).is("null", b.commentTrivia(b.till(";")));
+    CompiledGrammar original = MutableGrammarCompiler.compile((CompilableGrammarRule) b.build().rule(MyGrammar.ARRAY));
+    CompiledGrammar loaded = read(original);
+    CompiledGrammar recompiled = MutableGrammarCompiler.compile((CompilableGrammarRule) loaded.getMatcher(MyGrammar.ARRAY));
+
+    assertThat(recompiled.getInstructions().length).isEqualTo(original.getInstructions().length);
+    assertThat(recompiled.getRootRuleOffset()).isEqualTo(original.getRootRuleOffset());
+    for (String input : new String[] {"[1,null;[2]]", "[1,x]", "["}) {
+      assertThat(parse(recompiled, input)).isEqualTo(parse(original, input));
+    }
+  }
+
+  @Test
+  public void should_not_load_other_fingerprint() throws Exception {
+    byte[] bytes = write(new ParseRunner(grammar()), "1.0");
+    assertThat(ParseRunner.readCompiledGrammar(new ByteArrayInputStream(bytes), "1.1", getClass().getClassLoader())).isNull();
+  }
+
+  @Test
+  public void should_support_rules_without_key() throws Exception {
+    Rule rule = new MutableParsingRule("rule").is("foo", GrammarOperators.endOfInput());
+    ParseRunner loaded = ParseRunner.readCompiledGrammar(new ByteArrayInputStream(write(new ParseRunner(rule), "")), "", getClass().getClassLoader());
+    assertThat(loaded.parse("foo".toCharArray()).isMatched()).isTrue();
+    assertThat(loaded.parse("bar".toCharArray()).isMatched()).isFalse();
+  }
+
+  @Test
+  public void should_not_write_custom_native_expressions() throws Exception {
+    Rule rule = new MutableParsingRule("rule").is(new NativeExpression() {
+      @Override
+      public void execute(Machine machine) {
+        machine.jump(1);
+      }
+    });
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Unsupported instruction");
+    write(new ParseRunner(rule), "");
+  }
+
+  @Test
+  public void should_fail_on_corrupted_input() throws Exception {
+    thrown.expect(IOException.class);
+    thrown.expectMessage("Not a compiled grammar");
+    ParseRunner.readCompiledGrammar(new ByteArrayInputStream(new byte[] {1, 2, 3, 4}), "", getClass().getClassLoader());
+  }
+
+  private static Rule grammar() {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    b.rule(MyGrammar.ARRAY).is("[", MyGrammar.SPACING, b.optional(MyGrammar.VALUE, b.zeroOrMore(",", b.cut(), MyGrammar.SPACING, MyGrammar.VALUE)), "]", MyGrammar.SPACING);
+    b.rule(MyGrammar.VALUE).is(b.firstOf(MyGrammar.NUMBER, MyGrammar.NULL, MyGrammar.ARRAY), MyGrammar.SPACING).skipIfOneChild();
+    b.rule(MyGrammar.NUMBER).is(b.token(GenericTokenType.LITERAL, b.regexp("[0-9]++")), b.nextNot(b.regexp("[a-z]")));
+    b.rule(MyGrammar.NULL).is("null").skip();
+    b.rule(MyGrammar.SPACING).is(b.zeroOrMore(b.firstOf(
+      b.skippedTrivia(b.regexp("\\s++")),
+      b.commentTrivia(b.sequence("/*", b.till("*/"))))));
+    b.setRootRule(MyGrammar.ARRAY);
+    return b.build().getRootRule();
+  }
+
+  private static byte[] write(ParseRunner runner, String fingerprint) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    runner.writeCompiledGrammar(out, fingerprint);
+    return out.toByteArray();
+  }
+
+  private static CompiledGrammar read(CompiledGrammar grammar) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CompiledGrammarCodec.write(grammar, "", out);
+    return CompiledGrammarCodec.read(new ByteArrayInputStream(out.toByteArray()), "", CompiledGrammarCodecTest.class.getClassLoader());
+  }
+
+  private static String parse(ParseRunner runner, String input) {
+    return print(runner.parse(input.toCharArray()), input);
+  }
+
+  private static String parse(CompiledGrammar grammar, String input) {
+    return print(Machine.parse(input.toCharArray(), grammar), input);
+  }
+
+  private static String print(ParsingResult result, String input) {
+    if (!result.isMatched()) {
+      return new ParseErrorFormatter().format(result.getParseError());
+    }
+    return print(AstCreator.create(result, new LocatedText(null, input.toCharArray())));
+  }
+
+  private static String print(AstNode node) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(node.getType()).append(' ').append(node.getName()).append(' ').append(node.getTokenValue());
+    if (node.getToken() != null) {
+      sb.append(' ').append(node.getToken().getType()).append(' ').append(node.getToken().getTrivia());
+    }
+    sb.append('(');
+    for (AstNode child : node.getChildren()) {
+      sb.append(print(child));
+    }
+    return sb.append(')').toString();
+  }
+
+}
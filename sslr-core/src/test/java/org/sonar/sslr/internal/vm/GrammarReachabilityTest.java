@@ -0,0 +1,110 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Grammar;
+import org.junit.Test;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerfulGrammarBuilder;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class GrammarReachabilityTest {
+
+  private enum MyGrammar implements GrammarRuleKey {
+    ROOT, STATEMENT, EXPRESSION, IDENTIFIER, UNUSED
+  }
+
+  @Test
+  public void lexerless() {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    b.rule(MyGrammar.ROOT).is(b.zeroOrMore(MyGrammar.STATEMENT));
+    b.rule(MyGrammar.STATEMENT).is(b.firstOf(MyGrammar.EXPRESSION, b.sequence("{", b.zeroOrMore(MyGrammar.STATEMENT), "}")), ";");
+    b.rule(MyGrammar.EXPRESSION).is(MyGrammar.IDENTIFIER, b.optional("+", MyGrammar.EXPRESSION));
+    b.rule(MyGrammar.IDENTIFIER).is(b.token(GenericTokenType.IDENTIFIER, b.regexp("[a-z]++")));
+    b.rule(MyGrammar.UNUSED).is("unused");
+    GrammarReachability reachability = GrammarReachability.of((CompilableGrammarRule) b.build().rule(MyGrammar.ROOT));
+
+    assertThat(reachability.rulesWhichCannotContain(types(MyGrammar.STATEMENT)))
+      .containsOnly(MyGrammar.EXPRESSION, MyGrammar.IDENTIFIER);
+    assertThat(reachability.rulesWhichCannotContain(types(MyGrammar.EXPRESSION)))
+      .containsOnly(MyGrammar.IDENTIFIER);
+    assertThat(reachability.rulesWhichCannotContain(types(GenericTokenType.IDENTIFIER)))
+      .isEmpty();
+    assertThat(reachability.rulesWhichCannotContain(types(GenericTokenType.LITERAL)))
+      .containsOnly(MyGrammar.ROOT, MyGrammar.STATEMENT, MyGrammar.EXPRESSION, MyGrammar.IDENTIFIER);
+    assertThat(reachability.rulesWhichCannotContain(types(MyGrammar.IDENTIFIER, MyGrammar.STATEMENT)))
+      .containsOnly(MyGrammar.IDENTIFIER);
+  }
+
+  @Test
+  public void lexerful() {
+    LexerfulGrammarBuilder b = LexerfulGrammarBuilder.create();
+    b.rule(MyGrammar.ROOT).is(b.zeroOrMore(MyGrammar.STATEMENT), GenericTokenType.EOF);
+    b.rule(MyGrammar.STATEMENT).is(b.firstOf(MyGrammar.EXPRESSION, b.sequence("{", b.zeroOrMore(MyGrammar.STATEMENT), "}")));
+    b.rule(MyGrammar.EXPRESSION).is(MyGrammar.IDENTIFIER, b.optional(b.isOneOfThem(GenericTokenType.LITERAL, GenericTokenType.CONSTANT)));
+    b.rule(MyGrammar.IDENTIFIER).is(GenericTokenType.IDENTIFIER);
+    b.setRootRule(MyGrammar.ROOT);
+    Grammar grammar = b.build();
+    GrammarReachability reachability = GrammarReachability.of((CompilableGrammarRule) grammar.getRootRule());
+
+    assertThat(reachability.rulesWhichCannotContain(types(GenericTokenType.IDENTIFIER)))
+      .isEmpty();
+    assertThat(reachability.rulesWhichCannotContain(types(GenericTokenType.CONSTANT)))
+      .containsOnly(MyGrammar.IDENTIFIER);
+    // tokens matched by value can be of any type, but not a rule
+    assertThat(reachability.rulesWhichCannotContain(types(GenericTokenType.COMMENT)))
+      .containsOnly(MyGrammar.EXPRESSION, MyGrammar.IDENTIFIER);
+    assertThat(reachability.rulesWhichCannotContain(types(MyGrammar.STATEMENT)))
+      .containsOnly(MyGrammar.EXPRESSION, MyGrammar.IDENTIFIER);
+    assertThat(reachability.rulesWhichCannotContain(Collections.<AstNodeType>emptySet()))
+      .containsOnly(MyGrammar.ROOT, MyGrammar.STATEMENT, MyGrammar.EXPRESSION, MyGrammar.IDENTIFIER);
+  }
+
+  @Test
+  public void lexerful_till() {
+    LexerfulGrammarBuilder b = LexerfulGrammarBuilder.create();
+    b.rule(MyGrammar.ROOT).is(b.zeroOrMore(MyGrammar.STATEMENT), GenericTokenType.EOF);
+    b.rule(MyGrammar.STATEMENT).is(GenericTokenType.LITERAL, b.till(GenericTokenType.CONSTANT));
+    b.rule(MyGrammar.EXPRESSION).is(b.exclusiveTill(GenericTokenType.CONSTANT), GenericTokenType.CONSTANT);
+    b.setRootRule(MyGrammar.ROOT);
+    Grammar grammar = b.build();
+
+    // tokens consumed by till can be of any type
+    assertThat(GrammarReachability.of((CompilableGrammarRule) grammar.getRootRule()).rulesWhichCannotContain(types(GenericTokenType.IDENTIFIER)))
+      .isEmpty();
+    assertThat(GrammarReachability.of((CompilableGrammarRule) grammar.rule(MyGrammar.EXPRESSION)).rulesWhichCannotContain(types(GenericTokenType.IDENTIFIER)))
+      .isEmpty();
+  }
+
+  private static Set<AstNodeType> types(AstNodeType... types) {
+    Set<AstNodeType> result = new HashSet<>();
+    Collections.addAll(result, types);
+    return result;
+  }
+
+}
@@ -41,7 +41,6 @@ import org.sonar.sslr.internal.vm.Instruction.RetInstruction;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -132,12 +131,9 @@ public class InstructionTest {
     assertThat(instruction.equals(new Object())).isFalse();
     assertThat(instruction.hashCode()).isEqualTo(42);
 
-    MachineStack stack = new MachineStack().getOrCreateChild();
-    when(machine.peek()).thenReturn(stack);
     instruction.execute(machine);
     InOrder inOrder = Mockito.inOrder(machine);
-    inOrder.verify(machine, times(2)).peek();
-    inOrder.verify(machine).pop();
+    inOrder.verify(machine).commit();
     inOrder.verify(machine).jump(42);
     verifyNoMoreInteractions(machine);
   }
@@ -152,14 +148,15 @@ public class InstructionTest {
     assertThat(instruction.equals(new Object())).isFalse();
     assertThat(instruction.hashCode()).isEqualTo(42);
 
-    MachineStack stack = new MachineStack().getOrCreateChild();
+    MachineStack stack = new MachineStack();
+    stack.push();
     when(machine.peek()).thenReturn(stack);
     when(machine.getIndex()).thenReturn(13);
     instruction.execute(machine);
     InOrder inOrder = Mockito.inOrder(machine);
     inOrder.verify(machine).getIndex();
-    inOrder.verify(machine, times(3)).peek();
-    inOrder.verify(machine).pop();
+    inOrder.verify(machine).peek();
+    inOrder.verify(machine).commit();
     inOrder.verify(machine).jump(42);
     verifyNoMoreInteractions(machine);
   }
@@ -167,7 +164,8 @@ public class InstructionTest {
   @Test
   public void commitVerify_should_throw_exception() {
     Instruction instruction = Instruction.commitVerify(42);
-    MachineStack stack = new MachineStack().getOrCreateChild();
+    MachineStack stack = new MachineStack();
+    stack.push();
     stack.setIndex(13);
     when(machine.peek()).thenReturn(stack);
     when(machine.getIndex()).thenReturn(13);
@@ -146,4 +146,62 @@ public class MachineIntegrationTest {
     assertThat(Machine.execute("bar", instructions)).isFalse();
   }
 
+  @Test
+  public void till() {
+    Instruction[] instructions = new SequenceExpression(
+        new StringExpression("/*"), new TillStringExpression("*/", true), new StringExpression("x")).compile(new CompilationHandler());
+    assertThat(Machine.execute("/* foo * / */x", instructions)).isTrue();
+    assertThat(Machine.execute("/**/x", instructions)).isTrue();
+    assertThat(Machine.execute("/* foo */ */x", instructions)).isFalse();
+    assertThat(Machine.execute("/* foo *", instructions)).isFalse();
+
+  }
+
+  @Test
+  public void exclusiveTill() {
+    Instruction[] instructions = new SequenceExpression(
+        new TillStringExpression("*/", false), new StringExpression("*/")).compile(new CompilationHandler());
+    assertThat(Machine.execute("foo * / */", instructions)).isTrue();
+    assertThat(Machine.execute("*/", instructions)).isTrue();
+    assertThat(Machine.execute("foo", instructions)).isFalse();
+
+    instructions = new SequenceExpression(
+        new TillStringExpression("*/", false), EndOfInputExpression.INSTANCE).compile(new CompilationHandler());
+    assertThat(Machine.execute("foo *", instructions)).isTrue();
+    assertThat(Machine.execute("", instructions)).isTrue();
+  }
+
+  @Test
+  public void spacing() {
+    Instruction[] instructions = new SequenceExpression(
+        new SpacingExpression("//", "/*", "*/"), new StringExpression("x")).compile(new CompilationHandler());
+    assertThat(Machine.execute("x", instructions)).isTrue();
+    assertThat(Machine.execute(" \t\r\n x", instructions)).isTrue();
+    assertThat(Machine.execute("// foo\n/* bar */ /**/x", instructions)).isTrue();
+    assertThat(Machine.execute("// foo x", instructions)).isFalse();
+    assertThat(Machine.execute("/* foo x", instructions)).isFalse();
+  }
+
+  @Test
+  public void cut() {
+    Instruction[] instructions = new FirstOfExpression(
+        new SequenceExpression(new StringExpression("a"), CutExpression.INSTANCE, new StringExpression("b")),
+        new StringExpression("ac")).compile(new CompilationHandler());
+    assertThat(Machine.execute("ab", instructions)).isTrue();
+    assertThat(Machine.execute("ac", instructions)).isFalse();
+    assertThat(Machine.execute("c", instructions)).isFalse();
+
+    instructions = new SequenceExpression(
+        new ZeroOrMoreExpression(new SequenceExpression(new StringExpression("a"), CutExpression.INSTANCE, new StringExpression("b"))),
+        new StringExpression("a")).compile(new CompilationHandler());
+    assertThat(Machine.execute("aba", instructions)).isFalse();
+    assertThat(Machine.execute("abab", instructions)).isFalse();
+
+    instructions = new SequenceExpression(
+        new OptionalExpression(new SequenceExpression(new StringExpression("a"), CutExpression.INSTANCE, new StringExpression("b"))),
+        new StringExpression("a")).compile(new CompilationHandler());
+    assertThat(Machine.execute("aba", instructions)).isTrue();
+    assertThat(Machine.execute("a", instructions)).isFalse();
+  }
+
 }
@@ -0,0 +1,151 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import org.junit.Test;
+import org.sonar.sslr.internal.matchers.Matcher;
+import org.sonar.sslr.internal.matchers.ParseNode;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MachineStackTest {
+
+  @Test
+  public void test_initial_state() {
+    MachineStack stack = new MachineStack();
+    assertThat(stack.isEmpty()).isTrue();
+    assertThat(stack.size()).isEqualTo(0);
+    assertThat(stack.subNodes()).isEmpty();
+    assertThat(stack.hasPendingAlternative()).isFalse();
+  }
+
+  @Test
+  public void should_keep_nodes_on_commit() {
+    MachineStack stack = new MachineStack();
+    ParseNode first = new ParseNode(0, 1, null);
+    stack.addSubNode(first);
+    stack.push();
+    stack.setIndex(1);
+    ParseNode second = new ParseNode(1, 2, null);
+    stack.addSubNode(second);
+    assertThat(stack.subNodes()).containsOnly(second);
+    stack.commit();
+    assertThat(stack.isEmpty()).isTrue();
+    assertThat(stack.subNodes()).containsExactly(first, second);
+  }
+
+  @Test
+  public void should_discard_nodes_on_pop() {
+    MachineStack stack = new MachineStack();
+    ParseNode first = new ParseNode(0, 1, null);
+    stack.addSubNode(first);
+    stack.push();
+    stack.setIndex(1);
+    stack.addSubNode(new ParseNode(1, 2, null));
+    stack.pop();
+    assertThat(stack.subNodes()).containsOnly(first);
+  }
+
+  @Test
+  public void should_replace_nodes_by_node_of_parent() {
+    MachineStack stack = new MachineStack();
+    stack.push();
+    stack.setIndex(0);
+    stack.addSubNode(new ParseNode(0, 1, null));
+    stack.addSubNode(new ParseNode(1, 2, null));
+    ParseNode node = new ParseNode(0, 2, stack.subNodes(), null);
+    stack.replaceSubNodes(node);
+    assertThat(stack.subNodes()).isEmpty();
+    stack.commit();
+    assertThat(stack.subNodes()).containsOnly(node);
+    assertThat(node.getChildren()).hasSize(2);
+  }
+
+  @Test
+  public void should_grow() {
+    MachineStack stack = new MachineStack();
+    for (int i = 0; i < 1000; i++) {
+      stack.push();
+      stack.setIndex(i);
+      stack.setAddress(i);
+      stack.setIgnoreErrors(i % 2 == 0);
+      stack.addSubNode(new ParseNode(i, i + 1, null));
+    }
+    assertThat(stack.size()).isEqualTo(1000);
+    for (int i = 999; i >= 0; i--) {
+      assertThat(stack.index()).isEqualTo(i);
+      assertThat(stack.address()).isEqualTo(i);
+      assertThat(stack.isIgnoreErrors()).isEqualTo(i % 2 == 0);
+      assertThat(stack.subNodes()).hasSize(1000 - i);
+      stack.commit();
+    }
+    assertThat(stack.subNodes()).hasSize(1000);
+    stack.clear();
+    assertThat(stack.subNodes()).isEmpty();
+  }
+
+  @Test
+  public void should_find_pending_alternative() {
+    MachineStack stack = new MachineStack();
+    stack.push();
+    stack.setIndex(0);
+    assertThat(stack.hasPendingAlternative()).isTrue();
+    stack.setCut(true);
+    assertThat(stack.isCut()).isTrue();
+    assertThat(stack.hasPendingAlternative()).isFalse();
+    stack.push();
+    stack.setIndex(0);
+    stack.setMatcher(new Matcher() {
+    });
+    assertThat(stack.isReturn()).isTrue();
+    assertThat(stack.hasPendingAlternative()).isFalse();
+  }
+
+  @Test
+  public void should_track_pending_alternatives_on_removal_of_frames() {
+    MachineStack stack = new MachineStack();
+    stack.push();
+    stack.setCut(false);
+    stack.push();
+    stack.setMatcher(new Matcher() {
+    });
+    stack.push();
+    stack.setCut(false);
+    stack.pop();
+    assertThat(stack.hasPendingAlternative()).isTrue();
+    stack.commit();
+    assertThat(stack.hasPendingAlternative()).isTrue();
+    stack.setMatcher(new Matcher() {
+    });
+    assertThat(stack.hasPendingAlternative()).isFalse();
+    stack.setMatcher(null);
+    assertThat(stack.hasPendingAlternative()).isTrue();
+    stack.commit();
+    assertThat(stack.hasPendingAlternative()).isFalse();
+
+    stack.push();
+    stack.setCut(false);
+    stack.push();
+    stack.setCut(false);
+    stack.clear();
+    assertThat(stack.hasPendingAlternative()).isFalse();
+  }
+
+}
@@ -85,11 +85,9 @@ public class MachineTest {
     Matcher matcher = mock(Matcher.class);
     machine.advanceIndex(1);
     machine.jump(1);
-    MachineStack previousStack = machine.peek();
     machine.pushReturn(2, matcher, 1);
     assertThat(machine.getAddress()).as("new address").isEqualTo(2);
-    assertThat(machine.peek()).isNotSameAs(previousStack);
-    assertThat(machine.peek().parent()).isSameAs(previousStack);
+    assertThat(machine.peek().size()).isEqualTo(1);
     assertThat(machine.peek().index()).as("current index").isEqualTo(1);
     assertThat(machine.peek().address()).as("return address").isEqualTo(1 + 2);
     assertThat(machine.peek().matcher()).isSameAs(matcher);
@@ -122,10 +120,8 @@ public class MachineTest {
     Machine machine = new Machine("foo", new Instruction[2]);
     machine.advanceIndex(1);
     machine.jump(42);
-    MachineStack previousStack = machine.peek();
     machine.pushBacktrack(13);
-    assertThat(machine.peek()).isNotSameAs(previousStack);
-    assertThat(machine.peek().parent()).isSameAs(previousStack);
+    assertThat(machine.peek().size()).isEqualTo(1);
     assertThat(machine.peek().index()).as("current index").isEqualTo(1);
     assertThat(machine.peek().address()).as("backtrack address").isEqualTo(42 + 13);
     assertThat(machine.peek().matcher()).isNull();
@@ -134,11 +130,24 @@ public class MachineTest {
   @Test
   public void should_pop() {
     Machine machine = new Machine("", new Instruction[2]);
-    MachineStack previousStack = machine.peek();
+    Matcher matcher = mock(Matcher.class);
     machine.pushBacktrack(13);
-    assertThat(machine.peek()).isNotSameAs(previousStack);
+    machine.createLeafNode(matcher, 0);
+    assertThat(machine.peek().size()).isEqualTo(1);
     machine.pop();
-    assertThat(machine.peek()).isSameAs(previousStack);
+    assertThat(machine.peek().isEmpty()).isTrue();
+    assertThat(machine.peek().subNodes()).isEmpty();
+  }
+
+  @Test
+  public void should_commit() {
+    Machine machine = new Machine("", new Instruction[2]);
+    Matcher matcher = mock(Matcher.class);
+    machine.pushBacktrack(13);
+    machine.createLeafNode(matcher, 0);
+    machine.commit();
+    assertThat(machine.peek().isEmpty()).isTrue();
+    assertThat(machine.peek().subNodes()).hasSize(1);
   }
 
   @Test
@@ -156,12 +165,11 @@ public class MachineTest {
   public void should_backtrack() {
     Machine machine = new Machine("", new Instruction[4]);
     Matcher matcher = mock(Matcher.class);
-    MachineStack previousStack = machine.peek();
     machine.pushBacktrack(42);
     machine.pushReturn(13, matcher, 0);
     machine.pushReturn(13, matcher, 1);
     machine.backtrack();
-    assertThat(machine.peek()).isSameAs(previousStack);
+    assertThat(machine.peek().isEmpty()).isTrue();
     assertThat(machine.getAddress()).isEqualTo(42);
   }
 
@@ -189,7 +197,9 @@ public class MachineTest {
     machine.createLeafNode(subMatcher, 2);
     machine.createLeafNode(subMatcher, 3);
     machine.createNode();
-    ParseNode node = machine.peek().parent().subNodes().get(0);
+    assertThat(machine.peek().subNodes()).isEmpty();
+    machine.popReturn();
+    ParseNode node = machine.peek().subNodes().get(0);
     assertThat(node.getMatcher()).isSameAs(matcher);
     assertThat(node.getStartIndex()).isEqualTo(1);
     assertThat(node.getEndIndex()).isEqualTo(1 + 2 + 3);
@@ -205,7 +215,8 @@ public class MachineTest {
     machine.pushReturn(1, matcher, 2);
     machine.advanceIndex(3);
     machine.createNode();
-    ParseNode memo = machine.peek().parent().subNodes().get(0);
+    machine.popReturn();
+    ParseNode memo = machine.peek().subNodes().get(0);
     machine.backtrack();
     machine.pushReturn(2, matcher, 1);
     assertThat(machine.getAddress()).isEqualTo(2);
@@ -246,4 +257,108 @@ public class MachineTest {
     assertThat(machine.peek().subNodes()).isEmpty();
   }
 
+  @Test
+  public void should_memoize_mismatch() {
+    Machine machine = new Machine("foo", new Instruction[3]);
+    MemoParsingExpression matcher = mock(MemoParsingExpression.class);
+    when(matcher.shouldMemoize()).thenReturn(true);
+    machine.pushBacktrack(1);
+    machine.pushBacktrack(2);
+    machine.pushReturn(1, matcher, 2);
+    machine.backtrack();
+    assertThat(machine.getAddress()).isEqualTo(2);
+    // same rule at same index
+    machine.pushReturn(1, matcher, 0);
+    assertThat(machine.getAddress()).isEqualTo(1);
+    assertThat(machine.getIndex()).isEqualTo(0);
+    assertThat(machine.peek().isEmpty()).isTrue();
+  }
+
+  @Test
+  public void should_not_memoize_mismatch() {
+    Machine machine = new Machine("foo", new Instruction[3]);
+    MemoParsingExpression matcher = mock(MemoParsingExpression.class);
+    when(matcher.shouldMemoize()).thenReturn(false);
+    machine.pushBacktrack(1);
+    machine.pushBacktrack(2);
+    machine.pushReturn(1, matcher, 2);
+    machine.backtrack();
+    machine.pushReturn(1, matcher, 0);
+    assertThat(machine.getAddress()).isEqualTo(2);
+    assertThat(machine.peek().matcher()).isSameAs(matcher);
+  }
+
+  @Test
+  public void should_not_use_mismatch_memoized_while_ignoring_errors() {
+    Machine machine = new Machine("foo", new Instruction[3]);
+    MemoParsingExpression matcher = mock(MemoParsingExpression.class);
+    when(matcher.shouldMemoize()).thenReturn(true);
+    machine.pushBacktrack(1);
+    machine.pushBacktrack(2);
+    machine.setIgnoreErrors(true);
+    machine.pushReturn(1, matcher, 2);
+    machine.backtrack();
+    machine.pushReturn(1, matcher, 0);
+    assertThat(machine.getAddress()).isEqualTo(2);
+    assertThat(machine.peek().matcher()).isSameAs(matcher);
+  }
+
+  @Test
+  public void should_cut() {
+    Machine machine = new Machine("foo", new Instruction[3]);
+    Matcher matcher = mock(Matcher.class);
+    machine.pushBacktrack(1);
+    machine.pushReturn(1, matcher, 1);
+    machine.pushBacktrack(2);
+    machine.cut();
+    assertThat(machine.peek().isCut()).isTrue();
+    assertThat(machine.peek().hasPendingAlternative()).isTrue();
+    machine.backtrack();
+    assertThat(machine.getAddress()).isEqualTo(1);
+    assertThat(machine.peek().isEmpty()).isTrue();
+  }
+
+  @Test
+  public void should_not_cut_outside_of_choice() {
+    Machine machine = new Machine("foo", new Instruction[3]);
+    Matcher matcher = mock(Matcher.class);
+    machine.pushBacktrack(1);
+    machine.pushReturn(1, matcher, 1);
+    machine.cut();
+    assertThat(machine.peek().isCut()).isFalse();
+    assertThat(machine.peek().hasPendingAlternative()).isTrue();
+  }
+
+  @Test
+  public void should_release_memos_when_no_alternative_is_pending() {
+    MemoParsingExpression matcher = mock(MemoParsingExpression.class);
+    when(matcher.shouldMemoize()).thenReturn(true);
+
+    Machine machine = new Machine("foo", new Instruction[3]);
+    machine.pushBacktrack(0);
+    machine.pushReturn(1, matcher, 2);
+    machine.advanceIndex(3);
+    machine.createNode();
+    machine.popReturn();
+    machine.pushBacktrack(0);
+    machine.cut();
+    machine.setAddress(0);
+    machine.setIndex(0);
+    machine.pushReturn(1, matcher, 2);
+    assertThat(machine.getIndex()).as("memo used").isEqualTo(3);
+
+    machine = new Machine("foo", new Instruction[3]);
+    machine.pushReturn(1, matcher, 2);
+    machine.advanceIndex(3);
+    machine.createNode();
+    machine.popReturn();
+    machine.pushBacktrack(0);
+    machine.cut();
+    machine.setAddress(0);
+    machine.setIndex(0);
+    machine.pushReturn(1, matcher, 2);
+    assertThat(machine.getIndex()).as("memo released").isEqualTo(0);
+    assertThat(machine.peek().matcher()).isSameAs(matcher);
+  }
+
 }
@@ -0,0 +1,113 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MismatchMemosTest {
+
+  @Test
+  public void should_add_and_find_mismatches() {
+    MismatchMemos mismatches = new MismatchMemos(10);
+    assertThat(mismatches.contains(0, 0, false)).isFalse();
+    mismatches.add(0, 0, false);
+    mismatches.add(3, 9, false);
+    mismatches.add(3, 9, false);
+    assertThat(mismatches.size()).isEqualTo(2);
+    assertThat(mismatches.contains(0, 0, false)).isTrue();
+    assertThat(mismatches.contains(0, 0, true)).isTrue();
+    assertThat(mismatches.contains(3, 9, false)).isTrue();
+    assertThat(mismatches.contains(4, 9, false)).isFalse();
+    assertThat(mismatches.contains(3, 8, false)).isFalse();
+  }
+
+  @Test
+  public void mismatch_recorded_while_ignoring_errors_should_be_used_only_while_ignoring_errors() {
+    MismatchMemos mismatches = new MismatchMemos(10);
+    mismatches.add(1, 2, true);
+    assertThat(mismatches.contains(1, 2, true)).isTrue();
+    assertThat(mismatches.contains(1, 2, false)).isFalse();
+  }
+
+  @Test
+  public void should_grow() {
+    MismatchMemos mismatches = new MismatchMemos(100);
+    for (int index = 0; index < 1000; index++) {
+      mismatches.add(index, index % 100, false);
+    }
+    assertThat(mismatches.size()).isEqualTo(1000);
+    for (int index = 0; index < 1000; index++) {
+      assertThat(mismatches.contains(index, index % 100, false)).isTrue();
+      assertThat(mismatches.contains(index, (index + 1) % 100, false)).isFalse();
+    }
+  }
+
+  @Test
+  public void should_remove_mismatches_before_index() {
+    MismatchMemos mismatches = new MismatchMemos(10);
+    mismatches.add(1, 9, false);
+    mismatches.add(2, 0, true);
+    mismatches.add(3, 5, false);
+    mismatches.removeBefore(2);
+    assertThat(mismatches.size()).isEqualTo(2);
+    assertThat(mismatches.contains(1, 9, false)).isFalse();
+    assertThat(mismatches.contains(2, 0, true)).isTrue();
+    assertThat(mismatches.contains(3, 5, false)).isTrue();
+  }
+
+  @Test
+  public void should_keep_mismatches_when_none_before_index() {
+    MismatchMemos mismatches = new MismatchMemos(10);
+    mismatches.add(5, 1, false);
+    mismatches.add(7, 0, true);
+    mismatches.removeBefore(3);
+    mismatches.removeBefore(5);
+    assertThat(mismatches.size()).isEqualTo(2);
+    assertThat(mismatches.contains(5, 1, false)).isTrue();
+    mismatches.removeBefore(6);
+    assertThat(mismatches.size()).isEqualTo(1);
+    assertThat(mismatches.contains(7, 0, true)).isTrue();
+    mismatches.removeBefore(8);
+    assertThat(mismatches.size()).isEqualTo(0);
+    mismatches.add(9, 2, false);
+    assertThat(mismatches.contains(9, 2, false)).isTrue();
+  }
+
+  @Test
+  public void should_shrink_on_removal() {
+    MismatchMemos mismatches = new MismatchMemos(100);
+    for (int index = 0; index < 1000; index++) {
+      mismatches.add(index, index % 100, false);
+    }
+    mismatches.removeBefore(998);
+    assertThat(mismatches.size()).isEqualTo(2);
+    assertThat(mismatches.contains(998, 98, false)).isTrue();
+    assertThat(mismatches.contains(999, 99, false)).isTrue();
+    assertThat(mismatches.contains(997, 97, false)).isFalse();
+    for (int index = 1000; index < 1100; index++) {
+      mismatches.add(index, index % 100, false);
+    }
+    assertThat(mismatches.size()).isEqualTo(102);
+    assertThat(mismatches.contains(1050, 50, false)).isTrue();
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+import org.sonar.sslr.internal.matchers.AstCreator;
+import org.sonar.sslr.internal.matchers.LocatedText;
+import org.sonar.sslr.internal.matchers.Matcher;
+import org.sonar.sslr.parser.ParseRunner;
+import org.sonar.sslr.parser.ParsingResult;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+public class SpacingExpressionTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private SpacingExpression expression = new SpacingExpression("//", "/*", "*/");
+  private Machine machine = mock(Machine.class);
+
+  private enum MyGrammar implements GrammarRuleKey {
+    LIST, SPACING
+  }
+
+  @Test
+  public void should_compile() {
+    assertThat(expression.compile(new CompilationHandler())).containsOnly(expression);
+    assertThat(expression.toString()).isEqualTo("Spacing[//, /* */]");
+    assertThat(new SpacingExpression(null, "/*", "*/").toString()).isEqualTo("Spacing[/* */]");
+    assertThat(new SpacingExpression("#", null, null).toString()).isEqualTo("Spacing[#]");
+    assertThat(new SpacingExpression(null, null, null).toString()).isEqualTo("Spacing");
+  }
+
+  @Test
+  public void should_not_accept_empty_delimiter() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Comment delimiters must not be empty");
+    new SpacingExpression("", null, null);
+  }
+
+  @Test
+  public void should_not_accept_block_comment_without_end() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Both start and end of block comments must be specified");
+    new SpacingExpression(null, "/*", null);
+  }
+
+  @Test
+  public void should_reuse_previous_result() {
+    when(machine.getSpacing(expression)).thenReturn(new SpacingExpression.Spacing(7, new int[] {1, 4}));
+    expression.execute(machine);
+    InOrder inOrder = Mockito.inOrder(machine);
+    inOrder.verify(machine).getSpacing(expression);
+    inOrder.verify(machine).advanceIndex(1);
+    inOrder.verify(machine).createLeafNode(Mockito.any(Matcher.class), Mockito.eq(3));
+    inOrder.verify(machine).advanceIndex(3);
+    inOrder.verify(machine).jump(1);
+    verifyNoMoreInteractions(machine);
+  }
+
+  @Test
+  public void should_record_result() {
+    Machine machine = new Machine(" // foo\n /* bar */ x", new Instruction[] {expression});
+    expression.execute(machine);
+    assertThat(machine.getIndex()).isEqualTo(19);
+    assertThat(machine.peek().subNodes()).hasSize(2);
+
+    machine.setIndex(0);
+    SpacingExpression.Spacing spacing = machine.getSpacing(expression);
+    assertThat(spacing.length).isEqualTo(19);
+    assertThat(spacing.comments).isEqualTo(new int[] {1, 7, 9, 18});
+    assertThat(machine.getSpacing(new SpacingExpression("//", "/*", "*/"))).isNull();
+    machine.setIndex(1);
+    assertThat(machine.getSpacing(expression)).isNull();
+  }
+
+  @Test
+  public void should_produce_same_tree_as_equivalent_rule() {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    b.rule(MyGrammar.SPACING).is(
+      b.skippedTrivia(b.regexp("\\s*+")),
+      b.zeroOrMore(
+        b.commentTrivia(b.firstOf(b.regexp("//[^\\n\\r]*+"), b.sequence("/*", b.till("*/")))),
+        b.skippedTrivia(b.regexp("\\s*+")))).skip();
+    b.rule(MyGrammar.LIST).is(MyGrammar.SPACING, "(", b.zeroOrMore(MyGrammar.SPACING, b.firstOf("foo", "bar")), MyGrammar.SPACING, ")", MyGrammar.SPACING);
+    ParseRunner rule = new ParseRunner(b.build().rule(MyGrammar.LIST));
+
+    b = LexerlessGrammarBuilder.create();
+    Object spacing = b.spacing("//", "/*", "*/");
+    b.rule(MyGrammar.LIST).is(spacing, "(", b.zeroOrMore(spacing, b.firstOf("foo", "bar")), spacing, ")", spacing);
+    ParseRunner intrinsic = new ParseRunner(b.build().rule(MyGrammar.LIST));
+
+    for (String input : new String[] {"()", " ( foo bar ) ", "// a\n(/* b */foo // c\r\n /* d */ /* e */ bar)// f", "(foo /* bar */", "(foo bar"}) {
+      assertThat(parse(intrinsic, input)).isEqualTo(parse(rule, input));
+    }
+    // unlike the equivalent rule, which fails at the end of input, unterminated comment is not consumed at all
+    assertThat(parse(intrinsic, "(foo /* bar)")).isEqualTo("error at 5");
+  }
+
+  private static String parse(ParseRunner runner, String input) {
+    ParsingResult result = runner.parse(input.toCharArray());
+    if (!result.isMatched()) {
+      return "error at " + result.getParseError().getErrorIndex();
+    }
+    StringBuilder sb = new StringBuilder();
+    for (Token token : AstCreator.create(result, new LocatedText(null, input.toCharArray())).getTokens()) {
+      sb.append(token.getValue()).append(' ').append(token.getLine()).append(':').append(token.getColumn());
+      for (Trivia trivia : token.getTrivia()) {
+        Token comment = trivia.getToken();
+        assertThat(comment.getType()).isSameAs(GenericTokenType.COMMENT);
+        sb.append(" [").append(comment.getValue()).append(' ').append(comment.getLine()).append(':').append(comment.getColumn()).append(']');
+      }
+      sb.append('\n');
+    }
+    return sb.toString();
+  }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+public class TillStringExpressionTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private TillStringExpression expression = new TillStringExpression("*/", true);
+  private Machine machine = mock(Machine.class);
+
+  @Test
+  public void should_compile() {
+    assertThat(expression.compile(new CompilationHandler())).containsOnly(expression);
+    assertThat(expression.toString()).isEqualTo("Till */");
+    assertThat(new TillStringExpression("*/", false).toString()).isEqualTo("ExclusiveTill */");
+  }
+
+  @Test
+  public void should_not_accept_empty_terminator() {
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Terminator must not be empty");
+    new TillStringExpression("", true);
+  }
+
+  @Test
+  public void should_match() {
+    when(machine.indexOf("*/")).thenReturn(3);
+    expression.execute(machine);
+    InOrder inOrder = Mockito.inOrder(machine);
+    inOrder.verify(machine).indexOf("*/");
+    inOrder.verify(machine).createLeafNode(expression, 3 + 2);
+    inOrder.verify(machine).jump(1);
+    verifyNoMoreInteractions(machine);
+  }
+
+  @Test
+  public void should_backtrack() {
+    when(machine.indexOf("*/")).thenReturn(-1);
+    when(machine.length()).thenReturn(5);
+    expression.execute(machine);
+    InOrder inOrder = Mockito.inOrder(machine);
+    inOrder.verify(machine).indexOf("*/");
+    inOrder.verify(machine).length();
+    inOrder.verify(machine).advanceIndex(5);
+    inOrder.verify(machine).backtrack();
+    verifyNoMoreInteractions(machine);
+  }
+
+  @Test
+  public void should_match_before_terminator() {
+    TillStringExpression expression = new TillStringExpression("*/", false);
+    when(machine.indexOf("*/")).thenReturn(3);
+    expression.execute(machine);
+    InOrder inOrder = Mockito.inOrder(machine);
+    inOrder.verify(machine).indexOf("*/");
+    inOrder.verify(machine).createLeafNode(expression, 3);
+    inOrder.verify(machine).jump(1);
+    verifyNoMoreInteractions(machine);
+  }
+
+  @Test
+  public void should_match_till_end_of_input() {
+    TillStringExpression expression = new TillStringExpression("*/", false);
+    when(machine.indexOf("*/")).thenReturn(-1);
+    when(machine.length()).thenReturn(5);
+    expression.execute(machine);
+    InOrder inOrder = Mockito.inOrder(machine);
+    inOrder.verify(machine).indexOf("*/");
+    inOrder.verify(machine).length();
+    inOrder.verify(machine).createLeafNode(expression, 5);
+    inOrder.verify(machine).jump(1);
+    verifyNoMoreInteractions(machine);
+  }
+
+  @Test
+  public void should_not_create_empty_node() {
+    TillStringExpression expression = new TillStringExpression("*/", false);
+    when(machine.indexOf("*/")).thenReturn(0);
+    expression.execute(machine);
+    InOrder inOrder = Mockito.inOrder(machine);
+    inOrder.verify(machine).indexOf("*/");
+    inOrder.verify(machine).jump(1);
+    verifyNoMoreInteractions(machine);
+  }
+
+}
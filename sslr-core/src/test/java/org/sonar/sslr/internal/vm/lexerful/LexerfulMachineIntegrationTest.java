@@ -80,6 +80,28 @@ public class LexerfulMachineIntegrationTest {
     assertThat(Machine.execute(instructions, tokens)).isTrue();
   }
 
+  @Test
+  public void till() {
+    Instruction[] instructions = new TillTokenExpression(true, new TokenTypeExpression(GenericTokenType.LITERAL)).compile(new CompilationHandler());
+    tokens = new Token[] {token(GenericTokenType.IDENTIFIER), token(GenericTokenType.IDENTIFIER), token(GenericTokenType.LITERAL)};
+    assertThat(Machine.execute(instructions, tokens)).isTrue();
+    tokens = new Token[] {token(GenericTokenType.LITERAL)};
+    assertThat(Machine.execute(instructions, tokens)).isTrue();
+    tokens = new Token[] {token(GenericTokenType.IDENTIFIER)};
+    assertThat(Machine.execute(instructions, tokens)).isFalse();
+  }
+
+  @Test
+  public void exclusiveTill() {
+    Instruction[] instructions = new SequenceExpression(
+        new TillTokenExpression(false, new TokenTypeExpression(GenericTokenType.LITERAL), new TokenTypeExpression(GenericTokenType.EOF)),
+        new TokenTypeExpression(GenericTokenType.LITERAL)).compile(new CompilationHandler());
+    tokens = new Token[] {token(GenericTokenType.IDENTIFIER), token(GenericTokenType.LITERAL)};
+    assertThat(Machine.execute(instructions, tokens)).isTrue();
+    tokens = new Token[] {token(GenericTokenType.IDENTIFIER), token(GenericTokenType.EOF), token(GenericTokenType.LITERAL)};
+    assertThat(Machine.execute(instructions, tokens)).isFalse();
+  }
+
   @Test
   public void tokenTypeClass() {
     Instruction[] instructions = new TokenTypeClassExpression(GenericTokenType.class).compile(new CompilationHandler());
@@ -0,0 +1,127 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.sslr.internal.vm.lexerful;
+
+import com.sonar.sslr.api.Token;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.sonar.sslr.internal.vm.CompilationHandler;
+import org.sonar.sslr.internal.vm.Machine;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+public class TillTokenExpressionTest {
+
+  private Token terminatorToken = mock(Token.class);
+  private Token otherToken = mock(Token.class);
+  private SingleTokenExpression terminator = mock(SingleTokenExpression.class);
+  private Machine machine = mock(Machine.class);
+
+  public TillTokenExpressionTest() {
+    when(terminator.matches(terminatorToken)).thenReturn(true);
+  }
+
+  @Test
+  public void should_compile() {
+    TillTokenExpression expression = new TillTokenExpression(true, terminator);
+    assertThat(expression.compile(new CompilationHandler())).containsOnly(expression);
+    assertThat(expression.toString()).isEqualTo("Till[" + terminator + "]");
+    assertThat(new TillTokenExpression(false, terminator).toString()).isEqualTo("ExclusiveTill[" + terminator + "]");
+  }
+
+  @Test
+  public void should_match_inclusive() {
+    TillTokenExpression expression = new TillTokenExpression(true, terminator);
+    when(machine.length()).thenReturn(4);
+    when(machine.tokenAt(0)).thenReturn(otherToken);
+    when(machine.tokenAt(1)).thenReturn(otherToken);
+    when(machine.tokenAt(2)).thenReturn(terminatorToken);
+    expression.execute(machine);
+    InOrder inOrder = Mockito.inOrder(machine);
+    inOrder.verify(machine).length();
+    inOrder.verify(machine).tokenAt(0);
+    inOrder.verify(machine).tokenAt(1);
+    inOrder.verify(machine).tokenAt(2);
+    inOrder.verify(machine).createLeafNode(expression, 2);
+    inOrder.verify(machine).createLeafNode(terminator, 1);
+    inOrder.verify(machine).jump(1);
+    verifyNoMoreInteractions(machine);
+  }
+
+  @Test
+  public void should_match_only_terminator() {
+    TillTokenExpression expression = new TillTokenExpression(true, terminator);
+    when(machine.length()).thenReturn(1);
+    when(machine.tokenAt(0)).thenReturn(terminatorToken);
+    expression.execute(machine);
+    InOrder inOrder = Mockito.inOrder(machine);
+    inOrder.verify(machine).length();
+    inOrder.verify(machine).tokenAt(0);
+    inOrder.verify(machine).createLeafNode(terminator, 1);
+    inOrder.verify(machine).jump(1);
+    verifyNoMoreInteractions(machine);
+  }
+
+  @Test
+  public void should_backtrack_at_end_of_input() {
+    TillTokenExpression expression = new TillTokenExpression(true, terminator);
+    when(machine.length()).thenReturn(1);
+    when(machine.tokenAt(0)).thenReturn(otherToken);
+    expression.execute(machine);
+    InOrder inOrder = Mockito.inOrder(machine);
+    inOrder.verify(machine).length();
+    inOrder.verify(machine).tokenAt(0);
+    inOrder.verify(machine).advanceIndex(1);
+    inOrder.verify(machine).backtrack();
+    verifyNoMoreInteractions(machine);
+  }
+
+  @Test
+  public void should_match_exclusive() {
+    TillTokenExpression expression = new TillTokenExpression(false, terminator);
+    when(machine.length()).thenReturn(3);
+    when(machine.tokenAt(0)).thenReturn(otherToken);
+    when(machine.tokenAt(1)).thenReturn(terminatorToken);
+    expression.execute(machine);
+    InOrder inOrder = Mockito.inOrder(machine);
+    inOrder.verify(machine).length();
+    inOrder.verify(machine).tokenAt(0);
+    inOrder.verify(machine).tokenAt(1);
+    inOrder.verify(machine).createLeafNode(expression, 1);
+    inOrder.verify(machine).jump(1);
+    verifyNoMoreInteractions(machine);
+  }
+
+  @Test
+  public void should_match_exclusive_till_end_of_input() {
+    TillTokenExpression expression = new TillTokenExpression(false, terminator);
+    when(machine.length()).thenReturn(0);
+    expression.execute(machine);
+    InOrder inOrder = Mockito.inOrder(machine);
+    inOrder.verify(machine).length();
+    inOrder.verify(machine).jump(1);
+    verifyNoMoreInteractions(machine);
+  }
+
+}
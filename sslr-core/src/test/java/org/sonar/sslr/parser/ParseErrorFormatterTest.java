@@ -51,4 +51,28 @@ public class ParseErrorFormatterTest {
     assertThat(result).isEqualTo(expected);
   }
 
+  @Test
+  public void should_pad_line_numbers() {
+    InputBuffer inputBuffer = new ImmutableInputBuffer("1\n2\n3\n4\n5\n6\n7\n8\n9\n10\n11".toCharArray());
+    String result = formatter.format(new ParseError(inputBuffer, 0));
+    String expected = new StringBuilder()
+        .append("Parse error at line 1 column 1:\n")
+        .append('\n')
+        .append(" 1: 1\n")
+        .append("    ^\n")
+        .append(" 2: 2\n")
+        .append(" 3: 3\n")
+        .append(" 4: 4\n")
+        .append(" 5: 5\n")
+        .append(" 6: 6\n")
+        .append(" 7: 7\n")
+        .append(" 8: 8\n")
+        .append(" 9: 9\n")
+        .append("10: 10\n")
+        .append("11: 11\n")
+        .toString();
+
+    assertThat(result).isEqualTo(expected);
+  }
+
 }
@@ -24,6 +24,13 @@ import com.sonar.sslr.api.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.sslr.internal.grammar.MutableParsingRule;
+import org.sonar.sslr.internal.matchers.InputBuffer.Position;
+import org.sonar.sslr.internal.matchers.ParseNode;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 import static org.fest.assertions.Assertions.assertThat;
 
@@ -133,4 +140,118 @@ public class ParseRunnerTest {
     assertThat(parseError.getErrorIndex()).isEqualTo(0);
   }
 
+  @Test
+  public void should_parse_items_of_streamed_input() throws Exception {
+    Rule line = new MutableParsingRule("line").is(GrammarOperators.regexp("[^\n]*+\n"));
+    Rule rule = new MutableParsingRule("rule").is(GrammarOperators.zeroOrMore(line), GrammarOperators.endOfInput());
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      sb.append("item ").append(i).append('\n');
+    }
+    final List<String> items = new ArrayList<>();
+    final List<Integer> lines = new ArrayList<>();
+    ParseError parseError = new ParseRunner(rule).parse(new StringReader(sb.toString()), new Consumer<ParsingResult>() {
+      @Override
+      public void accept(ParsingResult result) {
+        ParseNode item = result.getParseTreeRoot();
+        StringBuilder text = new StringBuilder();
+        for (int i = item.getStartIndex(); i < item.getEndIndex(); i++) {
+          text.append(result.getInputBuffer().charAt(i));
+        }
+        items.add(text.toString());
+        lines.add(result.getInputBuffer().getPosition(item.getStartIndex()).getLine());
+      }
+    });
+    assertThat(parseError).isNull();
+    assertThat(items.size()).isEqualTo(5000);
+    assertThat(items.get(0)).isEqualTo("item 0\n");
+    assertThat(items.get(4999)).isEqualTo("item 4999\n");
+    assertThat(lines.get(4999)).isEqualTo(5000);
+  }
+
+  @Test
+  public void should_not_split_line_terminator_at_end_of_streamed_chunk() throws Exception {
+    Rule item = new MutableParsingRule("item").is(GrammarOperators.firstOf(GrammarOperators.regexp("[^\r\n]++"), "\r", "\n"));
+    Rule rule = new MutableParsingRule("rule").is(GrammarOperators.zeroOrMore(item), GrammarOperators.endOfInput());
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 8190; i++) {
+      sb.append('a');
+    }
+    // first chunk of 8192 characters ends between the two carriage returns
+    sb.append("\n\r\r\nfoo\nbar\n");
+    final List<Integer> lines = new ArrayList<>();
+    ParseError parseError = new ParseRunner(rule).parse(new StringReader(sb.toString()), new Consumer<ParsingResult>() {
+      @Override
+      public void accept(ParsingResult result) {
+        lines.add(result.getInputBuffer().getPosition(result.getParseTreeRoot().getStartIndex()).getLine());
+      }
+    });
+    assertThat(parseError).isNull();
+    assertThat(lines).containsExactly(1, 1, 2, 3, 3, 4, 4, 5, 5);
+  }
+
+  @Test
+  public void should_read_streamed_input_until_end_of_large_item() throws Exception {
+    Rule item = new MutableParsingRule("item").is("<", GrammarOperators.regexp("[^>]*+"), ">");
+    Rule rule = new MutableParsingRule("rule").is(GrammarOperators.zeroOrMore(item));
+    StringBuilder sb = new StringBuilder("<");
+    for (int i = 0; i < 100000; i++) {
+      sb.append('a');
+    }
+    sb.append("><b>");
+    final List<Integer> lengths = new ArrayList<>();
+    ParseError parseError = new ParseRunner(rule).parse(new StringReader(sb.toString()), new Consumer<ParsingResult>() {
+      @Override
+      public void accept(ParsingResult result) {
+        lengths.add(result.getParseTreeRoot().getEndIndex() - result.getParseTreeRoot().getStartIndex());
+      }
+    });
+    assertThat(parseError).isNull();
+    assertThat(lengths).containsExactly(100002, 3);
+  }
+
+  @Test
+  public void should_report_error_in_streamed_input() throws Exception {
+    Rule line = new MutableParsingRule("line").is("foo", GrammarOperators.regexp("\n"));
+    Rule rule = new MutableParsingRule("rule").is(GrammarOperators.zeroOrMore(line), GrammarOperators.endOfInput());
+    final List<ParsingResult> items = new ArrayList<>();
+    ParseError parseError = new ParseRunner(rule).parse(new StringReader("foo\nfoo\nbar\n"), new Consumer<ParsingResult>() {
+      @Override
+      public void accept(ParsingResult result) {
+        items.add(result);
+      }
+    });
+    assertThat(items.size()).isEqualTo(2);
+    assertThat(parseError.getInputBuffer().getPosition(parseError.getErrorIndex())).isEqualTo(new Position(3, 1));
+    assertThat(new ParseErrorFormatter().format(parseError)).isEqualTo("Parse error at line 3 column 1:\n\n1: foo\n2: foo\n3: bar\n   ^\n4: \n");
+  }
+
+  @Test
+  public void should_stop_streamed_parse_at_first_mismatch_without_end_of_input() throws Exception {
+    Rule line = new MutableParsingRule("line").is("foo");
+    Rule rule = new MutableParsingRule("rule").is(GrammarOperators.zeroOrMore(line));
+    final List<ParsingResult> items = new ArrayList<>();
+    ParseError parseError = new ParseRunner(rule).parse(new StringReader("foofoobar"), new Consumer<ParsingResult>() {
+      @Override
+      public void accept(ParsingResult result) {
+        items.add(result);
+      }
+    });
+    assertThat(parseError).isNull();
+    assertThat(items.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void should_not_stream_root_rule_of_other_form() throws Exception {
+    Rule rule = new MutableParsingRule("rule").is(GrammarOperators.zeroOrMore("foo"));
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("Root rule must be of the form zeroOrMore(item)");
+    new ParseRunner(rule).parse(new StringReader("foo"), new Consumer<ParsingResult>() {
+      @Override
+      public void accept(ParsingResult result) {
+        // nop
+      }
+    });
+  }
+
 }
@@ -21,6 +21,7 @@ package org.sonar.sslr.parser;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.Files;
+import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.RecognitionException;
 import com.sonar.sslr.api.Token;
 import com.sonar.sslr.impl.Parser;
@@ -29,12 +30,17 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
 import org.sonar.sslr.internal.matchers.ExpressionGrammar;
 
 import java.io.File;
+import java.io.StringReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.fest.assertions.Assertions.assertThat;
 
@@ -86,6 +92,107 @@ public class ParserAdapterTest {
     parser.parse(file);
   }
 
+  @Test
+  public void should_parse_streamed_input_with_positions_in_whole_input() {
+    ParserAdapter<LexerlessGrammar> streamParser = streamParser();
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      sb.append("item ").append(i).append(';');
+      if (i % 2 == 1) {
+        sb.append('\n');
+      }
+    }
+    final List<AstNode> items = new ArrayList<>();
+    streamParser.parse(new StringReader(sb.toString()), new Consumer<AstNode>() {
+      @Override
+      public void accept(AstNode item) {
+        items.add(item);
+      }
+    });
+    assertThat(items.size()).isEqualTo(5000);
+    AstNode lastButOne = items.get(4998);
+    assertThat(lastButOne.getTokenLine()).isEqualTo(2500);
+    assertThat(lastButOne.getToken().getColumn()).isEqualTo(0);
+    assertThat(lastButOne.getTokens().get(1).getValue()).isEqualTo("4998");
+    assertThat(lastButOne.getTokens().get(1).getColumn()).isEqualTo(5);
+    AstNode last = items.get(4999);
+    assertThat(last.getTokenLine()).isEqualTo(2500);
+    assertThat(last.getToken().getColumn()).isEqualTo(10);
+    assertThat(last.getTokens().get(1).getColumn()).isEqualTo(15);
+  }
+
+  @Test
+  public void should_parse_streamed_input_on_single_line() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      sb.append("item 0;");
+    }
+    final List<Integer> columns = new ArrayList<>();
+    streamParser().parse(new StringReader(sb.toString()), new Consumer<AstNode>() {
+      @Override
+      public void accept(AstNode item) {
+        assertThat(item.getTokenLine()).isEqualTo(1);
+        columns.add(item.getToken().getColumn());
+      }
+    });
+    assertThat(columns.size()).isEqualTo(5000);
+    assertThat(columns.get(4999)).isEqualTo(4999 * 7);
+  }
+
+  @Test
+  public void should_not_parse_invalid_streamed_input() {
+    thrown.expect(RecognitionException.class);
+    thrown.expectMessage("Parse error at line 2 column 1");
+    streamParser().parse(new StringReader("item 1;\nfoo"), new Consumer<AstNode>() {
+      @Override
+      public void accept(AstNode item) {
+        // ignored
+      }
+    });
+  }
+
+  @Test
+  public void should_parse_streamed_file() throws Exception {
+    File file = temporaryFolder.newFile();
+    Files.write("item 1;\nitem 2;", file, StandardCharsets.UTF_8);
+    final List<AstNode> items = new ArrayList<>();
+    streamParser().parse(file, new Consumer<AstNode>() {
+      @Override
+      public void accept(AstNode item) {
+        items.add(item);
+      }
+    });
+    assertThat(items.size()).isEqualTo(2);
+    assertThat(items.get(1).getTokenLine()).isEqualTo(2);
+    assertThat(items.get(1).getToken().getURI()).isEqualTo(file.toURI());
+  }
+
+  @Test
+  public void should_not_parse_streamed_file_not_found() {
+    thrown.expect(RecognitionException.class);
+    streamParser().parse(new File("notfound"), new Consumer<AstNode>() {
+      @Override
+      public void accept(AstNode item) {
+        // ignored
+      }
+    });
+  }
+
+  private enum StreamRuleKeys implements GrammarRuleKey {
+    ITEMS, ITEM, KEYWORD, NUMBER, SPACING
+  }
+
+  private static ParserAdapter<LexerlessGrammar> streamParser() {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    b.rule(StreamRuleKeys.SPACING).is(b.skippedTrivia(b.regexp("\\s*+")));
+    b.rule(StreamRuleKeys.KEYWORD).is(b.regexp("item"), StreamRuleKeys.SPACING);
+    b.rule(StreamRuleKeys.NUMBER).is(b.regexp("[0-9]++"), StreamRuleKeys.SPACING);
+    b.rule(StreamRuleKeys.ITEM).is(StreamRuleKeys.KEYWORD, StreamRuleKeys.NUMBER, ";", StreamRuleKeys.SPACING);
+    b.rule(StreamRuleKeys.ITEMS).is(b.zeroOrMore(StreamRuleKeys.ITEM), b.endOfInput());
+    b.setRootRule(StreamRuleKeys.ITEMS);
+    return new ParserAdapter<>(StandardCharsets.UTF_8, b.build());
+  }
+
   @Test
   public void builder_should_not_create_new_instance_from_adapter() {
     assertThat(Parser.builder(parser).build()).isSameAs(parser);
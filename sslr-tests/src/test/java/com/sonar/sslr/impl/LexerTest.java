@@ -0,0 +1,299 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl;
+
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.api.Trivia;
+import com.sonar.sslr.impl.channel.BlackHoleChannel;
+import com.sonar.sslr.impl.channel.IdentifierAndKeywordChannel;
+import com.sonar.sslr.impl.channel.UnknownCharacterChannel;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.sslr.channel.Channel;
+import org.sonar.sslr.channel.CodeReader;
+import org.sonar.sslr.channel.CodeReaderFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import static com.sonar.sslr.impl.channel.RegexpChannelBuilder.commentRegexp;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class LexerTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  /**
+   * Line starts, which are not within a comment.
+   */
+  private static final SafeSplitPointFinder LINE_STARTS = new SafeSplitPointFinder() {
+    @Override
+    public int nextSafeSplitPoint(CharSequence code, int previousSplitPoint, int fromOffset) {
+      boolean inComment = false;
+      for (int i = previousSplitPoint + 1; i < code.length(); i++) {
+        char previous = code.charAt(i - 1);
+        if (inComment) {
+          inComment = !(previous == '*' && code.charAt(i) == '/');
+        } else if (previous == '/' && code.charAt(i) == '*') {
+          inComment = true;
+        } else if (i >= fromOffset && (previous == '\n' || previous == '\r')) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  };
+
+  private static final Supplier<Lexer> LEXERS = new Supplier<Lexer>() {
+    @Override
+    public Lexer get() {
+      return builder().build();
+    }
+  };
+
+  private static Lexer.Builder builder() {
+    return Lexer.builder()
+      .withChannel(new BlackHoleChannel("\\s++"))
+      .withChannel(commentRegexp("/\\*[\\s\\S]*?\\*/"))
+      .withChannel(new IdentifierAndKeywordChannel("\\w++", true))
+      .withChannel(new UnknownCharacterChannel());
+  }
+
+  @Test
+  public void parallel_lexing_should_produce_same_tokens_as_sequential_lexing() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      sb.append("foo bar /* comment\n on two lines */\r\n\tbaz;\r");
+      if (i % 7 == 0) {
+        sb.append("/* trailing comment */\n\n");
+      }
+    }
+    String code = sb.toString();
+
+    List<Token> expected = builder().build().lex(code);
+    for (int chunkSize : new int[] {1, 10, 100, 1000, code.length()}) {
+      List<Token> actual = builder().withParallelLexing(LINE_STARTS, chunkSize, LEXERS).build().lex(code);
+      assertThat(describe(actual)).as("chunk size " + chunkSize).isEqualTo(describe(expected));
+    }
+  }
+
+  @Test(expected = LexerException.class)
+  public void parallel_lexing_should_propagate_failures() {
+    Lexer lexer = Lexer.builder()
+      .withFailIfNoChannelToConsumeOneCharacter(true)
+      .withParallelLexing(LINE_STARTS, 1, new Supplier<Lexer>() {
+        @Override
+        public Lexer get() {
+          return Lexer.builder().withFailIfNoChannelToConsumeOneCharacter(true).withChannel(new BlackHoleChannel("\\s++")).build();
+        }
+      })
+      .build();
+    lexer.lex(" \n \n x \n");
+  }
+
+  @Test
+  public void parallel_lexing_should_report_failure_position_in_whole_code() {
+    String code = " \n \n  x \n";
+    Lexer.Builder builder = Lexer.builder()
+      .withFailIfNoChannelToConsumeOneCharacter(true)
+      .withChannel(new BlackHoleChannel("\\s++"));
+    String expected = null;
+    try {
+      builder.build().lex(code);
+    } catch (LexerException e) {
+      expected = e.getCause().getMessage();
+    }
+    assertThat(expected).contains("line : 3 and column : 2");
+
+    try {
+      builder.withParallelLexing(LINE_STARTS, 1, new Supplier<Lexer>() {
+        @Override
+        public Lexer get() {
+          return Lexer.builder().withFailIfNoChannelToConsumeOneCharacter(true).withChannel(new BlackHoleChannel("\\s++")).build();
+        }
+      }).build().lex(code);
+      throw new AssertionError("expected exception");
+    } catch (LexerException e) {
+      assertThat(e.getCause().getMessage()).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  public void parallel_lexing_should_apply_code_reader_filters() {
+    String code = "foo\\\nbar /* comment */\nbaz \\\n\nqux\n";
+    List<Token> expected = builder().withCodeReaderFilter(new LineContinuationFilter()).build().lex(code);
+    assertThat(expected.get(0).getValue()).isEqualTo("foobar");
+
+    List<Token> actual = builder().withCodeReaderFilter(new LineContinuationFilter()).withParallelLexing(LINE_STARTS, 1, LEXERS).build().lex(code);
+    assertThat(describe(actual)).isEqualTo(describe(expected));
+  }
+
+  @Test
+  public void parallel_lexing_should_work_within_task_of_common_pool() throws Exception {
+    final String code = "foo\nbar\nbaz\n";
+    List<String> expected = describe(builder().build().lex(code));
+    List<Token> actual = ForkJoinPool.commonPool().submit(new Callable<List<Token>>() {
+      @Override
+      public List<Token> call() {
+        return builder().withParallelLexing(LINE_STARTS, 1, LEXERS).build().lex(code);
+      }
+    }).get();
+    assertThat(describe(actual)).isEqualTo(expected);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void chunk_size_should_be_positive() {
+    Lexer.builder().withParallelLexing(LINE_STARTS, 0, LEXERS);
+  }
+
+  @Test
+  public void cached_tokens_should_not_be_lexed_again() throws Exception {
+    String code = "foo /* comment */\n  bar /* trailing */";
+    List<String> expected = describe(builder().build().lex(code));
+
+    for (TokenCache cache : new TokenCache[] {new InMemoryTokenCache(10), new FileTokenCache(temporaryFolder.newFolder(), 10)}) {
+      CountingChannel channel = new CountingChannel();
+      Lexer lexer = Lexer.builder().withChannel(channel).withChannel(new BlackHoleChannel("\\s++"))
+        .withChannel(commentRegexp("/\\*[\\s\\S]*?\\*/"))
+        .withChannel(new IdentifierAndKeywordChannel("\\w++", true))
+        .withTokenCache(cache, "v1")
+        .build();
+
+      assertThat(describe(lexer.lex(code))).isEqualTo(expected);
+      assertThat(channel.calls).isGreaterThan(0);
+
+      channel.calls = 0;
+      assertThat(describe(lexer.lex(code))).isEqualTo(expected);
+      assertThat(channel.calls).isEqualTo(0);
+
+      lexer.lex(code + " ");
+      assertThat(channel.calls).isGreaterThan(0);
+    }
+  }
+
+  @Test
+  public void in_memory_token_cache_should_evict_least_recently_used() {
+    InMemoryTokenCache cache = new InMemoryTokenCache(2, 10);
+    cache.put("a", new byte[3]);
+    cache.put("b", new byte[3]);
+    cache.get("a");
+    cache.put("c", new byte[3]);
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.get("b")).isNull();
+    assertThat(cache.get("a")).isNotNull();
+    cache.put("d", new byte[8]);
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.get("d")).isNotNull();
+  }
+
+  @Test
+  public void file_token_cache_should_evict_entries() throws Exception {
+    FileTokenCache cache = new FileTokenCache(temporaryFolder.newFolder(), 2);
+    cache.put("a", new byte[] {1});
+    cache.put("b", new byte[] {2});
+    cache.put("c", new byte[] {3});
+    assertThat(cache.get("c")).isEqualTo(new byte[] {3});
+    assertThat(cache.get("missing")).isNull();
+    int remaining = 0;
+    for (String key : new String[] {"a", "b", "c"}) {
+      if (cache.get(key) != null) {
+        remaining++;
+      }
+    }
+    assertThat(remaining).isLessThanOrEqualTo(2);
+  }
+
+  @Test
+  public void file_token_cache_should_not_leave_temporary_files_on_failure() throws Exception {
+    File directory = temporaryFolder.newFolder();
+    FileTokenCache cache = new FileTokenCache(directory, 2);
+    // entry can not replace a directory which is not empty
+    File entry = new File(directory, "a.tokens");
+    assertThat(new File(entry, "child").mkdirs()).isTrue();
+    cache.put("a", new byte[] {1});
+    cache.put("b", new byte[] {2});
+    assertThat(cache.get("a")).isNull();
+    assertThat(cache.get("b")).isEqualTo(new byte[] {2});
+    assertThat(directory.list()).containsOnly("a.tokens", "b.tokens");
+  }
+
+  /**
+   * Removes backslashes followed by a line feed.
+   */
+  private static class LineContinuationFilter extends CodeReaderFilter<Object> {
+
+    private int pending = -1;
+
+    @Override
+    public int read(char[] filteredBuffer, int offset, int length) throws IOException {
+      int count = 0;
+      while (count < length) {
+        int c = pending == -1 ? getReader().read() : pending;
+        pending = -1;
+        if (c == -1) {
+          break;
+        }
+        if (c == '\\') {
+          int next = getReader().read();
+          if (next == '\n') {
+            continue;
+          }
+          pending = next;
+        }
+        filteredBuffer[offset + count] = (char) c;
+        count++;
+      }
+      return count == 0 ? -1 : count;
+    }
+  }
+
+  private static class CountingChannel extends Channel<Lexer> {
+
+    private int calls = 0;
+
+    @Override
+    public boolean consume(CodeReader code, Lexer output) {
+      calls++;
+      return false;
+    }
+  }
+
+  private static List<String> describe(List<Token> tokens) {
+    List<String> result = new ArrayList<>();
+    for (Token token : tokens) {
+      StringBuilder sb = new StringBuilder();
+      sb.append(token.getType()).append(' ').append(token.getValue()).append(' ').append(token.getLine()).append(':').append(token.getColumn());
+      for (Trivia trivia : token.getTrivia()) {
+        Token triviaToken = trivia.getToken();
+        sb.append(" [").append(triviaToken.getValue()).append(' ').append(triviaToken.getLine()).append(':').append(triviaToken.getColumn()).append(']');
+      }
+      result.add(sb.toString());
+    }
+    return result;
+  }
+
+}
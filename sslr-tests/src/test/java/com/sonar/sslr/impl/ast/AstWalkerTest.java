@@ -21,14 +21,29 @@ package com.sonar.sslr.impl.ast;
 
 import com.sonar.sslr.api.*;
 import com.sonar.sslr.impl.MockTokenType;
+import com.sonar.sslr.impl.Parser;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InOrder;
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.grammar.LexerfulGrammarBuilder;
+import org.sonar.sslr.grammar.LexerlessGrammarBuilder;
+import org.sonar.sslr.parser.LexerlessGrammar;
+import org.sonar.sslr.parser.ParserAdapter;
 
+import javax.annotation.Nullable;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.sonar.sslr.test.lexer.MockHelper.mockToken;
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
 public class AstWalkerTest {
@@ -122,4 +137,314 @@ public class AstWalkerTest {
     walker.addVisitor(visitor2);
   }
 
+  @Test
+  public void walkAndVisitInParallel() {
+    ast13.addChild(astNodeWithToken);
+    List<String> fileEvents = Collections.synchronizedList(new ArrayList<>());
+    List<RecordingVisitor> visitors = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      visitors.add(i == 2 ? new RecordingVisitor("v" + i, fileEvents) : new IndependentRecordingVisitor("v" + i, fileEvents));
+    }
+    AstWalker walker = new AstWalker(visitors);
+
+    walker.walkAndVisit(ast1);
+    List<String> expectedFileEvents = new ArrayList<>(fileEvents);
+    List<List<String>> expectedEvents = new ArrayList<>();
+    for (RecordingVisitor visitor : visitors) {
+      expectedEvents.add(new ArrayList<>(visitor.events));
+      visitor.events.clear();
+    }
+    fileEvents.clear();
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      walker.walkAndVisitInParallel(ast1, 3, executor);
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(fileEvents).isEqualTo(expectedFileEvents);
+    for (int i = 0; i < visitors.size(); i++) {
+      assertThat(visitors.get(i).events).isEqualTo(expectedEvents.get(i));
+    }
+    assertThat(visitors.get(0).events).contains("visitToken word");
+  }
+
+  @Test
+  public void walkAndVisitInParallel_without_independent_visitors() {
+    List<String> fileEvents = new ArrayList<>();
+    RecordingVisitor visitor = new RecordingVisitor("v", fileEvents);
+    new AstWalker(visitor).walkAndVisitInParallel(ast1, 2);
+    assertThat(fileEvents).containsExactly("visitFile v", "leaveFile v");
+    assertThat(visitor.events).hasSize(12);
+  }
+
+  @Test
+  public void walkAndVisitInParallel_should_rethrow_failure() {
+    RecordingVisitor visitor = new IndependentRecordingVisitor("v", new ArrayList<>()) {
+      @Override
+      public void visitNode(AstNode ast) {
+        throw new IllegalStateException("failure in " + ast.getName());
+      }
+    };
+    AstWalker walker = new AstWalker(visitor);
+    try {
+      walker.walkAndVisitInParallel(ast1, 2);
+      throw new AssertionError("expected exception");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage()).isEqualTo("failure in 1");
+    }
+  }
+
+  @Test
+  public void walkAndVisitInParallel_should_wait_for_groups_before_rethrowing_failure() {
+    final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    RecordingVisitor failing = new RecordingVisitor("failing", new ArrayList<>()) {
+      @Override
+      public void visitNode(AstNode ast) {
+        throw new IllegalStateException("failure in " + ast.getName());
+      }
+    };
+    RecordingVisitor slow = new IndependentRecordingVisitor("slow", new ArrayList<>()) {
+      @Override
+      public void visitNode(AstNode ast) {
+        try {
+          Thread.sleep(10);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        events.add(ast.getName());
+      }
+    };
+    try {
+      new AstWalker(failing, slow).walkAndVisitInParallel(ast1, 2);
+      throw new AssertionError("expected exception");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage()).isEqualTo("failure in 1");
+    }
+    assertThat(events).containsExactly("1", "11", "12", "121", "122", "13");
+  }
+
+  @Test
+  public void walkAndVisitInParallel_should_rethrow_errors_and_wrap_checked_exceptions() {
+    final Error error = new Error("error");
+    try {
+      new AstWalker(new IndependentRecordingVisitor("v", new ArrayList<>()) {
+        @Override
+        public void visitNode(AstNode ast) {
+          throw error;
+        }
+      }).walkAndVisitInParallel(ast1, 2);
+      throw new AssertionError("expected exception");
+    } catch (Error e) {
+      assertThat(e).isSameAs(error);
+    }
+
+    final Exception checked = new Exception("checked");
+    try {
+      new AstWalker(new IndependentRecordingVisitor("v", new ArrayList<>()) {
+        @Override
+        public void visitNode(AstNode ast) {
+          AstWalkerTest.<RuntimeException>sneakyThrow(checked);
+        }
+      }).walkAndVisitInParallel(ast1, 2);
+      throw new AssertionError("expected exception");
+    } catch (IllegalStateException e) {
+      assertThat(e.getCause()).isSameAs(checked);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E extends Throwable> void sneakyThrow(Throwable e) throws E {
+    throw (E) e;
+  }
+
+  @Test
+  public void walkAndVisitInParallel_should_work_within_task_of_common_pool() throws Exception {
+    final List<RecordingVisitor> visitors = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      visitors.add(new IndependentRecordingVisitor("v" + i, Collections.synchronizedList(new ArrayList<>())));
+    }
+    ForkJoinPool.commonPool().submit(new Runnable() {
+      @Override
+      public void run() {
+        new AstWalker(visitors).walkAndVisitInParallel(ast1, 4);
+      }
+    }).get();
+    for (RecordingVisitor visitor : visitors) {
+      assertThat(visitor.events).hasSize(12);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void walkAndVisitInParallel_should_require_positive_number_of_groups() {
+    walker.walkAndVisitInParallel(ast1, 0);
+  }
+
+  @Test
+  public void setGrammar_should_prune_subtrees_which_cannot_contain_visited_types() {
+    LexerlessGrammarBuilder b = LexerlessGrammarBuilder.create();
+    b.rule(MyGrammar.ROOT).is(b.zeroOrMore(MyGrammar.STATEMENT), b.endOfInput());
+    b.rule(MyGrammar.STATEMENT).is("s", b.optional(MyGrammar.EXPRESSION), ";");
+    b.rule(MyGrammar.EXPRESSION).is("e", b.optional(MyGrammar.EXPRESSION));
+    b.setRootRule(MyGrammar.ROOT);
+    LexerlessGrammar grammar = b.build();
+    AstNode tree = new ParserAdapter<>(StandardCharsets.UTF_8, grammar).parse("s;see;se;");
+    // not produced by the grammar, so visited only without pruning
+    tree.getFirstDescendant(MyGrammar.EXPRESSION).addChild(new AstNode(MyGrammar.STATEMENT, "STATEMENT", null));
+
+    NodeCollector statements = new NodeCollector(MyGrammar.STATEMENT);
+    AstWalker walker = new AstWalker(statements);
+    walker.walkAndVisit(tree);
+    assertThat(statements.nodes).hasSize(4);
+
+    walker.setGrammar(grammar);
+    statements.nodes.clear();
+    walker.walkAndVisit(tree);
+    assertThat(statements.nodes).hasSize(3);
+
+    NodeCollector expressions = new NodeCollector(MyGrammar.EXPRESSION);
+    walker.addVisitor(expressions);
+    statements.nodes.clear();
+    walker.walkAndVisit(tree);
+    assertThat(statements.nodes).hasSize(4);
+    assertThat(expressions.nodes).hasSize(3);
+
+    walker = new AstWalker(statements, new RecordingVisitor("tokens", new ArrayList<>()));
+    walker.setGrammar(grammar);
+    statements.nodes.clear();
+    walker.walkAndVisit(tree);
+    assertThat(statements.nodes).hasSize(4);
+
+    walker.setGrammar(null);
+    walker.addVisitor(new NodeCollector(MyGrammar.ROOT));
+    statements.nodes.clear();
+    walker.walkAndVisit(tree);
+    assertThat(statements.nodes).hasSize(4);
+  }
+
+  @Test
+  public void setGrammar_should_not_prune_tokens_consumed_by_till() {
+    LexerfulGrammarBuilder b = LexerfulGrammarBuilder.create();
+    b.rule(MyGrammar.ROOT).is(MyGrammar.STATEMENT, GenericTokenType.EOF);
+    b.rule(MyGrammar.STATEMENT).is(GenericTokenType.LITERAL, b.till(GenericTokenType.CONSTANT));
+    b.setRootRule(MyGrammar.ROOT);
+    Grammar grammar = b.build();
+    AstNode tree = Parser.builder(grammar).build().parse(Arrays.asList(
+      token(GenericTokenType.LITERAL, "\"foo\"", 0),
+      token(GenericTokenType.IDENTIFIER, "bar", 5),
+      token(GenericTokenType.CONSTANT, "BAZ", 8),
+      token(GenericTokenType.EOF, "EOF", 11)));
+
+    NodeCollector identifiers = new NodeCollector(GenericTokenType.IDENTIFIER);
+    AstWalker walker = new AstWalker(identifiers);
+    walker.walkAndVisit(tree);
+    assertThat(identifiers.nodes).hasSize(1);
+
+    walker.setGrammar(grammar);
+    identifiers.nodes.clear();
+    walker.walkAndVisit(tree);
+    assertThat(identifiers.nodes).hasSize(1);
+  }
+
+  private static Token token(GenericTokenType type, String value, int column) {
+    return Token.builder()
+      .setType(type)
+      .setValueAndOriginalValue(value)
+      .setURI(URI.create("tests://unittest"))
+      .setLine(1)
+      .setColumn(column)
+      .build();
+  }
+
+  private enum MyGrammar implements GrammarRuleKey {
+    ROOT, STATEMENT, EXPRESSION
+  }
+
+  private static class NodeCollector implements AstVisitor {
+
+    private final AstNodeType type;
+    private final List<AstNode> nodes = new ArrayList<>();
+
+    NodeCollector(AstNodeType type) {
+      this.type = type;
+    }
+
+    @Override
+    public List<AstNodeType> getAstNodeTypesToVisit() {
+      return Collections.singletonList(type);
+    }
+
+    @Override
+    public void visitFile(@Nullable AstNode ast) {
+      // nothing to do
+    }
+
+    @Override
+    public void leaveFile(@Nullable AstNode ast) {
+      // nothing to do
+    }
+
+    @Override
+    public void visitNode(AstNode ast) {
+      nodes.add(ast);
+    }
+
+    @Override
+    public void leaveNode(AstNode ast) {
+      // nothing to do
+    }
+
+  }
+
+  private class RecordingVisitor implements AstAndTokenVisitor {
+
+    private final String name;
+    private final List<String> fileEvents;
+    private final List<String> events = new ArrayList<>();
+
+    RecordingVisitor(String name, List<String> fileEvents) {
+      this.name = name;
+      this.fileEvents = fileEvents;
+    }
+
+    @Override
+    public List<AstNodeType> getAstNodeTypesToVisit() {
+      return Arrays.asList(animal, dog, cat, tiger);
+    }
+
+    @Override
+    public void visitFile(@Nullable AstNode ast) {
+      fileEvents.add("visitFile " + name);
+    }
+
+    @Override
+    public void leaveFile(@Nullable AstNode ast) {
+      fileEvents.add("leaveFile " + name);
+    }
+
+    @Override
+    public void visitNode(AstNode ast) {
+      events.add("visitNode " + ast.getName());
+    }
+
+    @Override
+    public void leaveNode(AstNode ast) {
+      events.add("leaveNode " + ast.getName());
+    }
+
+    @Override
+    public void visitToken(Token token) {
+      events.add("visitToken " + token.getValue());
+    }
+
+  }
+
+  private class IndependentRecordingVisitor extends RecordingVisitor implements IndependentAstVisitor {
+
+    IndependentRecordingVisitor(String name, List<String> fileEvents) {
+      super(name, fileEvents);
+    }
+
+  }
+
 }
@@ -0,0 +1,337 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.xpath;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.impl.xpath.PathStep.Axis;
+
+import javax.annotation.CheckForNull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Location path of the subset of XPath described in {@link AstNodePathParser}, evaluated by direct traversal of {@link AstNode}s.
+ * <p>
+ * Results are the same as the ones of Jaxen with {@link AstNodeNavigator}, where the document node is a virtual parent of the root of the tree,
+ * which is attached to the root only once an absolute path has been evaluated: so from the root, {@code ../*} selects nothing
+ * unless the path is absolute or a previous evaluation of Jaxen has left the document node as parent of the root.
+ * Evaluation gives up whenever the document node is selected by a name test {@code *} or is part of the result,
+ * so that the caller can fall back to Jaxen, which exposes the document node to the user.
+ * </p>
+ *
+ * @since 1.23
+ */
+public final class AstNodePath {
+
+  private static final String DOCUMENT_NAME = "[root]";
+
+  private final boolean absolute;
+  private final PathStep[] steps;
+
+  private AstNodePath(boolean absolute, List<PathStep> steps) {
+    this.absolute = absolute;
+    this.steps = steps.toArray(new PathStep[steps.size()]);
+  }
+
+  /**
+   * @return compiled path, or null if the given expression is not supported and must be evaluated by Jaxen
+   */
+  @CheckForNull
+  public static AstNodePath compile(String xpath) {
+    boolean[] absolute = new boolean[1];
+    List<PathStep> steps = AstNodePathParser.parse(xpath, absolute);
+    if (steps == null) {
+      return null;
+    }
+    return new AstNodePath(absolute[0], optimize(steps));
+  }
+
+  /**
+   * Replaces {@code descendant-or-self::node()/child::x} by the equivalent {@code descendant::x}, which does not produce duplicates,
+   * provided that step {@code child::x} has no positional predicate.
+   */
+  private static List<PathStep> optimize(List<PathStep> steps) {
+    List<PathStep> result = new ArrayList<>(steps.size());
+    for (int i = 0; i < steps.size(); i++) {
+      PathStep step = steps.get(i);
+      if (i + 1 < steps.size() && isDescendantOrSelfNode(step)) {
+        PathStep next = steps.get(i + 1);
+        if (next.getAxis() == Axis.CHILD && !next.hasPosition()) {
+          result.add(new PathStep(Axis.DESCENDANT, next.getName(), next.isAnyNode(), next.getPredicates()));
+          i++;
+          continue;
+        }
+      }
+      result.add(step);
+    }
+    return result;
+  }
+
+  private static boolean isDescendantOrSelfNode(PathStep step) {
+    return step.getAxis() == Axis.DESCENDANT_OR_SELF && step.isAnyNode() && step.getPredicates().isEmpty();
+  }
+
+  public boolean isAbsolute() {
+    return absolute;
+  }
+
+  public List<PathStep> getSteps() {
+    return Collections.unmodifiableList(Arrays.asList(steps));
+  }
+
+  /**
+   * @return selected nodes in document order, or null if the result can not be computed without Jaxen
+   */
+  @CheckForNull
+  public List<AstNode> evaluate(AstNode contextNode) {
+    return new Evaluation(contextNode).run();
+  }
+
+  /**
+   * Document node left by a previous evaluation of Jaxen with {@link AstNodeNavigator}, which sets it as parent of the root.
+   */
+  static boolean isJaxenDocument(AstNode node) {
+    return node.getType() == null && node.getParent() == null && DOCUMENT_NAME.equals(node.getName());
+  }
+
+  private final class Evaluation {
+
+    private final AstNode document = new AstNode(null, DOCUMENT_NAME, null);
+    private final AstNode contextNode;
+    private final AstNode root;
+    /**
+     * Whether the document node is the parent of the root, as it is for Jaxen.
+     */
+    private final boolean documentAttached;
+    private Map<AstNode, Integer> documentOrder = null;
+    private boolean documentSelectedByName = false;
+
+    Evaluation(AstNode contextNode) {
+      this.contextNode = contextNode;
+      AstNode node = contextNode;
+      AstNode parent = node.getParent();
+      while (parent != null && !isJaxenDocument(parent)) {
+        node = parent;
+        parent = node.getParent();
+      }
+      this.root = node;
+      this.documentAttached = absolute || parent != null;
+    }
+
+    @CheckForNull
+    List<AstNode> run() {
+      List<AstNode> nodes = new ArrayList<>();
+      nodes.add(absolute ? document : contextNode);
+      // nodes are always in document order and without duplicates, but some of them might be ancestors of others
+      boolean nested = false;
+      for (PathStep step : steps) {
+        Axis axis = step.getAxis();
+        List<AstNode> result = new ArrayList<>();
+        for (AstNode node : nodes) {
+          select(step, node, result);
+        }
+        if (documentSelectedByName) {
+          return null;
+        }
+        if (nodes.size() == 1) {
+          nested = axis == Axis.DESCENDANT || axis == Axis.DESCENDANT_OR_SELF || axis.isReverse();
+        } else if ((nested && axis != Axis.SELF) || axis == Axis.PARENT || axis.isReverse()) {
+          result = sort(result);
+          nested = true;
+        } else if (axis != Axis.SELF) {
+          nested = axis != Axis.CHILD;
+        }
+        nodes = result;
+        if (nodes.isEmpty()) {
+          break;
+        }
+      }
+      if (!nodes.isEmpty() && nodes.get(0) == document) {
+        return null;
+      }
+      return nodes;
+    }
+
+    /**
+     * Appends to the result, in document order, nodes selected by the given step from the given context node.
+     */
+    private void select(PathStep step, AstNode node, List<AstNode> result) {
+      if (!step.hasPosition()) {
+        int from = result.size();
+        candidates(step, node, true, result);
+        if (step.getAxis().isReverse()) {
+          Collections.reverse(result.subList(from, result.size()));
+        }
+        return;
+      }
+      List<AstNode> selected = new ArrayList<>();
+      candidates(step, node, false, selected);
+      for (StepPredicate predicate : step.getPredicates()) {
+        if (predicate.isPosition()) {
+          int position = predicate.getPosition();
+          selected = position <= selected.size() ? Collections.singletonList(selected.get(position - 1)) : Collections.<AstNode>emptyList();
+        } else {
+          List<AstNode> filtered = new ArrayList<>();
+          for (AstNode candidate : selected) {
+            if (predicate.matches(candidate)) {
+              filtered.add(candidate);
+            }
+          }
+          selected = filtered;
+        }
+      }
+      int from = result.size();
+      result.addAll(selected);
+      if (step.getAxis().isReverse()) {
+        Collections.reverse(result.subList(from, result.size()));
+      }
+    }
+
+    /**
+     * Appends nodes of the axis of the given step which satisfy its node test, in the order of the axis,
+     * i.e. in reverse document order for reverse axes.
+     *
+     * @param withPredicates
+     *          whether predicates of the step, which must not contain positions, should be tested
+     */
+    private void candidates(PathStep step, AstNode node, boolean withPredicates, List<AstNode> result) {
+      switch (step.getAxis()) {
+        case SELF:
+          add(step, node, withPredicates, result);
+          break;
+        case CHILD:
+          for (AstNode child : children(node)) {
+            add(step, child, withPredicates, result);
+          }
+          break;
+        case DESCENDANT_OR_SELF:
+          add(step, node, withPredicates, result);
+          descendants(step, node, withPredicates, result);
+          break;
+        case DESCENDANT:
+          descendants(step, node, withPredicates, result);
+          break;
+        case PARENT:
+          AstNode parent = parent(node);
+          if (parent != null) {
+            add(step, parent, withPredicates, result);
+          }
+          break;
+        case ANCESTOR_OR_SELF:
+          add(step, node, withPredicates, result);
+          ancestors(step, node, withPredicates, result);
+          break;
+        case ANCESTOR:
+          ancestors(step, node, withPredicates, result);
+          break;
+        default:
+          throw new IllegalStateException("Unexpected axis: " + step.getAxis());
+      }
+    }
+
+    private void descendants(PathStep step, AstNode node, boolean withPredicates, List<AstNode> result) {
+      Deque<AstNode> stack = new ArrayDeque<>();
+      pushChildren(stack, node);
+      while (!stack.isEmpty()) {
+        AstNode descendant = stack.pop();
+        add(step, descendant, withPredicates, result);
+        pushChildren(stack, descendant);
+      }
+    }
+
+    private void pushChildren(Deque<AstNode> stack, AstNode node) {
+      List<AstNode> children = children(node);
+      for (int i = children.size() - 1; i >= 0; i--) {
+        stack.push(children.get(i));
+      }
+    }
+
+    private void ancestors(PathStep step, AstNode node, boolean withPredicates, List<AstNode> result) {
+      AstNode ancestor = parent(node);
+      while (ancestor != null) {
+        add(step, ancestor, withPredicates, result);
+        ancestor = parent(ancestor);
+      }
+    }
+
+    private void add(PathStep step, AstNode node, boolean withPredicates, List<AstNode> result) {
+      if (withPredicates ? step.matches(node) : step.matchesName(node)) {
+        result.add(node);
+        documentSelectedByName |= node == document && !step.isAnyNode();
+      }
+    }
+
+    private List<AstNode> children(AstNode node) {
+      return node == document ? Collections.singletonList(root) : node.getChildren();
+    }
+
+    @CheckForNull
+    private AstNode parent(AstNode node) {
+      if (node == document) {
+        return null;
+      } else if (node == root) {
+        return documentAttached ? document : null;
+      }
+      return node.getParent();
+    }
+
+    /**
+     * Sorts in document order and removes duplicates.
+     */
+    private List<AstNode> sort(List<AstNode> nodes) {
+      if (documentOrder == null) {
+        documentOrder = new IdentityHashMap<>();
+        documentOrder.put(document, -1);
+        Deque<AstNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        int index = 0;
+        while (!stack.isEmpty()) {
+          AstNode node = stack.pop();
+          documentOrder.put(node, index);
+          index++;
+          pushChildren(stack, node);
+        }
+      }
+      Map<AstNode, Boolean> unique = new IdentityHashMap<>();
+      List<AstNode> result = new ArrayList<>(nodes.size());
+      for (AstNode node : nodes) {
+        if (unique.put(node, Boolean.TRUE) == null) {
+          result.add(node);
+        }
+      }
+      Collections.sort(result, new Comparator<AstNode>() {
+        @Override
+        public int compare(AstNode a, AstNode b) {
+          return Integer.compare(documentOrder.get(a), documentOrder.get(b));
+        }
+      });
+      return result;
+    }
+
+  }
+
+}
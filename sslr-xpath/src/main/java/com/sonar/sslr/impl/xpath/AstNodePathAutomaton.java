@@ -0,0 +1,345 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.xpath;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.impl.xpath.PathStep.Axis;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Nondeterministic automaton which evaluates many {@link AstNodePath}s in a single depth-first traversal of a tree,
+ * in the way of XML stream filters: states reached on a node are computed from the states reached on its parent,
+ * and paths share the states of their common prefixes.
+ * <p>
+ * Only forward paths are supported: steps along child, descendant(-or-self) and self axes, with predicates which do not
+ * involve positions, so that a node can be tested as soon as it is visited.
+ * </p>
+ *
+ * @since 1.23
+ */
+public final class AstNodePathAutomaton {
+
+  private final List<State> states = new ArrayList<>();
+  private final State documentState = newState();
+  private final State contextState = newState();
+  private boolean hasAbsolutePaths = false;
+
+  /**
+   * @return true if the given path can be added to an automaton
+   */
+  public static boolean supports(AstNodePath path) {
+    List<PathStep> steps = path.getSteps();
+    if (path.isAbsolute() && steps.get(0).getAxis() != Axis.CHILD && steps.get(0).getAxis() != Axis.DESCENDANT) {
+      // would test the document node
+      return false;
+    }
+    for (PathStep step : steps) {
+      if (step.hasPosition()) {
+        return false;
+      }
+      switch (step.getAxis()) {
+        case CHILD:
+        case DESCENDANT:
+        case DESCENDANT_OR_SELF:
+        case SELF:
+          break;
+        default:
+          return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param id
+   *          identifier of the path, used to report its matches
+   * @throws IllegalArgumentException
+   *           if the given path is not {@link #supports(AstNodePath) supported}
+   */
+  public void add(int id, AstNodePath path) {
+    if (!supports(path)) {
+      throw new IllegalArgumentException("Unsupported path");
+    }
+    State current;
+    if (path.isAbsolute()) {
+      current = documentState;
+      hasAbsolutePaths = true;
+    } else {
+      current = contextState;
+    }
+    for (PathStep step : path.getSteps()) {
+      switch (step.getAxis()) {
+        case CHILD:
+          current = current.child(step);
+          break;
+        case DESCENDANT:
+          current = current.descendants().child(step);
+          break;
+        case SELF:
+          current = current.self(step);
+          break;
+        case DESCENDANT_OR_SELF:
+          current = current.descendantsOrSelf(step);
+          break;
+        default:
+          throw new IllegalStateException("Unexpected axis: " + step.getAxis());
+      }
+    }
+    current.accepted.add(id);
+  }
+
+  /**
+   * Evaluates all paths from the given context node, absolute ones on the whole tree of this node.
+   */
+  public void evaluate(AstNode contextNode, Matches matches) {
+    new Evaluation(contextNode, matches).run();
+  }
+
+  /**
+   * Receives matches in document order of nodes.
+   */
+  public interface Matches {
+
+    void match(int id, AstNode node);
+
+  }
+
+  private State newState() {
+    State state = new State(states.size());
+    states.add(state);
+    return state;
+  }
+
+  private final class State {
+
+    private final int index;
+    private final List<Integer> accepted = new ArrayList<>();
+    /**
+     * Transitions to be tested on children of the nodes on which this state is reached.
+     */
+    private final List<Transition> children = new ArrayList<>();
+    /**
+     * Transitions to be tested on the nodes on which this state is reached.
+     */
+    private final List<Transition> selves = new ArrayList<>();
+    /**
+     * Targets of transitions without predicates, by name or "*", to share prefixes of paths.
+     */
+    private final Map<String, State> sharedChildren = new HashMap<>();
+    private final Map<String, State> sharedSelves = new HashMap<>();
+    /**
+     * Reached on a node and all its descendants, whenever this state is reached on the node.
+     */
+    @Nullable
+    private State descendants;
+    private boolean loop = false;
+
+    State(int index) {
+      this.index = index;
+    }
+
+    State child(PathStep step) {
+      return target(step, children, sharedChildren);
+    }
+
+    State self(PathStep step) {
+      return target(step, selves, sharedSelves);
+    }
+
+    /**
+     * Not shared, as the target is reached by two transitions.
+     */
+    State descendantsOrSelf(PathStep step) {
+      State target = newState();
+      selves.add(new Transition(step, target));
+      descendants().children.add(new Transition(step, target));
+      return target;
+    }
+
+    private State target(PathStep step, List<Transition> transitions, Map<String, State> shared) {
+      String key = step.getName() == null ? "*" : step.getName();
+      boolean share = step.getPredicates().isEmpty();
+      if (share && shared.containsKey(key)) {
+        return shared.get(key);
+      }
+      State target = newState();
+      transitions.add(new Transition(step, target));
+      if (share) {
+        shared.put(key, target);
+      }
+      return target;
+    }
+
+    State descendants() {
+      if (descendants == null) {
+        descendants = newState();
+        descendants.loop = true;
+        selves.add(new Transition(null, descendants));
+      }
+      return descendants;
+    }
+
+  }
+
+  private static final class Transition {
+
+    /**
+     * Null for an epsilon transition.
+     */
+    @Nullable
+    private final PathStep step;
+    private final State target;
+
+    Transition(@Nullable PathStep step, State target) {
+      this.step = step;
+      this.target = target;
+    }
+
+    boolean matches(AstNode node) {
+      return step == null || step.matches(node);
+    }
+
+  }
+
+  private final class Evaluation {
+
+    private final AstNode contextNode;
+    private final Matches matches;
+    /**
+     * Index of the last visited node on which a given state was reached, to not reach states twice on a same node.
+     */
+    private final int[] reached = new int[states.size()];
+    private int nodeIndex = 0;
+    private final Set<AstNode> contextAncestors = Collections.newSetFromMap(new IdentityHashMap<AstNode, Boolean>());
+
+    Evaluation(AstNode contextNode, Matches matches) {
+      this.contextNode = contextNode;
+      this.matches = matches;
+    }
+
+    void run() {
+      AstNode start = contextNode;
+      if (hasAbsolutePaths) {
+        AstNode parent = start.getParent();
+        while (parent != null && !AstNodePath.isJaxenDocument(parent)) {
+          start = parent;
+          contextAncestors.add(start);
+          parent = start.getParent();
+        }
+      }
+      List<State> documentStates = new ArrayList<>();
+      if (hasAbsolutePaths) {
+        nodeIndex++;
+        reach(documentState, null, documentStates);
+      }
+      Deque<Frame> stack = new ArrayDeque<>();
+      Frame startFrame = enter(start, documentStates);
+      if (startFrame != null) {
+        stack.push(startFrame);
+      }
+      while (!stack.isEmpty()) {
+        Frame frame = stack.peek();
+        if (frame.nextChild < frame.node.getNumberOfChildren()) {
+          AstNode child = frame.node.getChildren().get(frame.nextChild);
+          frame.nextChild++;
+          Frame childFrame = enter(child, frame.states);
+          if (childFrame != null) {
+            stack.push(childFrame);
+          }
+        } else {
+          stack.pop();
+        }
+      }
+    }
+
+    /**
+     * @return frame to visit children of the given node, or null if no path can match its descendants
+     */
+    @Nullable
+    private Frame enter(AstNode node, List<State> parentStates) {
+      nodeIndex++;
+      List<State> nodeStates = new ArrayList<>();
+      for (State state : parentStates) {
+        if (state.loop) {
+          reach(state, node, nodeStates);
+        }
+        for (Transition transition : state.children) {
+          if (transition.matches(node)) {
+            reach(transition.target, node, nodeStates);
+          }
+        }
+      }
+      if (node == contextNode) {
+        reach(contextState, node, nodeStates);
+      }
+      if (nodeStates.isEmpty() && !contextAncestors.contains(node)) {
+        return null;
+      }
+      return new Frame(node, nodeStates);
+    }
+
+    /**
+     * @param node
+     *          null for the document node
+     */
+    private void reach(State state, @Nullable AstNode node, List<State> nodeStates) {
+      if (reached[state.index] == nodeIndex) {
+        return;
+      }
+      reached[state.index] = nodeIndex;
+      nodeStates.add(state);
+      if (node != null) {
+        for (Integer id : state.accepted) {
+          matches.match(id, node);
+        }
+      }
+      for (Transition transition : state.selves) {
+        if (transition.step == null || (node != null && transition.matches(node))) {
+          reach(transition.target, node, nodeStates);
+        }
+      }
+    }
+
+  }
+
+  private static final class Frame {
+
+    private final AstNode node;
+    private final List<State> states;
+    private int nextChild = 0;
+
+    Frame(AstNode node, List<State> states) {
+      this.node = node;
+      this.states = states;
+    }
+
+  }
+
+}
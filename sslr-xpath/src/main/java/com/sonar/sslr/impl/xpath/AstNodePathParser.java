@@ -0,0 +1,296 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.xpath;
+
+import com.sonar.sslr.impl.xpath.PathStep.Axis;
+
+import javax.annotation.CheckForNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parses the subset of XPath supported by {@link AstNodePath}:
+ * <pre>
+ * path      ::= ('/' | '//')? step (('/' | '//') step)*
+ * step      ::= '.' | '..' | (axis '::')? nodeTest predicate*
+ * axis      ::= 'child' | 'descendant' | 'descendant-or-self' | 'self' | 'parent' | 'ancestor' | 'ancestor-or-self'
+ * nodeTest  ::= name | '*' | 'node()'
+ * predicate ::= '[' (integer | '@' name (('=' | '!=') (literal | number))? | (literal | number) ('=' | '!=') '@' name) ']'
+ * </pre>
+ * Abbreviation {@code //} is expanded to {@code /descendant-or-self::node()/}.
+ */
+final class AstNodePathParser {
+
+  private final String xpath;
+  private int index = 0;
+
+  private AstNodePathParser(String xpath) {
+    this.xpath = xpath;
+  }
+
+  /**
+   * @return steps, the first of which is applied to the document node for an absolute path, or null if the given expression is not supported
+   */
+  @CheckForNull
+  static List<PathStep> parse(String xpath, boolean[] absolute) {
+    try {
+      return new AstNodePathParser(xpath).path(absolute);
+    } catch (UnsupportedExpression e) {
+      return null;
+    }
+  }
+
+  private List<PathStep> path(boolean[] absolute) {
+    List<PathStep> steps = new ArrayList<>();
+    skipWhitespace();
+    absolute[0] = false;
+    if (lookingAt("//")) {
+      absolute[0] = true;
+      index += 2;
+      steps.add(descendantOrSelf());
+    } else if (lookingAt("/")) {
+      absolute[0] = true;
+      index++;
+    }
+    steps.add(step());
+    while (true) {
+      skipWhitespace();
+      if (lookingAt("//")) {
+        index += 2;
+        steps.add(descendantOrSelf());
+      } else if (lookingAt("/")) {
+        index++;
+      } else {
+        break;
+      }
+      steps.add(step());
+    }
+    if (index != xpath.length()) {
+      throw new UnsupportedExpression();
+    }
+    return steps;
+  }
+
+  private static PathStep descendantOrSelf() {
+    return new PathStep(Axis.DESCENDANT_OR_SELF, null, true, Collections.<StepPredicate>emptyList());
+  }
+
+  private PathStep step() {
+    skipWhitespace();
+    if (lookingAt("..")) {
+      index += 2;
+      return new PathStep(Axis.PARENT, null, true, Collections.<StepPredicate>emptyList());
+    } else if (lookingAt(".")) {
+      index++;
+      return new PathStep(Axis.SELF, null, true, Collections.<StepPredicate>emptyList());
+    }
+    Axis axis = Axis.CHILD;
+    String name = nameOrStar();
+    skipWhitespace();
+    if (lookingAt("::")) {
+      index += 2;
+      axis = axis(name);
+      skipWhitespace();
+      name = nameOrStar();
+      skipWhitespace();
+    }
+    boolean anyNode = false;
+    if ("node".equals(name) && lookingAt("(")) {
+      index++;
+      skipWhitespace();
+      expect(")");
+      anyNode = true;
+      name = "*";
+    }
+    List<StepPredicate> predicates = new ArrayList<>();
+    while (lookingAt("[")) {
+      index++;
+      predicates.add(predicate());
+      skipWhitespace();
+      expect("]");
+      skipWhitespace();
+    }
+    return new PathStep(axis, "*".equals(name) ? null : name, anyNode, predicates);
+  }
+
+  private static Axis axis(String name) {
+    switch (name) {
+      case "child":
+        return Axis.CHILD;
+      case "descendant":
+        return Axis.DESCENDANT;
+      case "descendant-or-self":
+        return Axis.DESCENDANT_OR_SELF;
+      case "self":
+        return Axis.SELF;
+      case "parent":
+        return Axis.PARENT;
+      case "ancestor":
+        return Axis.ANCESTOR;
+      case "ancestor-or-self":
+        return Axis.ANCESTOR_OR_SELF;
+      default:
+        throw new UnsupportedExpression();
+    }
+  }
+
+  private StepPredicate predicate() {
+    skipWhitespace();
+    if (lookingAt("@")) {
+      index++;
+      String attribute = name();
+      skipWhitespace();
+      if (lookingAt("]")) {
+        return StepPredicate.attributeExists(attribute);
+      }
+      boolean equals = equalityOperator();
+      skipWhitespace();
+      return comparison(attribute, equals);
+    }
+    int start = index;
+    String literal = literal();
+    boolean isNumber = literal == null;
+    String value = isNumber ? number() : literal;
+    skipWhitespace();
+    if (isNumber && lookingAt("]")) {
+      if (!value.matches("[1-9]\\d{0,8}")) {
+        // position which is not a small positive integer
+        throw new UnsupportedExpression();
+      }
+      return StepPredicate.position(Integer.parseInt(value));
+    }
+    boolean equals = equalityOperator();
+    skipWhitespace();
+    expect("@");
+    String attribute = name();
+    return isNumber
+      ? StepPredicate.attributeEqualsNumber(attribute, equals, Double.parseDouble(xpath.substring(start, start + value.length())))
+      : StepPredicate.attributeEqualsString(attribute, equals, value);
+  }
+
+  private StepPredicate comparison(String attribute, boolean equals) {
+    String literal = literal();
+    if (literal != null) {
+      return StepPredicate.attributeEqualsString(attribute, equals, literal);
+    }
+    return StepPredicate.attributeEqualsNumber(attribute, equals, Double.parseDouble(number()));
+  }
+
+  private boolean equalityOperator() {
+    if (lookingAt("=")) {
+      index++;
+      return true;
+    }
+    expect("!=");
+    return false;
+  }
+
+  @CheckForNull
+  private String literal() {
+    if (lookingAt("'") || lookingAt("\"")) {
+      char quote = xpath.charAt(index);
+      int end = xpath.indexOf(quote, index + 1);
+      if (end == -1) {
+        throw new UnsupportedExpression();
+      }
+      String result = xpath.substring(index + 1, end);
+      index = end + 1;
+      return result;
+    }
+    return null;
+  }
+
+  private String number() {
+    int start = index;
+    while (index < xpath.length() && Character.isDigit(xpath.charAt(index))) {
+      index++;
+    }
+    if (lookingAt(".")) {
+      index++;
+      while (index < xpath.length() && Character.isDigit(xpath.charAt(index))) {
+        index++;
+      }
+    }
+    if (index == start || (index == start + 1 && xpath.charAt(start) == '.')) {
+      throw new UnsupportedExpression();
+    }
+    return xpath.substring(start, index);
+  }
+
+  private String nameOrStar() {
+    if (lookingAt("*")) {
+      index++;
+      return "*";
+    }
+    return name();
+  }
+
+  /**
+   * Names without prefix, which would require namespaces.
+   */
+  private String name() {
+    int start = index;
+    if (index < xpath.length() && isNameStart(xpath.charAt(index))) {
+      index++;
+      while (index < xpath.length() && (isNameStart(xpath.charAt(index)) || isNamePart(xpath.charAt(index)))) {
+        index++;
+      }
+    }
+    if (index == start) {
+      throw new UnsupportedExpression();
+    }
+    return xpath.substring(start, index);
+  }
+
+  private static boolean isNameStart(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+  }
+
+  private static boolean isNamePart(char c) {
+    return (c >= '0' && c <= '9') || c == '-' || c == '.';
+  }
+
+  private void expect(String s) {
+    if (!lookingAt(s)) {
+      throw new UnsupportedExpression();
+    }
+    index += s.length();
+  }
+
+  private boolean lookingAt(String s) {
+    return xpath.startsWith(s, index);
+  }
+
+  private void skipWhitespace() {
+    while (index < xpath.length() && Character.isWhitespace(xpath.charAt(index))) {
+      index++;
+    }
+  }
+
+  private static class UnsupportedExpression extends RuntimeException {
+
+    UnsupportedExpression() {
+      super(null, null, false, false);
+    }
+
+  }
+
+}
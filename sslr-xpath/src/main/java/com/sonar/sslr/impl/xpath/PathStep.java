@@ -0,0 +1,115 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.xpath;
+
+import com.sonar.sslr.api.AstNode;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Step of an {@link AstNodePath}: an axis, a node test and predicates.
+ *
+ * @since 1.23
+ */
+public final class PathStep {
+
+  public enum Axis {
+    CHILD, DESCENDANT, DESCENDANT_OR_SELF, SELF, PARENT, ANCESTOR, ANCESTOR_OR_SELF;
+
+    public boolean isReverse() {
+      return this == ANCESTOR || this == ANCESTOR_OR_SELF;
+    }
+  }
+
+  private final Axis axis;
+  @Nullable
+  private final String name;
+  private final boolean anyNode;
+  private final List<StepPredicate> predicates;
+  private final boolean hasPosition;
+
+  /**
+   * @param name
+   *          name of matched nodes, or null to match any node
+   * @param anyNode
+   *          true for the node test {@code node()}, which also matches the document node
+   */
+  PathStep(Axis axis, @Nullable String name, boolean anyNode, List<StepPredicate> predicates) {
+    this.axis = axis;
+    this.name = name;
+    this.anyNode = anyNode;
+    this.predicates = Collections.unmodifiableList(predicates);
+    boolean position = false;
+    for (StepPredicate predicate : predicates) {
+      position |= predicate.isPosition();
+    }
+    this.hasPosition = position;
+  }
+
+  public Axis getAxis() {
+    return axis;
+  }
+
+  /**
+   * @return name of matched nodes, or null if nodes of any name are matched
+   */
+  @CheckForNull
+  public String getName() {
+    return name;
+  }
+
+  public boolean isAnyNode() {
+    return anyNode;
+  }
+
+  public List<StepPredicate> getPredicates() {
+    return predicates;
+  }
+
+  public boolean hasPosition() {
+    return hasPosition;
+  }
+
+  /**
+   * Tests the name of the given node, which is not the document node.
+   */
+  public boolean matchesName(AstNode node) {
+    return name == null || name.equals(node.getName());
+  }
+
+  /**
+   * Tests the name of the given node and all predicates, which must not include positions.
+   */
+  public boolean matches(AstNode node) {
+    if (!matchesName(node)) {
+      return false;
+    }
+    for (StepPredicate predicate : predicates) {
+      if (!predicate.matches(node)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
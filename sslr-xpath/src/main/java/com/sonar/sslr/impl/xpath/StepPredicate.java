@@ -0,0 +1,141 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.xpath;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.Token;
+
+import javax.annotation.Nullable;
+import java.util.regex.Pattern;
+
+/**
+ * Predicate of a {@link PathStep}: either a position, e.g. {@code [2]}, or a test of an attribute of the token of the node,
+ * e.g. {@code [@tokenValue = 'foo']}, {@code [@tokenLine != 4]} or {@code [@tokenValue]}.
+ * Attributes are compared without conversion of line and column to strings, but with the same results as XPath comparisons
+ * made by {@link AstNodeNavigator}.
+ *
+ * @since 1.23
+ */
+public final class StepPredicate {
+
+  private static final Pattern XPATH_NUMBER = Pattern.compile("\\s*+-?+(\\d++(\\.\\d*+)?+|\\.\\d++)\\s*+");
+  private static final Pattern CANONICAL_INT = Pattern.compile("0|-?[1-9]\\d{0,9}");
+
+  enum Attribute {
+    TOKEN_LINE("tokenLine"), TOKEN_COLUMN("tokenColumn"), TOKEN_VALUE("tokenValue"), UNKNOWN(null);
+
+    @Nullable
+    private final String name;
+
+    Attribute(@Nullable String name) {
+      this.name = name;
+    }
+
+    static Attribute of(String name) {
+      for (Attribute attribute : values()) {
+        if (name.equals(attribute.name)) {
+          return attribute;
+        }
+      }
+      return UNKNOWN;
+    }
+  }
+
+  enum Operator {
+    EXISTS, EQUALS, NOT_EQUALS
+  }
+
+  private final int position;
+  private final Attribute attribute;
+  private final Operator operator;
+  @Nullable
+  private final String stringOperand;
+  private final double numberOperand;
+  private final boolean intOperand;
+
+  private StepPredicate(int position, Attribute attribute, Operator operator, @Nullable String stringOperand, double numberOperand) {
+    this.position = position;
+    this.attribute = attribute;
+    this.operator = operator;
+    this.stringOperand = stringOperand;
+    if (stringOperand != null) {
+      // line and column are converted to strings in canonical form, so that only such strings can be equal to them
+      this.intOperand = CANONICAL_INT.matcher(stringOperand).matches() && Long.parseLong(stringOperand) == (int) Long.parseLong(stringOperand);
+      this.numberOperand = intOperand ? Integer.parseInt(stringOperand) : Double.NaN;
+    } else {
+      this.intOperand = false;
+      this.numberOperand = numberOperand;
+    }
+  }
+
+  static StepPredicate position(int position) {
+    return new StepPredicate(position, Attribute.UNKNOWN, Operator.EXISTS, null, Double.NaN);
+  }
+
+  static StepPredicate attributeExists(String attribute) {
+    return new StepPredicate(0, Attribute.of(attribute), Operator.EXISTS, null, Double.NaN);
+  }
+
+  static StepPredicate attributeEqualsString(String attribute, boolean equals, String value) {
+    return new StepPredicate(0, Attribute.of(attribute), equals ? Operator.EQUALS : Operator.NOT_EQUALS, value, Double.NaN);
+  }
+
+  static StepPredicate attributeEqualsNumber(String attribute, boolean equals, double value) {
+    return new StepPredicate(0, Attribute.of(attribute), equals ? Operator.EQUALS : Operator.NOT_EQUALS, null, value);
+  }
+
+  /**
+   * @return the position selected by this predicate, starting from 1, or 0 if this predicate tests an attribute
+   */
+  public int getPosition() {
+    return position;
+  }
+
+  public boolean isPosition() {
+    return position > 0;
+  }
+
+  /**
+   * Tests an attribute, must not be called for a position.
+   */
+  public boolean matches(AstNode node) {
+    Token token = node.getToken();
+    if (token == null || attribute == Attribute.UNKNOWN) {
+      // no such attribute
+      return false;
+    }
+    if (operator == Operator.EXISTS) {
+      return true;
+    }
+    boolean equal;
+    if (attribute == Attribute.TOKEN_VALUE) {
+      equal = stringOperand != null ? stringOperand.equals(token.getValue()) : toNumber(token.getValue()) == numberOperand;
+    } else {
+      int value = attribute == Attribute.TOKEN_LINE ? token.getLine() : token.getColumn();
+      equal = (stringOperand == null || intOperand) && value == numberOperand;
+    }
+    return equal == (operator == Operator.EQUALS);
+  }
+
+  private static double toNumber(String value) {
+    return XPATH_NUMBER.matcher(value).matches() ? Double.parseDouble(value.trim()) : Double.NaN;
+  }
+
+}
@@ -21,24 +21,49 @@ package com.sonar.sslr.xpath.api;
 
 import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.impl.xpath.AstNodeNavigator;
+import com.sonar.sslr.impl.xpath.AstNodePath;
 import org.jaxen.BaseXPath;
 import org.jaxen.JaxenException;
 
+import javax.annotation.Nullable;
 import java.util.List;
 
 public final class AstNodeXPathQuery<T> {
 
   private final AstNodeNavigator astNodeNavigator = new AstNodeNavigator();
-  private final BaseXPath expression;
+  private final String xpath;
+
+  /**
+   * Native evaluation of the query, when it belongs to the supported subset of XPath.
+   */
+  @Nullable
+  private final AstNodePath path;
+
+  /**
+   * Created lazily when the query is evaluated natively, as it is needed only when the result involves the document node.
+   */
+  @Nullable
+  private BaseXPath expression;
 
   private AstNodeXPathQuery(String xpath) {
-    try {
-      expression = new BaseXPath(xpath, astNodeNavigator);
-    } catch (JaxenException e) {
-      throw new RuntimeException(e);
+    this.xpath = xpath;
+    this.path = AstNodePath.compile(xpath);
+    if (path == null) {
+      expression = jaxenExpression();
     }
   }
 
+  private BaseXPath jaxenExpression() {
+    if (expression == null) {
+      try {
+        expression = new BaseXPath(xpath, astNodeNavigator);
+      } catch (JaxenException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    return expression;
+  }
+
   /**
    * Evaluate the XPath query on the given AstNode and returns the first result, or null if there was no result.
    *
@@ -57,9 +82,15 @@ public final class AstNodeXPathQuery<T> {
    * @return The first result or null if there was no result.
    */
   public T selectSingleNode(AstNode astNode) {
+    if (path != null) {
+      List<AstNode> result = path.evaluate(astNode);
+      if (result != null) {
+        return result.isEmpty() ? null : (T) result.get(0);
+      }
+    }
     try {
       astNodeNavigator.reset();
-      return (T) expression.selectSingleNode(astNode);
+      return (T) jaxenExpression().selectSingleNode(astNode);
     } catch (JaxenException e) {
       throw new RuntimeException(e);
     }
@@ -83,9 +114,15 @@ public final class AstNodeXPathQuery<T> {
    * @return The list of resulting elements, empty when no result available.
    */
   public List<T> selectNodes(AstNode astNode) {
+    if (path != null) {
+      List<AstNode> result = path.evaluate(astNode);
+      if (result != null) {
+        return (List<T>) result;
+      }
+    }
     try {
       astNodeNavigator.reset();
-      return expression.selectNodes(astNode);
+      return jaxenExpression().selectNodes(astNode);
     } catch (JaxenException e) {
       throw new RuntimeException(e);
     }
@@ -0,0 +1,108 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.xpath.api;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.impl.xpath.AstNodePath;
+import com.sonar.sslr.impl.xpath.AstNodePathAutomaton;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Set of XPath queries, which are evaluated together on a given AstNode.
+ * <p>
+ * Queries made of child, descendant and self steps with name tests and attribute predicates are compiled into one shared
+ * automaton, so that matches of all of them are found in a single traversal of the tree. Other queries are evaluated
+ * one after the other, as by {@link AstNodeXPathQuery}.
+ * </p>
+ *
+ * @since 1.23
+ */
+public final class XPathQuerySet {
+
+  private final int size;
+  private final AstNodePathAutomaton automaton = new AstNodePathAutomaton();
+  private final List<Integer> otherIndexes = new ArrayList<>();
+  private final List<AstNodeXPathQuery<AstNode>> otherQueries = new ArrayList<>();
+
+  private XPathQuerySet(List<String> xpaths) {
+    this.size = xpaths.size();
+    for (int i = 0; i < size; i++) {
+      String xpath = xpaths.get(i);
+      AstNodePath path = AstNodePath.compile(xpath);
+      if (path != null && AstNodePathAutomaton.supports(path)) {
+        automaton.add(i, path);
+      } else {
+        otherIndexes.add(i);
+        otherQueries.add(AstNodeXPathQuery.<AstNode>create(xpath));
+      }
+    }
+  }
+
+  /**
+   * @return number of queries in this set
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Evaluates all queries on the given AstNode.
+   *
+   * @param astNode
+   *          The AstNode on which to evaluate the queries against to.
+   * @return For each query, in the order in which they were given, the list of resulting elements, empty when no result available.
+   */
+  public List<List<AstNode>> selectNodes(AstNode astNode) {
+    final List<List<AstNode>> results = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      results.add(new ArrayList<AstNode>());
+    }
+    automaton.evaluate(astNode, new AstNodePathAutomaton.Matches() {
+      @Override
+      public void match(int id, AstNode node) {
+        results.get(id).add(node);
+      }
+    });
+    for (int i = 0; i < otherQueries.size(); i++) {
+      results.set(otherIndexes.get(i), otherQueries.get(i).selectNodes(astNode));
+    }
+    return Collections.unmodifiableList(results);
+  }
+
+  /**
+   * Creates a set of compiled XPath queries, which can be evaluated multiple times on different AstNode.
+   *
+   * @param xpaths
+   *          The queries to compile
+   * @return The compiled set of XPath queries
+   */
+  public static XPathQuerySet create(List<String> xpaths) {
+    return new XPathQuerySet(xpaths);
+  }
+
+  public static XPathQuerySet create(String... xpaths) {
+    return create(Arrays.asList(xpaths));
+  }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.impl.xpath;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.xpath.PathStep.Axis;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class AstNodePathTest {
+
+  private AstNode tree;
+  private AstNode branch1;
+  private AstNode leaf11;
+  private AstNode leaf12;
+  private AstNode branch2;
+  private AstNode leaf21;
+  private AstNode branch3;
+
+  /**
+   * <pre>
+   * tree
+   *  |__ branch (1)
+   *  |    |__ leaf "a" (1:1)
+   *  |    |__ leaf "b" (1:2)
+   *  |__ branch (2)
+   *  |    |__ leaf "2" (2:1)
+   *  |         |__ branch (3)
+   * </pre>
+   */
+  @Before
+  public void setUp() throws Exception {
+    tree = node("tree");
+    branch1 = node("branch");
+    leaf11 = leaf("a", 1, 1);
+    leaf12 = leaf("b", 1, 2);
+    branch2 = node("branch");
+    leaf21 = leaf("2", 2, 1);
+    branch3 = node("branch");
+    tree.addChild(branch1);
+    branch1.addChild(leaf11);
+    branch1.addChild(leaf12);
+    tree.addChild(branch2);
+    branch2.addChild(leaf21);
+    leaf21.addChild(branch3);
+  }
+
+  @Test
+  public void should_parse_supported_expressions() {
+    AstNodePath path = AstNodePath.compile("/tree/descendant::leaf[@tokenLine = 1][2]/..");
+    assertThat(path.isAbsolute()).isTrue();
+    assertThat(path.getSteps()).hasSize(3);
+    PathStep step = path.getSteps().get(1);
+    assertThat(step.getAxis()).isEqualTo(Axis.DESCENDANT);
+    assertThat(step.getName()).isEqualTo("leaf");
+    assertThat(step.getPredicates()).hasSize(2);
+    assertThat(step.hasPosition()).isTrue();
+    assertThat(path.getSteps().get(2).getAxis()).isEqualTo(Axis.PARENT);
+
+    assertThat(AstNodePath.compile("branch").isAbsolute()).isFalse();
+    assertThat(AstNodePath.compile(" ancestor-or-self :: * [ 'a' != @tokenValue ] ")).isNotNull();
+    assertThat(AstNodePath.compile("self::node()/./leaf[@tokenValue]")).isNotNull();
+  }
+
+  @Test
+  public void should_rewrite_descendant_or_self_followed_by_child() {
+    AstNodePath path = AstNodePath.compile("//branch//leaf");
+    assertThat(path.getSteps()).hasSize(2);
+    assertThat(path.getSteps().get(0).getAxis()).isEqualTo(Axis.DESCENDANT);
+    assertThat(path.getSteps().get(1).getAxis()).isEqualTo(Axis.DESCENDANT);
+
+    assertThat(AstNodePath.compile("//leaf[1]").getSteps()).hasSize(2);
+  }
+
+  @Test
+  public void should_not_parse_unsupported_expressions() {
+    assertThat(AstNodePath.compile("/")).isNull();
+    assertThat(AstNodePath.compile("")).isNull();
+    assertThat(AstNodePath.compile("count(//leaf)")).isNull();
+    assertThat(AstNodePath.compile("string(/tree/@tokenValue)")).isNull();
+    assertThat(AstNodePath.compile(".[name() = 'tree']")).isNull();
+    assertThat(AstNodePath.compile("leaf[not(branch)]")).isNull();
+    assertThat(AstNodePath.compile("leaf[0]")).isNull();
+    assertThat(AstNodePath.compile("leaf[last()]")).isNull();
+    assertThat(AstNodePath.compile("leaf[@tokenLine > 1]")).isNull();
+    assertThat(AstNodePath.compile("leaf | branch")).isNull();
+    assertThat(AstNodePath.compile("following-sibling::leaf")).isNull();
+    assertThat(AstNodePath.compile("ns:leaf")).isNull();
+    assertThat(AstNodePath.compile("leaf[@tokenValue = 'a]")).isNull();
+    assertThat(AstNodePath.compile("text()")).isNull();
+  }
+
+  @Test
+  public void child_and_descendant_axes() {
+    assertThat(AstNodePath.compile("branch").evaluate(tree)).containsExactly(branch1, branch2);
+    assertThat(AstNodePath.compile("branch/leaf").evaluate(tree)).containsExactly(leaf11, leaf12, leaf21);
+    assertThat(AstNodePath.compile("//branch").evaluate(leaf11)).containsExactly(branch1, branch2, branch3);
+    assertThat(AstNodePath.compile("/tree").evaluate(leaf11)).containsExactly(tree);
+    assertThat(AstNodePath.compile("/branch").evaluate(leaf11)).isEmpty();
+    assertThat(AstNodePath.compile("//branch//leaf").evaluate(tree)).containsExactly(leaf11, leaf12, leaf21);
+    assertThat(AstNodePath.compile("descendant-or-self::branch").evaluate(branch2)).containsExactly(branch2, branch3);
+    assertThat(AstNodePath.compile("./*").evaluate(branch1)).containsExactly(leaf11, leaf12);
+  }
+
+  @Test
+  public void parent_and_ancestor_axes() {
+    assertThat(AstNodePath.compile("..").evaluate(leaf11)).containsExactly(branch1);
+    assertThat(AstNodePath.compile("../../branch").evaluate(leaf11)).containsExactly(branch1, branch2);
+    assertThat(AstNodePath.compile("ancestor::branch").evaluate(branch3)).containsExactly(branch2);
+    assertThat(AstNodePath.compile("ancestor-or-self::branch").evaluate(branch3)).containsExactly(branch2, branch3);
+    assertThat(AstNodePath.compile("//leaf/..").evaluate(tree)).containsExactly(branch1, branch2);
+    assertThat(AstNodePath.compile("//leaf/ancestor::node()").evaluate(tree)).isNull();
+    assertThat(AstNodePath.compile("//leaf/ancestor::tree").evaluate(tree)).containsExactly(tree);
+  }
+
+  @Test
+  public void positions() {
+    assertThat(AstNodePath.compile("branch[2]").evaluate(tree)).containsExactly(branch2);
+    assertThat(AstNodePath.compile("branch[3]").evaluate(tree)).isEmpty();
+    assertThat(AstNodePath.compile("//leaf[1]").evaluate(tree)).containsExactly(leaf11, leaf21);
+    assertThat(AstNodePath.compile("/descendant::leaf[2]").evaluate(tree)).containsExactly(leaf12);
+    // reverse axis: positions are counted from the nearest node
+    assertThat(AstNodePath.compile("ancestor::node()[1]").evaluate(branch3)).containsExactly(leaf21);
+    assertThat(AstNodePath.compile("ancestor::branch[1]").evaluate(branch3)).containsExactly(branch2);
+    assertThat(AstNodePath.compile("leaf[@tokenColumn = 2][1]").evaluate(branch1)).containsExactly(leaf12);
+    assertThat(AstNodePath.compile("leaf[1][@tokenColumn = 2]").evaluate(branch1)).isEmpty();
+  }
+
+  @Test
+  public void attributes() {
+    assertThat(AstNodePath.compile("//*[@tokenValue]").evaluate(tree)).containsExactly(leaf11, leaf12, leaf21);
+    assertThat(AstNodePath.compile("//leaf[@tokenValue = 'b']").evaluate(tree)).containsExactly(leaf12);
+    assertThat(AstNodePath.compile("//leaf[\"b\" != @tokenValue]").evaluate(tree)).containsExactly(leaf11, leaf21);
+    assertThat(AstNodePath.compile("//leaf[@tokenLine = 1]").evaluate(tree)).containsExactly(leaf11, leaf12);
+    assertThat(AstNodePath.compile("//leaf[@tokenLine = '2']").evaluate(tree)).containsExactly(leaf21);
+    assertThat(AstNodePath.compile("//leaf[@tokenColumn != 1]").evaluate(tree)).containsExactly(leaf12);
+    assertThat(AstNodePath.compile("//leaf[@tokenValue = 2.0]").evaluate(tree)).containsExactly(leaf21);
+    assertThat(AstNodePath.compile("//leaf[@tokenValue != 2]").evaluate(tree)).containsExactly(leaf11, leaf12);
+    assertThat(AstNodePath.compile("//leaf[@unknown]").evaluate(tree)).isEmpty();
+    assertThat(AstNodePath.compile("//branch[@tokenLine != 1]").evaluate(tree)).isEmpty();
+  }
+
+  @Test
+  public void should_give_up_when_document_node_is_involved() {
+    assertThat(AstNodePath.compile("/self::node()").evaluate(leaf11)).isNull();
+    assertThat(AstNodePath.compile("//branch/../..").evaluate(leaf11)).isNull();
+    assertThat(AstNodePath.compile("/tree/ancestor::*").evaluate(leaf11)).isNull();
+    assertThat(AstNodePath.compile("/tree/ancestor::tree").evaluate(leaf11)).isEmpty();
+  }
+
+  /**
+   * Like Jaxen, which attaches the document node to the root only when evaluating an absolute path.
+   */
+  @Test
+  public void root_should_have_no_parent_in_relative_path() {
+    assertThat(AstNodePath.compile("..").evaluate(tree)).isEmpty();
+    assertThat(AstNodePath.compile("../*").evaluate(tree)).isEmpty();
+    assertThat(AstNodePath.compile("../tree").evaluate(tree)).isEmpty();
+    assertThat(AstNodePath.compile("branch/../..").evaluate(tree)).isEmpty();
+    assertThat(AstNodePath.compile("ancestor::*").evaluate(leaf11)).containsExactly(tree, branch1);
+    assertThat(AstNodePath.compile("ancestor-or-self::*").evaluate(tree)).containsExactly(tree);
+    assertThat(tree.getParent()).isNull();
+  }
+
+  @Test
+  public void should_ignore_document_node_left_by_jaxen() {
+    new AstNode(null, "[root]", null).addChild(tree);
+    assertThat(tree.getParent()).isNotNull();
+    assertThat(AstNodePath.compile("/tree").evaluate(leaf11)).containsExactly(tree);
+    assertThat(AstNodePath.compile("../tree").evaluate(tree)).containsExactly(tree);
+  }
+
+  private static AstNode node(String name) {
+    return new AstNode(new NodeType(), name, null);
+  }
+
+  private static AstNode leaf(String value, int line, int column) throws URISyntaxException {
+    return new AstNode(new NodeType(), "leaf", Token.builder()
+      .setURI(new URI("tests://unittest"))
+      .setType(GenericTokenType.IDENTIFIER)
+      .setLine(line)
+      .setColumn(column)
+      .setValueAndOriginalValue(value)
+      .build());
+  }
+
+  private static class NodeType implements AstNodeType {
+  }
+
+}
@@ -211,6 +211,25 @@ public class AstNodeXPathQueryTest {
     assertThat(expr.selectNodes(tree2).size()).isEqualTo(1);
   }
 
+  @Test
+  public void selectNodesInDocumentOrderTest() {
+    AstNodeXPathQuery<AstNode> expr = AstNodeXPathQuery.create("//leaf/ancestor::branch[1]");
+    AstNode tree = new AstNode(new NodeType(), "tree", null);
+    AstNode branch1 = new AstNode(new NodeType(), "branch", null);
+    AstNode branch2 = new AstNode(new NodeType(), "branch", null);
+    AstNode leaf1 = new AstNode(new NodeType(), "leaf", null);
+    AstNode leaf2 = new AstNode(new NodeType(), "leaf", null);
+    AstNode leaf3 = new AstNode(new NodeType(), "leaf", null);
+    tree.addChild(branch1);
+    branch1.addChild(leaf1);
+    branch1.addChild(branch2);
+    branch2.addChild(leaf2);
+    branch2.addChild(leaf3);
+
+    assertThat(expr.selectNodes(tree)).containsExactly(branch1, branch2);
+    assertThat(expr.selectSingleNode(leaf3)).isEqualTo(branch1);
+  }
+
   static class NodeType implements AstNodeType {
 
   }
@@ -0,0 +1,153 @@
+/*
+ * SonarSource Language Recognizer
+ * Copyright (C) 2010-2017 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package com.sonar.sslr.xpath.api;
+
+import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import com.sonar.sslr.impl.xpath.AstNodePath;
+import com.sonar.sslr.impl.xpath.AstNodePathAutomaton;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class XPathQuerySetTest {
+
+  private static final List<String> QUERIES = Arrays.asList(
+    "/tree",
+    "/tree/branch",
+    "/tree/branch/leaf",
+    "//branch",
+    "//branch//leaf",
+    "//leaf[@tokenValue = 'b']",
+    "//leaf[@tokenLine = 2]/branch",
+    "//*",
+    "branch",
+    "branch/leaf",
+    "./branch/leaf",
+    ".",
+    "self::branch",
+    "descendant-or-self::branch",
+    "branch/descendant-or-self::*[@tokenValue]",
+    "/descendant::branch/leaf",
+    "//unknown");
+
+  private AstNode tree;
+  private AstNode branch1;
+  private AstNode branch2;
+  private AstNode leaf21;
+
+  /**
+   * <pre>
+   * tree
+   *  |__ branch
+   *  |    |__ leaf "a" (1:1)
+   *  |    |__ leaf "b" (1:2)
+   *  |__ branch
+   *       |__ leaf "2" (2:1)
+   *            |__ branch
+   *                 |__ leaf "c" (3:1)
+   * </pre>
+   */
+  @Before
+  public void setUp() throws Exception {
+    tree = node("tree");
+    branch1 = node("branch");
+    branch2 = node("branch");
+    leaf21 = leaf("2", 2, 1);
+    AstNode branch3 = node("branch");
+    tree.addChild(branch1);
+    branch1.addChild(leaf("a", 1, 1));
+    branch1.addChild(leaf("b", 1, 2));
+    tree.addChild(branch2);
+    branch2.addChild(leaf21);
+    leaf21.addChild(branch3);
+    branch3.addChild(leaf("c", 3, 1));
+  }
+
+  @Test
+  public void should_find_same_nodes_as_queries_evaluated_separately() {
+    XPathQuerySet set = XPathQuerySet.create(QUERIES);
+    assertThat(set.size()).isEqualTo(QUERIES.size());
+    for (AstNode contextNode : Arrays.asList(tree, branch1, branch2, leaf21)) {
+      List<List<AstNode>> results = set.selectNodes(contextNode);
+      assertThat(results).hasSize(QUERIES.size());
+      for (int i = 0; i < QUERIES.size(); i++) {
+        String query = QUERIES.get(i);
+        assertThat(AstNodePathAutomaton.supports(AstNodePath.compile(query))).as(query).isTrue();
+        assertThat(results.get(i)).as(query).isEqualTo(AstNodePath.compile(query).evaluate(contextNode));
+      }
+    }
+  }
+
+  @Test
+  public void should_evaluate_other_queries_separately() {
+    XPathQuerySet set = XPathQuerySet.create("..", "//leaf", "branch[2]", "//leaf/ancestor::branch");
+    assertThat(AstNodePathAutomaton.supports(AstNodePath.compile(".."))).isFalse();
+    assertThat(AstNodePathAutomaton.supports(AstNodePath.compile("branch[2]"))).isFalse();
+    assertThat(AstNodePathAutomaton.supports(AstNodePath.compile("/self::node()"))).isFalse();
+
+    List<List<AstNode>> results = set.selectNodes(branch2);
+    assertThat(results.get(0)).containsExactly(tree);
+    assertThat(results.get(1)).hasSize(4);
+    assertThat(results.get(2)).isEmpty();
+    assertThat(results.get(3)).hasSize(3);
+
+    results = set.selectNodes(leaf21);
+    assertThat(results.get(0)).containsExactly(branch2);
+    assertThat(results.get(2)).isEmpty();
+  }
+
+  @Test
+  public void should_share_prefixes() {
+    XPathQuerySet set = XPathQuerySet.create("/tree/branch", "/tree/branch", "/tree/*", "//leaf", "descendant::leaf/self::leaf");
+    List<List<AstNode>> results = set.selectNodes(tree);
+    assertThat(results.get(0)).containsExactly(branch1, branch2);
+    assertThat(results.get(1)).containsExactly(branch1, branch2);
+    assertThat(results.get(2)).containsExactly(branch1, branch2);
+    assertThat(results.get(3)).hasSize(4);
+    assertThat(results.get(4)).isEqualTo(results.get(3));
+  }
+
+  private static AstNode node(String name) {
+    return new AstNode(new NodeType(), name, null);
+  }
+
+  private static AstNode leaf(String value, int line, int column) throws URISyntaxException {
+    return new AstNode(new NodeType(), "leaf", Token.builder()
+      .setURI(new URI("tests://unittest"))
+      .setType(GenericTokenType.IDENTIFIER)
+      .setLine(line)
+      .setColumn(column)
+      .setValueAndOriginalValue(value)
+      .build());
+  }
+
+  private static class NodeType implements AstNodeType {
+  }
+
+}